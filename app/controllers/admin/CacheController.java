@@ -0,0 +1,82 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package controllers.admin;
+
+import be.objectify.deadbolt.java.actions.Group;
+import be.objectify.deadbolt.java.actions.Restrict;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import controllers.base.BaseController;
+import io.ebean.DB;
+import io.ebean.cache.ServerCacheManager;
+import io.ebean.cache.ServerCacheStatistics;
+import java.util.List;
+import javax.inject.Inject;
+import models.exam.ExamExecutionType;
+import models.exam.ExamType;
+import models.exam.Grade;
+import models.exam.GradeScale;
+import models.facility.Accessibility;
+import models.facility.Software;
+import models.user.Language;
+import models.user.Permission;
+import models.user.Role;
+import play.libs.Json;
+import play.mvc.Result;
+import repository.UserRepository;
+
+public class CacheController extends BaseController {
+
+    // Rarely changing entities with bean and query caching enabled. Ebean invalidates their caches on changes made
+    // through it, the rest (database level edits, other nodes) expire in ten minutes unless cleared here.
+    private static final List<Class<?>> REFERENCE_TYPES = List.of(
+        Language.class,
+        ExamType.class,
+        ExamExecutionType.class,
+        GradeScale.class,
+        Grade.class,
+        Software.class,
+        Accessibility.class,
+        Role.class,
+        Permission.class
+    );
+
+    private final UserRepository userRepository;
+
+    @Inject
+    public CacheController(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    @Restrict({ @Group("ADMIN") })
+    public Result getStatistics() {
+        ObjectNode node = Json.newObject();
+        node.set("users", asJson(userRepository.getCacheStatistics()));
+        ObjectNode references = node.putObject("references");
+        ServerCacheManager manager = DB.cacheManager();
+        REFERENCE_TYPES.forEach(type -> {
+            ObjectNode stats = references.putObject(type.getSimpleName());
+            stats.set("beans", asJson(manager.beanCache(type).statistics(false)));
+            stats.set("queries", asJson(manager.queryCache(type).statistics(false)));
+        });
+        return ok(node);
+    }
+
+    @Restrict({ @Group("ADMIN") })
+    public Result clearReferenceCaches() {
+        ServerCacheManager manager = DB.cacheManager();
+        REFERENCE_TYPES.forEach(manager::clear);
+        return ok();
+    }
+
+    private static ObjectNode asJson(ServerCacheStatistics stats) {
+        return Json.newObject()
+            .put("size", stats.getSize())
+            .put("maxSize", stats.getMaxSize())
+            .put("hitCount", stats.getHitCount())
+            .put("missCount", stats.getMissCount())
+            .put("hitRatio", stats.getHitRatio())
+            .put("evictCount", stats.getEvictCount());
+    }
+}
@@ -0,0 +1,44 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package controllers.admin;
+
+import be.objectify.deadbolt.java.actions.SubjectNotPresent;
+import controllers.base.BaseController;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import javax.inject.Inject;
+import miscellaneous.config.ConfigReader;
+import miscellaneous.metrics.Metrics;
+import play.mvc.Http;
+import play.mvc.Result;
+
+public class MetricsController extends BaseController {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final Metrics metrics;
+    private final ConfigReader configReader;
+
+    @Inject
+    public MetricsController(Metrics metrics, ConfigReader configReader) {
+        this.metrics = metrics;
+        this.configReader = configReader;
+    }
+
+    // For Prometheus to scrape, authenticated by a bearer token instead of a session
+    @SubjectNotPresent
+    public Result scrape(Http.Request request) {
+        String token = configReader.getMetricsToken();
+        if (token.isEmpty()) {
+            return notFound();
+        }
+        byte[] expected = ("Bearer " + token).getBytes(StandardCharsets.UTF_8);
+        byte[] actual = request.header(Http.HeaderNames.AUTHORIZATION).orElse("").getBytes(StandardCharsets.UTF_8);
+        if (!MessageDigest.isEqual(expected, actual)) {
+            return unauthorized();
+        }
+        return ok(metrics.scrape()).as(CONTENT_TYPE);
+    }
+}
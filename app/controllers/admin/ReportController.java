@@ -14,11 +14,9 @@ import io.ebean.DB;
 import io.ebean.ExpressionList;
 import io.ebean.Query;
 import io.ebean.text.PathProperties;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Base64;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -41,10 +39,11 @@ import play.mvc.Result;
 import play.mvc.With;
 import sanitizers.Attrs;
 import sanitizers.ExamRecordSanitizer;
+import system.interceptors.Blocking;
 
+@Blocking
 public class ReportController extends BaseController {
 
-    private static final String XLSX_MIME = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
     private final ExcelBuilder excelBuilder;
 
     @Inject
@@ -274,7 +273,15 @@ public class ReportController extends BaseController {
 
     @Restrict({ @Group("ADMIN") })
     public Result getResponses(Optional<String> dept, Optional<String> start, Optional<String> end) {
-        ExpressionList<Exam> query = DB.find(Exam.class).where().isNotNull("parent").isNotNull("course");
+        ExpressionList<Exam> query = DB.find(Exam.class)
+            .where()
+            .isNotNull("parent")
+            .isNotNull("course")
+            // Leave out exams that were prepared in advance but never taken
+            .or()
+            .ne("state", Exam.State.DELETED)
+            .isNotNull("examParticipation.id")
+            .endOr();
         query = applyFilters(query, "course", "created", dept.orElse(null), start.orElse(null), end.orElse(null));
         Set<Exam> exams = query.findSet();
         long aborted = exams
@@ -313,16 +320,12 @@ public class ReportController extends BaseController {
 
     @With(ExamRecordSanitizer.class)
     @Restrict({ @Group("TEACHER"), @Group("ADMIN") })
-    public Result exportExamQuestionScoresAsExcel(Long examId, Http.Request request) {
+    public Result exportExamQuestionScoresAsExcel(Long examId, Boolean raw, Http.Request request) {
         Collection<Long> childIds = request.attrs().get(Attrs.ID_COLLECTION);
-        ByteArrayOutputStream bos;
         try {
-            bos = excelBuilder.buildScoreExcel(examId, childIds);
+            return serveExcel(excelBuilder.buildScoreExcel(examId, childIds), "exam_records.xlsx", raw);
         } catch (IOException | RuntimeException e) {
             return internalServerError("i18n_error_creating_csv_file");
         }
-        return ok(Base64.getEncoder().encodeToString(bos.toByteArray()))
-            .withHeader("Content-Disposition", "attachment; filename=\"exam_records.xlsx\"")
-            .as(XLSX_MIME);
     }
 }
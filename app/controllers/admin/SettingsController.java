@@ -23,9 +23,9 @@ import java.util.Optional;
 import java.util.concurrent.CompletionStage;
 import javax.inject.Inject;
 import miscellaneous.config.ConfigReader;
+import miscellaneous.config.SettingsStore;
 import models.admin.GeneralSettings;
 import models.enrolment.ExamEnrolment;
-import models.user.Language;
 import models.user.User;
 import play.Environment;
 import play.data.DynamicForm;
@@ -34,6 +34,7 @@ import play.libs.ws.WSClient;
 import play.libs.ws.WSRequest;
 import play.mvc.Http;
 import play.mvc.Result;
+import repository.UserRepository;
 import scala.jdk.javaapi.CollectionConverters;
 
 public class SettingsController extends BaseController {
@@ -41,57 +42,45 @@ public class SettingsController extends BaseController {
     private final Environment environment;
     private final ConfigReader configReader;
     private final WSClient wsClient;
+    private final SettingsStore settingsStore;
+    private final UserRepository userRepository;
 
     @Inject
-    public SettingsController(Environment environment, ConfigReader configReader, WSClient wsClient) {
+    public SettingsController(
+        Environment environment,
+        ConfigReader configReader,
+        WSClient wsClient,
+        SettingsStore settingsStore,
+        UserRepository userRepository
+    ) {
         this.environment = environment;
         this.configReader = configReader;
         this.wsClient = wsClient;
-    }
-
-    public static GeneralSettings get(String name) {
-        return DB.find(GeneralSettings.class).where().eq("name", name).findOneOrEmpty().orElse(new GeneralSettings());
-    }
-
-    public static GeneralSettings getOrCreateSettings(String name, String value, String defaultValue) {
-        GeneralSettings gs = DB.find(GeneralSettings.class).where().eq("name", name).findOne();
-        if (gs == null) {
-            gs = new GeneralSettings();
-            gs.setName(name);
-            gs.save();
-        }
-        if (value != null) {
-            gs.setValue(value);
-            gs.update();
-        } else if (gs.getValue() == null && defaultValue != null) {
-            gs.setValue(defaultValue);
-            gs.update();
-        }
-        return gs;
+        this.settingsStore = settingsStore;
+        this.userRepository = userRepository;
     }
 
     @SubjectPresent
     public Result getUserAgreement() {
-        GeneralSettings gs = getOrCreateSettings("eula", null, null);
+        GeneralSettings gs = settingsStore.getUserAgreement();
         return ok(Json.toJson(gs));
     }
 
     @Restrict({ @Group("ADMIN"), @Group("STUDENT") })
     public Result getDeadline() {
-        GeneralSettings gs = getOrCreateSettings("review_deadline", null, "14");
+        GeneralSettings gs = settingsStore.getReviewDeadlineSetting();
         return ok(Json.toJson(gs));
     }
 
     @Restrict({ @Group("ADMIN"), @Group("STUDENT") })
     public Result getReservationWindowSize() {
-        GeneralSettings gs = getOrCreateSettings("reservation_window_size", null, "30");
+        GeneralSettings gs = settingsStore.getReservationWindowSizeSetting();
         return ok(Json.toJson(gs));
     }
 
     @SubjectPresent
     public CompletionStage<Result> getMaturityInstructions(String lang, Optional<String> hash) throws IOException {
-        Language language = DB.find(Language.class, lang);
-        if (language == null) {
+        if (!isSupported(lang)) {
             return wrapAsPromise(badRequest("Language not supported"));
         }
         if (hash.isPresent()) {
@@ -103,7 +92,7 @@ public class SettingsController extends BaseController {
                 return wrapAsPromise(badRequest("Enrolment not found"));
             }
             URL url = parseExternalUrl(enrolment.getReservation().getExternalRef());
-            WSRequest request = wsClient.url(url.toString()).addQueryParameter("lang", language.getCode());
+            WSRequest request = wsClient.url(url.toString()).addQueryParameter("lang", lang);
             return request
                 .get()
                 .thenApplyAsync(response -> {
@@ -115,31 +104,36 @@ public class SettingsController extends BaseController {
                 });
         } else {
             String key = String.format("maturity_instructions_%s", lang);
-            return wrapAsPromise(ok(Json.toJson(get(key))));
+            return wrapAsPromise(ok(Json.toJson(settingsStore.get(key))));
         }
     }
 
     @SubjectNotPresent
     public Result provideMaturityInstructions(String ref, String lang) {
-        Language language = DB.find(Language.class, lang);
-        if (language == null) {
-            badRequest("Language not supported");
+        if (!isSupported(lang)) {
+            return badRequest("Language not supported");
         }
         String key = String.format("maturity_instructions_%s", lang);
-        return ok(Json.toJson(get(key)));
+        return ok(Json.toJson(settingsStore.get(key)));
+    }
+
+    // Instructions are only looked up for supported languages, so that arbitrary input does not end up in the cache
+    private boolean isSupported(String lang) {
+        return configReader.getSupportedLanguages().contains(lang);
     }
 
     @Restrict({ @Group("ADMIN") })
     public Result updateUserAgreement(Http.Request request) {
         JsonNode body = request.body().asJson();
         String eula = body.get("value").asText();
-        GeneralSettings gs = getOrCreateSettings("eula", eula, null);
+        GeneralSettings gs = settingsStore.set("eula", eula);
         if (!body.get("minorUpdate").asBoolean()) {
             // Since the EULA has changed, force users to accept it again.
             String updStatement = "update app_user set user_agreement_accepted = :hasNot";
             Update<User> update = DB.createUpdate(User.class, updStatement);
             update.set("hasNot", false);
             update.execute();
+            userRepository.evictAll();
         }
         return ok(Json.toJson(gs));
     }
@@ -148,7 +142,7 @@ public class SettingsController extends BaseController {
     public Result setDeadline(Http.Request request) {
         DynamicForm df = formFactory.form().bindFromRequest(request);
         String deadline = df.get("value");
-        GeneralSettings gs = getOrCreateSettings("review_deadline", deadline, null);
+        GeneralSettings gs = settingsStore.set("review_deadline", deadline);
         return ok(Json.toJson(gs));
     }
 
@@ -156,7 +150,7 @@ public class SettingsController extends BaseController {
     public Result setReservationWindowSize(Http.Request request) {
         DynamicForm df = formFactory.form().bindFromRequest(request);
         String deadline = df.get("value");
-        GeneralSettings gs = getOrCreateSettings("reservation_window_size", deadline, null);
+        GeneralSettings gs = settingsStore.set("reservation_window_size", deadline);
         return ok(Json.toJson(gs));
     }
 
@@ -285,12 +279,9 @@ public class SettingsController extends BaseController {
             });
         node.set("roles", roles);
 
-        GeneralSettings eula = getOrCreateSettings("eula", null, null);
-        node.put("eula", eula.getValue());
-        GeneralSettings reservationWindowSize = getOrCreateSettings("reservation_window_size", null, "30");
-        node.put("reservationWindowSize", Integer.parseInt(reservationWindowSize.getValue()));
-        GeneralSettings reviewDeadline = getOrCreateSettings("review_deadline", null, "14");
-        node.put("reviewDeadline", Integer.parseInt(reviewDeadline.getValue()));
+        node.put("eula", settingsStore.getUserAgreement().getValue());
+        node.put("reservationWindowSize", Integer.parseInt(settingsStore.getReservationWindowSizeSetting().getValue()));
+        node.put("reviewDeadline", settingsStore.getReviewDeadline());
 
         node.put("isExamVisitSupported", configReader.isVisitingExaminationSupported());
         node.put("isExamCollaborationSupported", configReader.isCollaborationExaminationSupported());
@@ -8,16 +8,16 @@ import be.objectify.deadbolt.java.actions.Group;
 import be.objectify.deadbolt.java.actions.Restrict;
 import controllers.base.BaseController;
 import io.ebean.DB;
-import java.io.ByteArrayOutputStream;
+import io.ebean.Query;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Base64;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Supplier;
 import java.util.stream.IntStream;
+import miscellaneous.excel.StreamingWorkbook;
 import models.enrolment.ExamEnrolment;
 import models.enrolment.ExamParticipation;
 import models.exam.Exam;
@@ -25,7 +25,6 @@ import models.user.User;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.joda.time.DateTime;
 import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
@@ -33,11 +32,12 @@ import org.joda.time.format.ISODateTimeFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import play.mvc.Result;
+import system.interceptors.Blocking;
 
+@Blocking
 public class StatisticsController extends BaseController {
 
     private static final DateTimeFormatter DTF = DateTimeFormat.forPattern("dd.MM.yyyy");
-    private static final String XLSX_MIME = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
 
     private final Logger logger = LoggerFactory.getLogger(StatisticsController.class);
 
@@ -64,7 +64,7 @@ public class StatisticsController extends BaseController {
         return ok(exams);
     }
 
-    private static Result examToExcel(Exam exam) throws IOException {
+    private Result examToExcel(Exam exam, boolean raw) throws IOException {
         Map<String, String> values = new LinkedHashMap<>();
         values.put("Creator ID", exam.getCreator().getId().toString());
         values.put("First name", exam.getCreator().getFirstName());
@@ -88,7 +88,11 @@ public class StatisticsController extends BaseController {
         values.put("Instructions", forceNotNull(exam.getInstruction()));
         values.put("Shared", Boolean.valueOf(exam.isShared()).toString());
 
-        Workbook wb = new XSSFWorkbook();
+        StreamingWorkbook workbook = StreamingWorkbook.create(wb -> writeExam(wb, exam, values));
+        return serveExcel(workbook, "exams.xlsx", raw);
+    }
+
+    private void writeExam(StreamingWorkbook wb, Exam exam, Map<String, String> values) {
         Sheet sheet = wb.createSheet(exam.getName());
 
         Row headerRow = sheet.createRow(0);
@@ -101,7 +105,6 @@ public class StatisticsController extends BaseController {
         for (String value : values.values()) {
             dataRow.createCell(i++).setCellValue(value);
         }
-        return ok(encode(wb)).as(XLSX_MIME).withHeader("Content-Disposition", "attachment; filename=\"exams.xlsx\"");
     }
 
     private static Result examToJson(Exam exam) {
@@ -111,45 +114,36 @@ public class StatisticsController extends BaseController {
             .withHeader("Content-Disposition", "attachment; filename=\"exams.json\"");
     }
 
-    private <T> void createRow(Sheet sheet, String[] data, List<T> items, T parent) {
-        Row dataRow = sheet.createRow(items.indexOf(parent) + 1);
+    private static void createRow(Sheet sheet, String[] data) {
+        Row dataRow = sheet.createRow(sheet.getLastRowNum() + 1);
         for (int i = 0; i < data.length; ++i) {
             dataRow.createCell(i).setCellValue(data[i]);
         }
     }
 
     @Restrict({ @Group("ADMIN") })
-    public Result getExam(Long id, String reportType) throws IOException {
+    public Result getExam(Long id, String reportType, Boolean raw) throws IOException {
         Exam exam = DB.find(Exam.class).where().idEq(id).isNotNull("course").findOne();
         if (exam == null) {
             return notFound();
         }
 
         return switch (reportType) {
-            case "xlsx" -> examToExcel(exam);
+            case "xlsx" -> examToExcel(exam, raw);
             case "json" -> examToJson(exam);
             default -> badRequest("invalid type: " + reportType);
         };
     }
 
     @Restrict({ @Group("ADMIN") })
-    public Result getTeacherExamsByDate(Long uid, String from, String to) throws IOException {
+    public Result getTeacherExamsByDate(Long uid, String from, String to, Boolean raw) throws IOException {
         final DateTime start = DateTime.parse(from, DTF);
         final DateTime end = DateTime.parse(to, DTF);
-        List<Exam> exams = DB.find(Exam.class)
-            .fetch("creator")
-            .fetch("examType")
-            .fetch("course")
-            .fetch("children")
-            .where()
-            .between("created", start, end)
-            .isNull("parent")
-            .isNotNull("course")
-            .eq("creator.id", uid)
-            .orderBy("created")
-            .findList();
+        StreamingWorkbook workbook = StreamingWorkbook.create(wb -> writeTeacherExams(wb, uid, start, end));
+        return serveExcel(workbook, "teachers_exams.xlsx", raw);
+    }
 
-        Workbook wb = new XSSFWorkbook();
+    private void writeTeacherExams(StreamingWorkbook wb, Long uid, DateTime start, DateTime end) {
         Sheet sheet = wb.createSheet("teacher's exams");
         String[] headers = {
             "exam",
@@ -164,78 +158,83 @@ public class StatisticsController extends BaseController {
             "logged",
         };
         addHeader(sheet, headers);
-        for (Exam parent : exams) {
-            int inReview = 0;
-            int graded = 0;
-            int logged = 0;
-            for (Exam child : parent.getChildren()) {
-                switch (child.getState()) {
-                    case REVIEW, REVIEW_STARTED -> inReview++;
-                    case GRADED -> graded++;
-                    case GRADED_LOGGED -> logged++;
-                    default -> {}
+        DB.find(Exam.class)
+            .fetch("creator")
+            .fetch("examType")
+            .fetch("course")
+            .fetch("children")
+            .where()
+            .between("created", start, end)
+            .isNull("parent")
+            .isNotNull("course")
+            .eq("creator.id", uid)
+            .orderBy("created")
+            .findEach(parent -> {
+                int inReview = 0;
+                int graded = 0;
+                int logged = 0;
+                for (Exam child : parent.getChildren()) {
+                    switch (child.getState()) {
+                        case REVIEW, REVIEW_STARTED -> inReview++;
+                        case GRADED -> graded++;
+                        case GRADED_LOGGED -> logged++;
+                        default -> {}
+                    }
                 }
-            }
-            String[] data = new String[10];
-            data[0] = parent.getName();
-            data[1] = ISODateTimeFormat.date().print(new DateTime(parent.getCreated()));
-            data[2] = parent.getState().toString();
-            data[3] = parent.getCourse().getCode();
-            data[4] = String.format(
-                "%s - %s",
-                ISODateTimeFormat.date().print(new DateTime(parent.getPeriodStart())),
-                ISODateTimeFormat.date().print(new DateTime(parent.getPeriodEnd()))
-            );
-            data[5] = parent.getCourse().getCredits() == null ? "" : Double.toString(parent.getCourse().getCredits());
-            data[6] = parent.getExamType().getType();
-            data[7] = Integer.toString(inReview);
-            data[8] = Integer.toString(graded);
-            data[9] = Integer.toString(logged);
-
-            createRow(sheet, data, exams, parent);
-        }
+                String[] data = new String[10];
+                data[0] = parent.getName();
+                data[1] = ISODateTimeFormat.date().print(new DateTime(parent.getCreated()));
+                data[2] = parent.getState().toString();
+                data[3] = parent.getCourse().getCode();
+                data[4] = String.format(
+                    "%s - %s",
+                    ISODateTimeFormat.date().print(new DateTime(parent.getPeriodStart())),
+                    ISODateTimeFormat.date().print(new DateTime(parent.getPeriodEnd()))
+                );
+                data[5] = parent.getCourse().getCredits() == null
+                    ? ""
+                    : Double.toString(parent.getCourse().getCredits());
+                data[6] = parent.getExamType().getType();
+                data[7] = Integer.toString(inReview);
+                data[8] = Integer.toString(graded);
+                data[9] = Integer.toString(logged);
+
+                createRow(sheet, data);
+            });
         IntStream.range(0, 10).forEach(i -> sheet.autoSizeColumn(i, true));
-        return ok(encode(wb))
-            .as(XLSX_MIME)
-            .withHeader("Content-Disposition", "attachment; filename=\"teachers_exams.xlsx\"");
     }
 
     @Restrict({ @Group("ADMIN") })
-    public Result getExamEnrollments(Long id) throws IOException {
-        Exam proto = DB.find(Exam.class)
-            .fetch("examEnrolments")
-            .fetch("examEnrolments.user")
-            .fetch("examEnrolments.reservation")
-            .fetch("course")
-            .where()
-            .eq("id", id)
-            .isNull("parent")
-            .findOne();
-        if (proto == null) {
+    public Result getExamEnrollments(Long id, Boolean raw) throws IOException {
+        boolean exists = DB.find(Exam.class).where().eq("id", id).isNull("parent").exists();
+        if (!exists) {
             return notFound("i18n_error_exam_not_found");
         }
-        Workbook wb = new XSSFWorkbook();
+        StreamingWorkbook workbook = StreamingWorkbook.create(wb -> writeEnrolments(wb, id));
+        return serveExcel(workbook, "enrolments.xlsx", raw);
+    }
+
+    private void writeEnrolments(StreamingWorkbook wb, Long id) {
         Sheet sheet = wb.createSheet("enrolments");
         String[] headers = { "student name", "student ID", "student EPPN", "reservation time", "enrolment time" };
         addHeader(sheet, headers);
-        for (ExamEnrolment e : proto.getExamEnrolments()) {
-            String[] data = new String[5];
-            data[0] = String.format("%s %s", e.getUser().getFirstName(), e.getUser().getLastName());
-            data[1] = forceNotNull(e.getUser().getIdentifier());
-            data[2] = e.getUser().getEppn();
-            data[3] = e.getReservation() == null
-                ? ""
-                : ISODateTimeFormat.dateTimeNoMillis().print(new DateTime(e.getReservation().getStartAt()));
-            data[4] = ISODateTimeFormat.dateTimeNoMillis().print(new DateTime(e.getEnrolledOn()));
-            Row dataRow = sheet.createRow(proto.getExamEnrolments().indexOf(e) + 1);
-            for (int i = 0; i < data.length; ++i) {
-                dataRow.createCell(i).setCellValue(data[i]);
-            }
-        }
+        DB.find(ExamEnrolment.class)
+            .fetch("user")
+            .fetch("reservation")
+            .where()
+            .eq("exam.id", id)
+            .findEach(e -> {
+                String[] data = new String[5];
+                data[0] = String.format("%s %s", e.getUser().getFirstName(), e.getUser().getLastName());
+                data[1] = forceNotNull(e.getUser().getIdentifier());
+                data[2] = e.getUser().getEppn();
+                data[3] = e.getReservation() == null
+                    ? ""
+                    : ISODateTimeFormat.dateTimeNoMillis().print(new DateTime(e.getReservation().getStartAt()));
+                data[4] = ISODateTimeFormat.dateTimeNoMillis().print(new DateTime(e.getEnrolledOn()));
+                createRow(sheet, data);
+            });
         IntStream.range(0, 5).forEach(i -> sheet.autoSizeColumn(i, true));
-        return ok(encode(wb))
-            .as(XLSX_MIME)
-            .withHeader("Content-Disposition", "attachment; filename=\"enrolments.xlsx\"");
     }
 
     private String parse(Supplier<String> supplier) {
@@ -248,21 +247,14 @@ public class StatisticsController extends BaseController {
     }
 
     @Restrict({ @Group("ADMIN") })
-    public Result getReviewsByDate(String from, String to) throws IOException {
+    public Result getReviewsByDate(String from, String to, Boolean raw) throws IOException {
         final DateTime start = DateTime.parse(from, DTF);
         final DateTime end = DateTime.parse(to, DTF);
-        List<Exam> exams = DB.find(Exam.class)
-            .fetch("course")
-            .where()
-            .between("gradedTime", start, end)
-            .disjunction()
-            .eq("state", Exam.State.GRADED)
-            .eq("state", Exam.State.GRADED_LOGGED)
-            .endJunction()
-            .orderBy("creator.id")
-            .findList();
+        StreamingWorkbook workbook = StreamingWorkbook.create(wb -> writeReviews(wb, start, end));
+        return serveExcel(workbook, "reviews.xlsx", raw);
+    }
 
-        Workbook wb = new XSSFWorkbook();
+    private void writeReviews(StreamingWorkbook wb, DateTime start, DateTime end) {
         Sheet sheet = wb.createSheet("graded exams");
         String[] headers = {
             "student",
@@ -278,44 +270,47 @@ public class StatisticsController extends BaseController {
         };
 
         addHeader(sheet, headers);
-        for (Exam e : exams) {
-            String[] data = new String[10];
-            data[0] = String.format("%s %s", e.getCreator().getFirstName(), e.getCreator().getLastName());
-            data[1] = e.getName();
-            data[2] = e.getCourse().getCode();
-            data[3] = ISODateTimeFormat.dateTimeNoMillis().print(new DateTime(e.getCreated()));
-            data[4] = ISODateTimeFormat.dateTimeNoMillis().print(new DateTime(e.getGradedTime()));
-            data[5] = parse(() ->
-                String.format("%s %s", e.getGradedByUser().getFirstName(), e.getGradedByUser().getLastName())
-            );
-
-            data[6] = e.getCourse().getCredits() == null ? "" : Double.toString(e.getCourse().getCredits()); // custom credits?
-            data[7] = parse(() -> e.getGrade().getName());
-            data[8] = parse(() -> e.getCreditType().getType());
-
-            data[9] = e.getAnswerLanguage();
-            createRow(sheet, data, exams, e);
-        }
+        DB.find(Exam.class)
+            .fetch("course")
+            .where()
+            .between("gradedTime", start, end)
+            .disjunction()
+            .eq("state", Exam.State.GRADED)
+            .eq("state", Exam.State.GRADED_LOGGED)
+            .endJunction()
+            .orderBy("creator.id")
+            .findEach(e -> {
+                String[] data = new String[10];
+                data[0] = String.format("%s %s", e.getCreator().getFirstName(), e.getCreator().getLastName());
+                data[1] = e.getName();
+                data[2] = e.getCourse().getCode();
+                data[3] = ISODateTimeFormat.dateTimeNoMillis().print(new DateTime(e.getCreated()));
+                data[4] = ISODateTimeFormat.dateTimeNoMillis().print(new DateTime(e.getGradedTime()));
+                data[5] = parse(() ->
+                    String.format("%s %s", e.getGradedByUser().getFirstName(), e.getGradedByUser().getLastName())
+                );
+
+                data[6] = e.getCourse().getCredits() == null ? "" : Double.toString(e.getCourse().getCredits()); // custom credits?
+                data[7] = parse(() -> e.getGrade().getName());
+                data[8] = parse(() -> e.getCreditType().getType());
+
+                data[9] = e.getAnswerLanguage();
+                createRow(sheet, data);
+            });
         IntStream.range(0, 10).forEach(i -> sheet.autoSizeColumn(i, true));
-        return ok(encode(wb)).as(XLSX_MIME).withHeader("Content-Disposition", "attachment; filename=\"reviews.xlsx\"");
     }
 
     @Restrict({ @Group("ADMIN") })
-    public Result getReservationsForRoomByDate(Long roomId, String from, String to) throws IOException {
+    public Result getReservationsForRoomByDate(Long roomId, String from, String to, Boolean raw)
+        throws IOException {
         final DateTime start = DateTime.parse(from, DTF);
         final DateTime end = DateTime.parse(to, DTF);
 
-        List<ExamEnrolment> enrolments = DB.find(ExamEnrolment.class)
-            .fetch("user")
-            .fetch("exam")
-            .where()
-            .gt("reservation.endAt", start)
-            .lt("reservation.startAt", end)
-            .eq("reservation.machine.room.id", roomId)
-            .isNotNull("exam")
-            .findList();
+        StreamingWorkbook workbook = StreamingWorkbook.create(wb -> writeReservations(wb, roomId, start, end));
+        return serveExcel(workbook, "reservations.xlsx", raw);
+    }
 
-        Workbook wb = new XSSFWorkbook();
+    private void writeReservations(StreamingWorkbook wb, Long roomId, DateTime start, DateTime end) {
         Sheet sheet = wb.createSheet("reservations");
         String[] headers = {
             "enrolment id",
@@ -338,39 +333,44 @@ public class StatisticsController extends BaseController {
 
         addHeader(sheet, headers);
 
-        for (ExamEnrolment e : enrolments) {
-            String[] data = Arrays.asList(
-                Long.toString(e.getId()),
-                ISODateTimeFormat.date().print(new DateTime(e.getEnrolledOn())),
-                Long.toString(e.getUser().getId()),
-                e.getUser().getFirstName(),
-                e.getUser().getLastName(),
-                Long.toString(e.getExam().getId()),
-                e.getExam().getName(),
-                Long.toString(e.getReservation().getId()),
-                ISODateTimeFormat.dateTime().print(new DateTime(e.getReservation().getStartAt())),
-                ISODateTimeFormat.dateTime().print(new DateTime(e.getReservation().getEndAt())),
-                Long.toString(e.getReservation().getMachine().getId()),
-                e.getReservation().getMachine().getName(),
-                e.getReservation().getMachine().getIpAddress(),
-                Long.toString(e.getReservation().getMachine().getRoom().getId()),
-                e.getReservation().getMachine().getRoom().getName(),
-                e.getReservation().getMachine().getRoom().getRoomCode()
-            ).toArray(new String[0]);
-            createRow(sheet, data, enrolments, e);
-        }
+        DB.find(ExamEnrolment.class)
+            .fetch("user")
+            .fetch("exam")
+            .where()
+            .gt("reservation.endAt", start)
+            .lt("reservation.startAt", end)
+            .eq("reservation.machine.room.id", roomId)
+            .isNotNull("exam")
+            .findEach(e -> {
+                String[] data = Arrays.asList(
+                    Long.toString(e.getId()),
+                    ISODateTimeFormat.date().print(new DateTime(e.getEnrolledOn())),
+                    Long.toString(e.getUser().getId()),
+                    e.getUser().getFirstName(),
+                    e.getUser().getLastName(),
+                    Long.toString(e.getExam().getId()),
+                    e.getExam().getName(),
+                    Long.toString(e.getReservation().getId()),
+                    ISODateTimeFormat.dateTime().print(new DateTime(e.getReservation().getStartAt())),
+                    ISODateTimeFormat.dateTime().print(new DateTime(e.getReservation().getEndAt())),
+                    Long.toString(e.getReservation().getMachine().getId()),
+                    e.getReservation().getMachine().getName(),
+                    e.getReservation().getMachine().getIpAddress(),
+                    Long.toString(e.getReservation().getMachine().getRoom().getId()),
+                    e.getReservation().getMachine().getRoom().getName(),
+                    e.getReservation().getMachine().getRoom().getRoomCode()
+                ).toArray(new String[0]);
+                createRow(sheet, data);
+            });
         IntStream.range(0, headers.length + 1).forEach(i -> sheet.autoSizeColumn(i, true));
-        return ok(encode(wb))
-            .as(XLSX_MIME)
-            .withHeader("Content-Disposition", "attachment; filename=\"reservations.xlsx\"");
     }
 
     @Restrict({ @Group("ADMIN") })
-    public Result reportAllExams(String from, String to) throws IOException {
+    public Result reportAllExams(String from, String to, Boolean raw) throws IOException {
         final DateTime start = DateTime.parse(from, DTF);
         final DateTime end = DateTime.parse(to, DTF);
 
-        List<ExamParticipation> participations = DB.find(ExamParticipation.class)
+        Query<ExamParticipation> participations = DB.find(ExamParticipation.class)
             .fetch("exam")
             .where()
             .gt("started", start)
@@ -380,17 +380,14 @@ public class StatisticsController extends BaseController {
             .eq("exam.state", Exam.State.GRADED_LOGGED)
             .eq("exam.state", Exam.State.ARCHIVED)
             .endJunction()
-            .findList();
+            .query();
 
-        Workbook wb = new XSSFWorkbook();
-        generateParticipationSheet(wb, participations, true);
-        return ok(encode(wb))
-            .as(XLSX_MIME)
-            .withHeader("Content-Disposition", "attachment; filename=\"all_exams.xlsx\"");
+        StreamingWorkbook wb = StreamingWorkbook.create(w -> generateParticipationSheet(w, participations, true));
+        return serveExcel(wb, "all_exams.xlsx", raw);
     }
 
     @Restrict({ @Group("ADMIN") })
-    public Result reportStudentActivity(Long studentId, String from, String to) throws IOException {
+    public Result reportStudentActivity(Long studentId, String from, String to, Boolean raw) throws IOException {
         final DateTime start = DateTime.parse(from, DTF);
         final DateTime end = DateTime.parse(to, DTF);
 
@@ -398,7 +395,11 @@ public class StatisticsController extends BaseController {
         if (student == null) {
             return notFound("i18n_error_not_found");
         }
-        Workbook wb = new XSSFWorkbook();
+        StreamingWorkbook workbook = StreamingWorkbook.create(wb -> writeStudentActivity(wb, student, start, end));
+        return serveExcel(workbook, "student_activity.xlsx", raw);
+    }
+
+    private void writeStudentActivity(StreamingWorkbook wb, User student, DateTime start, DateTime end) {
         Sheet studentSheet = wb.createSheet("student");
         String[] studentHeaders = { "id", "first name", "last name", "email", "language" };
         addHeader(studentSheet, studentHeaders);
@@ -410,7 +411,7 @@ public class StatisticsController extends BaseController {
         dataRow.createCell(index++).setCellValue(student.getEmail());
         dataRow.createCell(index).setCellValue(student.getLanguage().getCode());
 
-        List<ExamParticipation> participations = DB.find(ExamParticipation.class)
+        Query<ExamParticipation> participations = DB.find(ExamParticipation.class)
             .fetch("exam")
             .fetch("reservation")
             .fetch("reservation.externalReservation")
@@ -419,19 +420,16 @@ public class StatisticsController extends BaseController {
             .where()
             .gt("started", start)
             .lt("ended", end)
-            .eq("user.id", studentId)
+            .eq("user.id", student.getId())
             .isNotNull("reservation")
-            .findList();
+            .query();
 
         generateParticipationSheet(wb, participations, false);
-        return ok(encode(wb))
-            .as(XLSX_MIME)
-            .withHeader("Content-Disposition", "attachment; filename=\"student_activity.xlsx\"");
     }
 
     private static void generateParticipationSheet(
         Workbook workbook,
-        List<ExamParticipation> participations,
+        Query<ExamParticipation> participations,
         boolean includeStudentInfo
     ) {
         Sheet sheet = workbook.createSheet("participations");
@@ -471,7 +469,7 @@ public class StatisticsController extends BaseController {
 
         addHeader(sheet, headers.toArray(new String[0]));
 
-        for (ExamParticipation p : participations) {
+        participations.findEach(p -> {
             List<String> data = new ArrayList<>();
             if (includeStudentInfo) {
                 data.add(Long.toString(p.getUser().getId()));
@@ -534,11 +532,8 @@ public class StatisticsController extends BaseController {
                     : ISODateTimeFormat.dateTime().print(new DateTime(p.getExam().getGradedTime()))
             );
             data.add(p.getExam().getCreditType() == null ? "" : p.getExam().getCreditType().getType());
-            Row dataRow = sheet.createRow(participations.indexOf(p) + 1);
-            for (int i = 0; i < data.size(); ++i) {
-                dataRow.createCell(i).setCellValue(data.get(i));
-            }
-        }
+            createRow(sheet, data.toArray(new String[0]));
+        });
         IntStream.range(0, headers.size()).forEach(i -> sheet.autoSizeColumn(i, true));
     }
 
@@ -546,14 +541,6 @@ public class StatisticsController extends BaseController {
         return src == null ? "" : src;
     }
 
-    // Base64-encode workbook
-    private static String encode(Workbook wb) throws IOException {
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        wb.write(bos);
-        bos.close();
-        return Base64.getEncoder().encodeToString(bos.toByteArray());
-    }
-
     private static void addHeader(Sheet sheet, String[] headers) {
         Row headerRow = sheet.createRow(0);
         for (int i = 0; i < headers.length; i++) {
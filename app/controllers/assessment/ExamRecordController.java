@@ -9,10 +9,8 @@ import be.objectify.deadbolt.java.actions.Restrict;
 import controllers.base.BaseController;
 import impl.mail.EmailComposer;
 import io.ebean.DB;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.util.Base64;
 import java.util.Collection;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
@@ -59,7 +57,6 @@ public class ExamRecordController extends BaseController {
 
     private final ActorSystem actor;
 
-    private static final String XLSX_MIME = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
     private final Logger logger = LoggerFactory.getLogger(ExamRecordController.class);
 
     @Inject
@@ -183,17 +180,13 @@ public class ExamRecordController extends BaseController {
 
     @With(ExamRecordSanitizer.class)
     @Restrict({ @Group("TEACHER"), @Group("ADMIN"), @Group("SUPPORT") })
-    public Result exportSelectedExamRecordsAsExcel(Long examId, Http.Request request) {
+    public Result exportSelectedExamRecordsAsExcel(Long examId, Boolean raw, Http.Request request) {
         Collection<Long> childIds = request.attrs().get(Attrs.ID_COLLECTION);
-        ByteArrayOutputStream bos;
         try {
-            bos = excelBuilder.build(examId, childIds);
+            return serveExcel(excelBuilder.build(examId, childIds), "exam_records.xlsx", raw);
         } catch (IOException e) {
             return internalServerError("i18n_error_creating_csv_file");
         }
-        return ok(Base64.getEncoder().encodeToString(bos.toByteArray()))
-            .withHeader("Content-Disposition", "attachment; filename=\"exam_records.xlsx\"")
-            .as(XLSX_MIME);
     }
 
     private boolean isApprovedInLanguageInspection(Exam exam, User user) {
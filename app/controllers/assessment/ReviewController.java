@@ -8,6 +8,7 @@ import be.objectify.deadbolt.java.actions.Group;
 import be.objectify.deadbolt.java.actions.Restrict;
 import com.fasterxml.jackson.databind.JsonNode;
 import controllers.base.BaseController;
+import impl.ExamScoreUpdater;
 import impl.mail.EmailComposer;
 import io.ebean.DB;
 import io.ebean.ExpressionList;
@@ -59,7 +60,9 @@ import sanitizers.CommentSanitizer;
 import scala.concurrent.duration.Duration;
 import security.Authenticated;
 import system.interceptors.Anonymous;
+import system.interceptors.Blocking;
 
+@Blocking
 public class ReviewController extends BaseController {
 
     private static final double HUNDRED = 100d;
@@ -76,6 +79,9 @@ public class ReviewController extends BaseController {
     @Inject
     protected MessagesApi messaging;
 
+    @Inject
+    protected ExamScoreUpdater examScoreUpdater;
+
     private final Logger logger = LoggerFactory.getLogger(ReviewController.class);
 
     @Authenticated
@@ -173,14 +179,45 @@ public class ReviewController extends BaseController {
     @Authenticated
     @Restrict({ @Group("TEACHER"), @Group("ADMIN"), @Group("SUPPORT") })
     @Anonymous(filteredProperties = { "user", "creator", "modifier" })
-    public Result getExamReviews(Long eid, Http.Request request) {
+    public Result getExamReviews(Long eid, Boolean details, Http.Request request) {
         User user = request.attrs().get(Attrs.AUTHENTICATED_USER);
+        Set<Exam> exams = createReviewQuery(eid, details, user).findSet();
+        // Stored scores are kept up to date as the exam gets assessed. Exams that have none yet are the only ones
+        // whose questions and answers need to be loaded, store the scores for them and have another go.
+        List<Long> unscored = exams.stream().filter(e -> !e.hasScores()).map(Exam::getId).toList();
+        if (!unscored.isEmpty()) {
+            examScoreUpdater.update(unscored);
+            exams = createReviewQuery(eid, details, user).findSet();
+        }
+
+        Set<Long> anonIds = new HashSet<>();
+        Set<ExamParticipation> participations = exams
+            .stream()
+            .map(e -> {
+                ExamParticipation ep = e.getExamParticipation();
+                ep.setExam(e);
+                if (e.isAnonymous()) {
+                    anonIds.add(ep.getId());
+                }
+                return ep;
+            })
+            .collect(Collectors.toSet());
+
+        final Result result = ok(participations);
+        return writeAnonymousResult(request, result, anonIds);
+    }
+
+    // Section questions and answers are only included in details, the listing itself needs just the stored scores
+    private Query<Exam> createReviewQuery(Long eid, boolean details, User user) {
         PathProperties pp = PathProperties.parse(
             "(" +
                 "id, name, anonymous, state, gradedTime, customCredit, creditType, gradingType(*), answerLanguage, trialCount, " +
                 "implementation, gradeScale(grades(*)), creditType(*), examType(*), executionType(*), examFeedback(*), grade(*), " +
+                "totalScore, maxScore, approvedAnswerCount, rejectedAnswerCount, scoresUpdated, " +
                 "course(code, name, gradeScale(grades(*))), " +
-                "examSections(name, sectionQuestions(*, clozeTestAnswer(*), question(*), essayAnswer(*), options(*, option(*)))), " +
+                (details
+                        ? "examSections(name, sectionQuestions(*, clozeTestAnswer(*), question(*), essayAnswer(*), options(*, option(*)))), "
+                        : "") +
                 "languageInspection(*), examLanguages(*), examFeedback(*), grade(name), " +
                 "parent(name, periodStart, periodEnd, course(code, name), examOwners(firstName, lastName, email), examInspections(id, user(firstName, lastName)))" +
                 "examParticipation(*, user(id, firstName, lastName, email, userIdentifier)), " +
@@ -212,27 +249,7 @@ public class ReviewController extends BaseController {
         if (!user.hasRole(Role.Name.ADMIN, Role.Name.SUPPORT)) {
             query.where().disjunction().eq("parent.examOwners", user).eq("examInspections.user", user).endJunction();
         }
-        Set<Exam> exams = query.findSet();
-
-        Set<Long> anonIds = new HashSet<>();
-        Set<ExamParticipation> participations = exams
-            .stream()
-            .map(e -> {
-                e.setMaxScore();
-                e.setApprovedAnswerCount();
-                e.setRejectedAnswerCount();
-                e.setTotalScore();
-                ExamParticipation ep = e.getExamParticipation();
-                ep.setExam(e);
-                if (e.isAnonymous()) {
-                    anonIds.add(ep.getId());
-                }
-                return ep;
-            })
-            .collect(Collectors.toSet());
-
-        final Result result = ok(participations);
-        return writeAnonymousResult(request, result, anonIds);
+        return query;
     }
 
     @Restrict({ @Group("TEACHER"), @Group("ADMIN"), @Group("SUPPORT") })
@@ -254,6 +271,7 @@ public class ReviewController extends BaseController {
         Double score = essayScore == null ? null : Double.parseDouble(essayScore);
         answer.setEvaluatedScore(round(score));
         answer.update();
+        examScoreUpdater.update(essayQuestion);
         return ok();
     }
 
@@ -287,6 +305,7 @@ public class ReviewController extends BaseController {
         }
         question.setForcedScore(forcedScore);
         question.update();
+        examScoreUpdater.update(question);
         return ok();
     }
 
@@ -4,44 +4,57 @@
 
 package controllers.assessment
 
+import com.opencsv.exceptions.CsvException
 import io.ebean.DB
 import miscellaneous.csv.CsvBuilder
-import miscellaneous.file.FileHandler
+import miscellaneous.file.{BlockingIOExecutionContext, ChunkMaker}
 import miscellaneous.scala.{DbApiHelper, JavaApiHelper}
 import models.exam.Exam
 import models.questions.Question
 import models.user.Role
 import org.apache.commons.compress.archivers.tar.{TarArchiveEntry, TarArchiveOutputStream}
 import org.apache.commons.io.IOUtils
+import org.apache.pekko.NotUsed
+import org.apache.pekko.stream.scaladsl.{Source, StreamConverters}
+import org.apache.pekko.util.ByteString
 import org.joda.time.DateTime
 import org.joda.time.format.DateTimeFormat
 import org.jsoup.Jsoup
 import play.api.Logging
 import play.api.libs.Files
+import play.api.libs.json.Json
 import play.api.mvc._
 import security.scala.Auth.{AuthenticatedAction, authorized}
 import security.scala.{Auth, AuthExecutionContext}
 
 import java.io._
+import java.nio.charset.StandardCharsets
 import java.text.SimpleDateFormat
 import java.util.Base64
 import java.util.zip.GZIPOutputStream
 import javax.inject.Inject
 import scala.collection.mutable
+import scala.concurrent.{Future, Promise}
+import scala.concurrent.duration._
 import scala.jdk.CollectionConverters._
-import scala.util.Using
+import scala.util.{Failure, Success, Using}
 
 class ReviewDocumentsController @Inject() (
     val controllerComponents: ControllerComponents,
     csvBuilder: CsvBuilder,
-    fileHandler: FileHandler,
     authenticated: AuthenticatedAction,
+    blockingIOExecutionContext: BlockingIOExecutionContext,
     implicit val ec: AuthExecutionContext
 ) extends BaseController
     with JavaApiHelper
     with DbApiHelper
     with Logging:
 
+  // Exams loaded at a time while archiving, keeps connections from being held while the client reads the archive
+  private val ArchiveBatchSize = 20
+  // How long writing the archive may be blocked by a client not reading it
+  private val ArchiveWriteTimeout = 1.minute
+
   def importGrades: Action[MultipartFormData[Files.TemporaryFile]] =
     authenticated(parse.multipartFormData)
       .andThen(authorized(Seq(Role.Name.TEACHER, Role.Name.ADMIN, Role.Name.SUPPORT))) { request =>
@@ -49,19 +62,26 @@ class ReviewDocumentsController @Inject() (
           case Some(file) =>
             val user = request.attrs(Auth.ATTR_USER)
             val role = if user.hasRole(Role.Name.ADMIN, Role.Name.SUPPORT) then Role.Name.ADMIN else Role.Name.TEACHER
-            try csvBuilder.parseGrades(file.ref.toFile, user, role)
+            try
+              val results = csvBuilder.parseGrades(file.ref.toFile, user, role).asScala.map { r =>
+                Json.obj("row" -> r.row, "examId" -> Option(r.examId).map(_.longValue), "outcome" -> r.outcome.toString)
+              }
+              Ok(Json.toJson(results))
             catch
+              case e: CsvException =>
+                logger.warn(s"Invalid grade file: ${e.getMessage}")
+                BadRequest(e.getMessage)
               case e: Exception =>
                 logger.error("Failed to parse CSV file. Stack trace follows", e)
                 InternalServerError("i18n_internal_error")
-            Ok
           case None => NotFound
       }
 
   def getArchivedAttachments(
       eid: Long,
       start: Option[String],
-      end: Option[String]
+      end: Option[String],
+      raw: Boolean
   ): Action[AnyContent] =
     Action.andThen(authorized(Seq(Role.Name.TEACHER, Role.Name.ADMIN, Role.Name.SUPPORT))) { _ =>
       DB.find(classOf[Exam]).where().idEq(eid).find match
@@ -70,28 +90,45 @@ class ReviewDocumentsController @Inject() (
           val startDate =
             start.map(txt => new DateTime(df.parse(txt)).withTimeAtStartOfDay)
           val endDate = end.map(txt => new DateTime(df.parse(txt)).withTimeAtStartOfDay)
-          val tarball = File.createTempFile(eid.toString, ".tar.gz")
-          Using.resource(
-            new TarArchiveOutputStream(
-              new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(tarball)))
-            )
-          ) { stream =>
-            stream.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX)
-            createArchive(exam, stream, startDate, endDate)
-          }
-          val contentDisposition = fileHandler.getContentDisposition(tarball)
-          val data               = fileHandler.read(tarball)
-          val body               = Base64.getEncoder.encodeToString(data)
-          Ok(body).withHeaders(("Content-Disposition", contentDisposition));
+          // The archive is written as the client reads it, nothing of it is held in memory or on disk
+          val written = Promise[Unit]()
+          val archive = StreamConverters
+            .asOutputStream(ArchiveWriteTimeout)
+            .mapMaterializedValue { os =>
+              written.completeWith(Future(writeArchive(exam, os, startDate, endDate))(blockingIOExecutionContext))
+              NotUsed
+            }
+            // Output gets closed also when writing fails, fail the response so that it does not pass as complete
+            .concat(Source.futureSource(written.future.transform {
+              case Success(_) => Success(Source.empty[ByteString])
+              case Failure(e) =>
+                logger.error(s"Failed to archive attachments of exam $eid", e)
+                Failure(e)
+            }(blockingIOExecutionContext)))
+          // Base64 is for the older clients that decode the response text
+          val (body, contentType) =
+            if raw then (archive, "application/gzip")
+            else
+              val encoded = archive
+                .via(new ChunkMaker(3 * 1024))
+                .map(bs => ByteString.fromArray(Base64.getEncoder.encode(bs.toArray)))
+              (encoded, "text/plain")
+          Ok.chunked(body)
+            .as(contentType)
+            .withHeaders(("Content-Disposition", s"attachment; filename=\"$eid.tar.gz\""))
         case None => NotFound
     }
 
-  private def isEligibleForArchiving(exam: Exam, start: Option[DateTime], end: Option[DateTime]) =
-    exam.hasState(Exam.State.ABORTED, Exam.State.REVIEW, Exam.State.REVIEW_STARTED) &&
-      !(start.isDefined && exam.getCreated.isBefore(
-        start.get
-      )) && !(end.isDefined && exam.getCreated
-        .isAfter(end.get))
+  private def writeArchive(
+      prototype: Exam,
+      os: OutputStream,
+      start: Option[DateTime],
+      end: Option[DateTime]
+  ): Unit =
+    Using.resource(new TarArchiveOutputStream(new GZIPOutputStream(os, 64 * 1024))) { aos =>
+      aos.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX)
+      createArchive(prototype, aos, start, end)
+    }
 
   private def createArchive(
       prototype: Exam,
@@ -99,45 +136,72 @@ class ReviewDocumentsController @Inject() (
       start: Option[DateTime],
       end: Option[DateTime]
   ): Unit =
-    val children  = prototype.getChildren.asScala.filter(isEligibleForArchiving(_, start, end))
+    val query = DB
+      .find(classOf[Exam])
+      .where
+      .eq("parent.id", prototype.getId)
+      .in("state", Exam.State.ABORTED, Exam.State.REVIEW, Exam.State.REVIEW_STARTED)
+    start.foreach(query.ge("created", _))
+    end.foreach(query.le("created", _))
+    val ids       = query.findIds[java.lang.Long].asScala.toSeq
     val questions = mutable.LinkedHashMap.empty[Long, String]
-    for (exam <- children)
-      val id  = Option(exam.getCreator.getUserIdentifier).getOrElse(exam.getCreator.getId.toString)
-      val uid = s"$id-${exam.getId}"
-      for (es <- exam.getExamSections.asScala)
-        val essays = es.getSectionQuestions.asScala
-          .filter(_.getQuestion.getType == Question.Type.EssayQuestion)
-        for (essay <- essays)
-          val questionId = Option(essay.getQuestion).flatMap(q => Option(q.getParent)) match
-            case None    => essay.getQuestion.getId
-            case Some(p) => p.getId
-          val questionIdText = Option(essay.getQuestion).flatMap(q => Option(q.getParent)) match
-            case None    => s"$questionId #original_question_removed"
-            case Some(p) => p.getId.toString
-          questions.put(questionId, essay.getQuestion.getQuestion)
-          val attachment = Option(essay.getEssayAnswer).flatMap(a => Option(a.getAttachment))
-          val file       = attachment.map(a => new File(a.getFilePath))
-          file match
-            case Some(f) if f.exists =>
-              val entryName =
-                s"${prototype.getId}/$questionIdText/$uid/${attachment.get.getFileName}"
-              addFileEntry(entryName, f, aos)
-            case _ =>
-              if file.isDefined then
-                logger.warn(
-                  s"Attachment ${attachment.get.getId} is not connected to a file on disk!"
-                )
-              val entryName = s"${prototype.getId}/$questionId/$uid"
-              val entry     = new TarArchiveEntry(entryName)
-              aos.putArchiveEntry(entry)
-              aos.closeArchiveEntry()
+    for (batch <- ids.grouped(ArchiveBatchSize))
+      val children = DB
+        .find(classOf[Exam])
+        .fetch("creator", "id, userIdentifier")
+        .fetch("examSections")
+        .fetch("examSections.sectionQuestions")
+        .fetch("examSections.sectionQuestions.question")
+        .fetch("examSections.sectionQuestions.essayAnswer.attachment")
+        .orderBy("id")
+        .where
+        .idIn(batch.asJava)
+        .list
+      for (exam <- children)
+        addExamEntries(prototype, exam, aos, questions)
     createSummaryFile(aos, start, end, prototype, questions.toMap)
 
+  private def addExamEntries(
+      prototype: Exam,
+      exam: Exam,
+      aos: TarArchiveOutputStream,
+      questions: mutable.Map[Long, String]
+  ): Unit =
+    val id  = Option(exam.getCreator.getUserIdentifier).getOrElse(exam.getCreator.getId.toString)
+    val uid = s"$id-${exam.getId}"
+    for (es <- exam.getExamSections.asScala)
+      val essays = es.getSectionQuestions.asScala
+        .filter(_.getQuestion.getType == Question.Type.EssayQuestion)
+      for (essay <- essays)
+        val questionId = Option(essay.getQuestion).flatMap(q => Option(q.getParent)) match
+          case None    => essay.getQuestion.getId
+          case Some(p) => p.getId
+        val questionIdText = Option(essay.getQuestion).flatMap(q => Option(q.getParent)) match
+          case None    => s"$questionId #original_question_removed"
+          case Some(p) => p.getId.toString
+        questions.put(questionId, essay.getQuestion.getQuestion)
+        val attachment = Option(essay.getEssayAnswer).flatMap(a => Option(a.getAttachment))
+        val file       = attachment.map(a => new File(a.getFilePath))
+        file match
+          case Some(f) if f.exists =>
+            val entryName =
+              s"${prototype.getId}/$questionIdText/$uid/${attachment.get.getFileName}"
+            addFileEntry(entryName, f, aos)
+          case _ =>
+            if file.isDefined then
+              logger.warn(
+                s"Attachment ${attachment.get.getId} is not connected to a file on disk!"
+              )
+            val entryName = s"${prototype.getId}/$questionId/$uid"
+            val entry     = new TarArchiveEntry(entryName)
+            aos.putArchiveEntry(entry)
+            aos.closeArchiveEntry()
+
   private def addFileEntry(name: String, file: File, os: TarArchiveOutputStream): Unit =
     val entry = new TarArchiveEntry(name)
     entry.setSize(file.length)
     os.putArchiveEntry(entry)
-    IOUtils.copy(new FileInputStream(file), os)
+    Using.resource(new FileInputStream(file))(IOUtils.copy(_, os))
     os.closeArchiveEntry()
 
   private def createSummaryFile(
@@ -147,23 +211,21 @@ class ReviewDocumentsController @Inject() (
       exam: Exam,
       questions: Map[Long, String]
   ): Unit =
-    val file = File.createTempFile("summary", ".txt")
-    Using.resource(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file)))) { writer =>
-      if start.isDefined || end.isDefined then
-        val dtf = DateTimeFormat.forPattern("dd.MM.yyyy")
-        val s   = start.map(dtf.print).getOrElse("")
-        val e   = end.map(dtf.print).getOrElse("")
-        writer.write(s"period: $s-$e")
-        writer.newLine()
-      writer.write(s"exam id: ${exam.getId}")
-      writer.newLine()
-      writer.write(s"exam name: ${exam.getName}")
-      writer.newLine()
-      writer.newLine()
-      writer.write("questions")
-      writer.newLine()
-      for ((k, v) <- questions)
-        writer.write(s"$k: ${Jsoup.parse(v).text}")
-        writer.newLine()
-    }
-    addFileEntry("summary.txt", file, aos)
+    val summary = new StringBuilder
+    if start.isDefined || end.isDefined then
+      val dtf = DateTimeFormat.forPattern("dd.MM.yyyy")
+      val s   = start.map(dtf.print).getOrElse("")
+      val e   = end.map(dtf.print).getOrElse("")
+      summary.append(s"period: $s-$e").append(System.lineSeparator)
+    summary.append(s"exam id: ${exam.getId}").append(System.lineSeparator)
+    summary.append(s"exam name: ${exam.getName}").append(System.lineSeparator)
+    summary.append(System.lineSeparator)
+    summary.append("questions").append(System.lineSeparator)
+    for ((k, v) <- questions)
+      summary.append(s"$k: ${Jsoup.parse(v).text}").append(System.lineSeparator)
+    val data  = summary.toString.getBytes(StandardCharsets.UTF_8)
+    val entry = new TarArchiveEntry("summary.txt")
+    entry.setSize(data.length)
+    aos.putArchiveEntry(entry)
+    aos.write(data)
+    aos.closeArchiveEntry()
@@ -27,10 +27,6 @@ import models.questions.Question;
 import models.sections.ExamSectionQuestion;
 import models.user.Role;
 import models.user.User;
-import org.apache.pekko.stream.IOResult;
-import org.apache.pekko.stream.javadsl.FileIO;
-import org.apache.pekko.stream.javadsl.Source;
-import org.apache.pekko.util.ByteString;
 import play.libs.Files;
 import play.mvc.Http;
 import play.mvc.Http.MultipartFormData.FilePart;
@@ -307,7 +303,7 @@ public class AttachmentController extends BaseController implements LocalAttachm
         if (question == null || question.getAttachment() == null) {
             return wrapAsPromise(notFound());
         }
-        return serveAttachment(question.getAttachment());
+        return serveAttachment(question.getAttachment(), request);
     }
 
     @Authenticated
@@ -321,7 +317,7 @@ public class AttachmentController extends BaseController implements LocalAttachm
         ) {
             return wrapAsPromise(notFound());
         }
-        return serveAttachment(question.getEssayAnswer().getAttachment());
+        return serveAttachment(question.getEssayAnswer().getAttachment(), request);
     }
 
     @SubjectPresent
@@ -332,7 +328,7 @@ public class AttachmentController extends BaseController implements LocalAttachm
         if (exam == null || exam.getAttachment() == null) {
             return wrapAsPromise(notFound());
         }
-        return serveAttachment(exam.getAttachment());
+        return serveAttachment(exam.getAttachment(), request);
     }
 
     @Authenticated
@@ -349,7 +345,7 @@ public class AttachmentController extends BaseController implements LocalAttachm
         if (exam == null || exam.getExamFeedback() == null || exam.getExamFeedback().getAttachment() == null) {
             return wrapAsPromise(notFound());
         }
-        return serveAttachment(exam.getExamFeedback().getAttachment());
+        return serveAttachment(exam.getExamFeedback().getAttachment(), request);
     }
 
     @Authenticated
@@ -368,7 +364,7 @@ public class AttachmentController extends BaseController implements LocalAttachm
         if (exam == null) {
             return wrapAsPromise(notFound());
         }
-        return serveAttachment(exam.getLanguageInspection().getStatement().getAttachment());
+        return serveAttachment(exam.getLanguageInspection().getStatement().getAttachment(), request);
     }
 
     @Override
@@ -376,13 +372,12 @@ public class AttachmentController extends BaseController implements LocalAttachm
         return configReader;
     }
 
-    private CompletionStage<Result> serveAttachment(Attachment attachment) {
+    private CompletionStage<Result> serveAttachment(Attachment attachment, Http.Request request) {
         File file = new File(attachment.getFilePath());
         if (!file.exists()) {
             return wrapAsPromise(internalServerError("i18n_file_not_found_but_referred_in_database"));
         }
-        final Source<ByteString, CompletionStage<IOResult>> source = FileIO.fromPath(file.toPath());
-        return serveAsBase64Stream(attachment, source);
+        return serveFile(attachment, file, request);
     }
 
     private ExamSectionQuestion getExamSectionQuestion(Http.Request request, Long id) {
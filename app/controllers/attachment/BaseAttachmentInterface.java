@@ -5,10 +5,13 @@
 package controllers.attachment;
 
 import static play.mvc.Results.ok;
+import static play.mvc.Results.status;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.Map;
 import java.util.Optional;
@@ -21,12 +24,14 @@ import models.exam.Exam;
 import models.sections.ExamSectionQuestion;
 import models.user.User;
 import org.apache.commons.io.FileUtils;
+import org.apache.pekko.stream.javadsl.FileIO;
 import org.apache.pekko.stream.javadsl.Source;
 import org.apache.pekko.util.ByteString;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import play.libs.Files.TemporaryFile;
 import play.mvc.Http;
+import play.mvc.RangeResults;
 import play.mvc.Result;
 import sanitizers.Attrs;
 
@@ -63,6 +68,53 @@ public interface BaseAttachmentInterface<T> {
         return LoggerFactory.getLogger(getClass());
     }
 
+    /**
+     * Legacy clients expect the content Base64 encoded, they can still ask for it with <code>?encoding=base64</code>.
+     */
+    default boolean isBase64Requested(Http.Request request) {
+        return request.queryString("encoding").filter("base64"::equalsIgnoreCase).isPresent();
+    }
+
+    /**
+     * Serves a local attachment file as is. Supports byte range requests and conditional requests by entity tag so
+     * that interrupted downloads can be resumed and unchanged files are not transferred again.
+     */
+    default CompletionStage<Result> serveFile(Attachment attachment, File file, Http.Request request) {
+        if (isBase64Requested(request)) {
+            return serveAsBase64Stream(attachment, FileIO.fromPath(file.toPath()));
+        }
+        String etag = String.format("\"%x-%x\"", file.lastModified(), file.length());
+        if (request.header(Http.HeaderNames.IF_NONE_MATCH).filter(v -> etagMatches(v, etag)).isPresent()) {
+            return CompletableFuture.completedFuture(
+                status(Http.Status.NOT_MODIFIED).withHeader(Http.HeaderNames.ETAG, etag)
+            );
+        }
+        return CompletableFuture.completedFuture(
+            RangeResults.ofFile(request, file, attachment.getFileName())
+                .as(attachment.getMimeType())
+                .withHeaders(
+                    Http.HeaderNames.ETAG,
+                    etag,
+                    Http.HeaderNames.CACHE_CONTROL,
+                    "private, no-cache",
+                    Http.HeaderNames.CONTENT_DISPOSITION,
+                    contentDisposition(attachment.getFileName())
+                )
+        );
+    }
+
+    default boolean etagMatches(String ifNoneMatch, String etag) {
+        return Arrays.stream(ifNoneMatch.split(","))
+            .map(String::trim)
+            .map(tag -> tag.startsWith("W/") ? tag.substring(2) : tag)
+            .anyMatch(tag -> tag.equals("*") || tag.equals(etag));
+    }
+
+    default String contentDisposition(String fileName) {
+        String escapedName = URLEncoder.encode(fileName, StandardCharsets.UTF_8).replace("+", "%20");
+        return "attachment; filename*=UTF-8''" + escapedName;
+    }
+
     default CompletionStage<Result> serveAsBase64Stream(Attachment attachment, Source<ByteString, ?> source) {
         try {
             return serveAsBase64Stream(attachment.getMimeType(), attachment.getFileName(), source);
@@ -15,6 +15,7 @@ import java.util.Collections;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import miscellaneous.excel.StreamingWorkbook;
 import models.user.Role;
 import play.data.FormFactory;
 import play.libs.concurrent.ClassLoaderExecutionContext;
@@ -56,6 +57,13 @@ public class BaseController extends Controller {
         return created(body).as("application/json");
     }
 
+    protected Result serveExcel(StreamingWorkbook workbook, String fileName, boolean raw) throws IOException {
+        return ok()
+            .chunked(workbook.toSource(raw))
+            .as(StreamingWorkbook.MIME_TYPE)
+            .withHeader("Content-Disposition", String.format("attachment; filename=\"%s\"", fileName));
+    }
+
     protected CompletionStage<Result> wrapAsPromise(Result result) {
         return CompletableFuture.completedFuture(result);
     }
@@ -9,6 +9,7 @@ import be.objectify.deadbolt.java.actions.Restrict;
 import controllers.base.BaseController;
 import controllers.iop.transfer.api.ExternalReservationHandler;
 import impl.CalendarHandler;
+import impl.MachineAllocator;
 import impl.mail.EmailComposer;
 import io.ebean.DB;
 import io.ebean.Transaction;
@@ -20,6 +21,8 @@ import java.util.Set;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
+import miscellaneous.cache.ExamContextCache;
+import miscellaneous.cache.RoomOccupancyCache;
 import miscellaneous.datetime.DateTimeHandler;
 import models.enrolment.ExamEnrolment;
 import models.enrolment.Reservation;
@@ -29,9 +32,13 @@ import models.facility.ExamRoom;
 import models.sections.ExamSection;
 import models.user.User;
 import org.apache.pekko.actor.ActorSystem;
+import org.apache.pekko.stream.javadsl.Source;
+import org.apache.pekko.util.ByteString;
 import org.joda.time.DateTime;
+import org.joda.time.Interval;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import play.libs.Json;
 import play.mvc.Http;
 import play.mvc.Result;
 import play.mvc.With;
@@ -48,6 +55,9 @@ public class CalendarController extends BaseController {
     private final ActorSystem system;
     private final DateTimeHandler dateTimeHandler;
     private final ExternalReservationHandler externalReservationHandler;
+    private final RoomOccupancyCache roomOccupancyCache;
+    private final ExamContextCache examContextCache;
+    private final MachineAllocator machineAllocator;
 
     @Inject
     public CalendarController(
@@ -55,13 +65,19 @@ public class CalendarController extends BaseController {
         EmailComposer emailComposer,
         ActorSystem system,
         DateTimeHandler dateTimeHandler,
-        ExternalReservationHandler externalReservationHandler
+        ExternalReservationHandler externalReservationHandler,
+        RoomOccupancyCache roomOccupancyCache,
+        ExamContextCache examContextCache,
+        MachineAllocator machineAllocator
     ) {
         this.calendarHandler = calendarHandler;
         this.emailComposer = emailComposer;
         this.system = system;
         this.dateTimeHandler = dateTimeHandler;
         this.externalReservationHandler = externalReservationHandler;
+        this.roomOccupancyCache = roomOccupancyCache;
+        this.examContextCache = examContextCache;
+        this.machineAllocator = machineAllocator;
     }
 
     private final Logger logger = LoggerFactory.getLogger(CalendarController.class);
@@ -91,6 +107,8 @@ public class CalendarController extends BaseController {
         enrolment.setReservationCanceled(true);
         DB.save(enrolment);
         DB.delete(Reservation.class, id);
+        roomOccupancyCache.invalidate(reservation.getMachine().getRoom().getId());
+        examContextCache.invalidate(user.getId());
 
         // send email asynchronously
         final boolean isStudentUser = user.equals(enrolment.getUser());
@@ -142,9 +160,20 @@ public class CalendarController extends BaseController {
         Collection<Long> sectionIds = request.attrs().get(Attrs.SECTION_IDS);
 
         ExamRoom room = DB.find(ExamRoom.class, roomId);
-        DateTime now = dateTimeHandler.adjustDST(DateTime.now(), room);
         final User user = request.attrs().get(Attrs.AUTHENTICATED_USER);
+        return reserve(room, examId, new Interval(start, end), aids, sectionIds, user, true);
+    }
 
+    private CompletionStage<Result> reserve(
+        ExamRoom room,
+        Long examId,
+        Interval slot,
+        Collection<Integer> aids,
+        Collection<Long> sectionIds,
+        User user,
+        boolean removeExternal
+    ) {
+        DateTime now = dateTimeHandler.adjustDST(DateTime.now(), room);
         // Start manual transaction.
         try (Transaction tx = DB.beginTransaction()) {
             // Take pessimistic lock for user to prevent multiple reservations creating.
@@ -171,58 +200,57 @@ public class CalendarController extends BaseController {
                 return wrapAsPromise(badEnrolment.get());
             }
 
-            Optional<ExamMachine> machine = calendarHandler.getRandomMachine(
-                room,
-                enrolment.getExam(),
-                start,
-                end,
-                aids
-            );
-            if (machine.isEmpty()) {
-                return wrapAsPromise(forbidden("i18n_no_machines_available"));
-            }
-
             // Check that the proposed reservation is (still) doable
             Reservation proposedReservation = new Reservation();
-            proposedReservation.setStartAt(start);
-            proposedReservation.setEndAt(end);
-            proposedReservation.setMachine(machine.get());
+            proposedReservation.setStartAt(slot.getStart());
+            proposedReservation.setEndAt(slot.getEnd());
             proposedReservation.setUser(user);
             proposedReservation.setEnrolment(enrolment);
-            if (!calendarHandler.isDoable(proposedReservation, aids)) {
+            if (!calendarHandler.isDoable(room, proposedReservation, aids)) {
                 return wrapAsPromise(forbidden("i18n_no_machines_available"));
             }
 
-            // We are good to go :)
             Reservation oldReservation = enrolment.getReservation();
-            Reservation reservation = calendarHandler.createReservation(start, end, machine.get(), user);
+            if (removeExternal && oldReservation != null && oldReservation.getExternalRef() != null) {
+                // The external reservation can not be removed as part of our transaction. Remove it first and then
+                // start over, so that the machine is allocated and the new reservation saved in a single transaction.
+                tx.end();
+                return externalReservationHandler
+                    .removeReservation(oldReservation, user, "")
+                    .thenCompose(result ->
+                        result.status() == Http.Status.OK
+                            ? reserve(room, examId, slot, aids, sectionIds, user, false)
+                            : wrapAsPromise(result)
+                    );
+            }
+
+            // Lock a free machine as the last thing before saving so that competing reservations do not wait long
+            Optional<ExamMachine> machine = machineAllocator.allocate(room, enrolment.getExam(), slot, aids, user);
+            if (machine.isEmpty()) {
+                return wrapAsPromise(forbidden("i18n_no_machines_available"));
+            }
+
+            // We are good to go :)
+            Reservation reservation = calendarHandler.createReservation(
+                slot.getStart(),
+                slot.getEnd(),
+                machine.get(),
+                user
+            );
 
             // Nuke the old reservation if any
             if (oldReservation != null) {
-                String externalReference = oldReservation.getExternalRef();
-                if (externalReference != null) {
-                    return externalReservationHandler
-                        .removeReservation(oldReservation, user, "")
-                        .thenCompose(result -> {
-                            // Re-fetch enrolment
-                            ExamEnrolment updatedEnrolment = DB.find(ExamEnrolment.class)
-                                .fetch("exam.executionType")
-                                .where()
-                                .idEq(enrolment.getId())
-                                .findOne();
-                            if (updatedEnrolment == null) {
-                                return wrapAsPromise(notFound());
-                            }
-                            return makeNewReservation(updatedEnrolment, reservation, user, sectionIds);
-                        });
-                } else {
-                    enrolment.setReservation(null);
-                    enrolment.update();
-                    oldReservation.delete();
-                }
+                enrolment.setReservation(null);
+                enrolment.update();
+                oldReservation.delete();
             }
             final CompletionStage<Result> result = makeNewReservation(enrolment, reservation, user, sectionIds);
             tx.commit();
+            roomOccupancyCache.invalidate(room.getId());
+            examContextCache.invalidate(user.getId());
+            if (oldReservation != null && oldReservation.getMachine() != null) {
+                roomOccupancyCache.invalidate(oldReservation.getMachine().getRoom().getId());
+            }
             return result;
         }
     }
@@ -274,4 +302,28 @@ public class CalendarController extends BaseController {
         List<Integer> accessibilityIds = aids.orElse(Collections.emptyList());
         return calendarHandler.getSlots(user, ee.getExam(), roomId, day, accessibilityIds);
     }
+
+    // Slots for several rooms over the whole reservation window. Results are streamed as newline delimited JSON
+    // objects, one per room, in the order the rooms get processed.
+    @Authenticated
+    @Restrict({ @Group("ADMIN"), @Group("STUDENT") })
+    public Result getSlotsForRooms(
+        Long examId,
+        List<Long> roomIds,
+        String day,
+        Optional<List<Integer>> aids,
+        Http.Request request
+    ) {
+        User user = request.attrs().get(Attrs.AUTHENTICATED_USER);
+        ExamEnrolment ee = calendarHandler.getEnrolment(examId, user);
+        // Sanity check so that we avoid accidentally getting reservations for SEB exams
+        if (ee == null || ee.getExam().getImplementation() != Exam.Implementation.AQUARIUM) {
+            return forbidden("i18n_error_enrolment_not_found");
+        }
+        List<Integer> accessibilityIds = aids.orElse(Collections.emptyList());
+        Source<ByteString, ?> source = calendarHandler
+            .getSlots(user, ee.getExam(), roomIds, day, accessibilityIds)
+            .map(rs -> ByteString.fromString(Json.stringify(Json.toJson(rs)) + "\n"));
+        return ok().chunked(source).as("application/x-ndjson");
+    }
 }
@@ -24,6 +24,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
+import miscellaneous.cache.ExamContextCache;
 import miscellaneous.config.ConfigReader;
 import miscellaneous.datetime.DateTimeHandler;
 import miscellaneous.enrolment.EnrolmentHandler;
@@ -67,6 +68,7 @@ public class EnrolmentController extends BaseController {
     private final ActorSystem actor;
     private final DateTimeHandler dateTimeHandler;
     private final EnrolmentHandler enrolmentHandler;
+    private final ExamContextCache examContextCache;
 
     @Inject
     public EnrolmentController(
@@ -78,7 +80,8 @@ public class EnrolmentController extends BaseController {
         ActorSystem actor,
         ConfigReader configReader,
         DateTimeHandler dateTimeHandler,
-        EnrolmentHandler enrolmentHandler
+        EnrolmentHandler enrolmentHandler,
+        ExamContextCache examContextCache
     ) {
         this.emailComposer = emailComposer;
         this.externalCourseHandler = externalCourseHandler;
@@ -89,6 +92,7 @@ public class EnrolmentController extends BaseController {
         this.permCheckActive = configReader.isEnrolmentPermissionCheckActive();
         this.dateTimeHandler = dateTimeHandler;
         this.enrolmentHandler = enrolmentHandler;
+        this.examContextCache = examContextCache;
     }
 
     @Restrict({ @Group("ADMIN"), @Group("STUDENT") })
@@ -363,6 +367,7 @@ public class EnrolmentController extends BaseController {
                     .removeReservation(reservation, user, "")
                     .thenApplyAsync(result -> {
                         enrolment.delete();
+                        examContextCache.invalidate(user.getId());
                         ExamEnrolment newEnrolment = makeEnrolment(exam, user);
                         return ok(newEnrolment);
                     });
@@ -387,6 +392,7 @@ public class EnrolmentController extends BaseController {
             if (!enrolmentsWithFutureExaminationEvents.isEmpty()) {
                 ExamEnrolment enrolment = enrolmentsWithFutureExaminationEvents.getFirst();
                 enrolment.delete();
+                examContextCache.invalidate(user.getId());
                 ExamEnrolment newEnrolment = makeEnrolment(exam, user);
                 return wrapAsPromise(ok(newEnrolment));
             }
@@ -573,6 +579,7 @@ public class EnrolmentController extends BaseController {
         }
         enrolment.setExaminationEventConfiguration(config);
         enrolment.update();
+        examContextCache.invalidate(user.getId());
         actor
             .scheduler()
             .scheduleOnce(
@@ -604,6 +611,7 @@ public class EnrolmentController extends BaseController {
         ExaminationEvent event = enrolment.getExaminationEventConfiguration().getExaminationEvent();
         enrolment.setExaminationEventConfiguration(null);
         enrolment.update();
+        examContextCache.invalidate(user.getId());
         actor
             .scheduler()
             .scheduleOnce(
@@ -637,6 +645,7 @@ public class EnrolmentController extends BaseController {
         enrolments.forEach(e -> {
             e.setExaminationEventConfiguration(null);
             e.update();
+            examContextCache.invalidate(e.getUser().getId());
         });
         config.delete();
         event.delete();
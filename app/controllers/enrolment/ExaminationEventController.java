@@ -15,6 +15,7 @@ import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
+import miscellaneous.cache.ExamContextCache;
 import miscellaneous.config.ByodConfigHandler;
 import miscellaneous.config.ConfigReader;
 import models.calendar.MaintenancePeriod;
@@ -45,6 +46,9 @@ public class ExaminationEventController extends BaseController {
     @Inject
     ConfigReader configReader;
 
+    @Inject
+    ExamContextCache examContextCache;
+
     // PRINTOUT EXAM RELATED -->
     @With(ExaminationDateSanitizer.class)
     @Restrict({ @Group("TEACHER"), @Group("ADMIN"), @Group("SUPPORT") })
@@ -193,6 +197,11 @@ public class ExaminationEventController extends BaseController {
         ee.setCapacity(capacity);
         ee.setDescription(request.attrs().get(Attrs.DESCRIPTION));
         ee.update();
+        eec
+            .getExamEnrolments()
+            .stream()
+            .filter(e -> e.getUser() != null)
+            .forEach(e -> examContextCache.invalidate(e.getUser().getId()));
         if (quitPassword == null || settingsPassword == null) {
             return ok(eec);
         }
@@ -23,6 +23,8 @@ import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
+import miscellaneous.cache.ExamContextCache;
+import miscellaneous.cache.RoomOccupancyCache;
 import miscellaneous.datetime.DateTimeHandler;
 import miscellaneous.user.UserHandler;
 import models.base.GeneratedIdentityModel;
@@ -57,6 +59,8 @@ public class ReservationController extends BaseController {
     private final DateTimeHandler dateTimeHandler;
     private final UserHandler userHandler;
     private final CalendarHandler calendarHandler;
+    private final RoomOccupancyCache roomOccupancyCache;
+    private final ExamContextCache examContextCache;
 
     @Inject
     public ReservationController(
@@ -65,7 +69,9 @@ public class ReservationController extends BaseController {
         ExternalReservationHandler externalReservationHandler,
         DateTimeHandler dateTimeHandler,
         UserHandler userHandler,
-        CalendarHandler calendarHandler
+        CalendarHandler calendarHandler,
+        RoomOccupancyCache roomOccupancyCache,
+        ExamContextCache examContextCache
     ) {
         this.emailComposer = emailComposer;
         this.collaborativeExamLoader = collaborativeExamLoader;
@@ -73,6 +79,8 @@ public class ReservationController extends BaseController {
         this.dateTimeHandler = dateTimeHandler;
         this.userHandler = userHandler;
         this.calendarHandler = calendarHandler;
+        this.roomOccupancyCache = roomOccupancyCache;
+        this.examContextCache = examContextCache;
     }
 
     @Authenticated
@@ -176,6 +184,10 @@ public class ReservationController extends BaseController {
             enrolment.setReservation(null);
             enrolment.update();
             reservation.delete();
+            if (reservation.getMachine() != null) {
+                roomOccupancyCache.invalidate(reservation.getMachine().getRoom().getId());
+            }
+            examContextCache.invalidate(enrolment.getUser().getId());
             return wrapAsPromise(ok());
         }
     }
@@ -297,6 +309,11 @@ public class ReservationController extends BaseController {
         });
         reservation.setMachine(machine);
         reservation.update();
+        roomOccupancyCache.invalidate(previous.getMachine().getRoom().getId());
+        roomOccupancyCache.invalidate(machine.getRoom().getId());
+        if (reservation.getUser() != null) {
+            examContextCache.invalidate(reservation.getUser().getId());
+        }
         emailComposer.composeReservationChangeNotification(reservation, previous);
         return ok(reservation, PathProperties.parse("(startAt, endAt, machine(*))"));
     }
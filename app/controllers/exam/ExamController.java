@@ -22,6 +22,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.TreeSet;
 import javax.inject.Inject;
+import miscellaneous.cache.ExamContextCache;
 import miscellaneous.config.ByodConfigHandler;
 import miscellaneous.config.ConfigReader;
 import miscellaneous.user.UserHandler;
@@ -48,25 +49,30 @@ import sanitizers.Attrs;
 import sanitizers.ExamUpdateSanitizer;
 import security.Authenticated;
 import system.interceptors.Anonymous;
+import system.interceptors.Blocking;
 
+@Blocking
 public class ExamController extends BaseController {
 
     private final ExamUpdater examUpdater;
     private final ConfigReader configReader;
     private final ByodConfigHandler byodConfigHandler;
     private final UserHandler userHandler;
+    private final ExamContextCache examContextCache;
 
     @Inject
     public ExamController(
         ExamUpdater examUpdater,
         ConfigReader configReader,
         ByodConfigHandler byodConfigHandler,
-        UserHandler userHandler
+        UserHandler userHandler,
+        ExamContextCache examContextCache
     ) {
         this.examUpdater = examUpdater;
         this.configReader = configReader;
         this.byodConfigHandler = byodConfigHandler;
         this.userHandler = userHandler;
+        this.examContextCache = examContextCache;
     }
 
     private ExpressionList<Exam> createPrototypeQuery() {
@@ -269,19 +275,23 @@ public class ExamController extends BaseController {
 
     @Restrict({ @Group("ADMIN"), @Group("TEACHER"), @Group("SUPPORT") })
     public Result getExamTypes() {
-        List<ExamType> types = DB.find(ExamType.class).where().ne("deprecated", true).findList();
+        List<ExamType> types = DB.find(ExamType.class).where().ne("deprecated", true).setUseQueryCache(true).findList();
         return ok(types);
     }
 
     @Restrict({ @Group("ADMIN"), @Group("TEACHER"), @Group("SUPPORT") })
     public Result getExamGradeScales() {
-        List<GradeScale> scales = DB.find(GradeScale.class).fetch("grades").findList();
+        List<GradeScale> scales = DB.find(GradeScale.class).fetch("grades").setUseQueryCache(true).findList();
         return ok(scales);
     }
 
     @Restrict({ @Group("ADMIN"), @Group("TEACHER"), @Group("SUPPORT") })
     public Result getExamExecutionTypes() {
-        List<ExamExecutionType> types = DB.find(ExamExecutionType.class).where().ne("active", false).findList();
+        List<ExamExecutionType> types = DB.find(ExamExecutionType.class)
+            .where()
+            .ne("active", false)
+            .setUseQueryCache(true)
+            .findList();
         return ok(types);
     }
 
@@ -355,13 +365,20 @@ public class ExamController extends BaseController {
         }
         User user = request.attrs().get(Attrs.AUTHENTICATED_USER);
         if (exam.isOwnedOrCreatedBy(user) || user.hasRole(Role.Name.ADMIN, Role.Name.SUPPORT)) {
-            return examUpdater
+            Result result = examUpdater
                 .updateTemporalFieldsAndValidate(exam, user, request)
                 .orElseGet(() ->
                     examUpdater
                         .updateStateAndValidate(exam, user, request)
                         .orElseGet(() -> handleExamUpdate(exam, user, request))
                 );
+            // Period, duration and state decide which enrolments are ongoing or upcoming
+            exam
+                .getExamEnrolments()
+                .stream()
+                .filter(e -> e.getUser() != null)
+                .forEach(e -> examContextCache.invalidate(e.getUser().getId()));
+            return result;
         } else {
             return forbidden("i18n_error_access_forbidden");
         }
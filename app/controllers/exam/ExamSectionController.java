@@ -11,6 +11,7 @@ import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import controllers.base.BaseController;
 import controllers.base.SectionQuestionHandler;
+import impl.ExamScoreUpdater;
 import impl.ExamUpdaterImpl;
 import io.ebean.DB;
 import io.ebean.ExpressionList;
@@ -40,6 +41,7 @@ import play.libs.Json;
 import play.mvc.Http;
 import play.mvc.Result;
 import play.mvc.With;
+import repository.ExaminationRepository;
 import sanitizers.Attrs;
 import sanitizers.SanitizingHelper;
 import sanitizers.SectionQuestionSanitizer;
@@ -50,6 +52,12 @@ public class ExamSectionController extends BaseController implements SectionQues
     @Inject
     private ExamUpdaterImpl examUpdater;
 
+    @Inject
+    private ExamScoreUpdater examScoreUpdater;
+
+    @Inject
+    private ExaminationRepository examinationRepository;
+
     @Authenticated
     @Restrict({ @Group("TEACHER"), @Group("ADMIN"), @Group("SUPPORT") })
     public Result insertSection(Long id, Http.Request request) {
@@ -560,6 +568,8 @@ public class ExamSectionController extends BaseController implements SectionQues
             // utilizing those.
             processExamQuestionOptions(question, examSectionQuestion, (ArrayNode) body.get("options"), user);
         }
+        examScoreUpdater.invalidateByQuestion(question.getId());
+        examinationRepository.discardPreparedExamsByQuestion(question.getId());
         // A bit dumb, re-fetch from database to get the updated options right in response. Could be made more elegantly
         return ok(query.findOne(), pp);
     }
@@ -584,6 +594,8 @@ public class ExamSectionController extends BaseController implements SectionQues
         }
         updateExamQuestion(examSectionQuestion, question);
         examSectionQuestion.update();
+        examScoreUpdater.invalidateByQuestion(question.getId());
+        examinationRepository.discardPreparedExamsByQuestion(question.getId());
         return ok(examSectionQuestion, pp);
     }
 
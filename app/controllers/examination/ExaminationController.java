@@ -8,9 +8,9 @@ import be.objectify.deadbolt.java.actions.Group;
 import be.objectify.deadbolt.java.actions.Restrict;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
-import controllers.admin.SettingsController;
 import controllers.base.BaseController;
 import controllers.iop.transfer.api.ExternalAttachmentLoader;
+import impl.AnswerWriter;
 import impl.AutoEvaluationHandler;
 import impl.mail.EmailComposer;
 import io.ebean.DB;
@@ -27,18 +27,17 @@ import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 import javax.inject.Inject;
+import miscellaneous.cache.ExamContextCache;
 import miscellaneous.config.ByodConfigHandler;
+import miscellaneous.config.SettingsStore;
 import miscellaneous.datetime.DateTimeHandler;
-import models.admin.GeneralSettings;
+import miscellaneous.scheduling.ExamDeadlineQueue;
 import models.assessment.ExamInspection;
 import models.enrolment.ExamEnrolment;
 import models.enrolment.ExamParticipation;
 import models.exam.Exam;
 import models.facility.ExamRoom;
 import models.iop.CollaborativeExam;
-import models.questions.ClozeTestAnswer;
-import models.questions.EssayAnswer;
-import models.sections.ExamSectionQuestion;
 import models.user.User;
 import org.apache.pekko.actor.ActorSystem;
 import org.joda.time.DateTime;
@@ -72,6 +71,14 @@ public class ExaminationController extends BaseController {
     private final ExternalAttachmentLoader externalAttachmentLoader;
     private final ByodConfigHandler byodConfigHandler;
     protected final DateTimeHandler dateTimeHandler;
+    private final SettingsStore settingsStore;
+    protected final ExamContextCache examContextCache;
+    private final AnswerWriter answerWriter;
+    protected final ExamDeadlineQueue deadlineQueue;
+
+    private static final PathProperties ANSWER_PATH = PathProperties.parse("(id, objectVersion, answer)");
+    // Set by the browser, unique per tab
+    private static final String CLIENT_ID_HEADER = "X-Exam-Client-Id";
 
     private final Logger logger = LoggerFactory.getLogger(ExaminationController.class);
 
@@ -85,7 +92,11 @@ public class ExaminationController extends BaseController {
         ClassLoaderExecutionContext httpExecutionContext,
         ExternalAttachmentLoader externalAttachmentLoader,
         ByodConfigHandler byodConfigHandler,
-        DateTimeHandler dateTimeHandler
+        DateTimeHandler dateTimeHandler,
+        SettingsStore settingsStore,
+        ExamContextCache examContextCache,
+        AnswerWriter answerWriter,
+        ExamDeadlineQueue deadlineQueue
     ) {
         this.emailComposer = emailComposer;
         this.examinationRepository = examinationRepository;
@@ -96,6 +107,10 @@ public class ExaminationController extends BaseController {
         this.externalAttachmentLoader = externalAttachmentLoader;
         this.byodConfigHandler = byodConfigHandler;
         this.dateTimeHandler = dateTimeHandler;
+        this.settingsStore = settingsStore;
+        this.examContextCache = examContextCache;
+        this.answerWriter = answerWriter;
+        this.deadlineQueue = deadlineQueue;
     }
 
     private Result postProcessClone(ExamEnrolment enrolment, Optional<Exam> oe) {
@@ -292,13 +307,14 @@ public class ExaminationController extends BaseController {
                     ExamParticipation ep = oep.get();
                     setDurations(ep);
 
-                    GeneralSettings settings = SettingsController.getOrCreateSettings("review_deadline", null, "14");
-                    int deadlineDays = Integer.parseInt(settings.getValue());
+                    int deadlineDays = settingsStore.getReviewDeadline();
                     DateTime deadline = ep.getEnded().plusDays(deadlineDays);
                     ep.setDeadline(deadline);
                     ep.save();
                     exam.setState(Exam.State.REVIEW);
                     exam.update();
+                    deadlineQueue.removeParticipation(ep.getId());
+                    examContextCache.invalidate(user.getId());
                     if (exam.isPrivate()) {
                         notifyTeachers(exam);
                     }
@@ -327,6 +343,8 @@ public class ExaminationController extends BaseController {
                     oep.get().save();
                     exam.setState(Exam.State.ABORTED);
                     exam.update();
+                    deadlineQueue.removeParticipation(oep.get().getId());
+                    examContextCache.invalidate(user.getId());
                     if (exam.isPrivate()) {
                         notifyTeachers(exam);
                     }
@@ -345,22 +363,11 @@ public class ExaminationController extends BaseController {
         return getEnrolmentError(hash, request).thenApplyAsync(oe ->
             oe.orElseGet(() -> {
                 String essayAnswer = request.attrs().getOptional(Attrs.ESSAY_ANSWER).orElse(null);
-                Optional<Long> objectVersion = request.attrs().getOptional(Attrs.OBJECT_VERSION);
-                ExamSectionQuestion question = DB.find(ExamSectionQuestion.class, questionId);
-                if (question == null) {
-                    return forbidden();
-                }
-                EssayAnswer answer = question.getEssayAnswer();
-                if (answer == null) {
-                    answer = new EssayAnswer();
-                } else if (objectVersion.isPresent()) {
-                    answer.setObjectVersion(objectVersion.get());
-                }
-                answer.setAnswer(essayAnswer);
-                answer.save();
-                question.setEssayAnswer(answer);
-                question.save();
-                return ok(answer);
+                Long objectVersion = request.attrs().getOptional(Attrs.OBJECT_VERSION).orElse(null);
+                return answerWriter
+                    .saveEssayAnswer(questionId, getClient(request), essayAnswer, objectVersion)
+                    .map(answer -> ok(answer, ANSWER_PATH))
+                    .orElseGet(() -> forbidden());
             })
         );
     }
@@ -372,17 +379,7 @@ public class ExaminationController extends BaseController {
             oe.orElseGet(() -> {
                 ArrayNode node = (ArrayNode) request.body().asJson().get("oids");
                 List<Long> optionIds = StreamSupport.stream(node.spliterator(), false).map(JsonNode::asLong).toList();
-                ExamSectionQuestion question = DB.find(ExamSectionQuestion.class, qid);
-                if (question == null) {
-                    return forbidden();
-                }
-                question
-                    .getOptions()
-                    .forEach(o -> {
-                        o.setAnswered(optionIds.contains(o.getId()));
-                        o.update();
-                    });
-                return ok();
+                return answerWriter.saveOptions(qid, getClient(request), optionIds) ? ok() : forbidden();
             })
         );
     }
@@ -393,24 +390,22 @@ public class ExaminationController extends BaseController {
     public CompletionStage<Result> answerClozeTest(String hash, Long questionId, Http.Request request) {
         return getEnrolmentError(hash, request).thenApplyAsync(oe ->
             oe.orElseGet(() -> {
-                ExamSectionQuestion esq = DB.find(ExamSectionQuestion.class, questionId);
-                if (esq == null) {
-                    return forbidden();
-                }
-                ClozeTestAnswer answer = esq.getClozeTestAnswer();
-                if (answer == null) {
-                    answer = new ClozeTestAnswer();
-                } else {
-                    long objectVersion = request.attrs().get(Attrs.OBJECT_VERSION);
-                    answer.setObjectVersion(objectVersion);
-                }
-                answer.setAnswer(request.attrs().getOptional(Attrs.ESSAY_ANSWER).orElse(null));
-                answer.save();
-                return ok(answer, PathProperties.parse("(id, objectVersion, answer)"));
+                String answer = request.attrs().getOptional(Attrs.ESSAY_ANSWER).orElse(null);
+                Long objectVersion = request.attrs().getOptional(Attrs.OBJECT_VERSION).orElse(null);
+                return answerWriter
+                    .saveClozeTestAnswer(questionId, getClient(request), answer, objectVersion)
+                    .map(a -> ok(a, ANSWER_PATH))
+                    .orElseGet(() -> forbidden());
             })
         );
     }
 
+    // Saves of the same browser tab get merged with each other, see AnswerWriter. Requests not telling which tab they
+    // come from are never merged.
+    private static String getClient(Http.Request request) {
+        return request.header(CLIENT_ID_HEADER).orElseGet(() -> "request " + request.id());
+    }
+
     private Optional<ExamParticipation> findParticipation(Exam exam, User user) {
         return DB.find(ExamParticipation.class)
             .where()
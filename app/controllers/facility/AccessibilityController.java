@@ -53,7 +53,7 @@ public class AccessibilityController extends BaseController {
 
     @Restrict({ @Group("TEACHER"), @Group("ADMIN"), @Group("STUDENT") })
     public Result getAccessibilities() {
-        List<Accessibility> accessibilities = DB.find(Accessibility.class).findList();
+        List<Accessibility> accessibilities = DB.find(Accessibility.class).setUseQueryCache(true).findList();
         return ok(Json.toJson(accessibilities));
     }
 }
@@ -14,6 +14,9 @@ import io.ebean.Query;
 import io.ebean.text.PathProperties;
 import java.util.List;
 import java.util.Optional;
+import javax.inject.Inject;
+import miscellaneous.cache.MachineDirectory;
+import miscellaneous.cache.RoomOccupancyCache;
 import models.enrolment.Reservation;
 import models.facility.ExamMachine;
 import models.facility.ExamRoom;
@@ -25,6 +28,15 @@ import play.mvc.Result;
 
 public class ExamMachineController extends BaseController {
 
+    private final RoomOccupancyCache roomOccupancyCache;
+    private final MachineDirectory machineDirectory;
+
+    @Inject
+    public ExamMachineController(RoomOccupancyCache roomOccupancyCache, MachineDirectory machineDirectory) {
+        this.roomOccupancyCache = roomOccupancyCache;
+        this.machineDirectory = machineDirectory;
+    }
+
     @Restrict({ @Group("ADMIN"), @Group("SUPPORT") })
     public Result getExamMachines() {
         List<ExamMachine> machines = DB.find(ExamMachine.class).where().eq("archived", false).findList();
@@ -100,6 +112,8 @@ public class ExamMachineController extends BaseController {
         dest.setOutOfService(src.getOutOfService());
 
         dest.update();
+        roomOccupancyCache.invalidate(dest.getRoom().getId());
+        machineDirectory.invalidate();
         PathProperties pp = PathProperties.parse("(*, softwareInfo(*), room(name, buildingName))");
 
         return ok(dest, pp);
@@ -114,6 +128,7 @@ public class ExamMachineController extends BaseController {
 
         machine.getSoftwareInfo().clear();
         machine.update();
+        roomOccupancyCache.invalidate(machine.getRoom().getId());
         PathProperties pp = PathProperties.parse("(*, softwareInfo(*), room(name, buildingName))");
 
         return ok(machine, pp);
@@ -134,6 +149,7 @@ public class ExamMachineController extends BaseController {
             isTurnedOn = true;
         }
         machine.update();
+        roomOccupancyCache.invalidate(machine.getRoom().getId());
         ObjectNode part = Json.newObject();
         part.put("turnedOn", isTurnedOn);
 
@@ -150,6 +166,8 @@ public class ExamMachineController extends BaseController {
         room.getExamMachines().add(machine);
         room.save();
         machine.save();
+        roomOccupancyCache.invalidate(room.getId());
+        machineDirectory.invalidate();
         return ok(machine);
     }
 
@@ -167,6 +185,7 @@ public class ExamMachineController extends BaseController {
             .isNull("status")
             .eq("status", "ACTIVE")
             .endOr()
+            .setUseQueryCache(true)
             .findList();
 
         return ok(software);
@@ -214,6 +233,7 @@ public class ExamMachineController extends BaseController {
             return notFound();
         }
         software.delete();
+        roomOccupancyCache.invalidateAll();
         return ok();
     }
 }
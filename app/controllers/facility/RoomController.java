@@ -49,8 +49,10 @@ import sanitizers.Attrs;
 import scala.concurrent.duration.Duration;
 import scala.jdk.javaapi.OptionConverters;
 import security.Authenticated;
+import system.interceptors.Blocking;
 import system.interceptors.SensitiveDataPolicy;
 
+@Blocking
 public class RoomController extends BaseController {
 
     private final boolean examVisitActivated;
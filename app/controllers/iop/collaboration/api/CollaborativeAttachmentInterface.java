@@ -18,6 +18,7 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
@@ -36,6 +37,7 @@ import org.apache.pekko.stream.IOResult;
 import org.apache.pekko.stream.javadsl.FileIO;
 import org.apache.pekko.stream.javadsl.Source;
 import org.apache.pekko.util.ByteString;
+import play.http.HttpEntity;
 import play.libs.Files;
 import play.libs.ws.WSClient;
 import play.libs.ws.WSRequest;
@@ -46,6 +48,14 @@ import play.mvc.Results;
 import security.Authenticated;
 
 public interface CollaborativeAttachmentInterface<T, U> extends BaseAttachmentInterface<T> {
+    List<String> PROXIED_REQUEST_HEADERS = List.of(Http.HeaderNames.RANGE, Http.HeaderNames.IF_NONE_MATCH);
+    List<String> PROXIED_RESPONSE_HEADERS = List.of(
+        Http.HeaderNames.ETAG,
+        Http.HeaderNames.LAST_MODIFIED,
+        Http.HeaderNames.ACCEPT_RANGES,
+        Http.HeaderNames.CONTENT_RANGE
+    );
+
     default Either<CompletionStage<Result>, U> findExternalExam(T id, Http.Request request) {
         return getExternalExam(id, request)
             .<Either<CompletionStage<Result>, U>>map(Either::right)
@@ -130,7 +140,7 @@ public interface CollaborativeAttachmentInterface<T, U> extends BaseAttachmentIn
     default CompletionStage<Result> downloadExamAttachment(T id, Http.Request request) {
         return findExternalExam(id, request)
             .flatMap(this::findExam)
-            .map(e -> downloadExternalAttachment(e.getAttachment()))
+            .map(e -> downloadExternalAttachment(e.getAttachment(), request))
             .getOrElseGet(Function.identity());
     }
 
@@ -161,7 +171,7 @@ public interface CollaborativeAttachmentInterface<T, U> extends BaseAttachmentIn
         return findExternalExam(eid, request)
             .flatMap(this::findExam)
             .flatMap(e -> findSectionQuestion(qid, e))
-            .map(sq -> downloadExternalAttachment(sq.getQuestion().getAttachment()))
+            .map(sq -> downloadExternalAttachment(sq.getQuestion().getAttachment(), request))
             .getOrElseGet(Function.identity());
     }
 
@@ -233,7 +243,7 @@ public interface CollaborativeAttachmentInterface<T, U> extends BaseAttachmentIn
             .flatMap(this::findExam)
             .flatMap(e -> findSectionQuestion(qid, e))
             .flatMap(this::findEssayAnswerWithAttachment)
-            .map(ea -> downloadExternalAttachment(ea.getAttachment()))
+            .map(ea -> downloadExternalAttachment(ea.getAttachment(), request))
             .getOrElseGet(Function.identity());
     }
 
@@ -290,7 +300,7 @@ public interface CollaborativeAttachmentInterface<T, U> extends BaseAttachmentIn
                 findExam(ee)
                     .map(e ->
                         findLanguageInspectionWithAttachment(e)
-                            .map(li -> downloadExternalAttachment(li.getStatement().getAttachment()))
+                            .map(li -> downloadExternalAttachment(li.getStatement().getAttachment(), request))
                             .getOrElseGet(Function.identity())
                     )
                     .getOrElseGet(Function.identity())
@@ -316,7 +326,7 @@ public interface CollaborativeAttachmentInterface<T, U> extends BaseAttachmentIn
     }
 
     @Restrict({ @Group("ADMIN"), @Group("TEACHER"), @Group("STUDENT") })
-    default CompletionStage<Result> downloadExternalAttachment(String id) {
+    default CompletionStage<Result> downloadExternalAttachment(String id, Http.Request request) {
         final Optional<URL> url = parseUrl("/api/attachments/%s", id);
         if (url.isEmpty()) {
             return CompletableFuture.completedFuture(Results.internalServerError());
@@ -329,11 +339,11 @@ public interface CollaborativeAttachmentInterface<T, U> extends BaseAttachmentIn
                     return CompletableFuture.completedFuture(Results.status(response.getStatus()));
                 }
                 final JsonNode node = response.asJson();
-                return download(id, node.path("mimeType").asText(), node.path("displayName").asText());
+                return download(id, node.path("mimeType").asText(), node.path("displayName").asText(), request);
             });
     }
 
-    default CompletionStage<Result> downloadExternalAttachment(Attachment attachment) {
+    default CompletionStage<Result> downloadExternalAttachment(Attachment attachment, Http.Request request) {
         if (attachment == null) {
             return CompletableFuture.completedFuture(Results.notFound());
         }
@@ -342,26 +352,61 @@ public interface CollaborativeAttachmentInterface<T, U> extends BaseAttachmentIn
             logger().warn("External id can not be found for attachment [id={}]", attachment.getId());
             return CompletableFuture.completedFuture(Results.notFound());
         }
-        return download(externalId, attachment.getMimeType(), attachment.getFileName());
+        return download(externalId, attachment.getMimeType(), attachment.getFileName(), request);
     }
 
-    default CompletionStage<Result> download(String id, String mimeType, String fileName) {
+    default CompletionStage<Result> download(String id, String mimeType, String fileName, Http.Request request) {
         final Optional<URL> url = parseUrl("/api/attachments/%s/download", id);
         if (url.isEmpty()) {
             return CompletableFuture.completedFuture(Results.internalServerError());
         }
-        return getWsClient()
-            .url(url.get().toString())
+        if (isBase64Requested(request)) {
+            return getWsClient()
+                .url(url.get().toString())
+                .stream()
+                .thenCompose(response -> {
+                    if (response.getStatus() != Http.Status.OK) {
+                        return CompletableFuture.completedFuture(Results.status(response.getStatus()));
+                    }
+                    try {
+                        return serveAsBase64Stream(mimeType, fileName, response.getBodyAsSource());
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+        }
+        // Pass range and validator headers on so that the remote end decides on partial and not modified responses
+        WSRequest wsRequest = getWsClient().url(url.get().toString());
+        for (String header : PROXIED_REQUEST_HEADERS) {
+            Optional<String> value = request.header(header);
+            if (value.isPresent()) {
+                wsRequest = wsRequest.addHeader(header, value.get());
+            }
+        }
+        return wsRequest
             .stream()
-            .thenCompose(response -> {
-                if (response.getStatus() != Http.Status.OK) {
-                    return CompletableFuture.completedFuture(Results.status(response.getStatus()));
+            .thenApply(response -> {
+                int status = response.getStatus();
+                Result result;
+                if (status == Http.Status.NOT_MODIFIED) {
+                    result = Results.status(status);
+                } else if (status == Http.Status.OK || status == Http.Status.PARTIAL_CONTENT) {
+                    Optional<Long> length = response
+                        .getSingleHeader(Http.HeaderNames.CONTENT_LENGTH)
+                        .map(Long::parseLong);
+                    result = Results.status(status)
+                        .sendEntity(new HttpEntity.Streamed(response.getBodyAsSource(), length, Optional.of(mimeType)))
+                        .withHeader(Http.HeaderNames.CONTENT_DISPOSITION, contentDisposition(fileName));
+                } else {
+                    return Results.status(status);
                 }
-                try {
-                    return serveAsBase64Stream(mimeType, fileName, response.getBodyAsSource());
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
+                for (String header : PROXIED_RESPONSE_HEADERS) {
+                    Optional<String> value = response.getSingleHeader(header);
+                    if (value.isPresent()) {
+                        result = result.withHeader(header, value.get());
+                    }
                 }
+                return result;
             });
     }
 
@@ -7,6 +7,7 @@ package controllers.iop.collaboration.impl;
 import be.objectify.deadbolt.java.actions.Group;
 import be.objectify.deadbolt.java.actions.Restrict;
 import impl.CalendarHandler;
+import impl.MachineAllocator;
 import impl.mail.EmailComposer;
 import io.ebean.DB;
 import io.ebean.Transaction;
@@ -19,6 +20,8 @@ import java.util.Set;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
+import miscellaneous.cache.ExamContextCache;
+import miscellaneous.cache.RoomOccupancyCache;
 import miscellaneous.datetime.DateTimeHandler;
 import miscellaneous.enrolment.EnrolmentHandler;
 import models.enrolment.ExamEnrolment;
@@ -31,6 +34,7 @@ import models.sections.ExamSection;
 import models.user.User;
 import org.apache.pekko.actor.ActorSystem;
 import org.joda.time.DateTime;
+import org.joda.time.Interval;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import play.mvc.Http;
@@ -58,6 +62,15 @@ public class CollaborativeCalendarController extends CollaborationController {
     @Inject
     EnrolmentHandler enrolmentHandler;
 
+    @Inject
+    RoomOccupancyCache roomOccupancyCache;
+
+    @Inject
+    ExamContextCache examContextCache;
+
+    @Inject
+    MachineAllocator machineAllocator;
+
     private final Logger logger = LoggerFactory.getLogger(CollaborativeCalendarController.class);
 
     @Restrict({ @Group("STUDENT") })
@@ -137,15 +150,21 @@ public class CollaborativeCalendarController extends CollaborationController {
             if (badEnrolment.isPresent()) {
                 return badEnrolment.get();
             }
-            Optional<ExamMachine> machine = calendarHandler.getRandomMachine(room, exam, start, end, aids);
-            if (machine.isEmpty()) {
-                return forbidden("i18n_no_machines_available");
-            }
-            // We are good to go :)
             // Start manual transaction.
             try (Transaction tx = DB.beginTransaction()) {
                 // Take pessimistic lock for user to prevent multiple reservations creating.
                 DB.find(User.class).forUpdate().where().eq("id", user.getId()).findOne();
+                Optional<ExamMachine> machine = machineAllocator.allocate(
+                    room,
+                    exam,
+                    new Interval(start, end),
+                    aids,
+                    user
+                );
+                if (machine.isEmpty()) {
+                    return forbidden("i18n_no_machines_available");
+                }
+                // We are good to go :)
                 Reservation oldReservation = enrolment.getReservation();
                 Reservation reservation = calendarHandler.createReservation(start, end, machine.get(), user);
                 // Nuke the old reservation if any
@@ -156,6 +175,11 @@ public class CollaborativeCalendarController extends CollaborationController {
                 }
                 Result newReservation = makeNewReservation(enrolment, exam, reservation, user, sectionIds);
                 tx.commit();
+                roomOccupancyCache.invalidate(room.getId());
+                examContextCache.invalidate(user.getId());
+                if (oldReservation != null && oldReservation.getMachine() != null) {
+                    roomOccupancyCache.invalidate(oldReservation.getMachine().getRoom().getId());
+                }
                 return newReservation;
             }
         });
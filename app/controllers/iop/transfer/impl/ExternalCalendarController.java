@@ -13,8 +13,10 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import controllers.base.BaseController;
 import controllers.iop.transfer.api.ExternalReservationHandler;
 import impl.CalendarHandler;
+import impl.MachineAllocator;
 import impl.mail.EmailComposer;
 import io.ebean.DB;
+import io.ebean.Transaction;
 import io.ebean.text.PathProperties;
 import java.net.MalformedURLException;
 import java.net.URI;
@@ -31,6 +33,8 @@ import java.util.concurrent.CompletionStage;
 import java.util.function.Function;
 import java.util.stream.Collector;
 import javax.inject.Inject;
+import miscellaneous.cache.ExamContextCache;
+import miscellaneous.cache.RoomOccupancyCache;
 import miscellaneous.config.ConfigReader;
 import miscellaneous.datetime.DateTimeHandler;
 import models.calendar.MaintenancePeriod;
@@ -65,6 +69,9 @@ public class ExternalCalendarController extends BaseController {
     private final ConfigReader configReader;
     private final DateTimeHandler dateTimeHandler;
     private final ExternalReservationHandler externalReservationHandler;
+    private final RoomOccupancyCache roomOccupancyCache;
+    private final ExamContextCache examContextCache;
+    private final MachineAllocator machineAllocator;
 
     @Inject
     public ExternalCalendarController(
@@ -73,7 +80,10 @@ public class ExternalCalendarController extends BaseController {
         EmailComposer emailComposer,
         ConfigReader configReader,
         DateTimeHandler dateTimeHandler,
-        ExternalReservationHandler externalReservationHandler
+        ExternalReservationHandler externalReservationHandler,
+        RoomOccupancyCache roomOccupancyCache,
+        ExamContextCache examContextCache,
+        MachineAllocator machineAllocator
     ) {
         this.wsClient = wsClient;
         this.calendarHandler = calendarHandler;
@@ -81,6 +91,9 @@ public class ExternalCalendarController extends BaseController {
         this.configReader = configReader;
         this.dateTimeHandler = dateTimeHandler;
         this.externalReservationHandler = externalReservationHandler;
+        this.roomOccupancyCache = roomOccupancyCache;
+        this.examContextCache = examContextCache;
+        this.machineAllocator = machineAllocator;
     }
 
     private URL parseUrl(String orgRef, String facilityRef, String date, String start, String end, int duration)
@@ -131,26 +144,31 @@ public class ExternalCalendarController extends BaseController {
         if (room == null) {
             return notFound("room not found");
         }
-        Optional<ExamMachine> machine = calendarHandler.getRandomMachine(
-            room,
-            null,
-            start,
-            end,
-            Collections.emptyList()
-        );
-        if (machine.isEmpty()) {
-            return forbidden("i18n_no_machines_available");
-        }
-        // We are good to go :)
         Reservation reservation = new Reservation();
-        reservation.setExternalRef(reservationRef);
-        reservation.setEndAt(end);
-        reservation.setStartAt(start);
-        reservation.setMachine(machine.get());
-        reservation.setExternalUserRef(userEppn);
-        reservation.setExternalOrgRef(orgRef);
-        reservation.setExternalOrgName(orgName);
-        reservation.save();
+        // Machine stays locked until the reservation has been saved
+        try (Transaction tx = DB.beginTransaction()) {
+            Optional<ExamMachine> machine = machineAllocator.allocate(
+                room,
+                null,
+                new Interval(start, end),
+                Collections.emptyList(),
+                null
+            );
+            if (machine.isEmpty()) {
+                return forbidden("i18n_no_machines_available");
+            }
+            // We are good to go :)
+            reservation.setExternalRef(reservationRef);
+            reservation.setEndAt(end);
+            reservation.setStartAt(start);
+            reservation.setMachine(machine.get());
+            reservation.setExternalUserRef(userEppn);
+            reservation.setExternalOrgRef(orgRef);
+            reservation.setExternalOrgName(orgName);
+            reservation.save();
+            tx.commit();
+        }
+        roomOccupancyCache.invalidate(room.getId());
         PathProperties pp = PathProperties.parse("(*, machine(*, room(*, mailAddress(*))))");
 
         return created(reservation, pp);
@@ -175,9 +193,13 @@ public class ExternalCalendarController extends BaseController {
         }
         if (reservation.getEnrolment() != null) {
             reservation.getEnrolment().delete(); // cascades to reservation
+            if (reservation.getEnrolment().getUser() != null) {
+                examContextCache.invalidate(reservation.getEnrolment().getUser().getId());
+            }
         } else {
             reservation.delete();
         }
+        roomOccupancyCache.invalidate(reservation.getMachine().getRoom().getId());
         return ok();
     }
 
@@ -391,6 +413,7 @@ public class ExternalCalendarController extends BaseController {
                 OptionConverters.toScala(Optional.of(msg))
             );
             reservation.delete();
+            roomOccupancyCache.invalidate(reservation.getMachine().getRoom().getId());
             return ok();
         };
 
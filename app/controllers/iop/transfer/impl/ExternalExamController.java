@@ -8,7 +8,6 @@ import be.objectify.deadbolt.java.actions.SubjectNotPresent;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
-import controllers.admin.SettingsController;
 import controllers.base.BaseController;
 import controllers.exam.copy.ExamCopyContext;
 import controllers.examination.ExaminationController;
@@ -45,8 +44,8 @@ import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 import javax.inject.Inject;
 import miscellaneous.config.ConfigReader;
+import miscellaneous.config.SettingsStore;
 import miscellaneous.json.JsonDeserializer;
-import models.admin.GeneralSettings;
 import models.assessment.AutoEvaluationConfig;
 import models.assessment.ExamInspection;
 import models.attachment.Attachment;
@@ -81,6 +80,9 @@ public class ExternalExamController extends BaseController implements ExternalEx
     @Inject
     private WSClient wsClient;
 
+    @Inject
+    private SettingsStore settingsStore;
+
     @Inject
     private AutoEvaluationHandler autoEvaluationHandler;
 
@@ -196,8 +198,7 @@ public class ExternalExamController extends BaseController implements ExternalEx
         ep.setDuration(new DateTime(ee.getFinished().getMillis() - ee.getStarted().getMillis()));
 
         if (clone.getState().equals(Exam.State.REVIEW)) {
-            GeneralSettings settings = SettingsController.getOrCreateSettings("review_deadline", null, "14");
-            int deadlineDays = Integer.parseInt(settings.getValue());
+            int deadlineDays = settingsStore.getReviewDeadline();
             DateTime deadline = ee.getFinished().plusDays(deadlineDays);
             ep.setDeadline(deadline);
             if (clone.isPrivate()) {
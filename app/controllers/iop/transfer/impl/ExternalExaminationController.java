@@ -10,6 +10,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import controllers.examination.ExaminationController;
 import controllers.iop.transfer.api.ExternalAttachmentLoader;
+import impl.AnswerWriter;
 import impl.AutoEvaluationHandler;
 import impl.mail.EmailComposer;
 import io.ebean.DB;
@@ -27,8 +28,11 @@ import java.util.concurrent.CompletionStage;
 import java.util.function.Function;
 import java.util.stream.StreamSupport;
 import javax.inject.Inject;
+import miscellaneous.cache.ExamContextCache;
 import miscellaneous.config.ByodConfigHandler;
+import miscellaneous.config.SettingsStore;
 import miscellaneous.datetime.DateTimeHandler;
+import miscellaneous.scheduling.ExamDeadlineQueue;
 import models.enrolment.ExamEnrolment;
 import models.exam.Exam;
 import models.iop.ExternalExam;
@@ -64,7 +68,11 @@ public class ExternalExaminationController extends ExaminationController {
         ClassLoaderExecutionContext httpExecutionContext,
         ExternalAttachmentLoader externalAttachmentLoader,
         ByodConfigHandler byodConfigHandler,
-        DateTimeHandler dateTimeHandler
+        DateTimeHandler dateTimeHandler,
+        SettingsStore settingsStore,
+        ExamContextCache examContextCache,
+        AnswerWriter answerWriter,
+        ExamDeadlineQueue deadlineQueue
     ) {
         super(
             emailComposer,
@@ -75,7 +83,11 @@ public class ExternalExaminationController extends ExaminationController {
             httpExecutionContext,
             externalAttachmentLoader,
             byodConfigHandler,
-            dateTimeHandler
+            dateTimeHandler,
+            settingsStore,
+            examContextCache,
+            answerWriter,
+            deadlineQueue
         );
     }
 
@@ -111,6 +123,7 @@ public class ExternalExaminationController extends ExaminationController {
                 );
                 externalExam.setStarted(now);
                 externalExam.update();
+                deadlineQueue.registerExternal(enrolment, newExam.getDuration());
             }
             newExam.setCloned(false);
             newExam.setExternal(true);
@@ -349,6 +362,8 @@ public class ExternalExaminationController extends ExaminationController {
         } catch (IOException e) {
             return internalServerError();
         }
+        deadlineQueue.removeExternal(enrolment.getId());
+        examContextCache.invalidate(user.getId());
         return ok();
     }
 }
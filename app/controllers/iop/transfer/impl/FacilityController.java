@@ -17,9 +17,11 @@ import java.net.URI;
 import java.net.URL;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
 import java.util.function.Function;
 import javax.inject.Inject;
+import miscellaneous.cache.OrganisationDirectory;
 import miscellaneous.config.ConfigReader;
 import models.facility.ExamRoom;
 import play.libs.Json;
@@ -38,6 +40,9 @@ public class FacilityController extends BaseController implements ExternalFacili
     @Inject
     private ConfigReader configReader;
 
+    @Inject
+    private OrganisationDirectory organisationDirectory;
+
     private URL parseUrl(String facilityRef) throws MalformedURLException {
         StringBuilder url = new StringBuilder(configReader.getIopHost());
         String orgRef = configReader.getHomeOrganisationRef();
@@ -48,12 +53,6 @@ public class FacilityController extends BaseController implements ExternalFacili
         return URI.create(url.toString()).toURL();
     }
 
-    private URL parseExternalUrl(String orgRef) throws MalformedURLException {
-        return URI.create(
-            configReader.getIopHost() + String.format("/api/organisations/%s/facilities", orgRef)
-        ).toURL();
-    }
-
     private String toJson(ExamRoom room) {
         PathProperties pp = PathProperties.parse(
             "(*, defaultWorkingHours(*), calendarExceptionEvents(*), mailAddress(*), " +
@@ -80,6 +79,7 @@ public class FacilityController extends BaseController implements ExternalFacili
                 String externalRef = root.get("id").asText();
                 room.setExternalRef(externalRef);
                 room.update();
+                organisationDirectory.invalidate();
                 return ok(Json.newObject().put("externalRef", externalRef));
             };
             return request.post(toJson(room)).thenApplyAsync(onSuccess);
@@ -91,6 +91,7 @@ public class FacilityController extends BaseController implements ExternalFacili
                     // 404 would mean that facility does not exist remotely, remove its reference here also
                     room.setExternalRef(null);
                     room.update();
+                    organisationDirectory.invalidate();
                 } else {
                     return internalServerError("Connection refused");
                 }
@@ -105,27 +106,31 @@ public class FacilityController extends BaseController implements ExternalFacili
     }
 
     @Restrict({ @Group("STUDENT") })
-    public CompletionStage<Result> listFacilities(Optional<String> organisation) throws MalformedURLException {
+    public CompletionStage<Result> listFacilities(Optional<String> organisation) {
         if (organisation.isEmpty()) {
             return wrapAsPromise(badRequest());
         }
-        URL url = parseExternalUrl(organisation.get());
-        WSRequest request = wsClient.url(url.toString());
-        Function<WSResponse, Result> onSuccess = response -> {
-            JsonNode root = response.asJson();
-            if (response.getStatus() != Http.Status.OK) {
-                return internalServerError(root.get("message").asText("Connection refused"));
-            }
-            return ok(root);
-        };
-        return request.get().thenApplyAsync(onSuccess);
+        return organisationDirectory
+            .getFacilities(organisation.get())
+            .thenApply(root -> ok(root))
+            .exceptionally(e -> {
+                if (e.getCause() instanceof OrganisationDirectory.DirectoryException de) {
+                    return internalServerError(de.getMessage());
+                }
+                throw e instanceof CompletionException ce ? ce : new CompletionException(e);
+            });
     }
 
     @Override
     public CompletionStage<Result> updateFacility(ExamRoom room) throws MalformedURLException {
         URL url = parseUrl(room.getExternalRef());
         WSRequest request = wsClient.url(url.toString()).setContentType("application/json");
-        return request.put(toJson(room)).thenApplyAsync(response -> ok(room));
+        return request
+            .put(toJson(room))
+            .thenApplyAsync(response -> {
+                organisationDirectory.invalidate();
+                return ok(room);
+            });
     }
 
     @Override
@@ -10,6 +10,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import controllers.base.BaseController;
 import controllers.base.SectionQuestionHandler;
+import impl.ExamScoreUpdater;
 import io.ebean.DB;
 import io.ebean.ExpressionList;
 import io.ebean.Model;
@@ -17,14 +18,22 @@ import io.ebean.Query;
 import io.ebean.text.PathProperties;
 import jakarta.persistence.PersistenceException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 import javax.inject.Inject;
+import miscellaneous.file.BlockingIOExecutionContext;
 import miscellaneous.xml.MoodleXmlExporter;
 import miscellaneous.xml.MoodleXmlImporter;
 import models.exam.Exam;
@@ -36,6 +45,10 @@ import models.sections.ExamSectionQuestion;
 import models.sections.ExamSectionQuestionOption;
 import models.user.Role;
 import models.user.User;
+import org.apache.pekko.NotUsed;
+import org.apache.pekko.stream.javadsl.Source;
+import org.apache.pekko.stream.javadsl.StreamConverters;
+import org.apache.pekko.util.ByteString;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import play.data.DynamicForm;
@@ -45,12 +58,15 @@ import play.mvc.BodyParser;
 import play.mvc.Http;
 import play.mvc.Result;
 import play.mvc.With;
+import repository.ExaminationRepository;
 import sanitizers.Attrs;
 import sanitizers.QuestionTextSanitizer;
 import sanitizers.SanitizingHelper;
 import scala.jdk.javaapi.CollectionConverters;
 import security.Authenticated;
+import system.interceptors.Blocking;
 
+@Blocking
 public class QuestionController extends BaseController implements SectionQuestionHandler {
 
     @Inject
@@ -59,6 +75,18 @@ public class QuestionController extends BaseController implements SectionQuestio
     @Inject
     private MoodleXmlImporter xmlImporter;
 
+    @Inject
+    private ExamScoreUpdater examScoreUpdater;
+
+    @Inject
+    private ExaminationRepository examinationRepository;
+
+    @Inject
+    private BlockingIOExecutionContext ec;
+
+    private static final int EXPORT_BATCH_SIZE = 100;
+    private static final Duration EXPORT_WRITE_TIMEOUT = Duration.ofMinutes(1);
+
     private final Logger logger = LoggerFactory.getLogger(QuestionController.class);
 
     private enum QuestionState {
@@ -313,6 +341,8 @@ public class QuestionController extends BaseController implements SectionQuestio
                     processOptions(updatedQuestion, user, (ArrayNode) body.get("options"));
                 }
                 updatedQuestion.update();
+                examScoreUpdater.invalidateByQuestion(updatedQuestion.getId());
+                examinationRepository.discardPreparedExamsByQuestion(updatedQuestion.getId());
                 return ok(updatedQuestion);
             });
     }
@@ -449,21 +479,56 @@ public class QuestionController extends BaseController implements SectionQuestio
         Set<Long> ids = StreamSupport.stream(node.spliterator(), false)
             .map(JsonNode::asLong)
             .collect(Collectors.toSet());
-        List<Question> questions = DB.find(Question.class)
+        List<Long> questionIds = DB.find(Question.class)
             .where()
             .idIn(ids)
-            .findList()
-            .stream()
-            .filter(
-                q -> q.getType() != Question.Type.ClaimChoiceQuestion && q.getType() != Question.Type.ClozeTestQuestion
-            )
-            .toList();
-        String document = xmlExporter.convert(CollectionConverters.asScala(questions).toSeq());
-        return ok(document)
+            .notIn("type", Question.Type.ClaimChoiceQuestion, Question.Type.ClozeTestQuestion)
+            .orderBy("id")
+            .findIds();
+        // The document is written as the client reads it, questions get loaded a batch at a time meanwhile
+        CompletableFuture<Void> written = new CompletableFuture<>();
+        Source<ByteString, ?> source = StreamConverters.asOutputStream(EXPORT_WRITE_TIMEOUT)
+            .mapMaterializedValue(os -> {
+                CompletableFuture.runAsync(() -> writeQuestions(questionIds, os), ec).whenComplete((v, e) -> {
+                    if (e != null) {
+                        logger.error("Failed to export questions", e);
+                        written.completeExceptionally(e);
+                    } else {
+                        written.complete(null);
+                    }
+                });
+                return NotUsed.getInstance();
+            })
+            // Output gets closed also when writing fails, fail the response so that it does not pass as complete
+            .concat(Source.completionStageSource(written.thenApply(v -> Source.<ByteString>empty())));
+        return ok()
+            .chunked(source)
             .withHeader("Content-Disposition", "attachment; filename=\"moodle-quiz.xml\"")
             .as("application/xml");
     }
 
+    private void writeQuestions(List<Long> ids, OutputStream os) {
+        Iterator<Question> questions = IntStream.iterate(0, i -> i < ids.size(), i -> i + EXPORT_BATCH_SIZE)
+            .boxed()
+            .flatMap(i ->
+                DB.find(Question.class)
+                    .fetch("options")
+                    .fetch("tags")
+                    .fetch("attachment")
+                    .where()
+                    .idIn(ids.subList(i, Math.min(i + EXPORT_BATCH_SIZE, ids.size())))
+                    .orderBy("id")
+                    .findList()
+                    .stream()
+            )
+            .iterator();
+        try (os) {
+            xmlExporter.write(CollectionConverters.asScala(questions), os);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     @Authenticated
     @Restrict({ @Group("TEACHER"), @Group("ADMIN"), @Group("SUPPORT") })
     public Result importQuestions(Http.Request request) throws IOException {
@@ -472,11 +537,12 @@ public class QuestionController extends BaseController implements SectionQuestio
         if (filePart == null) {
             throw new IllegalArgumentException("file not found");
         }
-        String content = java.nio.file.Files.readString(filePart.getRef().path());
-        var result = xmlImporter.convert(content, request.attrs().get(Attrs.AUTHENTICATED_USER));
-        var successes = CollectionConverters.asJava(result._1);
-        var errors = CollectionConverters.asJava(result._2);
-        return ok(Json.newObject().put("errorCount", errors.size()).put("successCount", successes.size()));
+        try (InputStream content = java.nio.file.Files.newInputStream(filePart.getRef().path())) {
+            var result = xmlImporter.convert(content, request.attrs().get(Attrs.AUTHENTICATED_USER));
+            var successes = CollectionConverters.asJava(result._1);
+            var errors = CollectionConverters.asJava(result._2);
+            return ok(Json.newObject().put("errorCount", errors.size()).put("successCount", successes.size()));
+        }
     }
 
     private Result processPreview(ExamSectionQuestion esq) {
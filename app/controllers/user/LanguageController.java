@@ -17,7 +17,7 @@ public class LanguageController extends BaseController {
 
     @Restrict({ @Group("TEACHER"), @Group("ADMIN"), @Group("SUPPORT") })
     public Result getSupportedLanguages() {
-        List<Language> languages = DB.find(Language.class).findList();
+        List<Language> languages = DB.find(Language.class).setUseQueryCache(true).findList();
         return ok(Json.toJson(languages));
     }
 }
@@ -50,6 +50,7 @@ import play.libs.Json;
 import play.mvc.Http;
 import play.mvc.Result;
 import repository.EnrolmentRepository;
+import repository.UserRepository;
 import scala.jdk.javaapi.CollectionConverters;
 
 public class SessionController extends BaseController {
@@ -59,6 +60,7 @@ public class SessionController extends BaseController {
     private final ConfigReader configReader;
     private final EnrolmentRepository enrolmentRepository;
     private final DateTimeHandler dateTimeHandler;
+    private final UserRepository userRepository;
 
     private final Logger logger = LoggerFactory.getLogger(SessionController.class);
 
@@ -87,13 +89,15 @@ public class SessionController extends BaseController {
         ExternalExamAPI externalExamAPI,
         ConfigReader configReader,
         EnrolmentRepository enrolmentRepository,
-        DateTimeHandler dateTimeHandler
+        DateTimeHandler dateTimeHandler,
+        UserRepository userRepository
     ) {
         this.environment = environment;
         this.externalExamAPI = externalExamAPI;
         this.configReader = configReader;
         this.enrolmentRepository = enrolmentRepository;
         this.dateTimeHandler = dateTimeHandler;
+        this.userRepository = userRepository;
     }
 
     @ActionMethod
@@ -138,6 +142,8 @@ public class SessionController extends BaseController {
         }
         user.setLastLogin(new Date());
         user.save();
+        // Roles, organisation etc. may have been updated from the login attributes
+        userRepository.evict(user.getId());
         associateWithPreEnrolments(user);
         return handleExternalReservationAndCreateSession(user, externalReservation, request);
     }
@@ -165,6 +171,7 @@ public class SessionController extends BaseController {
             .orElseGet(() -> {
                 user.setLastLogin(new Date());
                 user.update();
+                userRepository.evict(user.getId());
                 return handleExternalReservationAndCreateSession(user, externalReservation, request);
             });
     }
@@ -478,6 +485,7 @@ public class SessionController extends BaseController {
         if (!session.isEmpty()) {
             Long userId = Long.parseLong(session.get("id"));
             User user = DB.find(User.class, userId);
+            userRepository.evict(userId);
             if (user != null && user.getLogoutUrl() != null) {
                 ObjectNode node = Json.newObject();
                 node.put("logoutUrl", user.getLogoutUrl());
@@ -27,6 +27,7 @@ import play.data.DynamicForm;
 import play.mvc.Http;
 import play.mvc.Result;
 import play.mvc.With;
+import repository.UserRepository;
 import sanitizers.Attrs;
 import sanitizers.UserLanguageSanitizer;
 import security.Authenticated;
@@ -35,15 +36,17 @@ import validators.JsonValidator;
 public class UserController extends BaseController {
 
     private final UserHandler userHandler;
+    private final UserRepository userRepository;
 
     @Inject
-    public UserController(UserHandler userHandler) {
+    public UserController(UserHandler userHandler, UserRepository userRepository) {
         this.userHandler = userHandler;
+        this.userRepository = userRepository;
     }
 
     @Restrict({ @Group("ADMIN"), @Group("SUPPORT") })
     public Result listPermissions() {
-        return ok(DB.find(Permission.class).findList());
+        return ok(DB.find(Permission.class).setUseQueryCache(true).findList());
     }
 
     @Restrict({ @Group("ADMIN"), @Group("SUPPORT") })
@@ -69,6 +72,7 @@ public class UserController extends BaseController {
             Permission permission = DB.find(Permission.class).where().eq("type", type).findOne();
             user.getPermissions().add(permission);
             user.update();
+            userRepository.evict(user.getId());
         }
         return ok();
     }
@@ -93,6 +97,7 @@ public class UserController extends BaseController {
                 .findOne();
             user.getPermissions().remove(permission);
             user.update();
+            userRepository.evict(user.getId());
         }
         return ok();
     }
@@ -139,6 +144,7 @@ public class UserController extends BaseController {
             }
             user.getRoles().add(role);
             user.update();
+            userRepository.evict(user.getId());
         }
         return ok();
     }
@@ -162,6 +168,7 @@ public class UserController extends BaseController {
             }
             user.getRoles().remove(role);
             user.update();
+            userRepository.evict(user.getId());
         }
         return ok();
     }
@@ -217,6 +224,7 @@ public class UserController extends BaseController {
         } else {
             user.setUserAgreementAccepted(true);
             user.update();
+            userRepository.evict(user.getId());
             result = ok();
         }
         return result;
@@ -235,6 +243,7 @@ public class UserController extends BaseController {
         }
         user.setLanguage(language);
         user.update();
+        userRepository.evict(user.getId());
         return ok();
     }
 
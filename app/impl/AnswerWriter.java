@@ -0,0 +1,46 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package impl;
+
+import com.google.inject.ImplementedBy;
+import java.util.List;
+import java.util.Optional;
+import models.questions.ClozeTestAnswer;
+import models.questions.EssayAnswer;
+
+/**
+ * Stores the answers of students taking an exam. Rapid successive saves of the same question by the same client are
+ * merged into a single write, a save returns once its answer has been written to the database. A save by another
+ * client while the question is being written fails with an OptimisticLockException.
+ */
+@ImplementedBy(AnswerWriterImpl.class)
+public interface AnswerWriter {
+    /**
+     * @param client identifies where the answer comes from
+     * @param objectVersion version of the answer the client has, null if none
+     * @return the saved answer with its new version, empty if there is no such question
+     */
+    Optional<EssayAnswer> saveEssayAnswer(Long sectionQuestionId, String client, String answer, Long objectVersion);
+
+    /**
+     * @param client identifies where the answer comes from
+     * @param objectVersion version of the answer the client has, null if none
+     * @return the saved answer with its new version, empty if there is no such question
+     */
+    Optional<ClozeTestAnswer> saveClozeTestAnswer(
+        Long sectionQuestionId,
+        String client,
+        String answer,
+        Long objectVersion
+    );
+
+    /**
+     * Marks given options of the question answered and the rest of them not answered.
+     *
+     * @param client identifies where the answer comes from
+     * @return false if there is no such question
+     */
+    boolean saveOptions(Long sectionQuestionId, String client, List<Long> optionIds);
+}
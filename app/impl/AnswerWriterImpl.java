@@ -0,0 +1,193 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.ebean.DB;
+import io.ebean.SqlUpdate;
+import io.ebean.Transaction;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import miscellaneous.metrics.Metrics;
+import models.questions.ClozeTestAnswer;
+import models.questions.EssayAnswer;
+import models.sections.ExamSectionQuestion;
+
+@Singleton
+public class AnswerWriterImpl implements AnswerWriter {
+
+    // Answers stay attached to their question once created, their ids can be kept for the duration of the exam
+    private final Cache<Long, Long> essayAnswerIds = Caffeine.newBuilder()
+        .expireAfterAccess(Duration.ofHours(6))
+        .build();
+    private final Cache<Long, Long> clozeTestAnswerIds = Caffeine.newBuilder()
+        .expireAfterAccess(Duration.ofHours(6))
+        .build();
+
+    private final WriteCoalescer<Long, String, EssayAnswer> essayWriter = new WriteCoalescer<>(this::writeEssay);
+    private final WriteCoalescer<Long, String, ClozeTestAnswer> clozeTestWriter = new WriteCoalescer<>(
+        this::writeClozeTest
+    );
+    private final WriteCoalescer<Long, List<Long>, Boolean> optionWriter = new WriteCoalescer<>(this::writeOptions);
+
+    @Inject
+    public AnswerWriterImpl(Metrics metrics) {
+        bindStatistics(metrics.getRegistry(), "essay", essayWriter.getStatistics());
+        bindStatistics(metrics.getRegistry(), "multi-choice", optionWriter.getStatistics());
+        bindStatistics(metrics.getRegistry(), "cloze-test", clozeTestWriter.getStatistics());
+    }
+
+    private static void bindStatistics(MeterRegistry registry, String type, WriteCoalescer.Statistics statistics) {
+        bindCounter(registry, "exam.answers.saves", type, statistics, WriteCoalescer.Statistics::getRequests);
+        bindCounter(registry, "exam.answers.coalesced", type, statistics, WriteCoalescer.Statistics::getCoalesced);
+        bindCounter(registry, "exam.answers.rejected", type, statistics, WriteCoalescer.Statistics::getRejected);
+        bindCounter(registry, "exam.answers.failures", type, statistics, WriteCoalescer.Statistics::getFailures);
+        FunctionTimer.builder(
+            "exam.answers.flushes",
+            statistics,
+            WriteCoalescer.Statistics::getFlushes,
+            WriteCoalescer.Statistics::getFlushNanos,
+            TimeUnit.NANOSECONDS
+        )
+            .tag("type", type)
+            .register(registry);
+        Gauge.builder("exam.answers.flushes.max", statistics, s -> s.getMaxFlushNanos() / 1e9)
+            .tag("type", type)
+            .baseUnit("seconds")
+            .register(registry);
+    }
+
+    private static void bindCounter(
+        MeterRegistry registry,
+        String name,
+        String type,
+        WriteCoalescer.Statistics statistics,
+        ToDoubleFunction<WriteCoalescer.Statistics> f
+    ) {
+        FunctionCounter.builder(name, statistics, f).tag("type", type).register(registry);
+    }
+
+    @Override
+    public Optional<EssayAnswer> saveEssayAnswer(
+        Long sectionQuestionId,
+        String client,
+        String answer,
+        Long objectVersion
+    ) {
+        return Optional.ofNullable(essayWriter.submit(sectionQuestionId, client, objectVersion, answer));
+    }
+
+    @Override
+    public Optional<ClozeTestAnswer> saveClozeTestAnswer(
+        Long sectionQuestionId,
+        String client,
+        String answer,
+        Long objectVersion
+    ) {
+        return Optional.ofNullable(clozeTestWriter.submit(sectionQuestionId, client, objectVersion, answer));
+    }
+
+    @Override
+    public boolean saveOptions(Long sectionQuestionId, String client, List<Long> optionIds) {
+        return optionWriter.submit(sectionQuestionId, client, null, optionIds);
+    }
+
+    private WriteCoalescer.Written<EssayAnswer> writeEssay(Long sectionQuestionId, Long version, String text) {
+        Long id = essayAnswerIds.getIfPresent(sectionQuestionId);
+        if (id != null && version != null) {
+            // Update by id and version, nothing needs to be read first
+            EssayAnswer answer = new EssayAnswer();
+            answer.setId(id);
+            answer.setObjectVersion(version);
+            answer.setAnswer(text);
+            DB.update(answer);
+            return new WriteCoalescer.Written<>(answer, answer.getObjectVersion());
+        }
+        ExamSectionQuestion esq = DB.find(ExamSectionQuestion.class, sectionQuestionId);
+        if (esq == null) {
+            return new WriteCoalescer.Written<>(null, null);
+        }
+        EssayAnswer answer = esq.getEssayAnswer();
+        if (answer == null) {
+            answer = new EssayAnswer();
+            answer.setAnswer(text);
+            try (Transaction tx = DB.beginTransaction()) {
+                DB.save(answer);
+                esq.setEssayAnswer(answer);
+                DB.update(esq);
+                tx.commit();
+            }
+        } else {
+            if (version != null) {
+                answer.setObjectVersion(version);
+            }
+            answer.setAnswer(text);
+            DB.update(answer);
+        }
+        essayAnswerIds.put(sectionQuestionId, answer.getId());
+        return new WriteCoalescer.Written<>(answer, answer.getObjectVersion());
+    }
+
+    private WriteCoalescer.Written<ClozeTestAnswer> writeClozeTest(Long sectionQuestionId, Long version, String text) {
+        Long id = clozeTestAnswerIds.getIfPresent(sectionQuestionId);
+        if (id != null && version != null) {
+            ClozeTestAnswer answer = new ClozeTestAnswer();
+            answer.setId(id);
+            answer.setObjectVersion(version);
+            answer.setAnswer(text);
+            DB.update(answer);
+            return new WriteCoalescer.Written<>(answer, answer.getObjectVersion());
+        }
+        ExamSectionQuestion esq = DB.find(ExamSectionQuestion.class, sectionQuestionId);
+        if (esq == null) {
+            return new WriteCoalescer.Written<>(null, null);
+        }
+        ClozeTestAnswer answer = esq.getClozeTestAnswer();
+        if (answer == null) {
+            answer = new ClozeTestAnswer();
+            answer.setAnswer(text);
+            try (Transaction tx = DB.beginTransaction()) {
+                DB.save(answer);
+                esq.setClozeTestAnswer(answer);
+                DB.update(esq);
+                tx.commit();
+            }
+        } else {
+            if (version != null) {
+                answer.setObjectVersion(version);
+            }
+            answer.setAnswer(text);
+            DB.update(answer);
+        }
+        clozeTestAnswerIds.put(sectionQuestionId, answer.getId());
+        return new WriteCoalescer.Written<>(answer, answer.getObjectVersion());
+    }
+
+    private WriteCoalescer.Written<Boolean> writeOptions(Long sectionQuestionId, Long version, List<Long> optionIds) {
+        // All options of the question in one statement
+        String sql = optionIds.isEmpty()
+            ? "UPDATE exam_section_question_option SET answered = false, object_version = object_version + 1 " +
+              "WHERE exam_section_question_id = :esq"
+            : "UPDATE exam_section_question_option SET answered = id IN (:ids), object_version = object_version + 1 " +
+              "WHERE exam_section_question_id = :esq";
+        SqlUpdate update = DB.sqlUpdate(sql).setParameter("esq", sectionQuestionId);
+        if (!optionIds.isEmpty()) {
+            update.setParameter("ids", optionIds);
+        }
+        boolean found =
+            update.execute() > 0 || DB.find(ExamSectionQuestion.class).where().idEq(sectionQuestionId).exists();
+        return new WriteCoalescer.Written<>(found, null);
+    }
+}
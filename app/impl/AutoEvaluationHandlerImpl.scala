@@ -20,6 +20,7 @@ import scala.jdk.CollectionConverters._
 
 class AutoEvaluationHandlerImpl @Inject (
     private val composer: EmailComposer,
+    private val scoreUpdater: ExamScoreUpdater,
     private val actor: ActorSystem,
     implicit val executionContext: ExecutionContext
 ) extends AutoEvaluationHandler
@@ -27,6 +28,8 @@ class AutoEvaluationHandlerImpl @Inject (
     with Logging:
 
   override def autoEvaluate(exam: Exam): Unit =
+    // Store the scores as the exam gets turned in, grading and the review listing read them from there
+    if !exam.hasScores then scoreUpdater.update(exam)
     val config = exam.getAutoEvaluationConfig
     if Option(config).nonEmpty then
       // Grade automatically
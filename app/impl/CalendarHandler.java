@@ -19,6 +19,8 @@ import models.facility.ExamRoom;
 import models.user.User;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.pekko.NotUsed;
+import org.apache.pekko.stream.javadsl.Source;
 import org.joda.time.DateTime;
 import org.joda.time.Interval;
 import org.joda.time.LocalDate;
@@ -28,6 +30,13 @@ import play.mvc.Result;
 @ImplementedBy(CalendarHandlerImpl.class)
 public interface CalendarHandler {
     Result getSlots(User user, Exam exam, Long roomId, String day, Collection<Integer> aids);
+    Source<RoomSlots, NotUsed> getSlots(
+        User user,
+        Exam exam,
+        Collection<Long> roomIds,
+        String day,
+        Collection<Integer> aids
+    );
     Set<TimeSlot> handleReservations(
         Map<Interval, Optional<Integer>> examSlots,
         Collection<Reservation> reservations,
@@ -38,19 +47,11 @@ public interface CalendarHandler {
     Collection<Interval> gatherSuitableSlots(ExamRoom room, LocalDate date, Integer examDuration);
     LocalDate parseSearchDate(String day, Exam exam, ExamRoom room) throws IllegalArgumentException;
 
-    Optional<ExamMachine> getRandomMachine(
-        ExamRoom room,
-        Exam exam,
-        DateTime start,
-        DateTime end,
-        Collection<Integer> aids
-    );
-
     Reservation createReservation(DateTime start, DateTime end, ExamMachine machine, User user);
 
     LocalDate getEndSearchDate(LocalDate searchDate, LocalDate examEnd);
     int getReservationWindowSize();
-    boolean isDoable(Reservation reservation, Collection<Integer> aids);
+    boolean isDoable(ExamRoom room, Reservation reservation, Collection<Integer> aids);
     CompletionStage<Optional<Integer>> handleExternalReservation(
         ExamEnrolment enrolment,
         Exam exam,
@@ -70,6 +71,25 @@ public interface CalendarHandler {
 
     ExamEnrolment getEnrolment(Long examId, User user);
 
+    class RoomSlots {
+
+        private final Long roomId;
+        private final Collection<TimeSlot> slots;
+
+        public RoomSlots(Long roomId, Collection<TimeSlot> slots) {
+            this.roomId = roomId;
+            this.slots = slots;
+        }
+
+        public Long getRoomId() {
+            return roomId;
+        }
+
+        public Collection<TimeSlot> getSlots() {
+            return slots;
+        }
+    }
+
     class TimeSlot {
 
         Interval interval;
@@ -7,7 +7,6 @@ package impl;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.google.common.collect.Lists;
-import controllers.admin.SettingsController;
 import controllers.iop.transfer.api.ExternalReservationHandler;
 import impl.mail.EmailComposer;
 import io.ebean.DB;
@@ -24,11 +23,15 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 import javax.inject.Inject;
+import miscellaneous.cache.RoomOccupancy;
+import miscellaneous.cache.RoomOccupancyCache;
 import miscellaneous.config.ConfigReader;
+import miscellaneous.config.SettingsStore;
 import miscellaneous.datetime.DateTimeHandler;
 import miscellaneous.enrolment.EnrolmentHandler;
 import models.calendar.MaintenancePeriod;
@@ -43,7 +46,9 @@ import models.facility.MailAddress;
 import models.iop.CollaborativeExam;
 import models.sections.ExamSection;
 import models.user.User;
+import org.apache.pekko.NotUsed;
 import org.apache.pekko.actor.ActorSystem;
+import org.apache.pekko.stream.javadsl.Source;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeConstants;
 import org.joda.time.DateTimeZone;
@@ -57,16 +62,22 @@ import org.slf4j.LoggerFactory;
 import play.libs.Json;
 import play.mvc.Result;
 import play.mvc.Results;
+import repository.DatabaseExecutionContext;
 import scala.concurrent.duration.Duration;
 
 public class CalendarHandlerImpl implements CalendarHandler {
 
     private final Logger logger = LoggerFactory.getLogger(CalendarHandlerImpl.class);
     private static final int LAST_HOUR = 23;
+    // How many rooms to compute slots for concurrently per batch request
+    private static final int ROOM_PARALLELISM = 4;
 
     @Inject
     private ConfigReader configReader;
 
+    @Inject
+    private SettingsStore settingsStore;
+
     @Inject
     private ExternalReservationHandler externalReservationHandler;
 
@@ -82,6 +93,12 @@ public class CalendarHandlerImpl implements CalendarHandler {
     @Inject
     private EnrolmentHandler enrolmentHandler;
 
+    @Inject
+    private RoomOccupancyCache roomOccupancyCache;
+
+    @Inject
+    private DatabaseExecutionContext databaseExecutionContext;
+
     @Override
     public Result getSlots(User user, Exam exam, Long roomId, String day, Collection<Integer> aids) {
         ExamRoom room = DB.find(ExamRoom.class, roomId);
@@ -89,52 +106,140 @@ public class CalendarHandlerImpl implements CalendarHandler {
             return Results.forbidden(String.format("No room with id: (%d)", roomId));
         }
         Collection<TimeSlot> slots = new ArrayList<>();
-        if (
-            !room.getOutOfService() &&
-            !room.getState().equals(ExamRoom.State.INACTIVE.toString()) &&
-            isRoomAccessibilitySatisfied(room, aids) &&
-            exam.getDuration() != null
-        ) {
+        if (isRoomEligible(room, exam, aids)) {
             LocalDate searchDate;
             try {
                 searchDate = parseSearchDate(day, exam, room);
             } catch (IllegalArgumentException e) {
                 return Results.notFound();
             }
-            // users reservations starting from now
-            List<Reservation> reservations = DB.find(Reservation.class)
-                .fetch("enrolment.exam")
-                .where()
-                .eq("user", user)
-                .gt("startAt", searchDate.minusDays(1).toDate())
-                .findList();
-            // Resolve eligible machines based on software and accessibility requirements
-            List<ExamMachine> machines = getEligibleMachines(room, aids, exam);
-            // Maintenance periods
-            List<Interval> periods = DB.find(MaintenancePeriod.class)
-                .where()
-                .gt("endsAt", searchDate.toDate())
-                .findList()
-                .stream()
-                .map(p ->
-                    new Interval(normalizeMaintenanceTime(p.getStartsAt()), normalizeMaintenanceTime(p.getEndsAt()))
-                )
-                .toList();
+            List<Reservation> reservations = getUserReservations(user, searchDate.minusDays(1));
+            List<Interval> periods = getMaintenancePeriods(searchDate);
             LocalDate endOfSearch = getEndSearchDate(searchDate, new LocalDate(exam.getPeriodEnd()));
-            while (!searchDate.isAfter(endOfSearch)) {
-                Set<TimeSlot> timeSlots = getExamSlots(user, room, exam, searchDate, reservations, machines, periods);
-                if (!timeSlots.isEmpty()) {
-                    slots.addAll(timeSlots);
+            slots.addAll(getRoomSlots(user, exam, room, searchDate, endOfSearch, reservations, periods, aids));
+        }
+        return Results.ok(Json.toJson(slots));
+    }
+
+    @Override
+    public Source<RoomSlots, NotUsed> getSlots(
+        User user,
+        Exam exam,
+        Collection<Long> roomIds,
+        String day,
+        Collection<Integer> aids
+    ) {
+        List<ExamRoom> rooms = roomIds.isEmpty()
+            ? Collections.emptyList()
+            : DB.find(ExamRoom.class).fetch("accessibilities").where().idIn(roomIds).findList();
+        if (rooms.isEmpty() || exam.getDuration() == null) {
+            return Source.from(rooms).map(r -> new RoomSlots(r.getId(), Collections.emptyList()));
+        }
+        // Search windows of the rooms are figured out first so that the inputs shared by them are loaded only once
+        int windowSize = getReservationWindowSize();
+        Map<Long, LocalDate> searchDates = new LinkedHashMap<>();
+        for (ExamRoom room : rooms) {
+            if (isRoomEligible(room, exam, aids)) {
+                try {
+                    searchDates.put(room.getId(), parseSearchDate(day, exam, room, windowSize));
+                } catch (IllegalArgumentException e) {
+                    // Nothing to search in this room
                 }
-                searchDate = searchDate.plusDays(1);
             }
         }
-        return Results.ok(Json.toJson(slots));
+        if (searchDates.isEmpty()) {
+            return Source.from(rooms).map(r -> new RoomSlots(r.getId(), Collections.emptyList()));
+        }
+        LocalDate earliest = Collections.min(searchDates.values());
+        List<Reservation> reservations = getUserReservations(user, earliest.minusDays(1));
+        List<Interval> periods = getMaintenancePeriods(earliest);
+        return Source.from(rooms).mapAsyncUnordered(ROOM_PARALLELISM, room ->
+            CompletableFuture.supplyAsync(
+                () -> {
+                    LocalDate searchDate = searchDates.get(room.getId());
+                    if (searchDate == null) {
+                        return new RoomSlots(room.getId(), Collections.emptyList());
+                    }
+                    // Search through the whole reservation window instead of a single week, in the room's own zone
+                    DateTimeZone dtz = DateTimeZone.forID(room.getLocalTimezone());
+                    LocalDate examEnd = new LocalDate(exam.getPeriodEnd(), dtz);
+                    LocalDate windowEnd = LocalDate.now(dtz).plusDays(windowSize);
+                    LocalDate endOfSearch = examEnd.isBefore(windowEnd) ? examEnd : windowEnd;
+                    return new RoomSlots(
+                        room.getId(),
+                        getRoomSlots(user, exam, room, searchDate, endOfSearch, reservations, periods, aids)
+                    );
+                },
+                databaseExecutionContext
+            )
+        );
+    }
+
+    private boolean isRoomEligible(ExamRoom room, Exam exam, Collection<Integer> aids) {
+        return (
+            !room.getOutOfService() &&
+            !room.getState().equals(ExamRoom.State.INACTIVE.toString()) &&
+            isRoomAccessibilitySatisfied(room, aids) &&
+            exam.getDuration() != null
+        );
+    }
+
+    // users reservations starting from given date
+    private static List<Reservation> getUserReservations(User user, LocalDate from) {
+        return DB.find(Reservation.class)
+            .fetch("enrolment.exam")
+            .where()
+            .eq("user", user)
+            .gt("startAt", from.toDate())
+            .findList();
+    }
+
+    private List<Interval> getMaintenancePeriods(LocalDate from) {
+        return DB.find(MaintenancePeriod.class)
+            .where()
+            .gt("endsAt", from.toDate())
+            .findList()
+            .stream()
+            .map(p -> new Interval(normalizeMaintenanceTime(p.getStartsAt()), normalizeMaintenanceTime(p.getEndsAt())))
+            .toList();
+    }
+
+    private List<TimeSlot> getRoomSlots(
+        User user,
+        Exam exam,
+        ExamRoom room,
+        LocalDate searchDate,
+        LocalDate endOfSearch,
+        Collection<Reservation> reservations,
+        Collection<Interval> periods,
+        Collection<Integer> aids
+    ) {
+        // Resolve eligible machines based on software and accessibility requirements. Machine occupancy is
+        // looked up from the room index instead of walking through the reservations of each machine.
+        RoomOccupancy occupancy = roomOccupancyCache.get(room);
+        List<RoomOccupancy.MachineOccupancy> machines = occupancy.getEligibleMachines(aids, exam);
+        List<TimeSlot> slots = new ArrayList<>();
+        LocalDate date = searchDate;
+        while (!date.isAfter(endOfSearch)) {
+            slots.addAll(
+                getExamSlots(
+                    user,
+                    room,
+                    exam,
+                    date,
+                    reservations,
+                    slot -> occupancy.countAvailable(machines, slot, user),
+                    periods
+                )
+            );
+            date = date.plusDays(1);
+        }
+        return slots;
     }
 
     @Override
-    public boolean isDoable(Reservation reservation, Collection<Integer> aids) {
-        DateTimeZone dtz = DateTimeZone.forID(reservation.getMachine().getRoom().getLocalTimezone());
+    public boolean isDoable(ExamRoom room, Reservation reservation, Collection<Integer> aids) {
+        DateTimeZone dtz = DateTimeZone.forID(room.getLocalTimezone());
         LocalDate searchDate = dateTimeHandler.normalize(reservation.getStartAt().withZone(dtz), dtz).toLocalDate();
         // users reservations starting from now
         List<Reservation> reservations = DB.find(Reservation.class)
@@ -143,9 +248,9 @@ public class CalendarHandlerImpl implements CalendarHandler {
             .eq("user", reservation.getUser())
             .ge("startAt", searchDate.toDate())
             .findList();
-        // Resolve eligible machines based on software and accessibility requirements
-        List<ExamMachine> machines = getEligibleMachines(
-            reservation.getMachine().getRoom(),
+        // Machine availability is looked up from the room index, the machine gets allocated against the database
+        RoomOccupancy occupancy = roomOccupancyCache.get(room);
+        List<RoomOccupancy.MachineOccupancy> machines = occupancy.getEligibleMachines(
             aids,
             reservation.getEnrolment().getExam()
         );
@@ -159,11 +264,11 @@ public class CalendarHandlerImpl implements CalendarHandler {
             .toList();
         Set<TimeSlot> slots = getExamSlots(
             reservation.getUser(),
-            reservation.getMachine().getRoom(),
+            room,
             reservation.getEnrolment().getExam(),
             searchDate,
             reservations,
-            machines,
+            slot -> occupancy.countAvailable(machines, slot, reservation.getUser()),
             periods
         );
         return slots.stream().anyMatch(s -> s.interval.contains(reservation.toInterval()));
@@ -175,7 +280,11 @@ public class CalendarHandlerImpl implements CalendarHandler {
      */
     @Override
     public LocalDate parseSearchDate(String day, Exam exam, ExamRoom room) throws IllegalArgumentException {
-        int windowSize = getReservationWindowSize();
+        return parseSearchDate(day, exam, room, getReservationWindowSize());
+    }
+
+    private LocalDate parseSearchDate(String day, Exam exam, ExamRoom room, int windowSize)
+        throws IllegalArgumentException {
         DateTimeZone dtz = room != null
             ? DateTimeZone.forID(room.getLocalTimezone())
             : configReader.getDefaultTimeZone();
@@ -203,39 +312,6 @@ public class CalendarHandlerImpl implements CalendarHandler {
         return searchDate;
     }
 
-    private List<ExamMachine> getEligibleMachines(ExamRoom room, Collection<Integer> access, Exam exam) {
-        List<ExamMachine> candidates = DB.find(ExamMachine.class)
-            .fetch("room")
-            .where()
-            .eq("room.id", room.getId())
-            .ne("outOfService", true)
-            .ne("archived", true)
-            .isNotNull("ipAddress")
-            .isNotNull("name")
-            .findList();
-        return candidates
-            .stream()
-            .filter(em -> isMachineAccessibilitySatisfied(em, access) && (exam == null || em.hasRequiredSoftware(exam)))
-            .collect(Collectors.toList()); // needs to be a mutable collection (for shuffling)
-    }
-
-    @Override
-    public Optional<ExamMachine> getRandomMachine(
-        ExamRoom room,
-        Exam exam,
-        DateTime start,
-        DateTime end,
-        Collection<Integer> aids
-    ) {
-        List<ExamMachine> machines = getEligibleMachines(room, aids, exam);
-        Collections.shuffle(machines);
-        Interval wantedTime = new Interval(start, end);
-        return machines
-            .stream()
-            .filter(m -> !m.isReservedDuring(wantedTime))
-            .findFirst();
-    }
-
     @Override
     public Reservation createReservation(DateTime start, DateTime end, ExamMachine machine, User user) {
         Reservation reservation = new Reservation();
@@ -293,6 +369,15 @@ public class CalendarHandlerImpl implements CalendarHandler {
         Exam exam,
         Collection<ExamMachine> machines,
         User user
+    ) {
+        return handleReservations(examSlots, reservations, exam, slot -> countAvailableMachines(machines, slot, user));
+    }
+
+    private Set<TimeSlot> handleReservations(
+        Map<Interval, Optional<Integer>> examSlots,
+        Collection<Reservation> reservations,
+        Exam exam,
+        ToIntFunction<Interval> availability
     ) {
         Set<TimeSlot> results = new LinkedHashSet<>();
         for (Map.Entry<Interval, Optional<Integer>> entry : examSlots.entrySet()) {
@@ -324,13 +409,8 @@ public class CalendarHandlerImpl implements CalendarHandler {
                     }
                 }
             }
-            // Resolve available machine count. Assume precalculated values within the map if no machines provided
-            int availableMachineCount = entry.getValue().isPresent()
-                ? entry.getValue().get()
-                : (int) machines
-                      .stream()
-                      .filter(m -> !isReservedByOthersDuring(m, slot, user))
-                      .count();
+            // Resolve available machine count. Assume precalculated values within the map if present
+            int availableMachineCount = entry.getValue().orElseGet(() -> availability.applyAsInt(slot));
 
             results.add(new TimeSlot(slot, availableMachineCount, null));
         }
@@ -346,7 +426,7 @@ public class CalendarHandlerImpl implements CalendarHandler {
         Exam exam,
         LocalDate date,
         Collection<Reservation> reservations,
-        Collection<ExamMachine> machines,
+        ToIntFunction<Interval> availability,
         Collection<Interval> maintenancePeriods
     ) {
         Integer examDuration = exam.getDuration();
@@ -367,7 +447,7 @@ public class CalendarHandlerImpl implements CalendarHandler {
                 )
             );
         // Check reservation status and machine availability for each slot
-        return handleReservations(map, reservations, exam, machines, user);
+        return handleReservations(map, reservations, exam, availability);
     }
 
     /**
@@ -414,12 +494,7 @@ public class CalendarHandlerImpl implements CalendarHandler {
 
     @Override
     public int getReservationWindowSize() {
-        String reservationWindow = SettingsController.getOrCreateSettings(
-            "reservation_window_size",
-            null,
-            null
-        ).getValue();
-        return reservationWindow != null ? Integer.parseInt(reservationWindow) : 0;
+        return settingsStore.getReservationWindowSize();
     }
 
     /**
@@ -560,12 +635,14 @@ public class CalendarHandlerImpl implements CalendarHandler {
                     .thenApply(err -> {
                         if (err.isEmpty()) {
                             DB.delete(oldReservation);
+                            invalidateOccupancy(oldReservation);
                             postProcessRemoval(reservation, exam, user, machineNode);
                         }
                         return err;
                     });
             } else {
                 DB.delete(oldReservation);
+                invalidateOccupancy(oldReservation);
                 postProcessRemoval(reservation, exam, user, machineNode);
                 return CompletableFuture.completedFuture(Optional.empty());
             }
@@ -653,6 +730,12 @@ public class CalendarHandlerImpl implements CalendarHandler {
             );
     }
 
+    private void invalidateOccupancy(Reservation reservation) {
+        if (reservation.getMachine() != null) {
+            roomOccupancyCache.invalidate(reservation.getMachine().getRoom().getId());
+        }
+    }
+
     private ExamMachine parseExternalMachineData(JsonNode machineNode) {
         ExamMachine machine = new ExamMachine();
         machine.setName(machineNode.get("name").asText());
@@ -685,21 +768,6 @@ public class CalendarHandlerImpl implements CalendarHandler {
         return machine;
     }
 
-    // TODO: this room vs machine accessibility needs some UI work and rethinking.
-    private static boolean isMachineAccessibilitySatisfied(ExamMachine machine, Collection<Integer> wanted) {
-        if (machine.isAccessible()) {
-            // this has it all :)
-            return true;
-        }
-        // The following is always empty because no UI-support for adding
-        Set<Integer> machineAccessibility = machine
-            .getAccessibilities()
-            .stream()
-            .map(accessibility -> accessibility.getId().intValue())
-            .collect(Collectors.toSet());
-        return machineAccessibility.containsAll(wanted);
-    }
-
     private static boolean isRoomAccessibilitySatisfied(ExamRoom room, Collection<Integer> wanted) {
         Set<Integer> roomAccessibility = room
             .getAccessibilities()
@@ -715,6 +783,13 @@ public class CalendarHandlerImpl implements CalendarHandler {
         return (externallyReserved || (reservation.getUser() != null && reservation.getUser().equals(user)));
     }
 
+    private int countAvailableMachines(Collection<ExamMachine> machines, Interval interval, User user) {
+        return (int) machines
+            .stream()
+            .filter(m -> !isReservedByOthersDuring(m, interval, user))
+            .count();
+    }
+
     private boolean isReservedByOthersDuring(ExamMachine machine, Interval interval, User user) {
         return machine
             .getReservations()
@@ -0,0 +1,55 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package impl;
+
+import com.google.inject.ImplementedBy;
+import java.util.Collection;
+import models.exam.Exam;
+import models.sections.ExamSectionQuestion;
+
+/**
+ * Keeps the stored aggregate scores of assessed exams and their sections up to date, so that listing them does not
+ * require loading and walking through all the questions and answers.
+ */
+@ImplementedBy(ExamScoreUpdaterImpl.class)
+public interface ExamScoreUpdater {
+    /**
+     * Recalculates and stores the scores of given exam and all its sections.
+     */
+    void update(Exam exam);
+
+    /**
+     * Loads, recalculates and stores the scores of given exams and all their sections.
+     */
+    void update(Collection<Long> examIds);
+
+    /**
+     * Recalculates and stores the scores of the section given question belongs to, exam scores are summed up from
+     * the stored section scores.
+     */
+    void update(ExamSectionQuestion sectionQuestion);
+
+    /**
+     * Marks the scores of all exams using given question as outdated.
+     */
+    void invalidateByQuestion(Long questionId);
+
+    /**
+     * Stores scores for assessed exams that have none stored yet.
+     *
+     * @param limit max amount of exams to process
+     * @return amount of exams processed
+     */
+    int updateOutdated(int limit);
+
+    /**
+     * Recalculates scores of the exams that have been verified the longest time ago and fixes any that differ from
+     * the stored ones.
+     *
+     * @param limit max amount of exams to process
+     * @return amount of exams whose stored scores were fixed
+     */
+    int verify(int limit);
+}
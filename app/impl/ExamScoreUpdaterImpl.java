@@ -0,0 +1,143 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package impl;
+
+import io.ebean.DB;
+import io.ebean.Query;
+import io.ebean.SqlRow;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import models.exam.Exam;
+import models.sections.ExamSection;
+import models.sections.ExamSectionQuestion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class ExamScoreUpdaterImpl implements ExamScoreUpdater {
+
+    private static final List<Exam.State> ASSESSED_STATES = List.of(
+        Exam.State.ABORTED,
+        Exam.State.REVIEW,
+        Exam.State.REVIEW_STARTED,
+        Exam.State.GRADED,
+        Exam.State.GRADED_LOGGED,
+        Exam.State.REJECTED,
+        Exam.State.ARCHIVED
+    );
+
+    private final Logger logger = LoggerFactory.getLogger(ExamScoreUpdaterImpl.class);
+
+    @Override
+    public void update(Exam exam) {
+        exam.updateScores();
+        // Cascades to the sections
+        exam.update();
+    }
+
+    @Override
+    public void update(Collection<Long> examIds) {
+        createScoringQuery(Exam.class, "examSections.").where().idIn(examIds).findList().forEach(this::update);
+    }
+
+    @Override
+    public void update(ExamSectionQuestion sectionQuestion) {
+        Optional<ExamSection> section = createScoringQuery(ExamSection.class, "")
+            .fetch("exam", "scoresUpdated")
+            .where()
+            .idEq(sectionQuestion.getExamSection().getId())
+            .findOneOrEmpty();
+        if (section.isEmpty()) {
+            return;
+        }
+        Exam exam = section.get().getExam();
+        if (!exam.hasScores()) {
+            // Scores of the other sections can not be relied on either
+            createScoringQuery(Exam.class, "examSections.")
+                .where()
+                .idEq(exam.getId())
+                .findOneOrEmpty()
+                .ifPresent(this::update);
+            return;
+        }
+        section.get().updateScores();
+        section.get().update();
+        SqlRow sums = DB.sqlQuery(
+            "SELECT SUM(total_score) AS total, SUM(max_score) AS max, SUM(approved_count) AS approved, " +
+            "SUM(rejected_count) AS rejected FROM exam_section WHERE exam_id = :id"
+        )
+            .setParameter("id", exam.getId())
+            .findOne();
+        exam.updateScores(
+            Optional.ofNullable(sums.getDouble("total")).orElse(0.0),
+            Optional.ofNullable(sums.getDouble("max")).orElse(0.0),
+            Optional.ofNullable(sums.getInteger("approved")).orElse(0),
+            Optional.ofNullable(sums.getInteger("rejected")).orElse(0)
+        );
+        exam.update();
+    }
+
+    @Override
+    public void invalidateByQuestion(Long questionId) {
+        int count = DB.sqlUpdate(
+            "UPDATE exam SET scores_updated = NULL WHERE scores_updated IS NOT NULL AND id IN (" +
+            "SELECT es.exam_id FROM exam_section es " +
+            "JOIN exam_section_question esq ON esq.exam_section_id = es.id WHERE esq.question_id = :qid)"
+        )
+            .setParameter("qid", questionId)
+            .execute();
+        if (count > 0) {
+            logger.info("Marked scores of {} exams outdated because question #{} changed", count, questionId);
+        }
+    }
+
+    @Override
+    public int updateOutdated(int limit) {
+        List<Exam> exams = createScoringQuery(Exam.class, "examSections.")
+            .where()
+            .isNotNull("parent")
+            .isNull("scoresUpdated")
+            .in("state", ASSESSED_STATES)
+            .setMaxRows(limit)
+            .findList();
+        exams.forEach(this::update);
+        return exams.size();
+    }
+
+    @Override
+    public int verify(int limit) {
+        List<Exam> exams = createScoringQuery(Exam.class, "examSections.")
+            .where()
+            .isNotNull("scoresUpdated")
+            .in("state", ASSESSED_STATES)
+            .orderBy("scoresUpdated")
+            .setMaxRows(limit)
+            .findList();
+        int fixed = 0;
+        for (Exam exam : exams) {
+            if (exam.updateScores()) {
+                logger.warn("Stored scores of exam #{} were out of date, fixed", exam.getId());
+                fixed++;
+            }
+            exam.update();
+        }
+        return fixed;
+    }
+
+    // Everything that the scores are calculated from, prefix is the path to the sections from the queried bean
+    private static <T> Query<T> createScoringQuery(Class<T> type, String prefix) {
+        Query<T> query = DB.find(type);
+        if (!prefix.isEmpty()) {
+            query.fetch(prefix.substring(0, prefix.length() - 1));
+        }
+        return query
+            .fetchQuery(prefix + "sectionQuestions")
+            .fetch(prefix + "sectionQuestions.question")
+            .fetch(prefix + "sectionQuestions.options")
+            .fetch(prefix + "sectionQuestions.options.option")
+            .fetch(prefix + "sectionQuestions.essayAnswer")
+            .fetch(prefix + "sectionQuestions.clozeTestAnswer");
+    }
+}
@@ -0,0 +1,28 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package impl;
+
+import com.google.inject.ImplementedBy;
+import java.util.Collection;
+import java.util.Optional;
+import models.exam.Exam;
+import models.facility.ExamMachine;
+import models.facility.ExamRoom;
+import models.user.User;
+import org.joda.time.Interval;
+
+@ImplementedBy(MachineAllocatorImpl.class)
+public interface MachineAllocator {
+    /**
+     * Picks a free machine of given room for given time. Must be called within a transaction. The machine returned
+     * stays locked until the transaction ends, so that no one else can book it for an overlapping time before the
+     * reservation has been saved.
+     *
+     * @param exam exam to check the required software against, null if not known
+     * @param user user reserving, null if reserving for an external user
+     * @return an eligible machine that is free during slot, empty if there is none
+     */
+    Optional<ExamMachine> allocate(ExamRoom room, Exam exam, Interval slot, Collection<Integer> aids, User user);
+}
@@ -0,0 +1,167 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package impl;
+
+import io.ebean.DB;
+import io.ebean.Query;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.PersistenceException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import javax.inject.Inject;
+import miscellaneous.cache.RoomOccupancy;
+import miscellaneous.cache.RoomOccupancyCache;
+import miscellaneous.metrics.Metrics;
+import models.enrolment.Reservation;
+import models.exam.Exam;
+import models.facility.ExamMachine;
+import models.facility.ExamRoom;
+import models.user.User;
+import org.joda.time.Interval;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Free machines are taken from the room occupancy index, so finding candidates does not touch the database. The
+ * candidate is then locked with SKIP LOCKED, meaning that students competing for the same slot each end up with a
+ * different machine instead of queueing up behind each other, and its reservations are checked once more from the
+ * database in case the index is behind. Only when all the free machines are being booked by others at the same time
+ * do we wait for their locks. The lock is held until the reservation has been committed.
+ */
+public class MachineAllocatorImpl implements MachineAllocator {
+
+    private final Logger logger = LoggerFactory.getLogger(MachineAllocatorImpl.class);
+
+    private final RoomOccupancyCache roomOccupancyCache;
+    private final MeterRegistry registry;
+
+    @Inject
+    public MachineAllocatorImpl(RoomOccupancyCache roomOccupancyCache, Metrics metrics) {
+        this.roomOccupancyCache = roomOccupancyCache;
+        this.registry = metrics.getRegistry();
+    }
+
+    @Override
+    public Optional<ExamMachine> allocate(
+        ExamRoom room,
+        Exam exam,
+        Interval slot,
+        Collection<Integer> aids,
+        User user
+    ) {
+        Optional<ExamMachine> machine = allocate(room, exam, slot, aids, user, true);
+        registry
+            .counter("exam.reservation.allocations", "outcome", machine.isPresent() ? "allocated" : "unavailable")
+            .increment();
+        return machine;
+    }
+
+    private Optional<ExamMachine> allocate(
+        ExamRoom room,
+        Exam exam,
+        Interval slot,
+        Collection<Integer> aids,
+        User user,
+        boolean retry
+    ) {
+        RoomOccupancy occupancy = roomOccupancyCache.get(room);
+        List<Long> candidates = new ArrayList<>(
+            occupancy.getAvailable(occupancy.getEligibleMachines(aids, exam), slot, user)
+        );
+        // Spread competing students over the free machines
+        Collections.shuffle(candidates);
+        List<Long> busy = new ArrayList<>();
+        boolean stale = false;
+        for (Long id : candidates) {
+            Attempt attempt = lock(id, slot, user, false);
+            if (attempt.machine() != null) {
+                return Optional.of(attempt.machine());
+            }
+            conflict(attempt.conflict());
+            if (attempt.conflict().equals("locked")) {
+                busy.add(id);
+            } else {
+                stale = true;
+            }
+        }
+        // Everything left is being booked by someone else right now. Wait for each of them in turn, they may well
+        // end up booking a different time or give up.
+        for (Long id : busy) {
+            Attempt attempt = lock(id, slot, user, true);
+            if (attempt.machine() != null) {
+                return Optional.of(attempt.machine());
+            }
+            stale = true;
+        }
+        if (stale) {
+            // Booked on another node, rebuild the index and have another go
+            roomOccupancyCache.invalidate(room.getId());
+            if (retry) {
+                registry.counter("exam.reservation.retries").increment();
+                return allocate(room, exam, slot, aids, user, false);
+            }
+        }
+        logger.debug("No machine available in room #{} during {}", room.getId(), slot);
+        return Optional.empty();
+    }
+
+    /**
+     * Locks the machine if it is still free. The lock is taken within a savepoint so that it can be let go of right
+     * away if the machine turns out to be taken, a machine we are not going to book must not hold up anyone else.
+     *
+     * @param wait whether to wait for someone else's lock on the machine instead of skipping it
+     */
+    private Attempt lock(Long id, Interval slot, User user, boolean wait) {
+        Connection connection = DB.currentTransaction().connection();
+        try {
+            Savepoint savepoint = connection.setSavepoint();
+            Query<ExamMachine> query = DB.find(ExamMachine.class);
+            ExamMachine machine = (wait ? query.forUpdate() : query.forUpdateSkipLocked()).where().idEq(id).findOne();
+            if (machine != null && !isReservedByOthersDuring(id, slot, user)) {
+                connection.releaseSavepoint(savepoint);
+                return new Attempt(machine, null);
+            }
+            connection.rollback(savepoint);
+            // Null means that someone else is booking it right now, or that it was removed
+            return new Attempt(null, machine == null && !wait ? "locked" : "stale");
+        } catch (SQLException e) {
+            throw new PersistenceException(e);
+        }
+    }
+
+    private void conflict(String reason) {
+        registry.counter("exam.reservation.conflicts", "reason", reason).increment();
+    }
+
+    private boolean isReservedByOthersDuring(Long machineId, Interval slot, User user) {
+        return DB.find(Reservation.class)
+            .select("externalRef, externalUserRef")
+            .fetch("user", "id")
+            .where()
+            .eq("machine.id", machineId)
+            .lt("startAt", slot.getEnd().toDate())
+            .gt("endAt", slot.getStart().toDate())
+            .findList()
+            .stream()
+            .anyMatch(r -> !isReservedBy(r, user));
+    }
+
+    private record Attempt(ExamMachine machine, String conflict) {}
+
+    private static boolean isReservedBy(Reservation reservation, User user) {
+        if (user == null) {
+            return false;
+        }
+        boolean externallyReserved =
+            reservation.getExternalUserRef() != null && reservation.getExternalRef().equals(user.getEppn());
+        return externallyReserved || (reservation.getUser() != null && reservation.getUser().equals(user));
+    }
+}
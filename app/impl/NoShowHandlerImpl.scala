@@ -127,6 +127,8 @@ class NoShowHandlerImpl @Inject (
       if Option(reservation).nonEmpty then reservation.delete
       if Option(eec).nonEmpty then eec.delete
     else enrolment.setNoShow(true)
+    // The exam will not be started anymore, let the preparer discard the copy made for it
+    enrolment.setPreparedExam(null)
     enrolment.update()
     logger.info(s"Marked enrolment ${enrolment.getId} as no-show")
     val (examName, courseCode) = Option(exam) match
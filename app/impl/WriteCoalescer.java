@@ -0,0 +1,227 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.persistence.OptimisticLockException;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serializes writes per key and merges the ones arriving while a previous write of the same key is being flushed,
+ * so that rapid successive saves of the same thing result in a single write. The last value wins. Callers block
+ * until a write containing their value, or a later one, has been flushed, i.e. an acknowledged value is durable.
+ * <p>
+ * Only writes of the same client are merged. A write of another client arriving while a window of merged writes is
+ * open is rejected, as one of the values would be silently lost otherwise.
+ * <p>
+ * Versions are checked in memory before anything is written. Writes based on a version older than the one the
+ * current window of merged writes started from are rejected, writes based on the same version are successive saves
+ * by the client of the window and get rebased on the outcome of the previous flush. Keys without a version are
+ * written as is.
+ */
+public final class WriteCoalescer<K, V, R> {
+
+    @FunctionalInterface
+    public interface Writer<K, V, R> {
+        /**
+         * @param version version the value is based on, null if none
+         * @return outcome of the write, a null result if there was nothing to write to
+         */
+        Written<R> write(K key, Long version, V value);
+    }
+
+    public record Written<R>(R result, Long version) {}
+
+    private static final class Pending<V, R> {
+
+        private final CompletableFuture<R> done = new CompletableFuture<>();
+        private V value;
+        private Long version;
+
+        private Pending(V value, Long version) {
+            this.value = value;
+            this.version = version;
+        }
+    }
+
+    private static final class Slot<V, R> {
+
+        // Latest version known to be flushed, null if not known
+        private Long committed;
+        // Version the writes of the current window are based on
+        private Long base;
+        // Client the writes of the current window come from
+        private Object client;
+        private Pending<V, R> pending;
+        private boolean flushing;
+    }
+
+    private final Writer<K, V, R> writer;
+    private final Statistics statistics = new Statistics();
+    // Idle slots only hold the last known version, forgetting one just skips the in-memory check
+    private final Cache<K, Slot<V, R>> slots = Caffeine.newBuilder().expireAfterAccess(Duration.ofHours(1)).build();
+
+    public WriteCoalescer(Writer<K, V, R> writer) {
+        this.writer = writer;
+    }
+
+    public Statistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Writes given value, blocks until it has been flushed.
+     *
+     * @param client identifies where the value comes from, e.g. the session
+     * @param version version the value is based on, null if none
+     * @return result of the write the value got flushed with
+     * @throws OptimisticLockException if the version is known to be outdated, or another client is writing
+     */
+    public R submit(K key, Object client, Long version, V value) {
+        try {
+            return enqueue(key, client, version, value).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Queues given value for writing. Returns once it has been queued, unless it is up to this call to flush it, in
+     * which case the flush is done first.
+     *
+     * @return completes with the result of the write the value got flushed with
+     * @throws OptimisticLockException if the version is known to be outdated, or another client is writing
+     */
+    public CompletableFuture<R> enqueue(K key, Object client, Long version, V value) {
+        statistics.requests.increment();
+        Slot<V, R> slot = slots.get(key, k -> new Slot<>());
+        Pending<V, R> mine;
+        boolean isLeader;
+        synchronized (slot) {
+            if (slot.flushing && !Objects.equals(slot.client, client)) {
+                statistics.rejected.increment();
+                throw new OptimisticLockException("concurrent write by another client");
+            }
+            if (version != null && slot.base != null && version < slot.base) {
+                statistics.rejected.increment();
+                throw new OptimisticLockException("outdated version " + version);
+            }
+            if (slot.pending == null) {
+                slot.pending = new Pending<>(value, version);
+                if (!slot.flushing && version != null) {
+                    slot.base = version;
+                }
+            } else {
+                statistics.coalesced.increment();
+                slot.pending.value = value;
+                if (version != null) {
+                    slot.pending.version = slot.pending.version == null
+                        ? version
+                        : Math.max(slot.pending.version, version);
+                }
+            }
+            mine = slot.pending;
+            isLeader = !slot.flushing;
+            slot.flushing = true;
+            slot.client = client;
+        }
+        if (isLeader) {
+            flush(key, slot);
+        }
+        return mine.done;
+    }
+
+    private void flush(K key, Slot<V, R> slot) {
+        while (true) {
+            Pending<V, R> next;
+            Long version;
+            synchronized (slot) {
+                next = slot.pending;
+                slot.pending = null;
+                if (next == null) {
+                    slot.flushing = false;
+                    slot.client = null;
+                    slot.base = slot.committed;
+                    return;
+                }
+                version = next.version;
+                if (version != null && slot.committed != null && slot.committed > version) {
+                    // Based on the same version as the write flushed before it within this window
+                    version = slot.committed;
+                }
+            }
+            long start = System.nanoTime();
+            try {
+                Written<R> written = writer.write(key, version, next.value);
+                statistics.record(System.nanoTime() - start);
+                synchronized (slot) {
+                    slot.committed = written.version();
+                }
+                next.done.complete(written.result());
+            } catch (RuntimeException e) {
+                statistics.record(System.nanoTime() - start);
+                statistics.failures.increment();
+                synchronized (slot) {
+                    slot.committed = null;
+                }
+                next.done.completeExceptionally(e);
+            }
+        }
+    }
+
+    public static final class Statistics {
+
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder coalesced = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder flushes = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder flushNanos = new LongAdder();
+        private final LongAccumulator maxFlushNanos = new LongAccumulator(Math::max, 0);
+
+        private void record(long nanos) {
+            flushes.increment();
+            flushNanos.add(nanos);
+            maxFlushNanos.accumulate(nanos);
+        }
+
+        public long getRequests() {
+            return requests.sum();
+        }
+
+        public long getCoalesced() {
+            return coalesced.sum();
+        }
+
+        public long getRejected() {
+            return rejected.sum();
+        }
+
+        public long getFlushes() {
+            return flushes.sum();
+        }
+
+        public long getFailures() {
+            return failures.sum();
+        }
+
+        public long getFlushNanos() {
+            return flushNanos.sum();
+        }
+
+        public long getMaxFlushNanos() {
+            return maxFlushNanos.get();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package miscellaneous.cache;
+
+import java.util.Optional;
+import org.joda.time.DateTime;
+
+/**
+ * Enrolments of a student that are relevant for telling where and when to take an exam today. The outcome of the
+ * enrolment lookup can change by passing of time only at the instant this context is valid until, changes made to
+ * enrolments and reservations in the meantime are expected to invalidate it. Only the ids of the enrolments are kept,
+ * the beans are loaded for each request so that requests do not share mutable state.
+ */
+public class ExamContext {
+
+    private final Long ongoingId;
+    private final Long upcomingId;
+    private final DateTime validUntil;
+
+    public ExamContext(Long ongoingId, Long upcomingId, DateTime validUntil) {
+        this.ongoingId = ongoingId;
+        this.upcomingId = upcomingId;
+        this.validUntil = validUntil;
+    }
+
+    public Optional<Long> getOngoingId() {
+        return Optional.ofNullable(ongoingId);
+    }
+
+    public Optional<Long> getUpcomingId() {
+        return Optional.ofNullable(upcomingId);
+    }
+
+    public DateTime getValidUntil() {
+        return validUntil;
+    }
+}
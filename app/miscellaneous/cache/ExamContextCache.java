@@ -0,0 +1,13 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package miscellaneous.cache;
+
+import java.util.function.Function;
+
+public interface ExamContextCache {
+    ExamContext get(Long userId, Function<Long, ExamContext> loader);
+    void invalidate(Long userId);
+    void invalidateAll();
+}
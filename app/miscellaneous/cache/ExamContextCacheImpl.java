@@ -0,0 +1,65 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package miscellaneous.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import java.time.Duration;
+import java.util.function.Function;
+import javax.inject.Singleton;
+import org.joda.time.DateTime;
+
+@Singleton
+public class ExamContextCacheImpl implements ExamContextCache {
+
+    // Local mutations invalidate entries explicitly, upper bound is there to pick up changes done by other nodes
+    private static final Duration MAX_TTL = Duration.ofMinutes(5);
+    private static final int MAX_USERS = 10000;
+
+    private final Cache<Long, ExamContext> cache = Caffeine.newBuilder()
+        .maximumSize(MAX_USERS)
+        .expireAfter(
+            new Expiry<Long, ExamContext>() {
+                @Override
+                public long expireAfterCreate(Long key, ExamContext value, long currentTime) {
+                    return getTimeToLive(value);
+                }
+
+                @Override
+                public long expireAfterUpdate(Long key, ExamContext value, long currentTime, long currentDuration) {
+                    return getTimeToLive(value);
+                }
+
+                @Override
+                public long expireAfterRead(Long key, ExamContext value, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            }
+        )
+        .build();
+
+    @Override
+    public ExamContext get(Long userId, Function<Long, ExamContext> loader) {
+        return cache.get(userId, loader);
+    }
+
+    @Override
+    public void invalidate(Long userId) {
+        if (userId != null) {
+            cache.invalidate(userId);
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private static long getTimeToLive(ExamContext context) {
+        long millis = context.getValidUntil().getMillis() - DateTime.now().getMillis();
+        return Duration.ofMillis(Math.max(0, Math.min(millis, MAX_TTL.toMillis()))).toNanos();
+    }
+}
@@ -0,0 +1,40 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package miscellaneous.cache;
+
+import java.util.Optional;
+
+public interface MachineDirectory {
+    Optional<MachineEntry> findByIpAddress(String ipAddress);
+    void invalidate();
+
+    /**
+     * Identity of an exam machine as needed for telling whether a client is sitting at the right machine.
+     */
+    final class MachineEntry {
+
+        private final Long id;
+        private final String name;
+        private final Long roomId;
+
+        public MachineEntry(Long id, String name, Long roomId) {
+            this.id = id;
+            this.name = name;
+            this.roomId = roomId;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Long getRoomId() {
+            return roomId;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package miscellaneous.cache;
+
+import io.ebean.DB;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import javax.inject.Singleton;
+import models.facility.ExamMachine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps an immutable snapshot of IP address to machine mappings. Readers never block, the snapshot is replaced as a
+ * whole when it has been invalidated or has grown too old.
+ */
+@Singleton
+public class MachineDirectoryImpl implements MachineDirectory {
+
+    private final Logger logger = LoggerFactory.getLogger(MachineDirectoryImpl.class);
+
+    // Local mutations invalidate the snapshot explicitly, expiration is there to pick up changes done by other nodes
+    private static final Duration DEFAULT_TTL = Duration.ofMinutes(5);
+
+    private volatile Snapshot snapshot;
+
+    @Override
+    public Optional<MachineEntry> findByIpAddress(String ipAddress) {
+        if (ipAddress == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(getSnapshot().machines.get(ipAddress));
+    }
+
+    @Override
+    public void invalidate() {
+        snapshot = null;
+    }
+
+    private Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        if (current == null || current.isExpired()) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null || current.isExpired()) {
+                    current = load();
+                    snapshot = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private Snapshot load() {
+        Map<String, MachineEntry> machines = new HashMap<>();
+        DB.find(ExamMachine.class)
+            .select("name, ipAddress")
+            .fetch("room", "id")
+            .where()
+            .isNotNull("ipAddress")
+            .ne("ipAddress", "")
+            .findEach(m -> {
+                MachineEntry entry = new MachineEntry(m.getId(), m.getName(), m.getRoom().getId());
+                if (machines.putIfAbsent(m.getIpAddress(), entry) != null) {
+                    logger.warn("IP address {} is shared by several machines", m.getIpAddress());
+                }
+            });
+        logger.debug("Indexed {} exam machines by IP address", machines.size());
+        return new Snapshot(Map.copyOf(machines));
+    }
+
+    private static class Snapshot {
+
+        private final Map<String, MachineEntry> machines;
+        private final long loadedAt = System.nanoTime();
+
+        Snapshot(Map<String, MachineEntry> machines) {
+            this.machines = machines;
+        }
+
+        boolean isExpired() {
+            return System.nanoTime() - loadedAt > DEFAULT_TTL.toNanos();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package miscellaneous.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.util.concurrent.CompletionStage;
+
+public interface OrganisationDirectory {
+    /**
+     * @return organisations known to the IOP proxy along with their facilities, possibly a few minutes old. Each call
+     *     gets a copy of its own that is safe to modify.
+     */
+    CompletionStage<JsonNode> getOrganisations();
+
+    /**
+     * @return facilities of given organisation, possibly a few minutes old. Each call gets a copy of its own.
+     */
+    CompletionStage<JsonNode> getFacilities(String organisationRef);
+
+    void invalidate();
+
+    /**
+     * The proxy could not be reached, or it refused the request, and there was nothing cached to fall back to.
+     */
+    final class DirectoryException extends RuntimeException {
+
+        public DirectoryException(String message) {
+            super(message);
+        }
+    }
+}
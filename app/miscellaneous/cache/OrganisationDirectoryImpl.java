@@ -0,0 +1,205 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package miscellaneous.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import miscellaneous.config.ConfigReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import play.libs.ws.WSClient;
+import play.libs.ws.WSRequest;
+import play.libs.ws.WSResponse;
+import play.mvc.Http;
+
+/**
+ * Keeps the organisation and facility directory of the IOP proxy. Fresh entries are served as they are, stale ones
+ * are served while being revalidated in the background with a conditional request, so an unchanged directory is not
+ * transferred again. Concurrent requests for an entry that is not usable share a single fetch.
+ */
+@Singleton
+public class OrganisationDirectoryImpl implements OrganisationDirectory {
+
+    private final Logger logger = LoggerFactory.getLogger(OrganisationDirectoryImpl.class);
+
+    private static final String ORGANISATIONS_KEY = "organisations";
+
+    private final WSClient wsClient;
+    private final ConfigReader configReader;
+    private final FacilityCache facilityCache;
+    private final long freshTtl;
+    // How long a stale entry gets served while revalidating, also when the proxy cannot be reached meanwhile
+    private final long staleTtl;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Entry>> inFlight = new ConcurrentHashMap<>();
+    // Incremented on invalidation, fetches started before that are not stored
+    private final AtomicLong generation = new AtomicLong();
+
+    @Inject
+    public OrganisationDirectoryImpl(WSClient wsClient, ConfigReader configReader, FacilityCache facilityCache) {
+        this.wsClient = wsClient;
+        this.configReader = configReader;
+        this.facilityCache = facilityCache;
+        this.freshTtl = configReader.getIopDirectoryTtl().toNanos();
+        this.staleTtl = configReader.getIopDirectoryStaleTtl().toNanos();
+    }
+
+    @Override
+    public CompletionStage<JsonNode> getOrganisations() {
+        String url = configReader.getIopHost() + "/api/organisations?withFacilities=true";
+        return get(ORGANISATIONS_KEY, url, this::indexOrganisations);
+    }
+
+    @Override
+    public CompletionStage<JsonNode> getFacilities(String organisationRef) {
+        String url = String.format("%s/api/organisations/%s/facilities", configReader.getIopHost(), organisationRef);
+        return get("facilities:" + organisationRef, url, root -> Map.of());
+    }
+
+    @Override
+    public void invalidate() {
+        generation.incrementAndGet();
+        entries.clear();
+        inFlight.clear();
+    }
+
+    private CompletionStage<JsonNode> get(String key, String url, Function<JsonNode, Map<String, String>> indexer) {
+        long now = System.nanoTime();
+        Entry entry = entries.get(key);
+        // Callers get copies of their own, the cached body is shared by everyone
+        if (entry != null && now - entry.fetchedAt() < freshTtl) {
+            return CompletableFuture.completedFuture(entry.body().deepCopy());
+        }
+        CompletableFuture<Entry> refresh = refresh(key, url, entry, indexer);
+        if (entry != null && now - entry.fetchedAt() < staleTtl) {
+            return CompletableFuture.completedFuture(entry.body().deepCopy());
+        }
+        return refresh.thenApply(e -> e.body().deepCopy());
+    }
+
+    private CompletableFuture<Entry> refresh(
+        String key,
+        String url,
+        Entry previous,
+        Function<JsonNode, Map<String, String>> indexer
+    ) {
+        CompletableFuture<Entry> pending = new CompletableFuture<>();
+        CompletableFuture<Entry> existing = inFlight.putIfAbsent(key, pending);
+        if (existing != null) {
+            return existing;
+        }
+        long started = generation.get();
+        CompletionStage<Entry> fetch;
+        try {
+            fetch = fetch(url, previous, indexer);
+        } catch (RuntimeException e) {
+            fetch = CompletableFuture.failedFuture(e);
+        }
+        fetch.whenComplete((entry, error) -> {
+            if (error == null && generation.get() == started) {
+                // Passwords are kept for a limited time, storing them on every revalidation keeps them available
+                entry.passwords().forEach(facilityCache::storeFacilityPassword);
+                entries.put(key, entry);
+            }
+            inFlight.remove(key, pending);
+            if (error == null) {
+                pending.complete(entry);
+            } else {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause()
+                    : error;
+                logger.warn("Failed to fetch {} from IOP proxy: {}", key, cause.getMessage());
+                pending.completeExceptionally(cause);
+            }
+        });
+        return pending;
+    }
+
+    private CompletionStage<Entry> fetch(String url, Entry previous, Function<JsonNode, Map<String, String>> indexer) {
+        WSRequest request = wsClient.url(url);
+        if (previous != null && previous.etag() != null) {
+            request = request.addHeader("If-None-Match", previous.etag());
+        }
+        if (previous != null && previous.lastModified() != null) {
+            request = request.addHeader("If-Modified-Since", previous.lastModified());
+        }
+        return request
+            .get()
+            .thenApply(response -> {
+                if (response.getStatus() == Http.Status.NOT_MODIFIED && previous != null) {
+                    return previous.revalidated();
+                }
+                JsonNode root = parse(response);
+                if (response.getStatus() != Http.Status.OK) {
+                    throw new DirectoryException(root.path("message").asText("Connection refused"));
+                }
+                return new Entry(
+                    root,
+                    indexer.apply(root),
+                    response.getSingleHeader("ETag").orElse(null),
+                    response.getSingleHeader("Last-Modified").orElse(null),
+                    System.nanoTime()
+                );
+            });
+    }
+
+    private JsonNode parse(WSResponse response) {
+        try {
+            return response.asJson();
+        } catch (RuntimeException e) {
+            return MissingNode.getInstance();
+        }
+    }
+
+    // Flags the home organisation and the facilities requiring a password, collects the passwords of the latter.
+    // Modifies the freshly fetched body before it is cached, never a body that has already been served.
+    private Map<String, String> indexOrganisations(JsonNode root) {
+        Map<String, String> passwords = new HashMap<>();
+        if (!(root instanceof ArrayNode node)) {
+            return passwords;
+        }
+        String localRef = configReader.getHomeOrganisationRef();
+        for (JsonNode org : node) {
+            ((ObjectNode) org).put("homeOrg", org.get("_id").asText().equals(localRef));
+            if (org.has("facilities") && org.get("facilities").isArray()) {
+                for (JsonNode facility : org.get("facilities")) {
+                    JsonNode passwordNode = facility.get("externalPassword");
+                    boolean hasPassword =
+                        passwordNode != null && !passwordNode.isNull() && !passwordNode.asText().trim().isEmpty();
+                    // Set flag for client to know if password is required
+                    ((ObjectNode) facility).put("externalPasswordRequired", hasPassword);
+                    if (facility.has("_id") && hasPassword) {
+                        passwords.put(facility.get("_id").asText(), passwordNode.asText());
+                    }
+                }
+            }
+        }
+        return Map.copyOf(passwords);
+    }
+
+    private record Entry(
+        JsonNode body,
+        Map<String, String> passwords,
+        String etag,
+        String lastModified,
+        long fetchedAt
+    ) {
+        Entry revalidated() {
+            return new Entry(body, passwords, etag, lastModified, System.nanoTime());
+        }
+    }
+}
@@ -0,0 +1,161 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package miscellaneous.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import models.enrolment.Reservation;
+import models.exam.Exam;
+import models.facility.Accessibility;
+import models.facility.ExamMachine;
+import models.facility.Software;
+import models.user.User;
+import org.joda.time.Interval;
+
+/**
+ * Immutable snapshot of the reservable machines of a single room and of the time intervals they are booked for.
+ * Reservations are kept per machine in a map sorted by start instant so that overlap checks only need to look at
+ * the bookings that can possibly intersect with the given interval.
+ */
+public class RoomOccupancy {
+
+    private final Long roomId;
+    private final List<MachineOccupancy> machines;
+
+    public RoomOccupancy(Long roomId, Collection<ExamMachine> machines, Collection<Reservation> reservations) {
+        this.roomId = roomId;
+        Map<Long, List<Reservation>> byMachine = reservations
+            .stream()
+            .collect(Collectors.groupingBy(r -> r.getMachine().getId()));
+        this.machines = machines
+            .stream()
+            .map(m -> new MachineOccupancy(m, byMachine.getOrDefault(m.getId(), Collections.emptyList())))
+            .toList();
+    }
+
+    public Long getRoomId() {
+        return roomId;
+    }
+
+    /**
+     * @return machines that satisfy the given accessibility requirements and have the software required by the exam
+     */
+    public List<MachineOccupancy> getEligibleMachines(Collection<Integer> aids, Exam exam) {
+        Set<Long> software = exam == null
+            ? Collections.emptySet()
+            : exam.getSoftwareInfo().stream().map(Software::getId).collect(Collectors.toSet());
+        return machines
+            .stream()
+            .filter(m -> m.isAccessibilitySatisfied(aids) && m.software.containsAll(software))
+            .toList();
+    }
+
+    /**
+     * @return the number of given machines that have not been reserved by anyone else than the user during interval
+     */
+    public int countAvailable(Collection<MachineOccupancy> candidates, Interval interval, User user) {
+        return (int) candidates.stream().filter(m -> !m.isReservedByOthersDuring(interval, user)).count();
+    }
+
+    /**
+     * @param user null if reserving for an external user, in which case all existing reservations are conflicts
+     * @return ids of the given machines that have not been reserved by anyone else than the user during interval
+     */
+    public List<Long> getAvailable(Collection<MachineOccupancy> candidates, Interval interval, User user) {
+        return candidates
+            .stream()
+            .filter(m -> !m.isReservedByOthersDuring(interval, user))
+            .map(MachineOccupancy::getMachineId)
+            .toList();
+    }
+
+    public static class MachineOccupancy {
+
+        private final Long machineId;
+        private final boolean accessible;
+        private final Set<Integer> accessibilities;
+        private final Set<Long> software;
+        // Bookings keyed by start instant in epoch millis
+        private final NavigableMap<Long, List<Booking>> bookings = new TreeMap<>();
+        private final long longestBooking;
+
+        MachineOccupancy(ExamMachine machine, Collection<Reservation> reservations) {
+            machineId = machine.getId();
+            accessible = machine.isAccessible();
+            accessibilities = machine
+                .getAccessibilities()
+                .stream()
+                .map(Accessibility::getId)
+                .map(Long::intValue)
+                .collect(Collectors.toUnmodifiableSet());
+            software = machine
+                .getSoftwareInfo()
+                .stream()
+                .map(Software::getId)
+                .collect(Collectors.toUnmodifiableSet());
+            long longest = 0;
+            for (Reservation r : reservations) {
+                Booking booking = new Booking(r);
+                bookings.computeIfAbsent(booking.start, k -> new ArrayList<>()).add(booking);
+                longest = Math.max(longest, booking.end - booking.start);
+            }
+            longestBooking = longest;
+        }
+
+        public Long getMachineId() {
+            return machineId;
+        }
+
+        boolean isAccessibilitySatisfied(Collection<Integer> wanted) {
+            return accessible || accessibilities.containsAll(wanted);
+        }
+
+        boolean isReservedByOthersDuring(Interval interval, User user) {
+            long start = interval.getStartMillis();
+            long end = interval.getEndMillis();
+            // Nothing starting earlier than this can reach the interval
+            long lowerBound = start - longestBooking;
+            return bookings
+                .subMap(lowerBound, true, end, false)
+                .values()
+                .stream()
+                .flatMap(List::stream)
+                .filter(b -> b.end > start)
+                .anyMatch(b -> !b.isReservedBy(user));
+        }
+    }
+
+    private static class Booking {
+
+        private final long start;
+        private final long end;
+        private final Long userId;
+        private final String externalRef;
+        private final String externalUserRef;
+
+        Booking(Reservation reservation) {
+            start = reservation.getStartAt().getMillis();
+            end = reservation.getEndAt().getMillis();
+            userId = reservation.getUser() != null ? reservation.getUser().getId() : null;
+            externalRef = reservation.getExternalRef();
+            externalUserRef = reservation.getExternalUserRef();
+        }
+
+        boolean isReservedBy(User user) {
+            if (user == null) {
+                return false;
+            }
+            boolean externallyReserved = externalUserRef != null && externalRef.equals(user.getEppn());
+            return externallyReserved || (userId != null && userId.equals(user.getId()));
+        }
+    }
+}
@@ -0,0 +1,13 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package miscellaneous.cache;
+
+import models.facility.ExamRoom;
+
+public interface RoomOccupancyCache {
+    RoomOccupancy get(ExamRoom room);
+    void invalidate(Long roomId);
+    void invalidateAll();
+}
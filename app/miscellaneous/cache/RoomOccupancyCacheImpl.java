@@ -0,0 +1,74 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package miscellaneous.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.ebean.DB;
+import java.time.Duration;
+import java.util.List;
+import javax.inject.Singleton;
+import models.enrolment.Reservation;
+import models.facility.ExamMachine;
+import models.facility.ExamRoom;
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+@Singleton
+public class RoomOccupancyCacheImpl implements RoomOccupancyCache {
+
+    private final Logger logger = LoggerFactory.getLogger(RoomOccupancyCacheImpl.class);
+
+    // Local mutations invalidate entries explicitly, expiration is there to pick up changes done by other nodes
+    private static final Duration DEFAULT_TTL = Duration.ofMinutes(1);
+    private static final int MAX_ROOMS = 1000;
+
+    private final Cache<Long, RoomOccupancy> cache = Caffeine.newBuilder()
+        .maximumSize(MAX_ROOMS)
+        .expireAfterWrite(DEFAULT_TTL)
+        .build();
+
+    @Override
+    public RoomOccupancy get(ExamRoom room) {
+        return cache.get(room.getId(), this::load);
+    }
+
+    @Override
+    public void invalidate(Long roomId) {
+        if (roomId != null) {
+            cache.invalidate(roomId);
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private RoomOccupancy load(Long roomId) {
+        List<ExamMachine> machines = DB.find(ExamMachine.class)
+            .fetch("softwareInfo", "id")
+            .fetch("accessibilities", "id")
+            .where()
+            .eq("room.id", roomId)
+            .ne("outOfService", true)
+            .ne("archived", true)
+            .isNotNull("ipAddress")
+            .isNotNull("name")
+            .findList();
+        // Reservations that have ended before today can not overlap with any slot we are going to search for
+        List<Reservation> reservations = DB.find(Reservation.class)
+            .select("startAt, endAt, externalRef, externalUserRef")
+            .fetch("machine", "id")
+            .fetch("user", "id")
+            .where()
+            .eq("machine.room.id", roomId)
+            .gt("endAt", DateTime.now().minusDays(1).toDate())
+            .findList();
+        logger.debug("Indexed {} reservations for {} machines of room #{}", reservations.size(), machines.size(), roomId);
+        return new RoomOccupancy(roomId, machines, reservations);
+    }
+}
@@ -46,6 +46,8 @@ trait ConfigReader:
   def isByodExamCreationPermissionGrantedForNewUsers: Boolean
   def getCourseCodePrefix: String
   def getIopHost: String
+  def getIopDirectoryTtl: java.time.Duration
+  def getIopDirectoryStaleTtl: java.time.Duration
   def isApiKeyUsed: Boolean
   def getApiKeyName: String
   def getApiKeyValue: String
@@ -62,6 +64,12 @@ trait ConfigReader:
   def getHomeOrganisations: List[String]
   def isHomeOrganisationRequired: Boolean
   def areNewMultichoiceFeaturesEnabled: Boolean
+  def getSettingsCacheTtl: java.time.Duration
+  def isSettingsChangeNotificationEnabled: Boolean
+  def getMetricsToken: String
+  def getDatabasePoolSize: Int
+  def isDatabaseVirtualThreadsEnabled: Boolean
+  def getDatabaseMaxQueued: Int
   def hasPath(path: String): Boolean
   def getString(path: String): String
   def isLocalUser(eppn: String): Boolean
@@ -88,6 +88,9 @@ class ConfigReaderImpl @Inject (private val config: Config) extends ConfigReader
     config.getBoolean("exam.byod.permission.allowed")
   override def getCourseCodePrefix: String = config.getString("exam.course.code.prefix")
   override def getIopHost: String          = config.getString("exam.integration.iop.host")
+  override def getIopDirectoryTtl: java.time.Duration = config.getDuration("exam.integration.iop.directory.ttl")
+  override def getIopDirectoryStaleTtl: java.time.Duration =
+    config.getDuration("exam.integration.iop.directory.staleTtl")
   override def isApiKeyUsed: Boolean       = config.getBoolean("exam.integration.apiKey.enabled")
   override def getApiKeyName: String       = config.getString("exam.integration.apiKey.name")
   override def getApiKeyValue: String      = config.getString("exam.integration.apiKey.value")
@@ -107,6 +110,13 @@ class ConfigReaderImpl @Inject (private val config: Config) extends ConfigReader
   override def isHomeOrganisationRequired: Boolean =
     config.getBoolean("exam.integration.iop.visit.restrict.disallowExternal")
   override def areNewMultichoiceFeaturesEnabled: Boolean = config.getBoolean("exam.multichoice.features.640.on")
+  override def getSettingsCacheTtl: java.time.Duration    = config.getDuration("exam.settings.cache.ttl")
+  override def isSettingsChangeNotificationEnabled: Boolean =
+    config.getBoolean("exam.settings.cache.notifications.enabled")
+  override def getMetricsToken: String                   = config.getString("exam.metrics.token")
+  override def getDatabasePoolSize: Int                  = config.getInt("fixedConnectionPool")
+  override def isDatabaseVirtualThreadsEnabled: Boolean  = config.getBoolean("exam.database.virtualThreads")
+  override def getDatabaseMaxQueued: Int                 = config.getInt("exam.database.maxQueued")
   override def hasPath(path: String): Boolean            = config.hasPath(path)
   override def getString(path: String): String           = config.getString(path)
   override def isLocalUser(eppn: String): Boolean =
@@ -0,0 +1,32 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package miscellaneous.config
+
+import com.google.inject.ImplementedBy
+import models.admin.GeneralSettings
+
+/** Access to the administrator editable settings stored in the database. Reads are served from an in-process cache
+  * that is refreshed whenever settings get updated through this store.
+  */
+@ImplementedBy(classOf[SettingsStoreImpl])
+trait SettingsStore:
+  /** @return the setting by name or an empty (non-persisted) one if not found. Each call returns a bean of its own. */
+  def get(name: String): GeneralSettings
+
+  /** @return the setting by name, created with the given default value if not found or not set */
+  def getOrCreate(name: String, defaultValue: String): GeneralSettings
+
+  /** Updates the value of the setting, creating it first if not found */
+  def set(name: String, value: String): GeneralSettings
+
+  /** Drops the cached settings so that they are reloaded from the database on next access */
+  def invalidate(): Unit
+
+  def getUserAgreement: GeneralSettings                = getOrCreate("eula", null)
+  def getReviewDeadlineSetting: GeneralSettings        = getOrCreate("review_deadline", "14")
+  def getReviewDeadline: Int                           = getReviewDeadlineSetting.getValue.toInt
+  def getReservationWindowSizeSetting: GeneralSettings = getOrCreate("reservation_window_size", "30")
+  def getReservationWindowSize: Int =
+    Option(getOrCreate("reservation_window_size", null).getValue).map(_.toInt).getOrElse(0)
@@ -0,0 +1,112 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package miscellaneous.config
+
+import com.github.benmanes.caffeine.cache.{Cache, Caffeine}
+import io.ebean.DB
+import models.admin.GeneralSettings
+import org.postgresql.PGConnection
+import play.api.Logging
+import play.api.db.Database
+import play.api.inject.ApplicationLifecycle
+
+import javax.inject.{Inject, Singleton}
+import scala.concurrent.Future
+import scala.util.Using
+import scala.util.control.NonFatal
+
+@Singleton
+class SettingsStoreImpl @Inject() (configReader: ConfigReader, database: Database, lifecycle: ApplicationLifecycle)
+    extends SettingsStore
+    with Logging:
+
+  private val Channel         = "exam_general_settings"
+  private val PollTimeoutMs   = 5000
+  private val RetryDelayMs    = 30000L
+  // Far more than there are settings, a bound in case of names derived from request input
+  private val MaxEntries      = 1000L
+  private val notifyOnChange  = configReader.isSettingsChangeNotificationEnabled
+  @volatile private var alive = true
+
+  // Values only, callers get beans of their own so that changing one does not change what others are served
+  private case class Setting(id: Option[Long], name: Option[String], value: Option[String]):
+    def toBean: GeneralSettings =
+      val gs = new GeneralSettings
+      id.foreach(gs.setId(_))
+      name.foreach(gs.setName)
+      value.foreach(gs.setValue)
+      gs
+
+  private object Setting:
+    def of(gs: GeneralSettings): Setting =
+      Setting(Option(gs.getId).map(_.toLong), Option(gs.getName), Option(gs.getValue))
+
+  private val cache: Cache[String, Setting] = Caffeine
+    .newBuilder()
+    .maximumSize(MaxEntries)
+    .expireAfterWrite(configReader.getSettingsCacheTtl)
+    .build()
+
+  if notifyOnChange then
+    listen()
+    lifecycle.addStopHook(() => Future.successful { alive = false })
+
+  override def get(name: String): GeneralSettings = cache.get(name, load).toBean
+
+  override def getOrCreate(name: String, defaultValue: String): GeneralSettings =
+    val gs = get(name)
+    if Option(gs.getId).nonEmpty && (Option(gs.getValue).nonEmpty || Option(defaultValue).isEmpty) then gs
+    else write(name, Option(defaultValue), overwrite = false)
+
+  override def set(name: String, value: String): GeneralSettings = write(name, Option(value), overwrite = true)
+
+  override def invalidate(): Unit = cache.invalidateAll()
+
+  private def load(name: String): Setting =
+    Setting.of(DB.find(classOf[GeneralSettings]).where.eq("name", name).findOneOrEmpty.orElse(new GeneralSettings))
+
+  // Writes go always through to the database, default values only get written if there is no value stored yet
+  private def write(name: String, value: Option[String], overwrite: Boolean): GeneralSettings =
+    val gs = Option(DB.find(classOf[GeneralSettings]).where.eq("name", name).findOne) match
+      case Some(existing) => existing
+      case None =>
+        val created = new GeneralSettings
+        created.setName(name)
+        created.save()
+        created
+    value.filter(_ => overwrite || Option(gs.getValue).isEmpty).foreach { v =>
+      gs.setValue(v)
+      gs.update()
+    }
+    cache.put(name, Setting.of(gs))
+    if notifyOnChange then DB.sqlUpdate(s"NOTIFY $Channel").execute()
+    gs
+
+  // Listens for change notifications sent by other nodes. Keeps one database connection reserved for this purpose.
+  private def listen(): Unit =
+    val listener = new Thread(
+      () =>
+        while alive do
+          try
+            Using.resource(database.getConnection(autocommit = true)) { conn =>
+              Using.resource(conn.createStatement())(_.execute(s"LISTEN $Channel"))
+              val pgConn = conn.unwrap(classOf[PGConnection])
+              logger.info(s"Listening for settings changes on channel $Channel")
+              while alive do
+                val notifications = pgConn.getNotifications(PollTimeoutMs)
+                if Option(notifications).exists(_.nonEmpty) then
+                  logger.debug("Settings changed, invalidating cache")
+                  invalidate()
+            }
+          catch
+            case NonFatal(e) =>
+              logger.warn(s"Settings change listener failed, retrying in ${RetryDelayMs / 1000} seconds", e)
+              invalidate()
+              Thread.sleep(RetryDelayMs)
+      ,
+      "settings-change-listener"
+    )
+    listener.setDaemon(true)
+    listener.start()
@@ -11,6 +11,7 @@ import com.opencsv.exceptions.CsvException;
 import java.io.File;
 import java.io.IOException;
 import java.util.Collection;
+import java.util.List;
 import models.user.Role;
 import models.user.User;
 
@@ -19,5 +20,13 @@ public interface CsvBuilder {
     File build(Long startDate, Long endDate) throws IOException;
     File build(Long examId, Collection<Long> childIds) throws IOException;
     File build(JsonNode node) throws IOException;
-    void parseGrades(File csvFile, User user, Role.Name role) throws IOException, CsvException;
+
+    /**
+     * Grades the exams listed in given file. Rows are validated first and all applicable ones are then applied in
+     * a single transaction, either all of them get imported or none.
+     *
+     * @return outcome of each row after the first one, in file order
+     * @throws CsvException if the file is not in the grade import format
+     */
+    List<GradeImportResult> parseGrades(File csvFile, User user, Role.Name role) throws IOException, CsvException;
 }
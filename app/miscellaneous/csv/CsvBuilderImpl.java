@@ -12,15 +12,25 @@ import com.opencsv.CSVReader;
 import com.opencsv.CSVReaderBuilder;
 import com.opencsv.CSVWriter;
 import com.opencsv.exceptions.CsvException;
+import com.opencsv.exceptions.CsvValidationException;
 import io.ebean.DB;
 import io.ebean.ExpressionList;
+import io.ebean.Transaction;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 import models.admin.ExamScore;
@@ -41,6 +51,9 @@ import org.slf4j.LoggerFactory;
 
 public class CsvBuilderImpl implements CsvBuilder {
 
+    private static final int IMPORT_QUERY_BATCH_SIZE = 500;
+    private static final int IMPORT_WRITE_BATCH_SIZE = 100;
+
     private final Logger logger = LoggerFactory.getLogger(CsvBuilderImpl.class);
 
     @Override
@@ -110,72 +123,164 @@ public class CsvBuilderImpl implements CsvBuilder {
         String[] recordFirstRowSemiColon = readerSemicolon.readNext();
 
         // Test all; return if valid; return null
-        if (recordFirstRowColon.length == GRADES_FIRST_ROW_COLUMN_COUNT) {
+        if (recordFirstRowColon != null && recordFirstRowColon.length == GRADES_FIRST_ROW_COLUMN_COUNT) {
+            readerSemicolon.close();
             return readerColon;
-        } else if (recordFirstRowSemiColon.length == GRADES_FIRST_ROW_COLUMN_COUNT) {
+        } else if (
+            recordFirstRowSemiColon != null && recordFirstRowSemiColon.length == GRADES_FIRST_ROW_COLUMN_COUNT
+        ) {
+            readerColon.close();
             return readerSemicolon;
         } else {
             logger.warn("Invalid column count");
+            readerColon.close();
+            readerSemicolon.close();
             return null;
         }
     }
 
     @Override
-    public void parseGrades(File csvFile, User user, Role.Name role) throws IOException, CsvException {
-        CSVReader reader = detectDelimiter(csvFile);
-        if (reader == null) {
-            logger.warn("Cannot read grades");
-            return;
-        }
-
-        String[] records;
-        while ((records = reader.readNext()) != null) {
-            if (records.length < 2) {
-                logger.warn("Mandatory information missing, unable to grade");
-                continue;
+    public List<GradeImportResult> parseGrades(File csvFile, User user, Role.Name role)
+        throws IOException, CsvException {
+        List<GradeImportResult> results = new ArrayList<>();
+        // Rows are only a few short strings each, the file itself is read a record at a time
+        List<GradeRow> rows = new ArrayList<>();
+        try (CSVReader reader = detectDelimiter(csvFile)) {
+            if (reader == null) {
+                throw new CsvValidationException("Cannot read grades, invalid column count");
             }
-            if (records[0].equalsIgnoreCase("exam id")) {
-                // this appears to be a header
-                continue;
+            // The first row has been read when detecting the delimiter
+            int row = 1;
+            String[] records;
+            while ((records = reader.readNext()) != null) {
+                row++;
+                if (records.length < 2) {
+                    logger.warn("Mandatory information missing, unable to grade");
+                    results.add(new GradeImportResult(row, null, GradeImportResult.Outcome.INVALID_ROW));
+                    continue;
+                }
+                if (records[0].equalsIgnoreCase("exam id")) {
+                    // this appears to be a header
+                    continue;
+                }
+                try {
+                    Long examId = Long.parseLong(records[0]);
+                    rows.add(new GradeRow(row, examId, records[1], records.length > 2 ? records[2] : null));
+                } catch (NumberFormatException e) {
+                    logger.warn("Invalid input, unable to grade");
+                    results.add(new GradeImportResult(row, null, GradeImportResult.Outcome.INVALID_ROW));
+                }
             }
-            Long examId;
-            try {
-                examId = Long.parseLong(records[0]);
-            } catch (NumberFormatException e) {
-                logger.warn("Invalid input, unable to grade");
-                continue;
+        }
+        Map<Long, Exam> exams = findGradableExams(rows.stream().map(GradeRow::examId).distinct().toList(), user, role);
+        Map<Long, Map<String, List<Grade>>> grades = findGrades(exams.values());
+
+        // Validate everything before writing anything
+        List<GradeUpdate> updates = new ArrayList<>();
+        Set<Long> graded = new HashSet<>();
+        for (GradeRow row : rows) {
+            Exam exam = exams.get(row.examId());
+            GradeImportResult.Outcome outcome;
+            if (exam == null) {
+                logger.warn("Exam with id {} not found or inaccessible, unable to grade it", row.examId());
+                outcome = GradeImportResult.Outcome.EXAM_NOT_FOUND;
+            } else if (graded.contains(exam.getId())) {
+                logger.warn("Exam with id {} is graded on an earlier row", row.examId());
+                outcome = GradeImportResult.Outcome.DUPLICATE_ROW;
+            } else {
+                GradeScale scale = getGradeScale(exam);
+                List<Grade> candidates = scale == null
+                    ? List.of()
+                    : grades.getOrDefault(scale.getId(), Map.of()).getOrDefault(row.gradeName(), List.of());
+                if (candidates.isEmpty()) {
+                    logger.warn("No grade found with name {}", row.gradeName());
+                    outcome = GradeImportResult.Outcome.GRADE_NOT_FOUND;
+                } else if (candidates.size() > 1) {
+                    logger.warn("Multiple grades found with name {}", row.gradeName());
+                    outcome = GradeImportResult.Outcome.AMBIGUOUS_GRADE;
+                } else {
+                    graded.add(exam.getId());
+                    updates.add(new GradeUpdate(row, exam, candidates.getFirst()));
+                    outcome = GradeImportResult.Outcome.GRADED;
+                }
             }
+            results.add(new GradeImportResult(row.row(), row.examId(), outcome));
+        }
+        if (!updates.isEmpty()) {
+            applyGrades(updates, user);
+        }
+        results.sort(Comparator.comparingInt(GradeImportResult::row));
+        return results;
+    }
+
+    private record GradeRow(int row, Long examId, String gradeName, String feedback) {}
+
+    private record GradeUpdate(GradeRow row, Exam exam, Grade grade) {}
+
+    private Map<Long, Exam> findGradableExams(List<Long> ids, User user, Role.Name role) {
+        Map<Long, Exam> exams = new HashMap<>();
+        for (int i = 0; i < ids.size(); i += IMPORT_QUERY_BATCH_SIZE) {
             ExpressionList<Exam> el = DB.find(Exam.class)
+                .fetch("gradeScale")
+                .fetch("course.gradeScale")
+                .fetch("examFeedback")
+                .fetch("examLanguages")
                 .where()
-                .idEq(examId)
+                .idIn(ids.subList(i, Math.min(i + IMPORT_QUERY_BATCH_SIZE, ids.size())))
                 .isNotNull("parent")
-                .disjunction()
-                .eq("state", Exam.State.REVIEW)
-                .eq("state", Exam.State.REVIEW_STARTED)
-                .endJunction();
+                .in("state", Exam.State.REVIEW, Exam.State.REVIEW_STARTED);
             if (role == Role.Name.ADMIN) {
                 el = el.eq("parent.examOwners", user);
             }
-            Exam exam = el.findOne();
-            if (exam == null) {
-                logger.warn("Exam with id {} not found or inaccessible, unable to grade it", examId);
-                continue;
-            }
-            String gradeName = records[1];
-            GradeScale scale = exam.getGradeScale() == null ? exam.getCourse().getGradeScale() : exam.getGradeScale();
-            List<Grade> grades = DB.find(Grade.class).where().eq("name", gradeName).eq("gradeScale", scale).findList();
-            if (grades.isEmpty()) {
-                logger.warn("No grade found with name {}", gradeName);
-            } else if (grades.size() > 1) {
-                logger.warn("Multiple grades found with name {}", gradeName);
-            } else {
-                exam.setGrade(grades.getFirst());
+            el.findList().forEach(e -> exams.put(e.getId(), e));
+        }
+        return exams;
+    }
+
+    private Map<Long, Map<String, List<Grade>>> findGrades(Collection<Exam> exams) {
+        Set<Long> scaleIds = exams
+            .stream()
+            .map(this::getGradeScale)
+            .filter(Objects::nonNull)
+            .map(GradeScale::getId)
+            .collect(Collectors.toSet());
+        if (scaleIds.isEmpty()) {
+            return Map.of();
+        }
+        return DB.find(Grade.class)
+            .where()
+            .in("gradeScale.id", scaleIds)
+            .findList()
+            .stream()
+            .collect(
+                Collectors.groupingBy(g -> g.getGradeScale().getId(), Collectors.groupingBy(Grade::getName))
+            );
+    }
+
+    private GradeScale getGradeScale(Exam exam) {
+        if (exam.getGradeScale() != null) {
+            return exam.getGradeScale();
+        }
+        return exam.getCourse() == null ? null : exam.getCourse().getGradeScale();
+    }
+
+    private void applyGrades(List<GradeUpdate> updates, User user) {
+        try (Transaction tx = DB.beginTransaction()) {
+            // Statements are sent in JDBC batches, one per table and batch
+            tx.setBatchMode(true);
+            tx.setBatchSize(IMPORT_WRITE_BATCH_SIZE);
+            DateTime now = DateTime.now();
+            for (GradeUpdate update : updates) {
+                Exam exam = update.exam();
+                exam.setGrade(update.grade());
                 exam.setGradedByUser(user);
-                exam.setGradedTime(DateTime.now());
+                exam.setGradedTime(now);
                 exam.setState(Exam.State.GRADED);
-                exam.setAnswerLanguage(exam.getExamLanguages().getFirst().getCode());
+                if (!exam.getExamLanguages().isEmpty()) {
+                    exam.setAnswerLanguage(exam.getExamLanguages().getFirst().getCode());
+                }
                 exam.setCreditType(exam.getExamType());
-                String feedback = records.length > 2 ? records[2] : null;
+                String feedback = update.row().feedback();
                 if (feedback != null && !feedback.isEmpty()) {
                     Comment comment = exam.getExamFeedback();
                     if (comment == null) {
@@ -189,8 +294,8 @@ public class CsvBuilderImpl implements CsvBuilder {
                 }
                 exam.update();
             }
+            tx.commit();
         }
-        reader.close();
     }
 
     private String[] getHeaders() {
@@ -0,0 +1,22 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package miscellaneous.csv;
+
+/**
+ * Outcome of a single row of a grade import.
+ *
+ * @param row line number of the row in the file, starting from 1
+ * @param examId id of the exam the row refers to, null if it could not be read
+ */
+public record GradeImportResult(int row, Long examId, Outcome outcome) {
+    public enum Outcome {
+        GRADED,
+        INVALID_ROW,
+        EXAM_NOT_FOUND,
+        DUPLICATE_ROW,
+        GRADE_NOT_FOUND,
+        AMBIGUOUS_GRADE,
+    }
+}
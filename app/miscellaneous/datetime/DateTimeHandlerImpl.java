@@ -140,24 +140,19 @@ public class DateTimeHandlerImpl implements DateTimeHandler {
         // make sure the list is mutable, otherwise sorting fails
         var slots = new ArrayList<>(intervals);
         slots.sort(Comparator.comparing(Interval::getStart));
-        boolean isMerged = false;
         List<Interval> merged = new ArrayList<>();
         merged.add(slots.getFirst());
         for (int i = 1; i < slots.size(); ++i) {
-            Interval first = slots.get(i - 1);
-            Interval second = slots.get(i);
-            if (!second.getStart().isAfter(first.getEnd())) {
-                merged.remove(i - 1);
-                DateTime laterEnding = first.getEnd().isAfter(second.getEnd()) ? first.getEnd() : second.getEnd();
-                merged.add(new Interval(first.getStart(), laterEnding));
-                isMerged = true;
+            Interval last = merged.getLast();
+            Interval next = slots.get(i);
+            if (!next.getStart().isAfter(last.getEnd())) {
+                // Sorted by start so the merged slot starts with the last one
+                DateTime laterEnding = last.getEnd().isAfter(next.getEnd()) ? last.getEnd() : next.getEnd();
+                merged.set(merged.size() - 1, new Interval(last.getStart(), laterEnding));
             } else {
-                merged.add(second);
+                merged.add(next);
             }
         }
-        if (isMerged) {
-            merged = mergeSlots(merged);
-        }
         // Nothing to merge anymore
         return merged;
     }
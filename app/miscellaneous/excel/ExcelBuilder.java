@@ -17,7 +17,7 @@ public interface ExcelBuilder {
         STRING,
     }
 
-    ByteArrayOutputStream build(Long examId, Collection<Long> childIds) throws IOException;
-    ByteArrayOutputStream buildScoreExcel(Long examId, Collection<Long> childIds) throws IOException;
+    StreamingWorkbook build(Long examId, Collection<Long> childIds);
+    StreamingWorkbook buildScoreExcel(Long examId, Collection<Long> childIds);
     ByteArrayOutputStream buildStudentReport(Exam exam, User student, MessagesApi messages) throws IOException;
 }
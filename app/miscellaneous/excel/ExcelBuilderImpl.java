@@ -5,6 +5,7 @@
 package miscellaneous.excel;
 
 import io.ebean.DB;
+import io.ebean.Query;
 import io.vavr.Tuple;
 import io.vavr.Tuple2;
 import java.io.ByteArrayOutputStream;
@@ -124,38 +125,36 @@ public class ExcelBuilderImpl implements ExcelBuilder {
     }
 
     @Override
-    public ByteArrayOutputStream build(Long examId, Collection<Long> childIds) throws IOException {
-        List<ExamRecord> examRecords = DB.find(ExamRecord.class)
-            .fetch("examScore")
-            .where()
-            .eq("exam.parent.id", examId)
-            .in("exam.id", childIds)
-            .findList();
-        Workbook wb = new XSSFWorkbook();
+    public StreamingWorkbook build(Long examId, Collection<Long> childIds) {
+        return StreamingWorkbook.create(wb -> writeRecords(wb, examId, childIds));
+    }
+
+    private void writeRecords(StreamingWorkbook wb, Long examId, Collection<Long> childIds) {
         Sheet sheet = wb.createSheet("Exam records");
         String[] headers = ExamScore.getHeaders();
         Row headerRow = sheet.createRow(0);
         for (int i = 0; i < headers.length; i++) {
             headerRow.createCell(i).setCellValue(headers[i]);
         }
-        for (ExamRecord record : examRecords) {
-            List<Tuple2<String, CellType>> data = record
-                .getExamScore()
-                .asCells(record.getStudent(), record.getTeacher(), record.getExam());
-            Row dataRow = sheet.createRow(examRecords.indexOf(record) + 1);
-            int index = 0;
-            for (Tuple2<String, CellType> entry : data) {
-                Cell cell = dataRow.createCell(index);
-                index++;
-                setValue(cell, entry._1, entry._2);
-            }
-        }
+        DB.find(ExamRecord.class)
+            .fetch("examScore")
+            .where()
+            .eq("exam.parent.id", examId)
+            .in("exam.id", childIds)
+            .findEach(record -> {
+                List<Tuple2<String, CellType>> data = record
+                    .getExamScore()
+                    .asCells(record.getStudent(), record.getTeacher(), record.getExam());
+                Row dataRow = sheet.createRow(sheet.getLastRowNum() + 1);
+                int index = 0;
+                for (Tuple2<String, CellType> entry : data) {
+                    Cell cell = dataRow.createCell(index);
+                    index++;
+                    setValue(cell, entry._1, entry._2);
+                }
+            });
         // HOX! autosize apparently crashes OpenJDK-11 for some reason
         IntStream.range(0, headers.length).forEach(i -> sheet.autoSizeColumn(i, true));
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        wb.write(bos);
-        bos.close();
-        return bos;
     }
 
     public ByteArrayOutputStream buildStudentReport(Exam exam, User student, MessagesApi messages) throws IOException {
@@ -217,9 +216,12 @@ public class ExcelBuilderImpl implements ExcelBuilder {
     }
 
     @Override
-    public ByteArrayOutputStream buildScoreExcel(Long examId, Collection<Long> childIds) throws IOException {
-        /* Create workbook and new sheet */
-        Workbook wb = new XSSFWorkbook();
+    public StreamingWorkbook buildScoreExcel(Long examId, Collection<Long> childIds) {
+        return StreamingWorkbook.create(wb -> writeScores(wb, examId, childIds));
+    }
+
+    private void writeScores(StreamingWorkbook wb, Long examId, Collection<Long> childIds) {
+        /* Create new sheet */
         Sheet sheet = wb.createSheet("Question scores");
 
         /* Read hostname from config, needed for hyperlinks */
@@ -241,17 +243,16 @@ public class ExcelBuilderImpl implements ExcelBuilder {
             throw new RuntimeException("parent exam not found");
         }
         Exam parentExam = parentExamOption.get();
-        List<Exam> childExams = DB.find(Exam.class)
-            .fetch("examParticipation.user")
-            .fetch("examSections.sectionQuestions.question")
-            .fetch("examRecord.examScore")
-            .where()
-            .eq("parent.id", examId)
-            .in("id", childIds)
-            .findList();
+        Set<Long> parentQuestionIds = parentExam
+            .getExamSections()
+            .stream()
+            .flatMap(es -> es.getSectionQuestions().stream())
+            .filter(esq -> esq.getQuestion() != null && esq.getQuestion().getId() != null)
+            .map(esq -> esq.getQuestion().getId())
+            .collect(Collectors.toSet());
 
         /* Deleted question ids are used to set question headers as "removed" */
-        Set<Long> deletedQuestionIds = getDeletedQuestionIds(parentExam, childExams);
+        Set<Long> deletedQuestionIds = new HashSet<>();
 
         /* First we need to map all question ids to section names from parent and child exams */
         // section name -> question id
@@ -265,21 +266,28 @@ public class ExcelBuilderImpl implements ExcelBuilder {
                 questionIdsBySectionName.put(sectionName, questionIds);
             });
 
-        /* Go through child exams and add missing questions/sections to map */
-        childExams
-            .stream()
-            .flatMap(exam -> exam.getExamSections().stream())
-            .forEach(es -> {
-                String sectionName = es.getName();
-                Set<Long> childQuestionIds = extractQuestionIdsFromSection(es);
-                if (questionIdsBySectionName.containsKey(sectionName)) {
-                    /* Section exists, merge question id set from child exam to parent question ids */
-                    questionIdsBySectionName.get(sectionName).addAll(childQuestionIds);
-                } else {
-                    /* Add new entry since section didn't exist */
-                    questionIdsBySectionName.put(sectionName, childQuestionIds);
-                }
-            });
+        /* Go through child exams and add missing questions/sections to map, only the question structure is needed */
+        createChildQuery(examId, childIds)
+            .select("id")
+            .fetch("examSections", "name")
+            .fetch("examSections.sectionQuestions", "id")
+            .fetch("examSections.sectionQuestions.question", "id, parent")
+            .findEach(exam ->
+                exam
+                    .getExamSections()
+                    .forEach(es -> {
+                        /* Merge question ids from child exam to those of the section, add section if missing */
+                        questionIdsBySectionName
+                            .computeIfAbsent(es.getName(), k -> new HashSet<>())
+                            .addAll(extractQuestionIdsFromSection(es));
+                        es
+                            .getSectionQuestions()
+                            .stream()
+                            .filter(esq -> isQuestionRemoved(esq, parentQuestionIds))
+                            .map(this::getQuestionId)
+                            .forEach(deletedQuestionIds::add);
+                    })
+            );
 
         /* Create header row */
         Row headerRow = sheet.createRow(0);
@@ -326,92 +334,80 @@ public class ExcelBuilderImpl implements ExcelBuilder {
         /* Also set exam's total score column header and save index */
         totalScoreIndex = appendCell(headerRow, "Kokonaispisteet");
 
-        /* Iterate child exams and create excel rows */
-        for (Exam exam : childExams) {
-            /* Skip exam if there is no participation */
-            if (exam.getExamParticipation() == null || exam.getExamParticipation().getUser() == null) {
-                continue;
-            }
-
-            User student = exam.getExamParticipation().getUser();
-            Optional<ExamScore> examScore = Optional.ofNullable(exam.getExamRecord()).map(ExamRecord::getExamScore);
-            boolean isGraded =
-                exam.getState() == Exam.State.GRADED ||
-                exam.getState() == Exam.State.GRADED_LOGGED ||
-                exam.getState() == Exam.State.ARCHIVED;
+        /* Rows are flushed out of memory as we go, so take the column count while the header is still around */
+        int columnCount = headerRow.getLastCellNum();
 
-            /* Get non-score cells and append them to a new Excel row */
-            List<Tuple2<String, CellType>> defaultCells = getScoreReportDefaultCells(student, exam, examScore);
-            Row currentRow = sheet.createRow(sheet.getLastRowNum() + 1);
-            appendCellsToRow(currentRow, defaultCells);
+        /* Iterate child exams and create excel rows */
+        createChildQuery(examId, childIds)
+            .fetch("examParticipation.user")
+            .fetch("examSections.sectionQuestions.question")
+            .fetch("examRecord.examScore")
+            .findEach(exam -> {
+                /* Skip exam if there is no participation */
+                if (exam.getExamParticipation() == null || exam.getExamParticipation().getUser() == null) {
+                    return;
+                }
 
-            /* Start inserting question/section scores to spreadsheet columns */
-            for (ExamSection es : exam.getExamSections()) {
-                String sectionName = es.getName();
-                for (ExamSectionQuestion esq : es.getSectionQuestions()) {
-                    Long questionId = getQuestionId(esq);
-                    /* Get column index from nested hashmap with section name and question id */
-                    int questionColumnIndex = questionColumnIndexesBySectionName.get(sectionName).get(questionId);
+                User student = exam.getExamParticipation().getUser();
+                Optional<ExamScore> examScore = Optional.ofNullable(exam.getExamRecord()).map(ExamRecord::getExamScore);
+                boolean isGraded =
+                    exam.getState() == Exam.State.GRADED ||
+                    exam.getState() == Exam.State.GRADED_LOGGED ||
+                    exam.getState() == Exam.State.ARCHIVED;
+
+                /* Get non-score cells and append them to a new Excel row */
+                List<Tuple2<String, CellType>> defaultCells = getScoreReportDefaultCells(student, exam, examScore);
+                Row currentRow = sheet.createRow(sheet.getLastRowNum() + 1);
+                appendCellsToRow(currentRow, defaultCells);
+
+                /* Start inserting question/section scores to spreadsheet columns */
+                for (ExamSection es : exam.getExamSections()) {
+                    String sectionName = es.getName();
+                    for (ExamSectionQuestion esq : es.getSectionQuestions()) {
+                        Long questionId = getQuestionId(esq);
+                        /* Get column index from nested hashmap with section name and question id */
+                        int questionColumnIndex = questionColumnIndexesBySectionName.get(sectionName).get(questionId);
+
+                        /* Set score if exam is graded, otherwise add "-" to the question cell */
+                        if (isGraded) {
+                            Tuple2<String, CellType> scoreTuple = getScoreTuple(esq);
+                            Cell currentCell = currentRow.createCell(questionColumnIndex);
+                            setValue(currentCell, scoreTuple._1, scoreTuple._2);
+                        } else {
+                            currentRow.createCell(questionColumnIndex).setCellValue("-");
+                        }
+                    }
+                    /* Get the index of section total score column */
+                    int sectionIndex = sectionTotalIndexesBySectionName.get(sectionName);
 
-                    /* Set score if exam is graded, otherwise add "-" to the question cell */
+                    /* Again, set score if exam was graded, otherwise "-" */
                     if (isGraded) {
-                        Tuple2<String, CellType> scoreTuple = getScoreTuple(esq);
-                        Cell currentCell = currentRow.createCell(questionColumnIndex);
-                        setValue(currentCell, scoreTuple._1, scoreTuple._2);
+                        currentRow.createCell(sectionIndex).setCellValue(es.getTotalScore());
                     } else {
-                        currentRow.createCell(questionColumnIndex).setCellValue("-");
+                        currentRow.createCell(sectionIndex).setCellValue("-");
                     }
                 }
-                /* Get the index of section total score column */
-                int sectionIndex = sectionTotalIndexesBySectionName.get(sectionName);
 
-                /* Again, set score if exam was graded, otherwise "-" */
+                /* Lastly set exam total score to correct column (or "-" if !isGraded) */
                 if (isGraded) {
-                    currentRow.createCell(sectionIndex).setCellValue(es.getTotalScore());
+                    currentRow.createCell(totalScoreIndex).setCellValue(exam.getTotalScore());
                 } else {
-                    currentRow.createCell(sectionIndex).setCellValue("-");
+                    currentRow.createCell(totalScoreIndex).setCellValue("-");
                 }
-            }
-
-            /* Lastly set exam total score to correct column (or "-" if !isGraded) */
-            if (isGraded) {
-                currentRow.createCell(totalScoreIndex).setCellValue(exam.getTotalScore());
-            } else {
-                currentRow.createCell(totalScoreIndex).setCellValue("-");
-            }
-        }
+            });
 
         /* Autosize cells */
-        autosizeColumns(headerRow, sheet);
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        wb.write(bos);
-        bos.close();
+        IntStream.range(0, columnCount).forEach(i -> sheet.autoSizeColumn(i, true));
+    }
 
-        return bos;
+    private Query<Exam> createChildQuery(Long examId, Collection<Long> childIds) {
+        return DB.find(Exam.class).where().eq("parent.id", examId).in("id", childIds).query();
     }
 
     private Set<Long> extractQuestionIdsFromSection(ExamSection es) {
         return es.getSectionQuestions().stream().map(this::getQuestionId).collect(Collectors.toSet());
     }
 
-    private Set<Long> getDeletedQuestionIds(Exam parent, List<Exam> childExams) {
-        Set<Long> parentQuestionIds = parent
-            .getExamSections()
-            .stream()
-            .flatMap(es -> es.getSectionQuestions().stream())
-            .filter(esq -> esq.getQuestion() != null && esq.getQuestion().getId() != null)
-            .map(esq -> esq.getQuestion().getId())
-            .collect(Collectors.toSet());
-
-        return childExams
-            .stream()
-            .flatMap(exam -> exam.getExamSections().stream())
-            .flatMap(es -> es.getSectionQuestions().stream())
-            .filter(esq -> isQuestionRemoved(esq, parentQuestionIds))
-            .map(this::getQuestionId)
-            .collect(Collectors.toSet());
-    }
-
     private Long getQuestionId(ExamSectionQuestion question) {
         if (question.getQuestion() == null) {
             return question.getId();
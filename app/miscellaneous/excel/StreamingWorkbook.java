@@ -0,0 +1,128 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package miscellaneous.excel;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.function.Consumer;
+import miscellaneous.file.ChunkMaker;
+import org.apache.commons.io.FileUtils;
+import org.apache.pekko.stream.javadsl.FileIO;
+import org.apache.pekko.stream.javadsl.Source;
+import org.apache.pekko.util.ByteString;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Workbook that keeps only a window of the most recent rows in memory, the rest are flushed to a temporary file as
+ * they fall out of the window. Finished workbook is written to disk and served from there as a stream so that heap
+ * use does not depend on the amount of rows.
+ */
+public class StreamingWorkbook extends SXSSFWorkbook {
+
+    public static final int ROW_WINDOW = 100;
+    public static final String MIME_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
+    private static final Path OUTPUT_DIR = Path.of(System.getProperty("java.io.tmpdir"), "exam-excel");
+    // Output older than this has been left behind by a stream that never ran
+    private static final Duration MAX_OUTPUT_AGE = Duration.ofHours(1);
+
+    private final Logger logger = LoggerFactory.getLogger(StreamingWorkbook.class);
+
+    public StreamingWorkbook() {
+        super(ROW_WINDOW);
+    }
+
+    /**
+     * Creates a workbook and lets the writer fill it. Should the writer fail, the rows it already flushed to disk are
+     * removed before the failure is passed on.
+     */
+    public static StreamingWorkbook create(Consumer<StreamingWorkbook> writer) {
+        StreamingWorkbook wb = new StreamingWorkbook();
+        try {
+            writer.accept(wb);
+        } catch (RuntimeException e) {
+            wb.dispose();
+            try {
+                wb.close();
+            } catch (IOException ex) {
+                e.addSuppressed(ex);
+            }
+            throw e;
+        }
+        return wb;
+    }
+
+    @Override
+    public SXSSFSheet createSheet(String sheetname) {
+        SXSSFSheet sheet = super.createSheet(sheetname);
+        // Column widths must be tracked while rows are written because flushed rows can not be measured afterwards
+        sheet.trackAllColumnsForAutoSizing();
+        return sheet;
+    }
+
+    /**
+     * Writes the workbook to a temporary file and releases its resources.
+     *
+     * @param raw whether to provide the plain binary content or Base64 encode it
+     * @return the content as a stream, temporary file is removed once the stream completes. Files of streams that are
+     *     never run are removed by a later call.
+     */
+    public Source<ByteString, ?> toSource(boolean raw) throws IOException {
+        removeAbandonedOutput();
+        Files.createDirectories(OUTPUT_DIR);
+        Path path = Files.createTempFile(OUTPUT_DIR, "excel-output-", ".xlsx");
+        try (OutputStream os = Files.newOutputStream(path)) {
+            write(os);
+        } catch (IOException e) {
+            Files.deleteIfExists(path);
+            throw e;
+        } finally {
+            dispose();
+            close();
+        }
+        Source<ByteString, ?> source = FileIO.fromPath(path).watchTermination((mat, done) -> {
+            done.whenComplete((d, e) -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException ex) {
+                    logger.warn("Failed to delete temporary file {}", path);
+                }
+            });
+            return mat;
+        });
+        if (raw) {
+            return source;
+        }
+        // Encode in chunks divisible by three so that no padding ends up in the middle of the content
+        return source
+            .via(new ChunkMaker(3 * (int) FileUtils.ONE_KB))
+            .map(bs -> ByteString.fromArray(Base64.getEncoder().encode(bs.toArray())));
+    }
+
+    private void removeAbandonedOutput() {
+        if (!Files.isDirectory(OUTPUT_DIR)) {
+            return;
+        }
+        Instant limit = Instant.now().minus(MAX_OUTPUT_AGE);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(OUTPUT_DIR, "excel-output-*.xlsx")) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).toInstant().isBefore(limit)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to remove abandoned output from {}", OUTPUT_DIR, e);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package miscellaneous.file;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import org.apache.pekko.actor.ActorSystem;
+import play.libs.concurrent.CustomExecutionContext;
+
+/**
+ * For long-running work that mostly waits for files or a slow client, such as writing a streamed response. Keeps it
+ * from occupying the threads that the database work is sized to.
+ */
+@Singleton
+public class BlockingIOExecutionContext extends CustomExecutionContext {
+
+    @Inject
+    public BlockingIOExecutionContext(ActorSystem actorSystem) {
+        super(actorSystem, "pekko.actor.default-blocking-io-dispatcher");
+    }
+}
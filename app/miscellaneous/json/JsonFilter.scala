@@ -4,10 +4,15 @@
 
 package miscellaneous.json
 
+import com.fasterxml.jackson.core.{JsonGenerator, JsonParser, JsonToken}
 import com.fasterxml.jackson.databind.JsonNode
-import com.fasterxml.jackson.databind.node.ObjectNode
+import com.fasterxml.jackson.databind.node.{NullNode, ObjectNode}
+import org.apache.pekko.util.{ByteString, ByteStringBuilder}
+import play.libs.Json
 
+import java.io.{InputStream, OutputStream}
 import scala.jdk.CollectionConverters._
+import scala.util.Using
 
 object JsonFilter:
   // TODO: make immutable
@@ -18,3 +23,70 @@ object JsonFilter:
           .foreach(helper)
 
     helper(node)
+
+  /** Same as above for serialized JSON. Tokens are copied from input to output as they are read instead of building a
+    * tree of the whole document. When filtering is restricted to given ids, an object that does not start with its id
+    * property is read into a tree before deciding on it.
+    */
+  def filterProperties(json: ByteString, ids: Set[Long], properties: String*): ByteString =
+    val builder = new ByteStringBuilder
+    filterProperties(json.iterator.asInputStream, builder.asOutputStream, ids, properties*)
+    builder.result()
+
+  /** Same as above for a document read from a stream, output is written as the input gets read. Both streams are
+    * closed afterwards.
+    */
+  def filterProperties(in: InputStream, out: OutputStream, ids: Set[Long], properties: String*): Unit =
+    val factory = Json.mapper().getFactory
+    Using.resources(factory.createParser(in), factory.createGenerator(out)) { (parser, generator) =>
+      if parser.nextToken != null then new TokenFilter(parser, generator, ids, properties.toSet).copy(true)
+    }
+
+  private class TokenFilter(p: JsonParser, g: JsonGenerator, ids: Set[Long], properties: Set[String]):
+
+    // Parser is expected to be positioned at the first token of the value to copy
+    def copy(filtering: Boolean): Unit = p.currentToken match
+      case JsonToken.START_OBJECT if filtering => copyObject()
+      case JsonToken.START_ARRAY if filtering =>
+        g.writeStartArray()
+        while p.nextToken != JsonToken.END_ARRAY do copy(true)
+        g.writeEndArray()
+      case _ => g.copyCurrentStructure(p)
+
+    private def copyObject(): Unit =
+      if ids.isEmpty then
+        g.writeStartObject()
+        copyFields(true)
+      else if p.nextToken == JsonToken.END_OBJECT then
+        g.writeStartObject()
+        g.writeEndObject()
+      else if p.currentName == "id" then
+        p.nextToken
+        val filtering = ids.contains(p.getValueAsLong)
+        g.writeStartObject()
+        if !filtering || !properties.contains("id") then
+          g.writeFieldName("id")
+          g.copyCurrentStructure(p)
+        copyFields(filtering)
+      else
+        val node = Json.newObject()
+        while p.currentToken == JsonToken.FIELD_NAME do
+          val name = p.currentName
+          p.nextToken
+          node.set[JsonNode](name, Option(p.readValueAsTree[JsonNode]()).getOrElse(NullNode.getInstance))
+          p.nextToken
+        filterProperties(node, ids, properties.toSeq*)
+        g.writeTree(node)
+
+    private def copyFields(filtering: Boolean): Unit =
+      while p.nextToken == JsonToken.FIELD_NAME do
+        val name = p.currentName
+        p.nextToken
+        if !filtering then
+          g.writeFieldName(name)
+          g.copyCurrentStructure(p)
+        else if properties.contains(name) then p.skipChildren()
+        else
+          g.writeFieldName(name)
+          copy(true)
+      g.writeEndObject()
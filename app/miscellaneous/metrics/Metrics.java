@@ -0,0 +1,30 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package miscellaneous.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Runtime metrics of this node: request latencies, database usage and background actor activity, served in
+ * Prometheus text format.
+ */
+public interface Metrics {
+    MeterRegistry getRegistry();
+
+    /**
+     * @return current values of all metrics in Prometheus text format
+     */
+    String scrape();
+
+    /**
+     * @param route route pattern of the request, e.g. /app/exams/$id<[^/]+>, not the actual path
+     */
+    void recordRequest(String method, String route, int status, long nanos);
+
+    /**
+     * @param items number of items the tick of given background actor processed
+     */
+    void recordTick(String actor, long nanos, int items);
+}
@@ -0,0 +1,136 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package miscellaneous.metrics;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.ebean.DB;
+import io.ebean.meta.MetaTimedMetric;
+import io.ebean.meta.ServerMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.JvmMemoryMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmThreadMetrics;
+import io.micrometer.core.instrument.binder.system.ProcessorMetrics;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import play.db.Database;
+import repository.DatabaseExecutionContext;
+
+@Singleton
+public class MetricsImpl implements Metrics {
+
+    private final PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+
+    private final Logger logger = LoggerFactory.getLogger(MetricsImpl.class);
+
+    @Inject
+    public MetricsImpl(Database database, DatabaseExecutionContext databaseExecutionContext) {
+        new JvmMemoryMetrics().bindTo(registry);
+        new JvmThreadMetrics().bindTo(registry);
+        new ProcessorMetrics().bindTo(registry);
+        Gauge.builder("exam.db.dispatcher.queued", databaseExecutionContext, DatabaseExecutionContext::getQueued)
+            .description("Tasks waiting for a thread of the database dispatcher")
+            .register(registry);
+        Gauge.builder("exam.db.dispatcher.active", databaseExecutionContext, DatabaseExecutionContext::getActive)
+            .description("Tasks being run by the database dispatcher")
+            .register(registry);
+        FunctionTimer.builder(
+            "exam.db.dispatcher.wait",
+            databaseExecutionContext,
+            DatabaseExecutionContext::getStarted,
+            DatabaseExecutionContext::getWaitNanos,
+            TimeUnit.NANOSECONDS
+        )
+            .description("Time tasks waited for a thread of the database dispatcher")
+            .register(registry);
+        FunctionCounter.builder(
+            "exam.db.dispatcher.rejected",
+            databaseExecutionContext,
+            DatabaseExecutionContext::getRejected
+        )
+            .description("Requests turned away because of too many tasks waiting")
+            .register(registry);
+        bindPool(database);
+    }
+
+    private void bindPool(Database database) {
+        HikariDataSource dataSource;
+        try {
+            dataSource = database.getDataSource().unwrap(HikariDataSource.class);
+        } catch (SQLException e) {
+            logger.warn("Connection pool is not HikariCP, pool metrics not available");
+            return;
+        }
+        bindPoolGauge("exam.db.pool.active", dataSource, HikariPoolMXBean::getActiveConnections);
+        bindPoolGauge("exam.db.pool.idle", dataSource, HikariPoolMXBean::getIdleConnections);
+        bindPoolGauge("exam.db.pool.pending", dataSource, HikariPoolMXBean::getThreadsAwaitingConnection);
+        Gauge.builder("exam.db.pool.max", dataSource, HikariDataSource::getMaximumPoolSize).register(registry);
+    }
+
+    private void bindPoolGauge(String name, HikariDataSource dataSource, ToDoubleFunction<HikariPoolMXBean> f) {
+        // Pool is there only once started
+        Gauge.builder(name, dataSource, ds -> {
+            HikariPoolMXBean pool = ds.getHikariPoolMXBean();
+            return pool == null ? Double.NaN : f.applyAsDouble(pool);
+        }).register(registry);
+    }
+
+    @Override
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+
+    @Override
+    public synchronized String scrape() {
+        // Ebean resets its metrics as they are collected, accumulate them into counters. Timed ones cover transactions.
+        ServerMetrics metrics = DB.getDefault().metaInfo().collectMetrics();
+        recordDatabase("exam.ebean.queries", metrics.queryMetrics());
+        recordDatabase("exam.ebean.timed", metrics.timedMetrics());
+        return registry.scrape();
+    }
+
+    private void recordDatabase(String name, List<? extends MetaTimedMetric> metrics) {
+        metrics.forEach(m -> {
+            Counter.builder(name).tag("name", m.name()).register(registry).increment(m.count());
+            Counter.builder(name + ".time")
+                .baseUnit("seconds")
+                .tag("name", m.name())
+                .register(registry)
+                .increment(m.total() / 1e6);
+        });
+    }
+
+    @Override
+    public void recordRequest(String method, String route, int status, long nanos) {
+        Timer.builder("exam.http.requests")
+            .tags("method", method, "route", route, "status", String.valueOf(status))
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofMillis(1))
+            .maximumExpectedValue(Duration.ofSeconds(30))
+            .register(registry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordTick(String actor, long nanos, int items) {
+        Timer.builder("exam.actor.ticks").tag("actor", actor).register(registry).record(nanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("exam.actor.items").tag("actor", actor).register(registry).record(items);
+    }
+}
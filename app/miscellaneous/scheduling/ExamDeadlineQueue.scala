@@ -0,0 +1,96 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package miscellaneous.scheduling
+
+import miscellaneous.datetime.DateTimeHandler
+import models.enrolment.{ExamEnrolment, ExamParticipation}
+import org.joda.time.DateTime
+import play.api.Logging
+
+import javax.inject.{Inject, Singleton}
+import scala.collection.mutable
+
+object ExamDeadlineQueue:
+  enum Key:
+    case Local(participationId: Long)
+    case External(enrolmentId: Long)
+
+/** Time ordered queue of the instants at which ongoing examinations run out of time.
+  *
+  * Deadlines are registered when an examination starts and kept as UTC instants, so the auto saver only has to look
+  * at the head of the queue to find out what to close. Re-registering a key replaces its earlier deadline, stale
+  * queue entries are skipped when polled.
+  */
+@Singleton
+class ExamDeadlineQueue @Inject() (private val dateTimeHandler: DateTimeHandler) extends Logging:
+  import ExamDeadlineQueue.Key
+
+  private val deadlines = mutable.HashMap[Key, Long]()
+  private val queue     = mutable.PriorityQueue.empty[(Long, Key)](using Ordering.by[(Long, Key), Long](_._1).reverse)
+
+  /** @return
+    *   the instant the participation is out of time as expressed in the (DST adjusted) time of the examination room
+    */
+  def getTimeLimit(participation: ExamParticipation): DateTime =
+    val start = Option(participation.getReservation) match
+      case Some(reservation) => reservation.getStartAt
+      case None              => participation.getExaminationEvent.getStart
+    new DateTime(start).plusMinutes(participation.getExam.getDuration)
+
+  /** @return
+    *   current time as expressed in the (DST adjusted) time of the examination room
+    */
+  def getNow(participation: ExamParticipation): DateTime =
+    if Option(participation.getExaminationEvent).nonEmpty then DateTime.now
+    else dateTimeHandler.adjustDST(DateTime.now, participation.getReservation.getMachine.getRoom)
+
+  def registerParticipation(participation: ExamParticipation): Unit =
+    // Participations that are not bound to a reservation or examination event have no deadline
+    if Option(participation.getReservation).nonEmpty || Option(participation.getExaminationEvent).nonEmpty then
+      val offset = getOffset(getNow(participation))
+      register(Key.Local(participation.getId), getTimeLimit(participation).minus(offset))
+
+  def registerExternal(enrolment: ExamEnrolment, duration: Int): Unit =
+    val reservation = enrolment.getReservation
+    val limit       = new DateTime(reservation.getStartAt).plusMinutes(duration)
+    val offset      = getOffset(dateTimeHandler.adjustDST(DateTime.now, reservation.getMachine.getRoom))
+    register(Key.External(enrolment.getId), limit.minus(offset))
+
+  def remove(key: Key): Unit = synchronized(deadlines.remove(key))
+
+  /** Drops the deadline of a participation the student has turned in or aborted. */
+  def removeParticipation(participationId: Long): Unit = remove(Key.Local(participationId))
+
+  /** Drops the deadline of an external exam the student has turned in or aborted. */
+  def removeExternal(enrolmentId: Long): Unit = remove(Key.External(enrolmentId))
+
+  def keys: Set[Key] = synchronized(deadlines.keySet.toSet)
+
+  def size: Int = synchronized(deadlines.size)
+
+  /** Removes and returns the keys whose deadline has passed by the given instant. */
+  def pollDue(now: DateTime): Seq[Key] = synchronized {
+    val due = mutable.ListBuffer[Key]()
+    while queue.nonEmpty && queue.head._1 <= now.getMillis do
+      val (at, key) = queue.dequeue()
+      if deadlines.get(key).contains(at) then
+        deadlines.remove(key)
+        due += key
+    due.toSeq
+  }
+
+  private def register(key: Key, deadline: DateTime): Unit = synchronized {
+    val at = deadline.getMillis
+    if !deadlines.get(key).contains(at) then
+      deadlines.put(key, at)
+      queue.enqueue((at, key))
+      logger.debug(s"Registered deadline $deadline for $key")
+  }
+
+  // Amount of DST adjustment in room time, needs to be stripped off so that limits of rooms in different time zones
+  // are comparable. Adjustments are in whole hours so rounding away the time spent in between is safe.
+  private def getOffset(adjustedNow: DateTime): Long =
+    val hour = 60 * 60 * 1000L
+    Math.round((adjustedNow.getMillis - DateTime.now.getMillis).toDouble / hour) * hour
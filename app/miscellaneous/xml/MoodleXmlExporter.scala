@@ -6,5 +6,8 @@ package miscellaneous.xml
 
 import models.questions.Question
 
+import java.io.OutputStream
+
 trait MoodleXmlExporter:
-  def convert(questions: Seq[Question]): String
+  /** Writes given questions as a Moodle XML quiz, questions are consumed and written one at a time */
+  def write(questions: Iterator[Question], out: OutputStream): Unit
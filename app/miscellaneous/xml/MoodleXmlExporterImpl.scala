@@ -6,91 +6,128 @@ package miscellaneous.xml
 
 import models.questions.{MultipleChoiceOption, Question, Tag}
 import org.jsoup.Jsoup
+import play.api.Logging
 
-import java.io.File
+import java.io.{File, OutputStream}
+import java.nio.charset.StandardCharsets
 import java.nio.file.Files
 import java.util.Base64
-import scala.io.Source
+import javax.xml.stream.{XMLOutputFactory, XMLStreamWriter}
 import scala.jdk.CollectionConverters._
-import scala.xml._
-import scala.xml.parsing.ConstructingParser
+import scala.util.Using
 
-class MoodleXmlExporterImpl extends MoodleXmlExporter:
+class MoodleXmlExporterImpl extends MoodleXmlExporter with Logging:
+
+  private val outputFactory = XMLOutputFactory.newInstance()
+
+  // Indents the document as it is written, elements with child elements get their end tags on lines of their own
+  private class Writer(w: XMLStreamWriter):
+    private var depth = 0
+
+    private def indent(): Unit = w.writeCharacters("\n" + "    " * depth)
+
+    private def start(name: String, attributes: Seq[(String, String)]): Unit =
+      indent()
+      w.writeStartElement(name)
+      attributes.foreach((k, v) => w.writeAttribute(k, v))
+
+    def element(name: String, attributes: (String, String)*)(children: => Unit): Unit =
+      start(name, attributes)
+      depth += 1
+      children
+      depth -= 1
+      indent()
+      w.writeEndElement()
+
+    def leaf(name: String, attributes: (String, String)*)(content: => Unit): Unit =
+      start(name, attributes)
+      content
+      w.writeEndElement()
+
+    def text(name: String, value: String): Unit = leaf(name)(w.writeCharacters(value))
+
+    def characters(value: String): Unit = w.writeCharacters(value)
+
+    // A CDATA section cannot contain its own terminator, such text is split across sections
+    def cdata(value: String): Unit =
+      val parts = value.split("]]>", -1)
+      parts.zipWithIndex.foreach((part, i) =>
+        val head = if i == 0 then "" else ">"
+        val tail = if i == parts.length - 1 then "" else "]]"
+        w.writeCData(head + part + tail)
+      )
 
   private def moodleType(question: Question): String = question.getType.toString match
     case "EssayQuestion"     => "essay"
     case "ClozeTestQuestion" => "cloze"
     case _                   => "multichoice"
 
-  private def Essay: Node = <answer fraction="0"><text></text></answer>
+  private def writeEssay(w: Writer): Unit =
+    w.element("answer", "fraction" -> "0")(w.text("text", ""))
 
-  private def convertMultiChoiceOption(option: MultipleChoiceOption): Node =
+  private def writeMultiChoiceOption(w: Writer, option: MultipleChoiceOption): Unit =
     val fraction = if option.isCorrectOption then 100 else 0
-    <answer fraction={fraction.toString}>
-        <text>{option.getOption}</text>
-    </answer>
-
-  private def convertWeightedMultiChoiceOption(
-      option: MultipleChoiceOption,
-      maxScore: Double
-  ): Node =
+    w.element("answer", "fraction" -> fraction.toString)(w.text("text", option.getOption))
+
+  private def writeWeightedMultiChoiceOption(w: Writer, option: MultipleChoiceOption, maxScore: Double): Unit =
     val fraction = option.getDefaultScore / maxScore * 100
-    <answer fraction={fraction.toString}>
-        <text>{option.getOption}</text>
-    </answer>
+    w.element("answer", "fraction" -> fraction.toString)(w.text("text", option.getOption))
+
+  private def writeMultiChoiceConfig(w: Writer, single: Boolean): Unit =
+    w.text("shuffleanswers", "1")
+    w.text("single", single.toString)
+    w.text("answernumbering", "none")
 
-  private def convertByType(question: Question): NodeBuffer = question.getType.toString match
+  private def writeByType(w: Writer, question: Question): Unit = question.getType.toString match
     case "MultipleChoiceQuestion" =>
-      val config =
-        <shuffleanswers>1</shuffleanswers>
-        <single>true</single>
-        <answernumbering>none</answernumbering>
-      val options = question.getOptions.asScala.map(convertMultiChoiceOption)
-      config ++= options
+      writeMultiChoiceConfig(w, single = true)
+      question.getOptions.asScala.foreach(writeMultiChoiceOption(w, _))
     case "WeightedMultipleChoiceQuestion" =>
-      val config =
-        <shuffleanswers>1</shuffleanswers>
-        <single>false</single>
-        <answernumbering>none</answernumbering>
-      val options =
-        question.getOptions.asScala.map(o => convertWeightedMultiChoiceOption(o, question.getMaxDefaultScore))
-      config ++= options
+      writeMultiChoiceConfig(w, single = false)
+      question.getOptions.asScala.foreach(o => writeWeightedMultiChoiceOption(w, o, question.getMaxDefaultScore))
     case "EssayQuestion" =>
       val criteria = question.getDefaultEvaluationCriteria match
-        case ec if isEmpty(ec) => PCData("")
-        case ec                => PCData(ec)
-      val config =
-        <graderinfo format="html">
-          <text>
-            {criteria}
-          </text>
-        </graderinfo>
-        <attachments>1</attachments>
-      config ++= Essay
+        case ec if isEmpty(ec) => ""
+        case ec                => ec
+      w.element("graderinfo", "format" -> "html")(w.leaf("text")(w.cdata(criteria)))
+      w.text("attachments", "1")
+      writeEssay(w)
+    case _ => ()
 
   private def stripHtml(html: String): String = Jsoup.parse(html).text
 
   private def isEmpty(x: String) = x == null || x.isEmpty
 
-  private def convert(tag: Tag): Node = <tag><text>{tag.getName}</text></tag>
+  private def writeTag(w: Writer, tag: Tag): Unit = w.element("tag")(w.text("text", tag.getName))
 
   private def maxScore(question: Question): Double =
     if question.getDefaultEvaluationType == Question.EvaluationType.Selection then 1
     else question.getMaxDefaultScore()
 
-  private def attachment(question: Question): Option[(String, Node)] =
-    question.getAttachment match
-      case null => None
-      case a =>
-        val file     = new File(a.getFilePath)
-        val data     = Files.readAllBytes(file.toPath)
-        val b64      = Base64.getEncoder.encodeToString(data)
-        val filename = a.getFileName
-        val ref =
-          s"""<br />Attachment: <a href="@@PLUGINFILE@@/$filename">${filename.toUpperCase}</a>"""
-        Some(ref, <file name={a.getFileName} path="/" encoding="base64">{b64}</file>)
-
-  private def convert(question: Question): Node =
+  private def attachment(question: Question): Option[File] =
+    Option(question.getAttachment).flatMap { a =>
+      val file = new File(a.getFilePath)
+      if file.exists then Some(file)
+      else
+        logger.warn(s"Attachment ${a.getId} is not connected to a file on disk, leaving it out of the export")
+        None
+    }
+
+  // The file is encoded in chunks as it is read, chunk size being a multiple of three keeps the output contiguous
+  private def writeFile(w: Writer, name: String, file: File): Unit =
+    w.leaf("file", "name" -> name, "path" -> "/", "encoding" -> "base64") {
+      val encoder = Base64.getEncoder
+      Using.resource(Files.newInputStream(file.toPath)) { in =>
+        val buffer = new Array[Byte](3 * 1024)
+        var count  = in.readNBytes(buffer, 0, buffer.length)
+        while count > 0 do
+          val data = if count == buffer.length then buffer else buffer.take(count)
+          w.characters(new String(encoder.encode(data), StandardCharsets.US_ASCII))
+          count = in.readNBytes(buffer, 0, buffer.length)
+      }
+    }
+
+  private def writeQuestion(w: Writer, question: Question): Unit =
     val text = question.getQuestion.replace(" class=\"math-tex\"", "")
     val instructions = question.getDefaultAnswerInstructions match
       case i if isEmpty(i) => ""
@@ -98,38 +135,32 @@ class MoodleXmlExporterImpl extends MoodleXmlExporter:
     val wc = question.getDefaultExpectedWordCount match
       case null => ""
       case c    => s"<br /> Expected word count: $c"
-    val att          = attachment(question)
-    val ref          = att.map(_._1).getOrElse("")
+    val file = attachment(question)
+    val ref = file
+      .map(_ =>
+        val filename = question.getAttachment.getFileName
+        s"""<br />Attachment: <a href="@@PLUGINFILE@@/$filename">${filename.toUpperCase}</a>"""
+      )
+      .getOrElse("")
     val questionText = s"$text $instructions $wc $ref"
     val name         = stripHtml(text)
-    <question type={moodleType(question)}>
-        <name>
-            <text>{name.take(30)}...</text>
-        </name>
-        <questiontext format="html">
-            <text>
-                {PCData(questionText)}
-            </text>
-            {att.map(_._2).getOrElse("")}
-        </questiontext>
-        <defaultgrade>{maxScore(question)}</defaultgrade>
-        <tags>
-            {question.getTags.asScala.map(convert)}
-        </tags>
-        {convertByType(question)}
-    </question>
-
-  def convert(questions: Seq[Question]): String =
-    val quiz: Node =
-      <quiz>
-          {questions.map(convert)}
-      </quiz>
-    val pp = new PrettyPrinter(80, 4)
-    val doc = ConstructingParser
-      .fromSource(Source.fromString(pp.format(quiz)), preserveWS = true)
-      .document()
-      .docElem
-    val writer = new java.io.StringWriter
-    XML.write(writer, doc, "utf-8", xmlDecl = true, doctype = null)
-    writer.close()
-    writer.toString
+    w.element("question", "type" -> moodleType(question)) {
+      w.element("name")(w.text("text", s"${name.take(30)}..."))
+      w.element("questiontext", "format" -> "html") {
+        w.leaf("text")(w.cdata(questionText))
+        file.foreach(writeFile(w, question.getAttachment.getFileName, _))
+      }
+      w.text("defaultgrade", maxScore(question).toString)
+      w.element("tags")(question.getTags.asScala.foreach(writeTag(w, _)))
+      writeByType(w, question)
+    }
+
+  override def write(questions: Iterator[Question], out: OutputStream): Unit =
+    val xml = outputFactory.createXMLStreamWriter(out, "UTF-8")
+    val w   = new Writer(xml)
+    xml.writeStartDocument("UTF-8", "1.0")
+    w.element("quiz")(questions.foreach(writeQuestion(w, _)))
+    xml.writeEndDocument()
+    // Closing the writer leaves the underlying stream open
+    xml.close()
+    out.flush()
@@ -7,6 +7,8 @@ package miscellaneous.xml
 import models.questions.Question
 import models.user.User
 
+import java.io.InputStream
+
 trait MoodleXmlImporter:
   case class ConversionResult(
       question: Option[Question] = None,
@@ -14,4 +16,5 @@ trait MoodleXmlImporter:
       questionType: Option[String] = None
   )
 
-  def convert(questions: String, user: User): (Seq[Question], Seq[ConversionResult])
+  /** Reads questions from given Moodle XML document and saves them in batches as they are read */
+  def convert(source: InputStream, user: User): (Seq[Question], Seq[ConversionResult])
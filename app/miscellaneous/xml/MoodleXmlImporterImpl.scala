@@ -16,10 +16,13 @@ import org.jsoup.Jsoup
 import org.jsoup.nodes.{Element, TextNode}
 import play.api.Logging
 
-import java.io.{BufferedOutputStream, File}
+import java.io.{BufferedOutputStream, File, InputStream}
 import java.nio.file.{Files, Path}
 import java.util.Base64
 import javax.inject.Inject
+import javax.xml.stream.{XMLInputFactory, XMLStreamConstants, XMLStreamReader}
+import scala.collection.mutable
+import scala.util.{Failure, Success, Try, Using}
 import scala.xml.*
 
 class MoodleXmlImporterImpl @Inject() (fileHandler: FileHandler)
@@ -30,39 +33,61 @@ class MoodleXmlImporterImpl @Inject() (fileHandler: FileHandler)
   import scala.jdk.CollectionConverters.*
   import scala.jdk.StreamConverters.*
 
-  private def tags(src: Node, user: User): Seq[Tag] =
-    (src \\ "tag" \ "text")
-      .map(node =>
-        DB
-          .find(classOf[Tag])
-          .where
-          .eq("name", node.text)
-          .eq("creator", user)
-          .list match
-          case h :: _ => h
-          case _ =>
+  // Questions persisted per transaction
+  private val BatchSize = 50
+
+  private val inputFactory =
+    val factory = XMLInputFactory.newInstance()
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false)
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false)
+    factory
+
+  // (content type, temporary file, file name)
+  private type Upload = (String, Path, String)
+
+  private case class Converted(src: Node, question: Question, files: Seq[Upload], questionType: String)
+
+  // Tags of the importing user by name, tags created during the import are shared by the questions referring to them
+  private class TagIndex(user: User):
+    private val tags =
+      mutable.Map.from(DB.find(classOf[Tag]).where.eq("creator", user).list.map(t => t.getName -> t))
+    private val created = mutable.Buffer.empty[Tag]
+
+    def get(name: String): Tag =
+      val normalized = name.toLowerCase.take(32) // max tag length in exam
+      tags.getOrElse(
+        name,
+        tags.getOrElseUpdate(
+          normalized, {
             val t = new Tag
-            t.setName(node.text.toLowerCase.take(32)) // max tag length in exam
+            t.setName(normalized)
             t.setCreator(user)
+            created += t
             t
+          }
+        )
       )
 
+    def uncommitted: Seq[Tag] = created.toSeq
+
+    def mark: Int = created.size
+
+    def commit(): Unit = created.clear()
+
+    // Tags created since given mark are not in the database, later questions need to get new ones
+    def rollback(mark: Int = 0): Unit =
+      created.drop(mark).foreach(t => tags.remove(t.getName))
+      created.remove(mark, created.size - mark)
+
+  private def tags(src: Node, index: TagIndex): Seq[Tag] =
+    (src \\ "tag" \ "text").map(node => index.get(node.text)).distinct
+
   private def copyFile(srcFile: Path, id: Long) =
     val newFilePath = fileHandler.createFilePath("question", id.toString)
     fileHandler.copyFile(srcFile, new File(newFilePath))
     newFilePath
 
-  private def files(src: Node) =
-    (src \\ "file").map(n =>
-      val (name, data) = (n \@ "name", n.text)
-      val bytes        = Base64.getDecoder.decode(data)
-      val ct           = Files.probeContentType(Path.of(name))
-      val file         = Files.createTempFile("moodle-attachment", ".tmp")
-      Files.write(file, bytes)
-      (ct, file, name)
-    )
-
-  private def zip(files: Seq[(String, Path, String)]) =
+  private def zip(files: Seq[Upload]) =
     val tarball = File.createTempFile("moodle-attachments", ".tar.gz").toPath
     val out     = Files.newOutputStream(tarball)
     val bufOut  = new BufferedOutputStream(out)
@@ -81,12 +106,13 @@ class MoodleXmlImporterImpl @Inject() (fileHandler: FileHandler)
     aos.close()
     ("application/gzip", tarball, "attachments.tar.gz")
 
-  private def attachment(src: Node, id: Long): Option[Attachment] =
-    files(src) match
+  private def attachment(files: Seq[Upload], id: Long): Option[Attachment] =
+    files match
       case Nil => None
-      case files =>
+      case _ =>
         val (ct, path, name) = if files.length > 1 then zip(files) else files.head
         val newFilePath      = copyFile(path, id)
+        if files.length > 1 then Files.deleteIfExists(path)
         Some(fileHandler.createNew(name, ct, newFilePath))
 
   private def parseFileName(el: Element, attr: String): String =
@@ -119,7 +145,7 @@ class MoodleXmlImporterImpl @Inject() (fileHandler: FileHandler)
     val htmlTagPattern = """<[^>]+>""".r
     htmlTagPattern.findFirstIn(text).isDefined
 
-  private def convertCommon(src: Node, user: User, mode: String): Question =
+  private def convertCommon(src: Node, user: User, tagIndex: TagIndex, mode: String): Question =
     val srcText  = src \ "questiontext"
     val format   = srcText.head.attribute("format").get.text
     val textNode = srcText \ "text"
@@ -128,7 +154,7 @@ class MoodleXmlImporterImpl @Inject() (fileHandler: FileHandler)
       case _                               => "<p>" + textNode.text + "</p>"
     val question = new Question
     question.setQuestion(stripAttachmentTags(questionText))
-    question.setTags(tags(src, user).asJava)
+    question.setTags(tags(src, tagIndex).asJava)
     question.setCreatorWithDate(user)
     question.setModifierWithDate(user)
     question.setQuestionOwners(Set(user).asJava)
@@ -138,26 +164,20 @@ class MoodleXmlImporterImpl @Inject() (fileHandler: FileHandler)
       case "weighted-multichoice" => Question.Type.WeightedMultipleChoiceQuestion
     question.setType(questionType)
     question.setState("SAVED")
-    question.save()
-    attachment(src, question.getId()) match
-      case Some(a) =>
-        question.setAttachment(a)
-        question.save()
-        question
-      case None => question
-
-  private def convertEssay(src: Node, user: User): Question =
-    val question = convertCommon(src, user, mode = "essay")
+    question
+
+  private def convertEssay(src: Node, user: User, tagIndex: TagIndex): Question =
+    val question = convertCommon(src, user, tagIndex, mode = "essay")
     val score    = (src \ "defaultgrade").text.toDouble
     question.setDefaultMaxScore(score)
     question.setDefaultEvaluationType(Question.EvaluationType.Points)
-    question.update()
     question
 
+  // Options written by our own export carry no format
   private def optionText(src: Node): String =
-    src.attribute("format").get.text match
-      case "html" => Jsoup.parse((src \ "text").text).text()
-      case _      => (src \ "text").text
+    src.attribute("format").map(_.text) match
+      case Some("html") => Jsoup.parse((src \ "text").text).text()
+      case _            => (src \ "text").text
 
   private def convertOption(src: Node): MultipleChoiceOption =
     val isCorrect = src.attribute("fraction").get.text.toDouble == 100d
@@ -185,44 +205,156 @@ class MoodleXmlImporterImpl @Inject() (fileHandler: FileHandler)
       o
     )
     question.setOptions(checkedOptions.asJava)
-    question.save()
-    question.getOptions.forEach(_.save())
     question
 
   private def convertWeightedMultiChoice(src: Node, question: Question): Question =
     val maxScore = (src \ "defaultgrade").text.toDouble
     val options  = (src \ "answer").map(node => convertWeightedOption(node, maxScore))
     question.setOptions(options.asJava)
-    question.save()
-    question.getOptions.forEach(_.save())
     question
 
-  private def convertMultiChoice(src: Node, user: User): Question =
+  private def convertMultiChoice(src: Node, user: User, tagIndex: TagIndex): Question =
     src \ "single" match
       case s if s.nonEmpty && s.text == "true" =>
-        val question = convertCommon(src, user, mode = "multichoice")
+        val question = convertCommon(src, user, tagIndex, mode = "multichoice")
         convertNonWeightedMultiChoice(src, question)
       case _ =>
-        val question = convertCommon(src, user, mode = "weighted-multichoice")
+        val question = convertCommon(src, user, tagIndex, mode = "weighted-multichoice")
         convertWeightedMultiChoice(src, question)
 
-  private def convertQuestion(src: Node, user: User): ConversionResult =
-    try {
+  private def convertQuestion(src: Node, user: User, tagIndex: TagIndex): Either[ConversionResult, Question] =
+    // Tags created for a question that can not be converted are not to be saved
+    val mark = tagIndex.mark
+    val result = try {
       src.attribute("type").get.text match
-        case "essay"       => ConversionResult(Some(convertEssay(src, user)), None, Some("essay"))
-        case "multichoice" => ConversionResult(Some(convertMultiChoice(src, user)), None, Some("multichoice"))
+        case "essay"       => Right(convertEssay(src, user, tagIndex))
+        case "multichoice" => Right(convertMultiChoice(src, user, tagIndex))
         case "category" => // some moodle oddity
           logger.debug("Skipping question of type \"category\" (not a question)")
-          ConversionResult(None, None, Some("category"))
+          Left(ConversionResult(None, None, Some("category")))
         case t =>
           logger.warn(s"unknown question type: $t")
-          ConversionResult(None, Some(s"Unknown question type: $t"), Some(t))
+          Left(ConversionResult(None, Some(s"Unknown question type: $t"), Some(t)))
     } catch {
       case e: Exception =>
         logger.error(s"Error converting question: ${e.getMessage}", e)
-        ConversionResult(None, Some(e.getMessage), src.attribute("type").map(_.text))
+        Left(ConversionResult(None, Some(e.getMessage), src.attribute("type").map(_.text)))
+    }
+    if result.isLeft then tagIndex.rollback(mark)
+    result
+
+  // Attachments and new tags go first so that the questions referring to them can be inserted in the same batches
+  private def persist(batch: Seq[Converted], tagIndex: TagIndex): Try[Seq[ConversionResult]] =
+    val copied = mutable.Buffer.empty[String]
+    Try {
+      Using.resource(DB.beginTransaction()) { tx =>
+        tx.setBatchMode(true)
+        tx.setBatchSize(BatchSize)
+        tagIndex.uncommitted.foreach(_.save())
+        batch.foreach { c =>
+          c.question.generateId()
+          attachment(c.files, c.question.getId).foreach { a =>
+            copied += a.getFilePath
+            c.question.setAttachment(a)
+          }
+        }
+        tx.flush()
+        batch.foreach(_.question.save())
+        tx.commit()
+      }
+      tagIndex.commit()
+      batch.map(c => ConversionResult(Some(c.question), None, Some(c.questionType)))
+    }.recoverWith { case e =>
+      logger.error(s"Error saving imported questions: ${e.getMessage}", e)
+      copied.foreach(fileHandler.removeAttachmentFile)
+      tagIndex.rollback()
+      Failure(e)
+    }
+
+  // A failed batch is saved again one question at a time, so that a single bad question does not fail the others
+  private def save(batch: Seq[Converted], user: User, tagIndex: TagIndex): Seq[ConversionResult] =
+    try
+      persist(batch, tagIndex) match
+        case Success(results) => results
+        case Failure(e) if batch.size == 1 =>
+          Seq(ConversionResult(None, Some(e.getMessage), Some(batch.head.questionType)))
+        case Failure(_) =>
+          // Beans of a rolled back transaction can not be saved again, the questions are converted anew
+          batch.flatMap { c =>
+            convertQuestion(c.src, user, tagIndex) match
+              case Right(question) => save(Seq(c.copy(question = question)), user, tagIndex)
+              case Left(result)    => Seq(result)
+          }
+    finally batch.flatMap(_.files).foreach(f => Files.deleteIfExists(f._2))
+
+  // Decodes the base64 content of a <file> element into a temporary file as it is read
+  private def readFile(reader: XMLStreamReader): Upload =
+    val name    = reader.getAttributeValue(null, "name")
+    val file    = Files.createTempFile("moodle-attachment", ".tmp")
+    val decoder = Base64.getDecoder
+    Using.resource(Files.newOutputStream(file)) { out =>
+      val pending = new java.lang.StringBuilder
+      val chunk   = new Array[Char](8192)
+      // Only whole groups of four characters can be decoded on their own
+      def decode(count: Int): Unit =
+        out.write(decoder.decode(pending.substring(0, count)))
+        pending.delete(0, count)
+      while reader.next() != XMLStreamConstants.END_ELEMENT do
+        if reader.isCharacters || reader.getEventType == XMLStreamConstants.CDATA then
+          var offset = 0
+          while offset < reader.getTextLength do
+            val count = reader.getTextCharacters(offset, chunk, 0, chunk.length)
+            for (i <- 0 until count if !Character.isWhitespace(chunk(i))) pending.append(chunk(i))
+            offset += count
+            if pending.length >= chunk.length then decode(pending.length - pending.length % 4)
+      decode(pending.length)
+    }
+    (Files.probeContentType(Path.of(name)), file, name)
+
+  // Builds the element the reader is positioned at, embedded files are written to disk instead of kept in the tree
+  private def readElement(reader: XMLStreamReader, files: mutable.Buffer[Upload]): Elem =
+    val label = reader.getLocalName
+    val attributes = (0 until reader.getAttributeCount).foldRight[MetaData](Null) { (i, next) =>
+      new UnprefixedAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i), next)
     }
+    val children = mutable.Buffer.empty[Node]
+    while reader.next() != XMLStreamConstants.END_ELEMENT do
+      reader.getEventType match
+        case XMLStreamConstants.START_ELEMENT if reader.getLocalName == "file" => files += readFile(reader)
+        case XMLStreamConstants.START_ELEMENT                                  => children += readElement(reader, files)
+        case XMLStreamConstants.CDATA                                          => children += PCData(reader.getText)
+        case XMLStreamConstants.CHARACTERS | XMLStreamConstants.SPACE          => children += Text(reader.getText)
+        case _                                                                 => ()
+    Elem(null, label, attributes, TopScope, true, children.toSeq*)
 
-  override def convert(data: String, user: User): (Seq[Question], Seq[ConversionResult]) =
-    val results = (XML.loadString(data) \ "question").map(convertQuestion(_, user))
-    (results.flatMap(_.question), results.filter(_.error.isDefined))
+  override def convert(source: InputStream, user: User): (Seq[Question], Seq[ConversionResult]) =
+    val tagIndex = new TagIndex(user)
+    val results  = mutable.Buffer.empty[ConversionResult]
+    val batch    = mutable.Buffer.empty[Converted]
+    def flush(): Unit =
+      if batch.nonEmpty then
+        results ++= save(batch.toSeq, user, tagIndex)
+        batch.clear()
+        logger.info(s"Imported ${results.count(_.question.isDefined)} questions from Moodle XML")
+    val reader = inputFactory.createXMLStreamReader(source)
+    try
+      var depth = 0
+      while reader.hasNext do
+        reader.next() match
+          // Questions are the direct children of the root element
+          case XMLStreamConstants.START_ELEMENT if depth == 1 && reader.getLocalName == "question" =>
+            val files = mutable.Buffer.empty[Upload]
+            val src   = readElement(reader, files)
+            convertQuestion(src, user, tagIndex) match
+              case Right(question) =>
+                batch += Converted(src, question, files.toSeq, src \@ "type")
+                if batch.size >= BatchSize then flush()
+              case Left(result) =>
+                files.foreach(f => Files.deleteIfExists(f._2))
+                results += result
+          case XMLStreamConstants.START_ELEMENT => depth += 1
+          case XMLStreamConstants.END_ELEMENT   => depth -= 1
+          case _                                => ()
+      flush()
+    finally reader.close()
+    (results.flatMap(_.question).toSeq, results.filter(_.error.isDefined).toSeq)
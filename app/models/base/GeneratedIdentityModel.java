@@ -4,6 +4,7 @@
 
 package models.base;
 
+import io.ebean.DB;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -23,4 +24,12 @@ public abstract class GeneratedIdentityModel extends VersionedModel {
     public void setId(Long id) {
         this.id = id;
     }
+
+    /**
+     * Takes an id for a new bean from its sequence without inserting it, for beans that need to be told apart in id
+     * based sets before they get saved. Ebean fetches sequence values in ranges, so this is usually not a round trip.
+     */
+    public void generateId() {
+        id = (Long) DB.nextId(getClass());
+    }
 }
@@ -5,6 +5,7 @@
 package models.enrolment;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import jakarta.persistence.CascadeType;
@@ -16,6 +17,7 @@ import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToOne;
 import jakarta.persistence.Temporal;
 import jakarta.persistence.TemporalType;
+import java.util.Objects;
 import java.util.Random;
 import java.util.Set;
 import javax.annotation.Nonnull;
@@ -57,6 +59,11 @@ public class ExamEnrolment extends GeneratedIdentityModel implements Comparable<
     @ManyToOne
     private ExaminationEventConfiguration examinationEventConfiguration;
 
+    // Student exam copied ahead of the start, becomes the exam of this enrolment once the student starts it
+    @OneToOne
+    @JsonIgnore
+    private Exam preparedExam;
+
     @ManyToMany(cascade = CascadeType.ALL)
     @JoinTable(
         name = "exam_enrolment_optional_exam_section",
@@ -126,6 +133,10 @@ public class ExamEnrolment extends GeneratedIdentityModel implements Comparable<
     }
 
     public void setReservation(Reservation reservation) {
+        if (!Objects.equals(this.reservation, reservation)) {
+            // Prepared exam was copied for the previous reservation
+            preparedExam = null;
+        }
         this.reservation = reservation;
     }
 
@@ -134,6 +145,9 @@ public class ExamEnrolment extends GeneratedIdentityModel implements Comparable<
     }
 
     public void setExaminationEventConfiguration(ExaminationEventConfiguration examinationEventConfiguration) {
+        if (!Objects.equals(this.examinationEventConfiguration, examinationEventConfiguration)) {
+            preparedExam = null;
+        }
         this.examinationEventConfiguration = examinationEventConfiguration;
     }
 
@@ -142,9 +156,19 @@ public class ExamEnrolment extends GeneratedIdentityModel implements Comparable<
     }
 
     public void setOptionalSections(Set<ExamSection> optionalSections) {
+        // Section selection is part of the copy
+        preparedExam = null;
         this.optionalSections = optionalSections;
     }
 
+    public Exam getPreparedExam() {
+        return preparedExam;
+    }
+
+    public void setPreparedExam(Exam preparedExam) {
+        this.preparedExam = preparedExam;
+    }
+
     public String getInformation() {
         return information;
     }
@@ -5,6 +5,7 @@
 package models.exam;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import controllers.exam.copy.ExamCopyContext;
@@ -294,19 +295,20 @@ public class Exam extends OwnedModel implements Comparable<Exam>, AttachmentCont
         this.examinationEventConfigurations = examinationEventConfigurations;
     }
 
-    // Aggregate properties, required as fields by Ebean
-    @Transient
+    // Aggregate properties, required as fields by Ebean. Stored along with the section scores by updateScores, only
+    // up to date if scoresUpdated is set.
     private Double totalScore;
 
-    @Transient
     private Double maxScore;
 
-    @Transient
     private int rejectedAnswerCount;
 
-    @Transient
     private int approvedAnswerCount;
 
+    @Temporal(TemporalType.TIMESTAMP)
+    @JsonIgnore
+    private DateTime scoresUpdated;
+
     @Transient
     private boolean cloned;
 
@@ -320,20 +322,37 @@ public class Exam extends OwnedModel implements Comparable<Exam>, AttachmentCont
         return Double.parseDouble(df.format(val));
     }
 
+    // Stored values are used when up to date, so that the question graph does not need to be loaded for them
     public Double getTotalScore() {
+        return hasScores() ? totalScore : calculateTotalScore();
+    }
+
+    public Double getMaxScore() {
+        return hasScores() ? maxScore : calculateMaxScore();
+    }
+
+    private int getApprovedAnswerCount() {
+        return hasScores() ? approvedAnswerCount : calculateApprovedAnswerCount();
+    }
+
+    private int getRejectedAnswerCount() {
+        return hasScores() ? rejectedAnswerCount : calculateRejectedAnswerCount();
+    }
+
+    private double calculateTotalScore() {
         double totalScore = toFixed(examSections.stream().map(ExamSection::getTotalScore).reduce(0.0, Double::sum));
         return Math.max(totalScore, 0.0);
     }
 
-    public Double getMaxScore() {
+    private double calculateMaxScore() {
         return toFixed(examSections.stream().map(ExamSection::getMaxScore).reduce(0.0, Double::sum));
     }
 
-    private int getApprovedAnswerCount() {
+    private int calculateApprovedAnswerCount() {
         return examSections.stream().map(ExamSection::getApprovedCount).reduce(0, Integer::sum);
     }
 
-    private int getRejectedAnswerCount() {
+    private int calculateRejectedAnswerCount() {
         return examSections.stream().map(ExamSection::getRejectedCount).reduce(0, Integer::sum);
     }
 
@@ -354,6 +373,58 @@ public class Exam extends OwnedModel implements Comparable<Exam>, AttachmentCont
         approvedAnswerCount = getApprovedAnswerCount();
     }
 
+    /**
+     * Stores the aggregate scores of this exam and its sections as calculated from the section questions.
+     *
+     * @return whether any of the stored scores changed
+     */
+    public boolean updateScores() {
+        boolean changed = examSections.stream().map(ExamSection::updateScores).reduce(false, Boolean::logicalOr);
+        double total = calculateTotalScore();
+        double max = calculateMaxScore();
+        int approved = calculateApprovedAnswerCount();
+        int rejected = calculateRejectedAnswerCount();
+        changed |=
+            totalScore == null ||
+            maxScore == null ||
+            total != totalScore ||
+            max != maxScore ||
+            approved != approvedAnswerCount ||
+            rejected != rejectedAnswerCount;
+        totalScore = total;
+        maxScore = max;
+        approvedAnswerCount = approved;
+        rejectedAnswerCount = rejected;
+        scoresUpdated = DateTime.now();
+        return changed;
+    }
+
+    /**
+     * Stores the aggregate scores of this exam as summed up from the stored section scores.
+     */
+    public void updateScores(double sectionTotal, double sectionMax, int approved, int rejected) {
+        totalScore = Math.max(toFixed(sectionTotal), 0.0);
+        maxScore = toFixed(sectionMax);
+        approvedAnswerCount = approved;
+        rejectedAnswerCount = rejected;
+        scoresUpdated = DateTime.now();
+    }
+
+    /**
+     * @return whether the stored aggregate scores are up to date
+     */
+    public boolean hasScores() {
+        return scoresUpdated != null;
+    }
+
+    public DateTime getScoresUpdated() {
+        return scoresUpdated;
+    }
+
+    public void setScoresUpdated(DateTime scoresUpdated) {
+        this.scoresUpdated = scoresUpdated;
+    }
+
     public boolean isCloned() {
         return cloned;
     }
@@ -656,23 +727,28 @@ public class Exam extends OwnedModel implements Comparable<Exam>, AttachmentCont
             "autoEvaluationConfig",
             "creator",
             "created",
+            "scoresUpdated",
             context.shouldExcludeExamOwners() ? "examOwners" : "none"
         );
 
         if (context.shouldSetParent()) {
             clone.setParent(this);
         }
+        if (context.isStudentExam()) {
+            clone.setState(State.INITIALIZED);
+        }
 
         clone.setCreatorWithDate(context.getUser());
         clone.setModifierWithDate(context.getUser());
         clone.generateHash();
-        clone.save();
+
+        // The copy is built in memory and inserted with a single cascading save at the end, so that a transaction in
+        // batch mode can group the inserts by table. Beans that go into id based sets get their ids up front.
 
         // Copy auto-evaluation config
         if (autoEvaluationConfig != null) {
             AutoEvaluationConfig configClone = autoEvaluationConfig.copy();
             configClone.setExam(clone);
-            configClone.save();
             clone.setAutoEvaluationConfig(configClone);
         }
 
@@ -681,7 +757,8 @@ public class Exam extends OwnedModel implements Comparable<Exam>, AttachmentCont
             ExamInspection inspection = new ExamInspection();
             BeanUtils.copyProperties(ei, inspection, "id", "exam");
             inspection.setExam(clone);
-            inspection.save();
+            inspection.generateId();
+            clone.getExamInspections().add(inspection);
         }
 
         // Select sections to copy
@@ -690,6 +767,7 @@ public class Exam extends OwnedModel implements Comparable<Exam>, AttachmentCont
         // Copy sections and their content
         for (ExamSection es : sections) {
             ExamSection esCopy = es.copy(clone, context);
+            esCopy.generateId();
             esCopy.setCreatorWithDate(context.getUser());
             esCopy.setModifierWithDate(context.getUser());
 
@@ -698,8 +776,6 @@ public class Exam extends OwnedModel implements Comparable<Exam>, AttachmentCont
                 esCopy.getSectionQuestions().forEach(this::shuffleQuestionOptions);
             }
 
-            esCopy.save();
-
             // Update question metadata for student exams
             if (context.isStudentExam()) {
                 updateQuestionMetadata(esCopy, context.getUser());
@@ -715,12 +791,11 @@ public class Exam extends OwnedModel implements Comparable<Exam>, AttachmentCont
             clone.setAttachment(copy);
         }
 
+        clone.save();
         return clone;
     }
 
     private Set<ExamSection> selectSectionsToCopy(ExamCopyContext context) {
-        var optionality = examSections.stream().map(ExamSection::isOptional).toList();
-        System.out.println(optionality);
         if (context.shouldIncludeOnlySelectedSections()) {
             // For student exams with section selection, only include non-optional sections or selected optional sections
             return examSections
@@ -739,8 +814,6 @@ public class Exam extends OwnedModel implements Comparable<Exam>, AttachmentCont
             Question questionCopy = esq.getQuestion();
             questionCopy.setCreatorWithDate(user);
             questionCopy.setModifierWithDate(user);
-            questionCopy.update();
-            esq.save();
         }
     }
 
@@ -5,10 +5,14 @@
 package models.exam;
 
 import io.ebean.Model;
+import io.ebean.annotation.Cache;
+import io.ebean.annotation.CacheTuning;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 
 @Entity
+@Cache(enableQueryCache = true, naturalKey = "type")
+@CacheTuning(maxSecsToLive = 600)
 public class ExamExecutionType extends Model {
 
     public enum Type {
@@ -4,10 +4,14 @@
 
 package models.exam;
 
+import io.ebean.annotation.Cache;
+import io.ebean.annotation.CacheTuning;
 import jakarta.persistence.Entity;
 import models.base.GeneratedIdentityModel;
 
 @Entity
+@Cache(enableQueryCache = true, naturalKey = "type")
+@CacheTuning(maxSecsToLive = 600)
 public class ExamType extends GeneratedIdentityModel {
 
     private String type;
@@ -6,12 +6,16 @@ package models.exam;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import io.ebean.Model;
+import io.ebean.annotation.Cache;
+import io.ebean.annotation.CacheTuning;
 import io.ebean.annotation.EnumValue;
 import jakarta.persistence.*;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 
 @Entity
+@Cache(enableQueryCache = true)
+@CacheTuning(maxSecsToLive = 600)
 public class Grade extends Model {
 
     public enum Type {
@@ -5,13 +5,18 @@
 package models.exam;
 
 import io.ebean.Model;
+import io.ebean.annotation.Cache;
+import io.ebean.annotation.CacheTuning;
 import jakarta.persistence.*;
 import java.util.Optional;
 import java.util.Set;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 
+// Imported scales are inserted through Ebean, which takes care of invalidation
 @Entity
+@Cache(enableQueryCache = true)
+@CacheTuning(maxSecsToLive = 600)
 public class GradeScale extends Model {
 
     public enum Type {
@@ -5,6 +5,8 @@
 package models.facility;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import io.ebean.annotation.Cache;
+import io.ebean.annotation.CacheTuning;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Entity;
 import jakarta.persistence.ManyToMany;
@@ -12,6 +14,8 @@ import java.util.List;
 import models.base.GeneratedIdentityModel;
 
 @Entity
+@Cache(enableQueryCache = true)
+@CacheTuning(maxSecsToLive = 600)
 public class Accessibility extends GeneratedIdentityModel {
 
     private String name;
@@ -5,6 +5,8 @@
 package models.facility;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import io.ebean.annotation.Cache;
+import io.ebean.annotation.CacheTuning;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Entity;
 import jakarta.persistence.ManyToMany;
@@ -14,6 +16,8 @@ import models.base.GeneratedIdentityModel;
 import models.exam.Exam;
 
 @Entity
+@Cache(enableQueryCache = true)
+@CacheTuning(maxSecsToLive = 600)
 public class Software extends GeneratedIdentityModel {
 
     @ManyToMany(cascade = CascadeType.ALL, mappedBy = "softwareInfo")
@@ -13,12 +13,11 @@ import jakarta.persistence.Transient;
 import java.lang.reflect.Type;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.regex.Pattern;
 import models.base.GeneratedIdentityModel;
 import models.sections.ExamSectionQuestion;
-import org.apache.commons.lang3.math.NumberUtils;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Attribute;
 import org.jsoup.nodes.Document;
@@ -28,9 +27,8 @@ import org.jsoup.select.Elements;
 @Entity
 public class ClozeTestAnswer extends GeneratedIdentityModel {
 
-    private static final String CLOZE_SELECTOR = "span[cloze=true]";
-
-    private static final Pattern SPECIAL_REGEX_CHARS = Pattern.compile("[{}()\\[\\].+?^$\\\\/]");
+    private static final Gson GSON = new Gson();
+    private static final Type ANSWER_TYPE = new TypeToken<Map<String, String>>() {}.getType();
 
     @Column(columnDefinition = "TEXT")
     private String answer;
@@ -66,41 +64,21 @@ public class ClozeTestAnswer extends GeneratedIdentityModel {
 
     // This sets up the question so that it can be displayed to student
     public void setQuestion(ExamSectionQuestion esq) {
-        Document doc = Jsoup.parse(esq.getQuestion().getQuestion());
-        Elements blanks = doc.select(CLOZE_SELECTOR);
-        blanks.forEach(b -> {
-            boolean isNumeric = isNumeric(b);
-            Iterator<Attribute> it = b.attributes().iterator();
-            while (it.hasNext()) {
-                Attribute a = it.next();
-                if (!a.getKey().equals("id")) {
-                    it.remove();
-                }
-            }
-            b.tagName("input");
-            b.text("");
-            b.attr("aria-label", "cloze test answer");
-            b.attr("type", isNumeric ? "number" : "text");
-            b.attr("class", "cloze-input mt-2");
-            if (isNumeric) {
-                b.attr("step", "any");
-                // Hacky, but this should allow for using both comma and period as decimal separator even in Firefox
-                // regardless of browser language.
-                b.attr("lang", "fi");
-            }
-        });
-        this.question = doc.body().children().toString();
+        this.question = ClozeTestTemplate.of(esq.getQuestion().getQuestion()).getStudentView();
     }
 
-    private void setQuestionWithResults(Document doc, String blankAnswerText, boolean showCorrect) {
-        Map<String, String> answers = asMap(new Gson());
-        Elements blanks = doc.select(CLOZE_SELECTOR);
+    private void setQuestionWithResults(String html, String blankAnswerText, boolean showCorrect) {
+        Map<String, String> answers = asMap();
+        // Template has the blanks in the same order as they are found from the document
+        List<ClozeTestTemplate.Blank> templateBlanks = ClozeTestTemplate.of(html).getBlanks();
+        Document doc = Jsoup.parse(html);
+        Elements blanks = doc.select(ClozeTestTemplate.CLOZE_SELECTOR);
         score = new Score();
-        blanks.forEach(b -> {
-            boolean isNumeric = isNumeric(b);
-            String answer = answers.getOrDefault(b.attr("id"), "");
-            boolean isCorrectAnswer = isCorrectAnswer(b, answer);
-            String precision = b.attr("precision");
+        for (int i = 0; i < blanks.size(); i++) {
+            Element b = blanks.get(i);
+            ClozeTestTemplate.Blank blank = templateBlanks.get(i);
+            String answer = answers.getOrDefault(blank.getId(), "");
+            boolean isCorrectAnswer = blank.isCorrect(answer);
             if (isCorrectAnswer) {
                 score.correctAnswers++;
             } else {
@@ -118,48 +96,32 @@ public class ClozeTestAnswer extends GeneratedIdentityModel {
             } else {
                 b.attr("class", "cloze-neutral");
             }
-            if (isNumeric) {
-                b.after("<span class=\"cloze-precision\">[&plusmn;" + precision + "]</span>");
+            if (blank.isNumeric()) {
+                b.after("<span class=\"cloze-precision\">[&plusmn;" + blank.getPrecision() + "]</span>");
             }
-        });
+        }
         this.question = doc.body().children().toString();
     }
 
     // This sets up the question, so it can be displayed for review
     public void setQuestionWithResults(JsonNode esq, String blankAnswerText) {
-        Document doc = Jsoup.parse(esq.get("question").get("question").asText());
-        setQuestionWithResults(doc, blankAnswerText, true);
+        setQuestionWithResults(esq.get("question").get("question").asText(), blankAnswerText, true);
     }
 
     // This sets up the question, so it can be displayed for review
     public void setQuestionWithResults(ExamSectionQuestion esq, String blankAnswerText, boolean showCorrect) {
-        Document doc = Jsoup.parse(esq.getQuestion().getQuestion());
-        setQuestionWithResults(doc, blankAnswerText, showCorrect);
+        setQuestionWithResults(esq.getQuestion().getQuestion(), blankAnswerText, showCorrect);
     }
 
     public Score calculateScore(ExamSectionQuestion esq) {
-        Map<String, String> answers = asMap(new Gson());
         if (esq.getQuestion().getQuestion() == null) {
             return new Score();
         }
-        Document doc = Jsoup.parse(esq.getQuestion().getQuestion());
-        Elements blanks = doc.select(CLOZE_SELECTOR);
-        Score score = new Score();
-        blanks.forEach(b -> {
-            String answer = answers.getOrDefault(b.attr("id"), "");
-            boolean isCorrectAnswer = isCorrectAnswer(b, answer);
-            if (isCorrectAnswer) {
-                score.correctAnswers++;
-            } else {
-                score.incorrectAnswers++;
-            }
-        });
-        return score;
+        return ClozeTestTemplate.of(esq.getQuestion().getQuestion()).score(asMap());
     }
 
-    private Map<String, String> asMap(Gson gson) {
-        Type mapType = new TypeToken<Map<String, String>>() {}.getType();
-        Map<String, String> map = gson.fromJson(answer, mapType);
+    private Map<String, String> asMap() {
+        Map<String, String> map = GSON.fromJson(answer, ANSWER_TYPE);
         if (map != null) {
             map.values().removeIf(Objects::isNull);
             return map;
@@ -167,62 +129,6 @@ public class ClozeTestAnswer extends GeneratedIdentityModel {
         return Collections.emptyMap();
     }
 
-    private boolean isNumeric(Element blank) {
-        return Boolean.parseBoolean(blank.attr("numeric"));
-    }
-
-    private boolean isCorrectNumericAnswer(Element blank, String rawAnswer) {
-        if (rawAnswer.isBlank()) {
-            return false;
-        }
-        String answerText = rawAnswer.trim();
-        if (!NumberUtils.isParsable(answerText)) {
-            return false;
-        }
-        String precisionAttr = blank.attr("precision");
-        double answer = Double.parseDouble(answerText);
-        Double correctAnswer = Double.parseDouble(blank.text().trim().replaceAll("(^\\h*)|(\\h*$)", ""));
-        Double precision = precisionAttr.isEmpty() ? 0.0 : Double.parseDouble(precisionAttr);
-        return (correctAnswer - precision <= answer && answer <= correctAnswer + precision);
-    }
-
-    private String escapeSpecialRegexChars(String input) {
-        return SPECIAL_REGEX_CHARS.matcher(input).replaceAll("\\\\$0");
-    }
-
-    private boolean isCorrectAnswer(Element blank, String rawAnswer) {
-        if (isNumeric(blank)) {
-            return isCorrectNumericAnswer(blank, rawAnswer);
-        }
-        // Get rid of excess whitespace
-        String answer = rawAnswer.trim().replaceAll(" +", " ");
-        String correctAnswer = blank
-            .text()
-            .trim()
-            .replaceAll(" +", " ")
-            .replaceAll(" \\|", "|")
-            .replaceAll("\\| ", "|");
-        // Generate the regex pattern. Replace '*' with '.*' and put the whole
-        // thing in braces if there's a '|'.
-        // For escaped '\*' and '\|' we have to first replace occurrences with special
-        // escape sequence until restoring them in the regex.
-        final String ESC = "__!ESC__";
-        String regex = escapeSpecialRegexChars(correctAnswer)
-            // Also backlashes will be escaped on escapeSpecialRegexChars call, therefore '\\*' pattern needs to be replaced
-            .replaceAll("\\Q\\\\*\\E", ESC)
-            .replace("*", ".*")
-            .replace(ESC, "\\*")
-            .replaceAll("\\Q\\\\|\\E", ESC);
-
-        if (regex.contains("|")) {
-            regex = String.format("(%s)", regex);
-        }
-        regex = regex.replace(ESC, "\\|");
-        boolean isCaseSensitive = Boolean.parseBoolean(blank.attr("case-sensitive"));
-        Pattern pattern = Pattern.compile(regex, isCaseSensitive ? 0 : Pattern.CASE_INSENSITIVE);
-        return pattern.matcher(answer).matches();
-    }
-
     // DTO
     public static class Score {
 
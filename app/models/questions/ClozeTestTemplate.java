@@ -0,0 +1,190 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package models.questions;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Attribute;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+
+/**
+ * Cloze test question compiled into its blanks and the matchers of their correct answers, so that answers can be
+ * scored without parsing the question text again. Templates are immutable and cached by question text, editing a
+ * question results in a new template.
+ */
+public final class ClozeTestTemplate {
+
+    static final String CLOZE_SELECTOR = "span[cloze=true]";
+
+    private static final Pattern SPECIAL_REGEX_CHARS = Pattern.compile("[{}()\\[\\].+?^$\\\\/]");
+    // Entity code has no access to injected caches, hence a static one. Bounded, entries are small.
+    private static final Cache<String, ClozeTestTemplate> CACHE = Caffeine.newBuilder().maximumSize(5000).build();
+
+    private final List<Blank> blanks;
+    private final String studentView;
+
+    private ClozeTestTemplate(List<Blank> blanks, String studentView) {
+        this.blanks = blanks;
+        this.studentView = studentView;
+    }
+
+    /**
+     * @return compiled template of given question text, compiled on first use
+     */
+    public static ClozeTestTemplate of(String question) {
+        return CACHE.get(question, ClozeTestTemplate::compile);
+    }
+
+    /**
+     * @return blanks in the order they appear in the question
+     */
+    public List<Blank> getBlanks() {
+        return blanks;
+    }
+
+    /**
+     * @return the question with blanks turned into input fields as shown to students
+     */
+    public String getStudentView() {
+        return studentView;
+    }
+
+    public ClozeTestAnswer.Score score(Map<String, String> answers) {
+        ClozeTestAnswer.Score score = new ClozeTestAnswer.Score();
+        for (Blank blank : blanks) {
+            if (blank.isCorrect(answers.getOrDefault(blank.id, ""))) {
+                score.correctAnswers++;
+            } else {
+                score.incorrectAnswers++;
+            }
+        }
+        return score;
+    }
+
+    private static ClozeTestTemplate compile(String question) {
+        Document doc = Jsoup.parse(question);
+        Elements elements = doc.select(CLOZE_SELECTOR);
+        List<Blank> blanks = elements.stream().map(Blank::compile).toList();
+        elements.forEach(ClozeTestTemplate::toInput);
+        return new ClozeTestTemplate(blanks, doc.body().children().toString());
+    }
+
+    private static void toInput(Element blank) {
+        boolean isNumeric = Boolean.parseBoolean(blank.attr("numeric"));
+        Iterator<Attribute> it = blank.attributes().iterator();
+        while (it.hasNext()) {
+            Attribute a = it.next();
+            if (!a.getKey().equals("id")) {
+                it.remove();
+            }
+        }
+        blank.tagName("input");
+        blank.text("");
+        blank.attr("aria-label", "cloze test answer");
+        blank.attr("type", isNumeric ? "number" : "text");
+        blank.attr("class", "cloze-input mt-2");
+        if (isNumeric) {
+            blank.attr("step", "any");
+            // Hacky, but this should allow for using both comma and period as decimal separator even in Firefox
+            // regardless of browser language.
+            blank.attr("lang", "fi");
+        }
+    }
+
+    public static final class Blank {
+
+        private final String id;
+        private final boolean numeric;
+        private final String precision;
+        // Either the value range or the pattern is used depending on whether the blank is numeric
+        private final double min;
+        private final double max;
+        private final Pattern pattern;
+
+        private Blank(String id, boolean numeric, String precision, double min, double max, Pattern pattern) {
+            this.id = id;
+            this.numeric = numeric;
+            this.precision = precision;
+            this.min = min;
+            this.max = max;
+            this.pattern = pattern;
+        }
+
+        private static Blank compile(Element blank) {
+            String id = blank.attr("id");
+            String precision = blank.attr("precision");
+            if (Boolean.parseBoolean(blank.attr("numeric"))) {
+                // Malformed values result in NaN so that no answer is considered correct
+                double correctValue = parse(blank.text().trim().replaceAll("(^\\h*)|(\\h*$)", ""));
+                double tolerance = precision.isEmpty() ? 0.0 : parse(precision);
+                return new Blank(id, true, precision, correctValue - tolerance, correctValue + tolerance, null);
+            }
+            boolean isCaseSensitive = Boolean.parseBoolean(blank.attr("case-sensitive"));
+            Pattern pattern = Pattern.compile(toRegex(blank.text()), isCaseSensitive ? 0 : Pattern.CASE_INSENSITIVE);
+            return new Blank(id, false, precision, Double.NaN, Double.NaN, pattern);
+        }
+
+        private static double parse(String value) {
+            return NumberUtils.isParsable(value) ? Double.parseDouble(value) : Double.NaN;
+        }
+
+        private static String toRegex(String text) {
+            // Get rid of excess whitespace
+            String correctAnswer = text.trim().replaceAll(" +", " ").replaceAll(" \\|", "|").replaceAll("\\| ", "|");
+            // Generate the regex pattern. Replace '*' with '.*' and put the whole
+            // thing in braces if there's a '|'.
+            // For escaped '\*' and '\|' we have to first replace occurrences with special
+            // escape sequence until restoring them in the regex.
+            final String ESC = "__!ESC__";
+            String regex = SPECIAL_REGEX_CHARS.matcher(correctAnswer)
+                .replaceAll("\\\\$0")
+                // Also backlashes will be escaped above, therefore '\\*' pattern needs to be replaced
+                .replaceAll("\\Q\\\\*\\E", ESC)
+                .replace("*", ".*")
+                .replace(ESC, "\\*")
+                .replaceAll("\\Q\\\\|\\E", ESC);
+            if (regex.contains("|")) {
+                regex = String.format("(%s)", regex);
+            }
+            return regex.replace(ESC, "\\|");
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public boolean isNumeric() {
+            return numeric;
+        }
+
+        public String getPrecision() {
+            return precision;
+        }
+
+        public boolean isCorrect(String rawAnswer) {
+            if (numeric) {
+                if (rawAnswer.isBlank()) {
+                    return false;
+                }
+                String answerText = rawAnswer.trim();
+                if (!NumberUtils.isParsable(answerText)) {
+                    return false;
+                }
+                double answer = Double.parseDouble(answerText);
+                return min <= answer && answer <= max;
+            }
+            // Get rid of excess whitespace
+            return pattern.matcher(rawAnswer.trim().replaceAll(" +", " ")).matches();
+        }
+    }
+}
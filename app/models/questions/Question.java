@@ -510,9 +510,8 @@ public class Question extends OwnedModel implements AttachmentContainer {
             }
         }
         if (attachment != null) {
-            Attachment copy = attachment.copy();
-            copy.save();
-            question.setAttachment(copy);
+            // Saved along with the question
+            question.setAttachment(attachment.copy());
         }
         return question;
     }
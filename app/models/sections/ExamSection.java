@@ -65,6 +65,15 @@ public final class ExamSection extends OwnedModel implements Comparable<ExamSect
     @ManyToMany(mappedBy = "optionalSections", cascade = CascadeType.ALL)
     private Set<ExamEnrolment> examEnrolments;
 
+    // Aggregate scores as last stored by updateScores, null if not stored yet
+    private Double totalScore;
+
+    private Double maxScore;
+
+    private int approvedCount;
+
+    private int rejectedCount;
+
     public Set<ExamSectionQuestion> getSectionQuestions() {
         return sectionQuestions;
     }
@@ -177,7 +186,7 @@ public final class ExamSection extends OwnedModel implements Comparable<ExamSect
         if (context.isStudentExam()) {
             for (ExamMaterial em : examMaterials) {
                 ExamMaterial emCopy = em.copy(context.getUser());
-                emCopy.save();
+                emCopy.generateId();
                 section.getExamMaterials().add(emCopy);
             }
         } else {
@@ -254,6 +263,30 @@ public final class ExamSection extends OwnedModel implements Comparable<ExamSect
         return (int) sectionQuestions.stream().filter(ExamSectionQuestion::isApproved).count();
     }
 
+    /**
+     * Stores the aggregate scores calculated from the section questions.
+     *
+     * @return whether any of the stored scores changed
+     */
+    public boolean updateScores() {
+        double total = getTotalScore();
+        double max = getMaxScore();
+        int approved = getApprovedCount();
+        int rejected = getRejectedCount();
+        boolean changed =
+            totalScore == null ||
+            maxScore == null ||
+            total != totalScore ||
+            max != maxScore ||
+            approved != approvedCount ||
+            rejected != rejectedCount;
+        totalScore = total;
+        maxScore = max;
+        approvedCount = approved;
+        rejectedCount = rejected;
+        return changed;
+    }
+
     public boolean hasQuestion(Question question) {
         return sectionQuestions
             .stream()
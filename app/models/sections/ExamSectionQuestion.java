@@ -268,6 +268,11 @@ public class ExamSectionQuestion extends OwnedModel implements Comparable<ExamSe
                 if (optionShufflingOn && question.getType() != Question.Type.ClaimChoiceQuestion) {
                     esqCopy.shuffleOptions();
                 }
+
+                // Cloze test answer placeholder is inserted along with the copy rather than when the exam is opened
+                if (question.getType() == Question.Type.ClozeTestQuestion && esqCopy.getClozeTestAnswer() == null) {
+                    esqCopy.setClozeTestAnswer(new ClozeTestAnswer());
+                }
             } else {
                 // Teacher/template copy: use existing question references (preserve original)
                 esqCopy.setQuestion(question);
@@ -278,14 +283,13 @@ public class ExamSectionQuestion extends OwnedModel implements Comparable<ExamSe
         return esqCopy;
     }
 
-    private void persistQuestionOwners(Question blueprint, ExamCopyContext context) {
-        // Persist ManyToMany associations (questionOwners) when copying with setParent
+    private void copyQuestionOwners(Question blueprint, ExamCopyContext context) {
+        // Copy ManyToMany associations (questionOwners) when copying with setParent
         // BeanUtils.copyProperties copies the collection but doesn't trigger Ebean's change tracking
-        // Re-setting forces Ebean to recognize the association and persist join table entries
+        // A fresh collection makes Ebean insert the join table entries when the question gets saved
         if (context.shouldSetParent() && !blueprint.getQuestionOwners().isEmpty()) {
             Set<User> owners = new HashSet<>(blueprint.getQuestionOwners());
             blueprint.setQuestionOwners(owners);
-            blueprint.save();
         }
     }
 
@@ -303,8 +307,11 @@ public class ExamSectionQuestion extends OwnedModel implements Comparable<ExamSe
         if (context.shouldSetParent()) {
             blueprint.setParent(question);
         }
-        blueprint.save();
-        persistQuestionOwners(blueprint, context);
+        // Saved by cascade along with this section question, options included. Section questions and options are
+        // compared by question and option ids, so the copies need theirs before going into any set.
+        blueprint.generateId();
+        optionMap.values().forEach(MultipleChoiceOption::generateId);
+        copyQuestionOwners(blueprint, context);
 
         // Copy options with their answers
         options.forEach(option -> {
@@ -314,7 +321,7 @@ public class ExamSectionQuestion extends OwnedModel implements Comparable<ExamSe
             if (parentOption.isPresent()) {
                 MultipleChoiceOption optionCopy = optionMap.get(parentOption.get().getId());
                 optionCopy.setQuestion(blueprint);
-                optionCopy.save();
+                blueprint.getOptions().add(optionCopy);
                 ExamSectionQuestionOption esqoCopy = option.copyWithAnswer();
                 esqoCopy.setOption(optionCopy);
                 esqCopy.getOptions().add(esqoCopy);
@@ -335,13 +342,16 @@ public class ExamSectionQuestion extends OwnedModel implements Comparable<ExamSe
         if (context.shouldSetParent()) {
             blueprint.setParent(question);
         }
-        blueprint.save();
-        persistQuestionOwners(blueprint, context);
+        // Saved by cascade along with this section question, options included. Section questions and options are
+        // compared by question and option ids, so the copies need theirs before going into any set.
+        blueprint.generateId();
+        optionMap.values().forEach(MultipleChoiceOption::generateId);
+        copyQuestionOwners(blueprint, context);
 
         // Copy options without answers
         optionMap.forEach((k, optionCopy) -> {
             optionCopy.setQuestion(blueprint);
-            optionCopy.save();
+            blueprint.getOptions().add(optionCopy);
             options
                 .stream()
                 .filter(o -> o.getOption().getId().equals(k))
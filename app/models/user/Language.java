@@ -4,6 +4,8 @@
 
 package models.user;
 
+import io.ebean.annotation.Cache;
+import io.ebean.annotation.CacheTuning;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import models.base.VersionedModel;
@@ -11,6 +13,8 @@ import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 
 @Entity
+@Cache(enableQueryCache = true)
+@CacheTuning(maxSecsToLive = 600)
 public class Language extends VersionedModel {
 
     @Id
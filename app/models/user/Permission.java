@@ -5,6 +5,8 @@
 package models.user;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.ebean.annotation.Cache;
+import io.ebean.annotation.CacheTuning;
 import io.ebean.annotation.EnumValue;
 import jakarta.persistence.Entity;
 import java.util.Objects;
@@ -12,6 +14,8 @@ import java.util.Optional;
 import models.base.GeneratedIdentityModel;
 
 @Entity
+@Cache(enableQueryCache = true, naturalKey = "type")
+@CacheTuning(maxSecsToLive = 600)
 public class Permission extends GeneratedIdentityModel implements be.objectify.deadbolt.java.models.Permission {
 
     public enum Type {
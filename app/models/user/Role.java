@@ -4,11 +4,16 @@
 
 package models.user;
 
+import io.ebean.annotation.Cache;
+import io.ebean.annotation.CacheTuning;
 import jakarta.persistence.Entity;
 import java.util.Objects;
 import models.base.GeneratedIdentityModel;
 
+// Looked up by name on every login
 @Entity
+@Cache(enableQueryCache = true, naturalKey = "name")
+@CacheTuning(maxSecsToLive = 600)
 public class Role extends GeneratedIdentityModel implements be.objectify.deadbolt.java.models.Role {
 
     public enum Name {
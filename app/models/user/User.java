@@ -7,6 +7,8 @@ package models.user;
 import be.objectify.deadbolt.java.models.Subject;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.ebean.annotation.Cache;
+import io.ebean.annotation.CacheTuning;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Entity;
 import jakarta.persistence.JoinColumn;
@@ -26,8 +28,12 @@ import models.facility.Organisation;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 
+// Bean cached so that per-request lookups of the authenticated user do not hit the database every time.
+// Entries are short-lived and the cache is bounded, see UserRepository for explicit eviction.
 @Entity
 @Table(name = "app_user")
+@Cache(enableQueryCache = false)
+@CacheTuning(maxSize = 5000, maxSecsToLive = 60)
 public class User extends GeneratedIdentityModel implements Subject {
 
     private String email;
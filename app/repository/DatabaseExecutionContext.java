@@ -4,14 +4,115 @@
 
 package repository;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import javax.inject.Inject;
+import javax.inject.Singleton;
+import miscellaneous.config.ConfigReader;
 import org.apache.pekko.actor.ActorSystem;
 import play.libs.concurrent.CustomExecutionContext;
 
+@Singleton
 public class DatabaseExecutionContext extends CustomExecutionContext {
 
+    // Dispatcher does not expose its queue, keep track of submitted tasks here
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder started = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final int maxQueued;
+    // Virtual threads are limited to the number of connections, null if the dispatcher is used
+    private final ExecutorService virtualThreads;
+    private final Semaphore connections;
+
     @Inject
-    public DatabaseExecutionContext(ActorSystem actorSystem) {
+    public DatabaseExecutionContext(ActorSystem actorSystem, ConfigReader configReader) {
         super(actorSystem, "database.dispatcher");
+        maxQueued = configReader.getDatabaseMaxQueued();
+        virtualThreads = configReader.isDatabaseVirtualThreadsEnabled()
+            ? Executors.newVirtualThreadPerTaskExecutor()
+            : null;
+        connections = new Semaphore(configReader.getDatabasePoolSize());
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        long submitted = System.nanoTime();
+        queued.incrementAndGet();
+        Runnable task = () -> {
+            queued.decrementAndGet();
+            started.increment();
+            waitNanos.add(System.nanoTime() - submitted);
+            active.incrementAndGet();
+            try {
+                command.run();
+            } finally {
+                active.decrementAndGet();
+            }
+        };
+        if (virtualThreads == null) {
+            super.execute(task);
+        } else {
+            virtualThreads.execute(() -> {
+                connections.acquireUninterruptibly();
+                try {
+                    task.run();
+                } finally {
+                    connections.release();
+                }
+            });
+        }
+    }
+
+    /**
+     * Checks whether there is room for more work. Callers are expected to turn the work away if not.
+     *
+     * @return false if too many tasks are already waiting for a thread
+     */
+    public boolean admit() {
+        if (queued.get() < maxQueued) {
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * @return number of tasks waiting for a thread
+     */
+    public int getQueued() {
+        return queued.get();
+    }
+
+    /**
+     * @return number of tasks being run
+     */
+    public int getActive() {
+        return active.get();
+    }
+
+    /**
+     * @return number of tasks started so far
+     */
+    public long getStarted() {
+        return started.sum();
+    }
+
+    /**
+     * @return total time the started tasks waited for a thread in nanoseconds
+     */
+    public long getWaitNanos() {
+        return waitNanos.sum();
+    }
+
+    /**
+     * @return number of times work has not been admitted
+     */
+    public long getRejected() {
+        return rejected.sum();
     }
 }
@@ -7,6 +7,7 @@ package repository;
 import io.ebean.DB;
 import io.ebean.Database;
 import io.ebean.ExpressionList;
+import io.ebean.Query;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
@@ -16,6 +17,9 @@ import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import javax.inject.Inject;
+import miscellaneous.cache.ExamContext;
+import miscellaneous.cache.ExamContextCache;
+import miscellaneous.cache.MachineDirectory;
 import miscellaneous.config.ByodConfigHandler;
 import miscellaneous.config.ConfigReader;
 import miscellaneous.datetime.DateTimeHandler;
@@ -49,6 +53,8 @@ public class EnrolmentRepository {
     private final ByodConfigHandler byodConfigHandler;
     private final DateTimeHandler dateTimeHandler;
     private final ConfigReader configReader;
+    private final ExamContextCache examContextCache;
+    private final MachineDirectory machineDirectory;
     private final Database db;
 
     private final Logger logger = LoggerFactory.getLogger(EnrolmentRepository.class);
@@ -59,7 +65,9 @@ public class EnrolmentRepository {
         DatabaseExecutionContext databaseExecutionContext,
         ByodConfigHandler byodConfigHandler,
         DateTimeHandler dateTimeHandler,
-        ConfigReader configReader
+        ConfigReader configReader,
+        ExamContextCache examContextCache,
+        MachineDirectory machineDirectory
     ) {
         this.environment = environment;
         this.db = DB.getDefault();
@@ -67,6 +75,8 @@ public class EnrolmentRepository {
         this.byodConfigHandler = byodConfigHandler;
         this.dateTimeHandler = dateTimeHandler;
         this.configReader = configReader;
+        this.examContextCache = examContextCache;
+        this.machineDirectory = machineDirectory;
     }
 
     public CompletionStage<Map<String, String>> getReservationHeaders(Http.Request request, Long userId, String eppn) {
@@ -165,25 +175,42 @@ public class EnrolmentRepository {
 
     private Map<String, String> doGetReservationHeaders(Http.RequestHeader request, Long userId, String eppn) {
         Map<String, String> headers = new HashMap<>();
+        // Students keep polling for these, the enrolment lookups are served from cache for as long as they are valid
+        ExamContext context = examContextCache.get(userId, this::loadExamContext);
+        Optional<ExamEnrolment> ongoing = context.getOngoingId().flatMap(this::findEnrolment);
+        Optional<ExamEnrolment> upcoming = context.getUpcomingId().flatMap(this::findEnrolment);
+        if (ongoing.isPresent()) {
+            handleOngoingEnrolment(ongoing.get(), request, headers, eppn);
+        } else if (upcoming.isPresent()) {
+            handleUpcomingEnrolment(upcoming.get(), request, headers, eppn);
+        } else if (isOnExamMachine(request)) {
+            // User is logged on an exam machine but has no exams for today
+            headers.put("x-exam-upcoming-exam", "none");
+        }
+        return headers;
+    }
+
+    private ExamContext loadExamContext(Long userId) {
         Optional<ExamEnrolment> ongoingEnrolment = getNextEnrolment(userId, 0);
         if (ongoingEnrolment.isPresent()) {
-            handleOngoingEnrolment(ongoingEnrolment.get(), request, headers, eppn);
-        } else {
-            DateTime now = new DateTime();
-            int lookAheadMinutes = Minutes.minutesBetween(now, now.plusDays(1).withMillisOfDay(0)).getMinutes();
-            Optional<ExamEnrolment> upcomingEnrolment = getNextEnrolment(userId, lookAheadMinutes);
-            if (upcomingEnrolment.isPresent()) {
-                handleUpcomingEnrolment(upcomingEnrolment.get(), request, headers, eppn);
-            } else if (isOnExamMachine(request)) {
-                // User is logged on an exam machine but has no exams for today
-                headers.put("x-exam-upcoming-exam", "none");
-            }
+            ExamEnrolment ee = ongoingEnrolment.get();
+            return new ExamContext(ee.getId(), null, toInstant(ee, getEndTime(ee)));
         }
-        return headers;
+        DateTime now = new DateTime();
+        DateTime midnight = now.plusDays(1).withMillisOfDay(0);
+        int lookAheadMinutes = Minutes.minutesBetween(now, midnight).getMinutes();
+        Optional<ExamEnrolment> upcomingEnrolment = getNextEnrolment(userId, lookAheadMinutes);
+        if (upcomingEnrolment.isPresent()) {
+            // Upcoming enrolment turns into an ongoing one once it starts
+            ExamEnrolment ee = upcomingEnrolment.get();
+            DateTime start = toInstant(ee, getStartTime(ee));
+            return new ExamContext(null, ee.getId(), start.isBefore(midnight) ? start : midnight);
+        }
+        return new ExamContext(null, null, midnight);
     }
 
     public boolean isOnExamMachine(Http.RequestHeader request) {
-        return db.find(ExamMachine.class).where().eq("ipAddress", request.remoteAddress()).findOneOrEmpty().isPresent();
+        return machineDirectory.findByIpAddress(request.remoteAddress()).isPresent();
     }
 
     private boolean isMachineOk(
@@ -233,8 +260,8 @@ public class EnrolmentRepository {
                 String header;
 
                 // Is this a known machine?
-                ExamMachine lookedUp = db.find(ExamMachine.class).where().eq("ipAddress", remoteIp).findOne();
-                if (lookedUp == null) {
+                Optional<MachineDirectory.MachineEntry> lookedUp = machineDirectory.findByIpAddress(remoteIp);
+                if (lookedUp.isEmpty()) {
                     // IP is not known
                     var local = configReader.isLocalUser(eppn);
                     header = "x-exam-unknown-machine";
@@ -252,14 +279,14 @@ public class EnrolmentRepository {
                         zone.getID(),
                         local ? "true" : enrolment.getId()
                     );
-                } else if (lookedUp.getRoom().getId().equals(room.getId())) {
+                } else if (lookedUp.get().getRoomId().equals(room.getId())) {
                     // Right room, wrong machine
                     header = "x-exam-wrong-machine";
-                    message = enrolment.getId() + ":::" + lookedUp.getId();
+                    message = enrolment.getId() + ":::" + lookedUp.get().getId();
                 } else {
                     // Wrong room
                     header = "x-exam-wrong-room";
-                    message = enrolment.getId() + ":::" + lookedUp.getId();
+                    message = enrolment.getId() + ":::" + lookedUp.get().getId();
                 }
                 headers.put(header, Base64.encodeBase64String(message.getBytes()));
                 logger.debug("room and machine not ok. {}", message);
@@ -372,8 +399,27 @@ public class EnrolmentRepository {
                   .plusMillis(enrolment.getDelay());
     }
 
-    private Optional<ExamEnrolment> getNextEnrolment(Long userId, int minutesToFuture) {
-        Set<ExamEnrolment> results = db
+    private DateTime getEndTime(ExamEnrolment enrolment) {
+        return enrolment.getReservation() != null
+            ? enrolment.getReservation().getEndAt()
+            : enrolment
+                  .getExaminationEventConfiguration()
+                  .getExaminationEvent()
+                  .getStart()
+                  .plusMinutes(enrolment.getExam().getDuration());
+    }
+
+    // Reservation times are compared against DST adjusted current time, see isInsideBounds
+    private DateTime toInstant(ExamEnrolment enrolment, DateTime time) {
+        if (enrolment.getExaminationEventConfiguration() != null) {
+            return time;
+        }
+        DateTime now = DateTime.now();
+        return time.minus(dateTimeHandler.adjustDST(now).getMillis() - now.getMillis());
+    }
+
+    private Query<ExamEnrolment> createEnrolmentQuery() {
+        return db
             .find(ExamEnrolment.class)
             .fetch("reservation")
             .fetch("reservation.machine")
@@ -382,7 +428,15 @@ public class EnrolmentRepository {
             .fetch("examinationEventConfiguration.examinationEvent")
             .fetch("exam")
             .fetch("externalExam")
-            .fetch("collaborativeExam")
+            .fetch("collaborativeExam");
+    }
+
+    private Optional<ExamEnrolment> findEnrolment(Long id) {
+        return createEnrolmentQuery().where().idEq(id).findOneOrEmpty();
+    }
+
+    private Optional<ExamEnrolment> getNextEnrolment(Long userId, int minutesToFuture) {
+        Set<ExamEnrolment> results = createEnrolmentQuery()
             .where()
             .eq("user.id", userId)
             .disjunction()
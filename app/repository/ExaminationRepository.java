@@ -21,7 +21,9 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
+import miscellaneous.cache.ExamContextCache;
 import miscellaneous.datetime.DateTimeHandler;
+import miscellaneous.scheduling.ExamDeadlineQueue;
 import models.enrolment.ExamEnrolment;
 import models.enrolment.ExamParticipation;
 import models.enrolment.Reservation;
@@ -38,10 +40,14 @@ import org.slf4j.LoggerFactory;
 
 public class ExaminationRepository {
 
+    private static final int COPY_BATCH_SIZE = 100;
+
     private final Database db;
     private final CollaborativeExamLoader cel;
     private final DatabaseExecutionContext ec;
     private final DateTimeHandler dateTimeHandler;
+    private final ExamDeadlineQueue deadlineQueue;
+    private final ExamContextCache examContextCache;
 
     private final Logger logger = LoggerFactory.getLogger(ExaminationRepository.class);
 
@@ -49,42 +55,230 @@ public class ExaminationRepository {
     public ExaminationRepository(
         CollaborativeExamLoader cel,
         DatabaseExecutionContext databaseExecutionContext,
-        DateTimeHandler dateTimeHandler
+        DateTimeHandler dateTimeHandler,
+        ExamDeadlineQueue deadlineQueue,
+        ExamContextCache examContextCache
     ) {
         this.db = DB.getDefault();
         this.cel = cel;
         this.ec = databaseExecutionContext;
         this.dateTimeHandler = dateTimeHandler;
+        this.deadlineQueue = deadlineQueue;
+        this.examContextCache = examContextCache;
+    }
+
+    private ExamCopyContext createCopyContext(User user, ExamEnrolment enrolment) {
+        boolean isCollaborative = enrolment.getCollaborativeExam() != null;
+        Reservation reservation = enrolment.getReservation();
+        // TODO: support for optional sections in BYOD exams
+        Set<Long> ids = reservation == null
+            ? Collections.emptySet()
+            : enrolment.getOptionalSections().stream().map(ExamSection::getId).collect(Collectors.toSet());
+        return isCollaborative
+            ? ExamCopyContext.forCollaborativeExam(user).withSelectedSections(ids).build()
+            : ExamCopyContext.forStudentExam(user).withSelectedSections(ids).build();
+    }
+
+    private boolean isUsable(Exam prepared, Exam prototype) {
+        // Prototype may not have been touched since the copy was made
+        return (
+            prepared != null &&
+            prepared.hasState(Exam.State.INITIALIZED) &&
+            prototype.equals(prepared.getParent()) &&
+            (prototype.getModified() == null || !prototype.getModified().isAfter(prepared.getCreated()))
+        );
     }
 
     private Optional<Exam> doCreateExam(Exam prototype, User user, ExamEnrolment enrolment) {
         Optional<Exam> result;
         try (Transaction tx = db.beginTransaction()) {
-            boolean isCollaborative = enrolment.getCollaborativeExam() != null;
-            Reservation reservation = enrolment.getReservation();
-            // TODO: support for optional sections in BYOD exams
-            Set<Long> ids = reservation == null
-                ? Collections.emptySet()
-                : enrolment.getOptionalSections().stream().map(ExamSection::getId).collect(Collectors.toSet());
-            ExamCopyContext context = isCollaborative
-                ? ExamCopyContext.forCollaborativeExam(user).withSelectedSections(ids).build()
-                : ExamCopyContext.forStudentExam(user).withSelectedSections(ids).build();
-            Exam studentExam = prototype.createCopy(context);
-            studentExam.setState(Exam.State.INITIALIZED);
-            studentExam.setCreator(user);
-            if (!isCollaborative) {
-                studentExam.setParent(prototype);
+            // The copy is inserted on commit using JDBC batches, one statement per table and batch
+            tx.setBatchMode(true);
+            tx.setBatchSize(COPY_BATCH_SIZE);
+            // Lock the enrolment so that the preparer does not attach another copy to it meanwhile
+            ExamEnrolment locked = db
+                .find(ExamEnrolment.class)
+                .forUpdate()
+                .where()
+                .idEq(enrolment.getId())
+                .findOneOrEmpty()
+                .orElse(enrolment);
+            Exam prepared = locked.getPreparedExam();
+            Exam studentExam = isUsable(prepared, prototype)
+                ? prepared
+                : prototype.createCopy(createCopyContext(user, locked));
+            if (prepared != null && prepared != studentExam) {
+                prepared.setState(Exam.State.DELETED);
+                db.update(prepared);
             }
-            studentExam.generateHash();
-            db.save(studentExam);
-            enrolment.setExam(studentExam);
-            db.save(enrolment);
+            locked.setExam(studentExam);
+            locked.setPreparedExam(null);
+            db.save(locked);
             tx.commit();
+            enrolment.setExam(studentExam);
+            examContextCache.invalidate(user.getId());
             result = Optional.of(studentExam);
         }
         return result;
     }
 
+    /**
+     * Copies the exams of enrolments starting within given amount of minutes in advance, so that students do not
+     * have to wait for the copy when the exam starts and starting a large examination event does not flood the
+     * database with inserts. Copies are made one at a time.
+     *
+     * @return amount of exams prepared
+     */
+    public int prepareUpcomingExams(int minutesAhead, int limit) {
+        DateTime now = DateTime.now();
+        DateTime adjustedNow = dateTimeHandler.adjustDST(now);
+        List<Long> ids = db
+            .find(ExamEnrolment.class)
+            .select("id")
+            .where()
+            .isNull("preparedExam")
+            .isNull("collaborativeExam")
+            .isNull("externalExam")
+            .eq("exam.state", Exam.State.PUBLISHED)
+            .or()
+            .and()
+            .isNotNull("reservation.machine")
+            .between("reservation.startAt", adjustedNow, adjustedNow.plusMinutes(minutesAhead))
+            .endAnd()
+            .between("examinationEventConfiguration.examinationEvent.start", now, now.plusMinutes(minutesAhead))
+            .endOr()
+            .setMaxRows(limit)
+            .findIds();
+        int count = 0;
+        for (Long id : ids) {
+            try {
+                if (prepareExam(id)) {
+                    count++;
+                }
+            } catch (RuntimeException e) {
+                logger.error("Failed to prepare exam for enrolment #{}", id, e);
+            }
+        }
+        return count;
+    }
+
+    private boolean prepareExam(Long enrolmentId) {
+        try (Transaction tx = db.beginTransaction()) {
+            tx.setBatchMode(true);
+            tx.setBatchSize(COPY_BATCH_SIZE);
+            // Skip enrolments whose exam is being started right now
+            Optional<ExamEnrolment> oe = db
+                .find(ExamEnrolment.class)
+                .forUpdateSkipLocked()
+                .where()
+                .idEq(enrolmentId)
+                .isNull("preparedExam")
+                .findOneOrEmpty();
+            if (oe.isEmpty()) {
+                return false;
+            }
+            ExamEnrolment enrolment = oe.get();
+            Exam prototype = db
+                .find(Exam.class)
+                .fetch("examSections")
+                .fetch("examSections.sectionQuestions")
+                .fetch("examSections.sectionQuestions.question")
+                .fetch("examSections.sectionQuestions.options")
+                .where()
+                .idEq(enrolment.getExam().getId())
+                .eq("state", Exam.State.PUBLISHED)
+                .findOne();
+            if (prototype == null) {
+                return false;
+            }
+            Exam copy = prototype.createCopy(createCopyContext(enrolment.getUser(), enrolment));
+            enrolment.setPreparedExam(copy);
+            db.update(enrolment);
+            tx.commit();
+            return true;
+        }
+    }
+
+    /**
+     * Marks prepared exams as deleted that are no longer referred to by any enrolment, i.e. the reservation got
+     * changed or removed after the exam had been prepared, or the exam was not started before its reservation or
+     * examination event ended.
+     *
+     * @return amount of exams discarded
+     */
+    public int discardUnusedPreparedExams() {
+        // Detach copies of exams that can no longer be started
+        DateTime now = DateTime.now();
+        DateTime adjustedNow = dateTimeHandler.adjustDST(now);
+        db
+            .find(ExamEnrolment.class)
+            .select("id")
+            .fetch("reservation", "endAt")
+            .fetch("examinationEventConfiguration.examinationEvent", "start")
+            .fetch("exam", "duration")
+            .where()
+            .isNotNull("preparedExam")
+            .findList()
+            .stream()
+            .filter(ee -> hasEnded(ee, now, adjustedNow))
+            .forEach(ee -> {
+                ee.setPreparedExam(null);
+                db.update(ee);
+            });
+        Set<Long> prepared = db
+            .find(ExamEnrolment.class)
+            .select("preparedExam")
+            .where()
+            .isNotNull("preparedExam")
+            .findList()
+            .stream()
+            .map(ee -> ee.getPreparedExam().getId())
+            .collect(Collectors.toSet());
+        List<Exam> exams = db
+            .find(Exam.class)
+            .where()
+            .eq("state", Exam.State.INITIALIZED)
+            .isNotNull("parent")
+            .isEmpty("examEnrolments")
+            .notIn("id", prepared)
+            .findList();
+        exams.forEach(e -> {
+            e.setState(Exam.State.DELETED);
+            db.update(e);
+        });
+        return exams.size();
+    }
+
+    private boolean hasEnded(ExamEnrolment ee, DateTime now, DateTime adjustedNow) {
+        if (ee.getReservation() != null) {
+            return ee.getReservation().getEndAt().isBefore(adjustedNow);
+        } else if (ee.getExaminationEventConfiguration() != null) {
+            DateTime start = ee.getExaminationEventConfiguration().getExaminationEvent().getStart();
+            Integer duration = ee.getExam().getDuration();
+            return start.plusMinutes(duration == null ? 0 : duration).isBefore(now);
+        }
+        return true;
+    }
+
+    /**
+     * Detaches the prepared copies of the exams using given question. Edits to a question do not touch the modified
+     * time of the exams, so the copies would otherwise be taken into use. Detached copies are discarded on the next
+     * round of preparation and prepared anew.
+     */
+    public void discardPreparedExamsByQuestion(Long questionId) {
+        int count = db
+            .sqlUpdate(
+                "UPDATE exam_enrolment SET prepared_exam_id = NULL WHERE prepared_exam_id IS NOT NULL AND exam_id IN (" +
+                "SELECT es.exam_id FROM exam_section es " +
+                "JOIN exam_section_question esq ON esq.exam_section_id = es.id WHERE esq.question_id = :qid)"
+            )
+            .setParameter("qid", questionId)
+            .execute();
+        if (count > 0) {
+            logger.info("Detached {} prepared exams because question #{} changed", count, questionId);
+        }
+    }
+
     public void processClozeTestQuestions(Exam exam) {
         Set<Question> questionsToHide = new HashSet<>();
         exam
@@ -95,11 +289,12 @@ public class ExaminationRepository {
             .forEach(esq -> {
                 ClozeTestAnswer answer = esq.getClozeTestAnswer();
                 if (answer == null) {
+                    // Exam copied before answer placeholders got created along with the copy
                     answer = new ClozeTestAnswer();
+                    esq.setClozeTestAnswer(answer);
+                    db.update(esq);
                 }
                 answer.setQuestion(esq);
-                esq.setClozeTestAnswer(answer);
-                db.update(esq);
                 questionsToHide.add(esq.getQuestion());
             });
         questionsToHide.forEach(q -> q.setQuestion(null));
@@ -136,6 +331,7 @@ public class ExaminationRepository {
                     }
                     examParticipation.setStarted(now);
                     db.save(examParticipation);
+                    deadlineQueue.registerParticipation(examParticipation);
                 }
                 return clone;
             },
@@ -6,6 +6,7 @@ package repository;
 
 import io.ebean.DB;
 import io.ebean.Database;
+import io.ebean.cache.ServerCacheStatistics;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
@@ -24,6 +25,23 @@ public class UserRepository {
     }
 
     public CompletionStage<Optional<User>> getLoggedInUser(Long id) {
-        return CompletableFuture.supplyAsync(() -> db.find(User.class).where().idEq(id).findOneOrEmpty(), ec);
+        // Lookup by id so that the user bean cache gets consulted before going to the database
+        return CompletableFuture.supplyAsync(() -> Optional.ofNullable(db.find(User.class, id)), ec);
+    }
+
+    /**
+     * Drops the cached copy of user so that changes to roles, permissions etc. are visible on the next request.
+     */
+    public void evict(Long id) {
+        // Bean cache keys are the formatted ids
+        db.cacheManager().beanCache(User.class).remove(String.valueOf(id));
+    }
+
+    public void evictAll() {
+        db.cacheManager().clear(User.class);
+    }
+
+    public ServerCacheStatistics getCacheStatistics() {
+        return db.cacheManager().beanCache(User.class).statistics(false);
     }
 }
@@ -22,3 +22,5 @@ class App extends AbstractModule with PekkoGuiceSupport:
     bindActor(classOf[ReservationReminderActor], "reservation-reminder-actor")
     bindActor(classOf[CollaborativeAssessmentSenderActor], "collaborative-assessment-sender-actor")
     bindActor(classOf[ExternalExamExpirationActor], "external-exam-expiration-actor")
+    bindActor(classOf[ExamScoreVerifierActor], "exam-score-verifier-actor")
+    bindActor(classOf[StudentExamPreparerActor], "student-exam-preparer-actor")
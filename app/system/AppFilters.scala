@@ -21,8 +21,18 @@ class AppFilters @Inject() (
     corsFilter: CORSFilter,
     cspFilter: CSPFilter,
     auditFilter: AuditLogFilter,
+    metricsFilter: MetricsFilter,
     systemFilter: SystemFilter
 ) extends HttpFilters:
 
   override def filters: Seq[EssentialFilter] =
-    Seq(securityHeadersFilter, csrfFilter, gzipFilter, corsFilter, cspFilter, auditFilter, systemFilter)
+    Seq(
+      metricsFilter,
+      securityHeadersFilter,
+      csrfFilter,
+      gzipFilter,
+      corsFilter,
+      cspFilter,
+      auditFilter,
+      systemFilter
+    )
@@ -0,0 +1,26 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package system
+
+import miscellaneous.metrics.Metrics
+import org.apache.pekko.stream.Materializer
+import play.api.mvc.{Filter, RequestHeader, Result}
+import play.api.routing.Router
+
+import javax.inject.Inject
+import scala.concurrent.{ExecutionContext, Future}
+import scala.util.{Failure, Success}
+
+// Outermost filter so that time spent in the other filters is included. Requests are tagged by route pattern rather
+// than path to keep the number of time series bounded.
+class MetricsFilter @Inject() (private val metrics: Metrics)(implicit val mat: Materializer, ec: ExecutionContext)
+    extends Filter:
+  override def apply(next: RequestHeader => Future[Result])(rh: RequestHeader): Future[Result] =
+    val start = System.nanoTime
+    val route = rh.attrs.get(Router.Attrs.HandlerDef).map(_.path).getOrElse("unmatched")
+    next(rh).andThen {
+      case Success(result) => metrics.recordRequest(rh.method, route, result.header.status, System.nanoTime - start)
+      case Failure(_)      => metrics.recordRequest(rh.method, route, 500, System.nanoTime - start)
+    }
@@ -13,12 +13,13 @@ import org.joda.time.{DateTime, DateTimeConstants, DateTimeZone, Seconds}
 import play.api.inject.ApplicationLifecycle
 import play.api.{Environment, Logging, Mode}
 import repository.DatabaseExecutionContext
+import system.actors.ExamAutoSaverActor
 
 import java.nio.charset.Charset
 import java.util.concurrent.TimeUnit
 import javax.inject.{Inject, Named, Singleton}
 import scala.concurrent.Future
-import scala.concurrent.duration.Duration
+import scala.concurrent.duration.{Duration, FiniteDuration}
 import scala.jdk.CollectionConverters.*
 import scala.util.control.Exception.catching
 
@@ -37,6 +38,8 @@ class SystemInitializer @Inject() (
     @Named("collaborative-assessment-sender-actor") collaborativeAssessmentSender: ActorRef,
     @Named("reservation-reminder-actor") reservationReminder: ActorRef,
     @Named("external-exam-expiration-actor") externalExamExpirationChecker: ActorRef,
+    @Named("exam-score-verifier-actor") examScoreVerifier: ActorRef,
+    @Named("student-exam-preparer-actor") studentExamPreparer: ActorRef,
     implicit val ec: DatabaseExecutionContext
 ) extends Logging:
   Charset.defaultCharset.displayName match
@@ -50,14 +53,16 @@ class SystemInitializer @Inject() (
     case Mode.Test => Seq.empty
     case _ =>
       Seq(
-        schedule(examAutoSaver, 15, 1),
+        schedule(examAutoSaver, 15, ExamAutoSaverActor.TickInterval),
         schedule(reservationChecker, 30, 60),
         schedule(autoEvaluationNotifier, 60, 15),
         schedule(examExpirationChecker, 45, 60 * 24),
         schedule(assessmentTransferrer, 70, 60),
         schedule(collaborativeAssessmentSender, 80, 15),
         schedule(reservationReminder, 90, 10),
-        schedule(externalExamExpirationChecker, 100, 60 * 24)
+        schedule(externalExamExpirationChecker, 100, 60 * 24),
+        schedule(examScoreVerifier, 110, 5),
+        schedule(studentExamPreparer, 120, 1)
       )
   private var reporter: Option[Cancellable] = None
 
@@ -70,9 +75,12 @@ class SystemInitializer @Inject() (
   }
 
   private def schedule(actor: ActorRef, delay: Int, interval: Int): Cancellable =
+    schedule(actor, delay, Duration.create(interval, TimeUnit.MINUTES))
+
+  private def schedule(actor: ActorRef, delay: Int, interval: FiniteDuration): Cancellable =
     system.scheduler.scheduleAtFixedRate(
       Duration.create(delay, TimeUnit.SECONDS),
-      Duration.create(interval, TimeUnit.MINUTES),
+      interval,
       actor,
       "tick"
     )
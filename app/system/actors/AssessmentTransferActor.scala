@@ -8,6 +8,7 @@ import com.fasterxml.jackson.databind.ObjectMapper
 import io.ebean.DB
 import io.ebean.text.PathProperties
 import miscellaneous.config.ConfigReader
+import miscellaneous.metrics.Metrics
 import miscellaneous.scala.{DbApiHelper, JavaApiHelper}
 import models.enrolment.ExamEnrolment
 import org.apache.pekko.actor.AbstractActor
@@ -27,6 +28,7 @@ import scala.concurrent.ExecutionContext
 class AssessmentTransferActor @Inject (
     private val wsClient: WSClient,
     private val configReader: ConfigReader,
+    private val metrics: Metrics,
     implicit val ec: ExecutionContext,
     implicit val mat: Materializer
 ) extends AbstractActor
@@ -42,6 +44,8 @@ class AssessmentTransferActor @Inject (
       classOf[String],
       (_: String) =>
         logger.info("Assessment transfer check started ->")
+        // Actor context is not to be touched from stream callbacks
+        val (start, name) = (System.nanoTime, getSelf.path.name)
         val enrolments = DB
           .find(classOf[ExamEnrolment])
           .where
@@ -58,13 +62,16 @@ class AssessmentTransferActor @Inject (
           Source(enrolments)
             .mapAsync(maxConcurrency)(send)
             .runWith(Sink.ignore)
-            .onComplete {
-              case scala.util.Success(_) =>
-                logger.info("<- Assessment transfer check completed successfully")
-              case scala.util.Failure(e) =>
-                logger.error("Error processing assessment transfers", e)
+            .onComplete { result =>
+              metrics.recordTick(name, System.nanoTime - start, count)
+              result match
+                case scala.util.Success(_) =>
+                  logger.info("<- Assessment transfer check completed successfully")
+                case scala.util.Failure(e) =>
+                  logger.error("Error processing assessment transfers", e)
             }
         else
+          metrics.recordTick(name, System.nanoTime - start, 0)
           logger.info("No assessment transfers to process")
           logger.info("<- done")
     )
@@ -7,6 +7,7 @@ package system.actors
 import impl.mail.EmailComposer
 import io.ebean.DB
 import miscellaneous.datetime.DateTimeHandler
+import miscellaneous.metrics.Metrics
 import miscellaneous.scala.DbApiHelper
 import models.assessment.AutoEvaluationConfig.ReleaseType
 import models.exam.Exam
@@ -22,6 +23,7 @@ import scala.util.control.Exception.catching
 class AutoEvaluationNotifierActor @Inject (
     private val composer: EmailComposer,
     private val dateTimeHandler: DateTimeHandler,
+    private val metrics: Metrics,
     private val actorSystem: ActorSystem,
     implicit val ec: ExecutionContext
 ) extends AbstractActor
@@ -33,7 +35,9 @@ class AutoEvaluationNotifierActor @Inject (
       classOf[String],
       (_: String) =>
         logger.debug("Auto evaluation notification check started ->")
-        DB.find(classOf[Exam])
+        val start = System.nanoTime
+        val exams = DB
+          .find(classOf[Exam])
           .fetch("autoEvaluationConfig")
           .where
           .eq("state", Exam.State.GRADED)
@@ -45,7 +49,8 @@ class AutoEvaluationNotifierActor @Inject (
           .isNull("autoEvaluationNotified")
           .list
           .filter(isPastReleaseDate)
-          .foreach(notifyStudent)
+        exams.foreach(notifyStudent)
+        metrics.recordTick(getSelf.path.name, System.nanoTime - start, exams.size)
         logger.debug("<- done")
     )
     .build
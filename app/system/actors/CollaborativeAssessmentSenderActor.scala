@@ -6,6 +6,7 @@ package system.actors
 
 import controllers.iop.collaboration.api.CollaborativeExamLoader
 import io.ebean.DB
+import miscellaneous.metrics.Metrics
 import miscellaneous.scala.DbApiHelper
 import models.enrolment.ExamParticipation
 import models.exam.Exam
@@ -20,6 +21,7 @@ import scala.jdk.FutureConverters.*
 
 class CollaborativeAssessmentSenderActor @Inject (
     private val collaborativeExamLoader: CollaborativeExamLoader,
+    private val metrics: Metrics,
     implicit val ec: ExecutionContext,
     implicit val mat: Materializer
 ) extends AbstractActor
@@ -34,6 +36,8 @@ class CollaborativeAssessmentSenderActor @Inject (
       classOf[String],
       (_: String) =>
         logger.info("Starting collaborative assessment sending check ->")
+        // Actor context is not to be touched from stream callbacks
+        val (start, name) = (System.nanoTime, getSelf.path.name)
         val query = DB.find(classOf[ExamParticipation])
         val pp    = collaborativeExamLoader.getAssessmentPath
         pp.apply(query)
@@ -71,13 +75,16 @@ class CollaborativeAssessmentSenderActor @Inject (
                 }
             )
             .runWith(Sink.ignore)
-            .onComplete {
-              case scala.util.Success(_) =>
-                logger.info("<- Collaborative assessment sending check completed successfully")
-              case scala.util.Failure(e) =>
-                logger.error("Error processing collaborative assessments", e)
+            .onComplete { result =>
+              metrics.recordTick(name, System.nanoTime - start, count)
+              result match
+                case scala.util.Success(_) =>
+                  logger.info("<- Collaborative assessment sending check completed successfully")
+                case scala.util.Failure(e) =>
+                  logger.error("Error processing collaborative assessments", e)
             }
         else
+          metrics.recordTick(name, System.nanoTime - start, 0)
           logger.info("No collaborative assessments to process")
           logger.info("<- done")
     )
@@ -4,11 +4,15 @@
 
 package system.actors
 
-import controllers.admin.SettingsController
 import impl.mail.EmailComposer
 import io.ebean.DB
+import miscellaneous.cache.ExamContextCache
+import miscellaneous.config.SettingsStore
 import miscellaneous.datetime.DateTimeHandler
+import miscellaneous.metrics.Metrics
 import miscellaneous.scala.DbApiHelper
+import miscellaneous.scheduling.ExamDeadlineQueue
+import miscellaneous.scheduling.ExamDeadlineQueue.Key
 import models.enrolment.{ExamEnrolment, ExamParticipation}
 import models.exam.Exam
 import org.apache.pekko.actor.{AbstractActor, ActorSystem}
@@ -22,71 +26,145 @@ import scala.concurrent.duration.*
 import scala.jdk.CollectionConverters._
 import scala.util.control.Exception.catching
 
+object ExamAutoSaverActor:
+  // How often the deadline queue is checked, i.e. the maximum delay in closing an expired examination
+  val TickInterval: FiniteDuration = 5.seconds
+  // How often examinations started since the previous look are picked up from the database. Starts on this node are
+  // queued right away, this catches the ones started on other nodes of a cluster.
+  val PickUpInterval: FiniteDuration = 30.seconds
+  // How often the queue is reconciled with the database in case some deadline was missed or has changed
+  val ResyncInterval: FiniteDuration = 5.minutes
+  // Overlap of consecutive pick-ups, covers clock differences between nodes and starts committed late
+  private val PickUpMargin: FiniteDuration = 1.minute
+
 class ExamAutoSaverActor @Inject (
     private val composer: EmailComposer,
     private val dateTimeHandler: DateTimeHandler,
+    private val settingsStore: SettingsStore,
+    private val deadlineQueue: ExamDeadlineQueue,
+    private val examContextCache: ExamContextCache,
+    private val metrics: Metrics,
     private val actorSystem: ActorSystem,
     implicit val ec: ExecutionContext
 ) extends AbstractActor
     with Logging
     with DbApiHelper:
 
+  private var lastSync: Option[DateTime] = None
+  private var lastPickUp: DateTime        = DateTime.now
+
   override def createReceive(): AbstractActor.Receive = receiveBuilder()
     .`match`(
       classOf[String],
       (_: String) =>
-        logger.debug("Starting check for ongoing exams ->")
-        checkLocalExams()
-        checkExternalExams()
-        logger.debug("<- done")
+        val start = System.nanoTime
+        if lastSync.forall(_.plus(ExamAutoSaverActor.ResyncInterval.toMillis).isBeforeNow) then resync()
+        else if lastPickUp.plus(ExamAutoSaverActor.PickUpInterval.toMillis).isBeforeNow then pickUp()
+        val due = deadlineQueue.pollDue(DateTime.now)
+        if due.nonEmpty then
+          logger.debug(s"Starting check for ${due.size} expiring exams ->")
+          checkLocalExams(due.collect { case Key.Local(id) => id })
+          checkExternalExams(due.collect { case Key.External(id) => id })
+          logger.debug("<- done")
+        metrics.recordTick(getSelf.path.name, System.nanoTime - start, due.size)
     )
     .build
 
-  private def checkLocalExams(): Unit =
-    val participants = DB
+  // Queues examinations started since the previous pick-up, e.g. on another node. Known ones keep their deadline.
+  private def pickUp(): Unit =
+    val now   = DateTime.now
+    val since = Some(lastPickUp.minus(ExamAutoSaverActor.PickUpMargin.toMillis))
+    findOngoingParticipations(since).foreach(deadlineQueue.registerParticipation)
+    registerUnknownExternals(findOngoingExternalIds(since))
+    lastPickUp = now
+
+  // Brings the queue up to date with what is ongoing according to the database. Only ids and the fields needed for
+  // figuring out the deadlines are fetched. External exams are deserialized only if not yet known.
+  private def resync(): Unit =
+    val now            = DateTime.now
+    val participations = findOngoingParticipations(None)
+    participations.foreach(deadlineQueue.registerParticipation)
+    val enrolmentIds     = findOngoingExternalIds(None)
+    val participationIds = participations.map(_.getId.longValue).toSet
+    deadlineQueue.keys.foreach {
+      case key @ Key.Local(id) if !participationIds.contains(id) => deadlineQueue.remove(key)
+      case key @ Key.External(id) if !enrolmentIds.contains(id)  => deadlineQueue.remove(key)
+      case _                                                     =>
+    }
+    registerUnknownExternals(enrolmentIds)
+    lastSync = Some(now)
+    lastPickUp = now
+    logger.debug(s"Deadline queue synchronized, ${deadlineQueue.size} ongoing exams")
+
+  private def findOngoingParticipations(startedSince: Option[DateTime]): List[ExamParticipation] =
+    val query = DB
       .find(classOf[ExamParticipation])
-      .fetch("exam")
-      .fetch("reservation")
-      .fetch("reservation.machine.room")
-      .fetch("examinationEvent")
+      .select("id")
+      .fetch("exam", "duration")
+      .fetch("reservation", "startAt")
+      .fetch("reservation.machine.room", "localTimezone")
+      .fetch("examinationEvent", "start")
       .where
       .isNull("ended")
       .or
       .isNotNull("reservation")
       .isNotNull("examinationEvent")
       .endOr
-      .list
-    if participants.isEmpty then logger.debug("None found")
-    else markEnded(participants)
+    startedSince.fold(query)(query.ge("started", _)).list
+
+  private def findOngoingExternalIds(startedSince: Option[DateTime]): Set[Long] =
+    val query = DB
+      .find(classOf[ExamEnrolment])
+      .where
+      .isNotNull("externalExam")
+      .isNotNull("externalExam.started")
+      .isNull("externalExam.finished")
+      .isNotNull("reservation.externalRef")
+    startedSince
+      .fold(query)(query.ge("externalExam.started", _))
+      .findIds[java.lang.Long]()
+      .asScala
+      .map(_.longValue)
+      .toSet
+
+  private def registerUnknownExternals(enrolmentIds: Set[Long]): Unit =
+    val known   = deadlineQueue.keys
+    val unknown = enrolmentIds.filterNot(id => known.contains(Key.External(id)))
+    if unknown.nonEmpty then
+      findExternalExams(unknown).foreach((enrolment, content) =>
+        deadlineQueue.registerExternal(enrolment, content.getDuration)
+      )
 
-  private def getNow(participation: ExamParticipation) =
-    if Option(participation.getExaminationEvent).nonEmpty then DateTime.now
-    else
-      val reservation = participation.getReservation
-      dateTimeHandler.adjustDST(DateTime.now, reservation.getMachine.getRoom)
+  private def checkLocalExams(ids: Seq[Long]): Unit =
+    if ids.nonEmpty then
+      val participants = DB
+        .find(classOf[ExamParticipation])
+        .fetch("exam")
+        .fetch("reservation")
+        .fetch("reservation.machine.room")
+        .fetch("examinationEvent")
+        .where
+        .idIn(ids.asJava)
+        .isNull("ended")
+        .list
+      markEnded(participants)
 
   private def markEnded(participants: List[ExamParticipation]): Unit =
     participants.foreach(participation =>
-      val exam        = participation.getExam
-      val reservation = participation.getReservation
-      val event       = participation.getExaminationEvent
-      val reservationStart = new DateTime(
-        if Option(reservation).isEmpty then event.getStart
-        else reservation.getStartAt
-      )
-      val participationTimeLimit = reservationStart.plusMinutes(exam.getDuration)
-      val now                    = getNow(participation)
+      val exam                   = participation.getExam
+      val participationTimeLimit = deadlineQueue.getTimeLimit(participation)
+      val now                    = deadlineQueue.getNow(participation)
       if participationTimeLimit.isBefore(now) then
         participation.setEnded(now)
         participation.setDuration(new DateTime(participation.getEnded.getMillis - participation.getStarted.getMillis))
-        val settings     = SettingsController.getOrCreateSettings("review_deadline", null, "14")
-        val deadlineDays = settings.getValue.toInt
+        val deadlineDays = settingsStore.getReviewDeadline
         val deadline     = new DateTime(participation.getEnded).plusDays(deadlineDays)
         participation.setDeadline(deadline)
         participation.save()
         logger.info(s"Setting exam ${exam.getId} state to REVIEW")
         exam.setState(Exam.State.REVIEW)
         exam.save()
+        examContextCache.invalidate(participation.getUser.getId)
         if exam.isPrivate then
           // Notify teachers
           val recipients = exam.getParent.getExamOwners.asScala ++ exam.getExamInspections.asScala.map(_.getUser)
@@ -99,20 +177,21 @@ class ExamAutoSaverActor @Inject (
               }
             )
           )
-      else logger.info(s"Exam ${exam.getId} is ongoing until $participationTimeLimit")
+      else
+        logger.info(s"Exam ${exam.getId} is ongoing until $participationTimeLimit")
+        deadlineQueue.registerParticipation(participation)
     )
 
-  private def checkExternalExams(): Unit =
+  private def findExternalExams(ids: Set[Long]): List[(ExamEnrolment, Exam)] =
     DB
       .find(classOf[ExamEnrolment])
       .fetch("externalExam")
       .fetch("reservation")
       .fetch("reservation.machine.room")
       .where
-      .isNotNull("externalExam")
+      .idIn(ids.asJava)
       .isNotNull("externalExam.started")
       .isNull("externalExam.finished")
-      .isNotNull("reservation.externalRef")
       .list
       .flatMap(enrolment =>
         catching(classOf[IOException]).either(enrolment.getExternalExam.deserialize()) match
@@ -121,7 +200,10 @@ class ExamAutoSaverActor @Inject (
             None
           case Right(content) => Some((enrolment, content))
       )
-      .foreach((enrolment, content) =>
+
+  private def checkExternalExams(ids: Seq[Long]): Unit =
+    if ids.nonEmpty then
+      findExternalExams(ids.toSet).foreach((enrolment, content) =>
         val (exam, reservation)    = (enrolment.getExternalExam, enrolment.getReservation)
         val reservationStart       = new DateTime(reservation.getStartAt)
         val participationTimeLimit = reservationStart.plusMinutes(content.getDuration)
@@ -131,5 +213,8 @@ class ExamAutoSaverActor @Inject (
           content.setState(Exam.State.REVIEW)
           catching(classOf[IOException]).either(exam.serialize(content)) match
             case Left(e)  => logger.error("failed to parse content out of an external exam", e)
-            case Right(_) => logger.info(s"Setting external exam ${exam.getHash} state to REVIEW")
+            case Right(_) =>
+              examContextCache.invalidate(enrolment.getUser.getId)
+              logger.info(s"Setting external exam ${exam.getHash} state to REVIEW")
+        else deadlineQueue.registerExternal(enrolment, content.getDuration)
       )
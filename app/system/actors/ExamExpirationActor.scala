@@ -6,6 +6,7 @@ package system.actors
 
 import io.ebean.DB
 import miscellaneous.config.ConfigReader
+import miscellaneous.metrics.Metrics
 import miscellaneous.scala.DbApiHelper
 import models.assessment.ExamRecord
 import models.exam.Exam
@@ -16,7 +17,7 @@ import play.api.Logging
 import javax.inject.Inject
 import scala.jdk.CollectionConverters._
 
-class ExamExpirationActor @Inject (private val configReader: ConfigReader)
+class ExamExpirationActor @Inject (private val configReader: ConfigReader, private val metrics: Metrics)
     extends AbstractActor
     with DbApiHelper
     with Logging:
@@ -26,6 +27,7 @@ class ExamExpirationActor @Inject (private val configReader: ConfigReader)
       classOf[String],
       (_: String) =>
         logger.debug("Starting exam expiration check ->")
+        val start = System.nanoTime
         val exams = DB
           .find(classOf[Exam])
           .where
@@ -52,6 +54,7 @@ class ExamExpirationActor @Inject (private val configReader: ConfigReader)
               case None => logger.error(s"no grading time for exam ${exam.getId}")
               case _    => // nothing to do
           )
+        metrics.recordTick(getSelf.path.name, System.nanoTime - start, exams.size)
         logger.debug("<- done")
     )
     .build
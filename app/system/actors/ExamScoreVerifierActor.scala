@@ -0,0 +1,36 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package system.actors
+
+import impl.ExamScoreUpdater
+import miscellaneous.metrics.Metrics
+import org.apache.pekko.actor.AbstractActor
+import play.api.Logging
+
+import javax.inject.Inject
+
+object ExamScoreVerifierActor:
+  // Exams without stored scores to process per tick, new ones come in as exams end
+  val BatchSize = 200
+  // Exams with stored scores to check per tick
+  val SampleSize = 20
+
+class ExamScoreVerifierActor @Inject (private val scoreUpdater: ExamScoreUpdater, private val metrics: Metrics)
+    extends AbstractActor
+    with Logging:
+  import ExamScoreVerifierActor.*
+
+  override def createReceive(): AbstractActor.Receive = receiveBuilder()
+    .`match`(
+      classOf[String],
+      (_: String) =>
+        logger.debug("Starting exam score check ->")
+        val start   = System.nanoTime
+        val updated = scoreUpdater.updateOutdated(BatchSize)
+        val fixed   = scoreUpdater.verify(SampleSize)
+        metrics.recordTick(getSelf.path.name, System.nanoTime - start, updated + fixed)
+        logger.debug(s"<- done, stored scores of $updated exams and fixed $fixed")
+    )
+    .build
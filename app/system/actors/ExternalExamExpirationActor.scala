@@ -6,6 +6,7 @@ package system.actors
 
 import io.ebean.DB
 import miscellaneous.config.ConfigReader
+import miscellaneous.metrics.Metrics
 import miscellaneous.scala.DbApiHelper
 import models.attachment.Attachment
 import models.iop.ExternalExam
@@ -27,6 +28,7 @@ object ExternalExamExpirationActor:
 class ExternalExamExpirationActor @Inject (
     private val configReader: ConfigReader,
     private val wsClient: WSClient,
+    private val metrics: Metrics,
     implicit val ec: ExecutionContext,
     implicit val mat: Materializer
 ) extends AbstractActor
@@ -97,6 +99,8 @@ class ExternalExamExpirationActor @Inject (
       classOf[String],
       (_: String) =>
         logger.info("Starting external exam expiration check ->")
+        // Actor context is not to be touched from stream callbacks
+        val (start, name) = (System.nanoTime, getSelf.path.name)
         val externalExams = DB
           .find(classOf[ExternalExam])
           .where
@@ -112,13 +116,16 @@ class ExternalExamExpirationActor @Inject (
           Source(externalExams)
             .mapAsync(maxConcurrency)(processExternalExam)
             .runWith(Sink.ignore)
-            .onComplete {
-              case Success(_) =>
-                logger.info("<- External exam expiration check completed successfully")
-              case Failure(e) =>
-                logger.error("Error processing external exam expiration", e)
+            .onComplete { result =>
+              metrics.recordTick(name, System.nanoTime - start, count)
+              result match
+                case Success(_) =>
+                  logger.info("<- External exam expiration check completed successfully")
+                case Failure(e) =>
+                  logger.error("Error processing external exam expiration", e)
             }
         else
+          metrics.recordTick(name, System.nanoTime - start, 0)
           logger.info("No external exams to process")
           logger.info("<- done")
     )
@@ -7,6 +7,7 @@ package system.actors
 import impl.NoShowHandler
 import io.ebean.DB
 import miscellaneous.datetime.DateTimeHandler
+import miscellaneous.metrics.Metrics
 import miscellaneous.scala.DbApiHelper
 import models.enrolment.{ExamEnrolment, Reservation}
 import org.apache.pekko.actor.AbstractActor
@@ -20,6 +21,7 @@ import scala.util.{Failure, Success}
 class ReservationPollerActor @Inject (
     private val noShowHandler: NoShowHandler,
     private val dateTimeHandler: DateTimeHandler,
+    private val metrics: Metrics,
     implicit val ec: ExecutionContext
 ) extends AbstractActor
     with Logging
@@ -40,6 +42,7 @@ class ReservationPollerActor @Inject (
       classOf[String],
       (_: String) =>
         logger.debug("Starting no-show check ->")
+        val start = System.nanoTime
         val enrolments = DB
           .find(classOf[ExamEnrolment])
           .fetch("exam")
@@ -66,14 +69,20 @@ class ReservationPollerActor @Inject (
           .lt("endAt", dateTimeHandler.adjustDST(DateTime.now))
           .list
 
-        if enrolments.isEmpty && reservations.isEmpty then logger.debug("None found")
+        val name  = getSelf.path.name
+        val count = enrolments.size + reservations.size
+        if count == 0 then
+          metrics.recordTick(name, System.nanoTime - start, 0)
+          logger.debug("None found")
         else
-          // Fire-and-forget: process asynchronously and log results
-          noShowHandler.handleNoShows(enrolments, reservations).onComplete {
-            case Success(_) =>
-              logger.debug("No-show processing completed")
-            case Failure(e) =>
-              logger.error("Error processing no-shows", e)
+          // Fire-and-forget: process asynchronously and log results, the tick lasts until processing is done
+          noShowHandler.handleNoShows(enrolments, reservations).onComplete { result =>
+            metrics.recordTick(name, System.nanoTime - start, count)
+            result match
+              case Success(_) =>
+                logger.debug("No-show processing completed")
+              case Failure(e) =>
+                logger.error("Error processing no-shows", e)
           }
         logger.debug("<- done")
     )
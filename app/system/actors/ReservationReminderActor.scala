@@ -7,6 +7,7 @@ package system.actors
 import impl.mail.EmailComposer
 import io.ebean.DB
 import miscellaneous.datetime.DateTimeHandler
+import miscellaneous.metrics.Metrics
 import miscellaneous.scala.DbApiHelper
 import models.enrolment.Reservation
 import org.apache.pekko.actor.{AbstractActor, ActorSystem}
@@ -20,6 +21,7 @@ import scala.concurrent.duration.*
 class ReservationReminderActor @Inject (
     private val emailComposer: EmailComposer,
     private val dateTimeHandler: DateTimeHandler,
+    private val metrics: Metrics,
     private val actorSystem: ActorSystem,
     implicit val ec: ExecutionContext
 ) extends AbstractActor
@@ -41,9 +43,11 @@ class ReservationReminderActor @Inject (
       classOf[String],
       (_: String) =>
         logger.debug("Starting reservation reminder task ->")
+        val start    = System.nanoTime
         val now      = dateTimeHandler.adjustDST(DateTime.now)
         val tomorrow = now.plusDays(1)
-        DB.find(classOf[Reservation])
+        val reservations = DB
+          .find(classOf[Reservation])
           .fetch("enrolment.optionalSections")
           .fetch("enrolment.optionalSections.examMaterials")
           .fetch("enrolment")
@@ -54,7 +58,8 @@ class ReservationReminderActor @Inject (
           .between("startAt", now, tomorrow)
           .ne("reminderSent", true)
           .list
-          .foreach(remind)
+        reservations.foreach(remind)
+        metrics.recordTick(getSelf.path.name, System.nanoTime - start, reservations.size)
         logger.debug("<- done")
     )
     .build
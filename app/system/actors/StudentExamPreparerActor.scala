@@ -0,0 +1,38 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package system.actors
+
+import miscellaneous.metrics.Metrics
+import org.apache.pekko.actor.AbstractActor
+import play.api.Logging
+import repository.ExaminationRepository
+
+import javax.inject.Inject
+
+object StudentExamPreparerActor:
+  // How long before the start student exams get copied
+  val LookAheadMinutes = 30
+  // Exams to copy per tick, keeps large examination events from loading the database all at once
+  val BatchSize = 50
+
+class StudentExamPreparerActor @Inject (
+    private val examinationRepository: ExaminationRepository,
+    private val metrics: Metrics
+) extends AbstractActor
+    with Logging:
+  import StudentExamPreparerActor.*
+
+  override def createReceive(): AbstractActor.Receive = receiveBuilder()
+    .`match`(
+      classOf[String],
+      (_: String) =>
+        logger.debug("Starting student exam preparation ->")
+        val start     = System.nanoTime
+        val discarded = examinationRepository.discardUnusedPreparedExams()
+        val prepared  = examinationRepository.prepareUpcomingExams(LookAheadMinutes, BatchSize)
+        metrics.recordTick(getSelf.path.name, System.nanoTime - start, prepared + discarded)
+        logger.debug(s"<- done, prepared $prepared exams and discarded $discarded")
+    )
+    .build
@@ -10,6 +10,7 @@ import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import javax.inject.Inject;
+import miscellaneous.file.BlockingIOExecutionContext;
 import org.apache.pekko.stream.Materializer;
 import play.libs.typedmap.TypedKey;
 import play.mvc.Http;
@@ -21,8 +22,8 @@ public class AnonymousJsonAction extends JsonFilterAction<Anonymous> {
     public static final String CONTEXT_KEY = "ids";
 
     @Inject
-    public AnonymousJsonAction(Materializer materializer) {
-        super(materializer);
+    public AnonymousJsonAction(Materializer materializer, BlockingIOExecutionContext ec) {
+        super(materializer, ec);
     }
 
     @Override
@@ -0,0 +1,20 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package system.interceptors;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import play.mvc.With;
+
+/**
+ * Marks actions doing blocking database work. These are run on the database execution context rather than on the
+ * threads serving HTTP requests, so that slow queries can not starve the latter.
+ */
+@With(BlockingAction.class)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Blocking {}
@@ -0,0 +1,39 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package system.interceptors;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+import javax.inject.Inject;
+import play.mvc.Action;
+import play.mvc.Http;
+import play.mvc.Result;
+import play.mvc.Results;
+import repository.DatabaseExecutionContext;
+
+public class BlockingAction extends Action<Blocking> {
+
+    private final DatabaseExecutionContext ec;
+
+    @Inject
+    public BlockingAction(DatabaseExecutionContext ec) {
+        this.ec = ec;
+    }
+
+    @Override
+    public CompletionStage<Result> call(Http.Request request) {
+        if (!ec.admit()) {
+            // Rather fail fast than let the queue and response times grow without bounds
+            return CompletableFuture.completedFuture(
+                Results.status(Http.Status.SERVICE_UNAVAILABLE, "i18n_error_server_busy").withHeader(
+                    Http.HeaderNames.RETRY_AFTER,
+                    "1"
+                )
+            );
+        }
+        return CompletableFuture.supplyAsync(() -> delegate.call(request), ec).thenCompose(Function.identity());
+    }
+}
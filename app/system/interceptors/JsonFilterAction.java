@@ -4,27 +4,43 @@
 
 package system.interceptors;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import java.io.InputStream;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import javax.validation.constraints.NotNull;
+import miscellaneous.file.BlockingIOExecutionContext;
 import miscellaneous.json.JsonFilter;
+import org.apache.pekko.NotUsed;
 import org.apache.pekko.stream.Materializer;
+import org.apache.pekko.stream.javadsl.Source;
+import org.apache.pekko.stream.javadsl.StreamConverters;
+import org.apache.pekko.util.ByteString;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import play.http.HttpEntity;
-import play.libs.Json;
 import play.mvc.Action;
 import play.mvc.Result;
+import scala.collection.immutable.Seq;
 import scala.jdk.javaapi.CollectionConverters;
 
 abstract class JsonFilterAction<T> extends Action<T> {
 
+    // How long filtering of a streamed body may be blocked by either end
+    private static final Duration STREAM_TIMEOUT = Duration.ofMinutes(1);
+
+    private final Logger logger = LoggerFactory.getLogger(JsonFilterAction.class);
+
     private final Materializer materializer;
+    private final BlockingIOExecutionContext ec;
 
-    JsonFilterAction(Materializer materializer) {
+    JsonFilterAction(Materializer materializer, BlockingIOExecutionContext ec) {
         this.materializer = materializer;
+        this.ec = ec;
     }
 
     @NotNull
@@ -38,21 +54,44 @@ abstract class JsonFilterAction<T> extends Action<T> {
         if (!contentType.equalsIgnoreCase("application/json") || properties.length < 1) {
             return CompletableFuture.completedFuture(result);
         }
-        return result
-            .body()
-            .consumeData(materializer)
-            .thenApply(body -> {
-                JsonNode json = Json.parse(body.decodeString("UTF-8"));
-                JsonFilter.filterProperties(
-                    json,
-                    CollectionConverters.asScala(ids).toSet(),
-                    CollectionConverters.asScala(Arrays.asList(properties)).toSeq()
-                );
-                return new Result(
-                    result.status(),
-                    result.headers(),
-                    HttpEntity.fromString(Json.stringify(json), "UTF-8")
+        scala.collection.immutable.Set<Object> idSet = CollectionConverters.asScala(ids).toSet();
+        Seq<String> names = CollectionConverters.asScala(Arrays.asList(properties)).toSeq();
+        HttpEntity body = result.body();
+        // Filter on token level, parsing large bodies into a tree and back is expensive
+        if (body instanceof HttpEntity.Strict strict) {
+            ByteString json = JsonFilter.filterProperties(strict.data(), idSet, names);
+            return CompletableFuture.completedFuture(
+                new Result(result.status(), result.headers(), new HttpEntity.Strict(json, body.contentType()))
+            );
+        }
+        // Streamed bodies are filtered as they pass instead of being collected first. Filter reads and writes
+        // blocking, so it runs on a thread of its own.
+        CompletableFuture<Void> filtered = new CompletableFuture<>();
+        Source<ByteString, ?> source = StreamConverters.asOutputStream(STREAM_TIMEOUT)
+            .mapMaterializedValue(os -> {
+                InputStream is = body
+                    .dataStream()
+                    .runWith(StreamConverters.asInputStream(STREAM_TIMEOUT), materializer);
+                CompletableFuture.runAsync(() -> JsonFilter.filterProperties(is, os, idSet, names), ec).whenComplete(
+                    (v, e) -> {
+                        if (e != null) {
+                            logger.error("Failed to filter JSON response", e);
+                            filtered.completeExceptionally(e);
+                        } else {
+                            filtered.complete(null);
+                        }
+                    }
                 );
-            });
+                return NotUsed.getInstance();
+            })
+            // Output gets closed also when filtering fails, fail the response so that it does not pass as complete
+            .concat(Source.completionStageSource(filtered.thenApply(v -> Source.<ByteString>empty())));
+        return CompletableFuture.completedFuture(
+            new Result(
+                result.status(),
+                result.headers(),
+                new HttpEntity.Streamed(source, Optional.empty(), body.contentType())
+            )
+        );
     }
 }
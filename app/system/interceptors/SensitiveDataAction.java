@@ -6,6 +6,7 @@ package system.interceptors;
 
 import com.google.inject.Inject;
 import java.util.concurrent.CompletionStage;
+import miscellaneous.file.BlockingIOExecutionContext;
 import org.apache.pekko.stream.Materializer;
 import play.mvc.Http;
 import play.mvc.Result;
@@ -14,8 +15,8 @@ import play.mvc.Result;
 class SensitiveDataAction extends JsonFilterAction<SensitiveDataPolicy> {
 
     @Inject
-    SensitiveDataAction(Materializer materializer) {
-        super(materializer);
+    SensitiveDataAction(Materializer materializer, BlockingIOExecutionContext ec) {
+        super(materializer, ec);
     }
 
     @Override
@@ -0,0 +1,12 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package system.modules
+
+import com.google.inject.AbstractModule
+import miscellaneous.cache.{MachineDirectory, MachineDirectoryImpl}
+
+class MachineDirectoryModule extends AbstractModule:
+  override def configure(): Unit =
+    bind(classOf[MachineDirectory]).to(classOf[MachineDirectoryImpl])
@@ -0,0 +1,12 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package system.modules
+
+import com.google.inject.AbstractModule
+import miscellaneous.metrics.{Metrics, MetricsImpl}
+
+class MetricsModule extends AbstractModule:
+  override def configure(): Unit =
+    bind(classOf[Metrics]).to(classOf[MetricsImpl])
@@ -0,0 +1,104 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package benchmarks;
+
+import controllers.exam.copy.ExamCopyContext;
+import io.ebean.Database;
+import io.ebean.DatabaseFactory;
+import io.ebean.Transaction;
+import io.ebean.config.DatabaseConfig;
+import io.ebean.datasource.DataSourceConfig;
+import java.util.concurrent.TimeUnit;
+import models.exam.Exam;
+import models.user.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Copying of an exam, done for every student starting an exam and for every teacher copying one. The copy is written
+ * to an in-memory H2 database, run in PostgreSQL compatibility mode, and rolled back after each invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExamCopyBenchmark {
+
+    @Param({ "3", "10" })
+    public int sections;
+
+    @Param({ "10", "50" })
+    public int questionsPerSection;
+
+    @Param({ "TEACHER", "STUDENT" })
+    public String copyType;
+
+    // Student exams are copied in batch mode in production
+    @Param({ "false", "true" })
+    public boolean batchMode;
+
+    private Database database;
+    private Exam exam;
+    private User user;
+
+    @Setup
+    public void setup() {
+        DataSourceConfig dataSource = new DataSourceConfig();
+        dataSource.setUrl("jdbc:h2:mem:benchmark;MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+        dataSource.setUsername("sa");
+        dataSource.setPassword("");
+        DatabaseConfig config = new DatabaseConfig();
+        config.setName("default");
+        config.setDefaultServer(true);
+        config.setDataSourceConfig(dataSource);
+        config.addPackage("models");
+        config.setDdlGenerate(true);
+        config.setDdlRun(true);
+        database = DatabaseFactory.create(config);
+
+        // Ids are left for the database to generate
+        Fixtures fixtures = new Fixtures(false);
+        user = fixtures.user();
+        database.save(user);
+        exam = fixtures.examWithQuestions(user, sections, questionsPerSection, 10);
+        exam
+            .getExamSections()
+            .forEach(es -> es.getSectionQuestions().forEach(esq -> database.save(esq.getQuestion())));
+        database.save(exam);
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Benchmark
+    public Exam createCopy() {
+        ExamCopyContext context = copyType.equals("STUDENT")
+            ? ExamCopyContext.forStudentExam(user).build()
+            : ExamCopyContext.forTeacherCopy(user).build();
+        // Closing without a commit rolls the copy back, keeps the database from growing between invocations
+        try (Transaction tx = database.beginTransaction()) {
+            tx.setBatchMode(batchMode);
+            tx.setBatchSize(100);
+            Exam copy = exam.createCopy(context);
+            // Batched inserts are executed on flush
+            tx.flush();
+            return copy;
+        }
+    }
+}
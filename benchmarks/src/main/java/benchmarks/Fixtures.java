@@ -0,0 +1,283 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package benchmarks;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import models.calendar.DefaultWorkingHours;
+import models.calendar.ExceptionWorkingHours;
+import models.enrolment.ExamEnrolment;
+import models.enrolment.Reservation;
+import models.exam.Exam;
+import models.facility.ExamMachine;
+import models.facility.ExamRoom;
+import models.questions.ClozeTestAnswer;
+import models.questions.Question;
+import models.sections.ExamSection;
+import models.sections.ExamSectionQuestion;
+import models.user.User;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeConstants;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
+import org.joda.time.LocalTime;
+import play.libs.Json;
+
+/**
+ * Generators for synthetic benchmark data. Entities are built in memory, by default ids are assigned by hand so that
+ * identity based equality works as it does for persisted beans. A fixed seed keeps the data the same between runs.
+ */
+final class Fixtures {
+
+    static final String TIMEZONE = "Europe/Helsinki";
+
+    private final Random random = new Random(42);
+    private final boolean assignIds;
+    private long sequence = 1;
+
+    Fixtures() {
+        this(true);
+    }
+
+    /**
+     * @param assignIds whether to assign entity ids, leave them out for entities that are to be persisted
+     */
+    Fixtures(boolean assignIds) {
+        this.assignIds = assignIds;
+    }
+
+    User user() {
+        User user = new User();
+        user.setId(nextId());
+        user.setEppn(String.format("user%d@example.org", sequence++));
+        user.setFirstName("Bench");
+        user.setLastName("Mark");
+        return user;
+    }
+
+    Exam exam(int duration) {
+        Exam exam = new Exam();
+        exam.setId(nextId());
+        exam.setName(String.format("Exam %d", sequence++));
+        exam.setDuration(duration);
+        return exam;
+    }
+
+    /**
+     * Room open from 8 to 20 on weekdays with given amount of machines. Every fourth day of the month has an out of
+     * service exception in the middle of the day and every tenth an extension to the evening.
+     */
+    ExamRoom room(int machineCount, LocalDate from, int days) {
+        ExamRoom room = new ExamRoom();
+        room.setId(nextId());
+        room.setName(String.format("Room %d", sequence++));
+        room.setLocalTimezone(TIMEZONE);
+        int offset = DateTimeZone.forID(TIMEZONE).getOffset(DateTime.now().withDayOfYear(1));
+        Set<DefaultWorkingHours> hours = new HashSet<>();
+        for (int day = DateTimeConstants.MONDAY; day <= DateTimeConstants.FRIDAY; day++) {
+            DefaultWorkingHours dwh = new DefaultWorkingHours();
+            dwh.setRoom(room);
+            dwh.setWeekday(from.withDayOfWeek(day).dayOfWeek().getAsText(Locale.ENGLISH).toUpperCase());
+            // Working hours are stored without the room's standard time offset
+            dwh.setStartTime(from.toDateTimeAtStartOfDay().plusHours(8).minusMillis(offset));
+            dwh.setEndTime(from.toDateTimeAtStartOfDay().plusHours(20).minusMillis(offset));
+            dwh.setTimezoneOffset(offset);
+            hours.add(dwh);
+        }
+        room.setDefaultWorkingHours(hours);
+        Set<ExceptionWorkingHours> exceptions = new HashSet<>();
+        for (int i = 0; i < days; i++) {
+            LocalDate date = from.plusDays(i);
+            if (date.getDayOfMonth() % 4 == 0) {
+                exceptions.add(exception(room, date.toDateTime(new LocalTime(11, 0)), 2, true));
+            }
+            if (date.getDayOfMonth() % 10 == 0) {
+                exceptions.add(exception(room, date.toDateTime(new LocalTime(19, 0)), 3, false));
+            }
+        }
+        room.setCalendarExceptionEvents(exceptions);
+        room.setExamMachines(
+            IntStream.range(0, machineCount)
+                .mapToObj(i -> machine(room, i))
+                .collect(Collectors.toCollection(ArrayList::new))
+        );
+        return room;
+    }
+
+    /**
+     * Books random one hour slots of given room's machines over the given days, each for a random exam out of the
+     * ones given.
+     */
+    List<Reservation> reservations(ExamRoom room, List<Exam> exams, LocalDate from, int days, int count) {
+        List<Reservation> reservations = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ExamMachine machine = room.getExamMachines().get(random.nextInt(room.getExamMachines().size()));
+            DateTime start = from
+                .plusDays(random.nextInt(days))
+                .toDateTimeAtStartOfDay()
+                .plusHours(8 + random.nextInt(11));
+            User user = user();
+            ExamEnrolment enrolment = new ExamEnrolment();
+            enrolment.setId(nextId());
+            enrolment.setUser(user);
+            enrolment.setExam(exams.get(random.nextInt(exams.size())));
+            Reservation reservation = new Reservation();
+            reservation.setId(nextId());
+            reservation.setStartAt(start);
+            reservation.setEndAt(start.plusHours(1));
+            reservation.setMachine(machine);
+            reservation.setUser(user);
+            reservation.setEnrolment(enrolment);
+            enrolment.setReservation(reservation);
+            machine.getReservations().add(reservation);
+            reservations.add(reservation);
+        }
+        return reservations;
+    }
+
+    /**
+     * Cloze test question with given amount of blanks, every third of them numeric, and an answer that gets about
+     * half of them right.
+     */
+    ExamSectionQuestion clozeTestQuestion(int blanks) {
+        StringBuilder html = new StringBuilder("<p>");
+        ObjectNode answers = Json.newObject();
+        for (int i = 1; i <= blanks; i++) {
+            boolean correct = random.nextBoolean();
+            if (i % 3 == 0) {
+                html.append(String.format("Value of %d is <span cloze=\"true\" id=\"%d\" numeric=\"true\"", i, i));
+                html.append(" precision=\"0.5\">");
+                html.append(i * 10).append("</span> ");
+                answers.put(String.valueOf(i), correct ? String.valueOf(i * 10 + 0.25) : "abc");
+            } else {
+                html.append(String.format("Word %d is <span cloze=\"true\" id=\"%d\" case-sensitive=\"false\">", i, i));
+                html.append("alpha|beta *").append(i).append("</span> ");
+                answers.put(String.valueOf(i), correct ? String.format("Beta %d", i) : "gamma");
+            }
+        }
+        html.append("</p>");
+        Question question = new Question();
+        question.setId(nextId());
+        question.setType(Question.Type.ClozeTestQuestion);
+        question.setQuestion(html.toString());
+        ClozeTestAnswer answer = new ClozeTestAnswer();
+        answer.setAnswer(answers.toString());
+        ExamSectionQuestion esq = new ExamSectionQuestion();
+        esq.setId(nextId());
+        esq.setQuestion(question);
+        esq.setMaxScore(10.0);
+        esq.setClozeTestAnswer(answer);
+        return esq;
+    }
+
+    /**
+     * Exam with given amount of sections each having given amount of cloze test questions, without answers.
+     */
+    Exam examWithQuestions(User owner, int sections, int questionsPerSection, int blanks) {
+        Exam exam = exam(60);
+        exam.setState(Exam.State.PUBLISHED);
+        exam.setCreator(owner);
+        exam.setExamSections(new HashSet<>());
+        for (int i = 0; i < sections; i++) {
+            ExamSection section = new ExamSection();
+            section.setName(String.format("Section %d", i));
+            section.setSequenceNumber(i);
+            section.setExam(exam);
+            section.setSectionQuestions(new HashSet<>());
+            for (int j = 0; j < questionsPerSection; j++) {
+                ExamSectionQuestion esq = clozeTestQuestion(blanks);
+                esq.setSequenceNumber(j);
+                esq.setExamSection(section);
+                esq.setClozeTestAnswer(null);
+                section.getSectionQuestions().add(esq);
+            }
+            exam.getExamSections().add(section);
+        }
+        return exam;
+    }
+
+    /**
+     * JSON array resembling an exam listing, i.e. objects with nested users that have properties to filter out.
+     */
+    String examListing(int size) {
+        ArrayNode array = Json.newArray();
+        for (int i = 0; i < size; i++) {
+            ObjectNode exam = array.addObject();
+            exam.put("id", sequence++);
+            exam.put("name", String.format("Exam %d", i));
+            exam.set("creator", userJson());
+            exam.set("modifier", userJson());
+            ArrayNode owners = exam.putArray("examOwners");
+            for (int j = 0; j < 3; j++) {
+                owners.add(userJson());
+            }
+            ArrayNode sections = exam.putArray("examSections");
+            for (int j = 0; j < 5; j++) {
+                ObjectNode section = sections.addObject();
+                section.put("id", sequence++);
+                section.put("name", String.format("Section %d", j));
+                section.put("description", "x".repeat(200));
+                section.set("creator", userJson());
+            }
+        }
+        return array.toString();
+    }
+
+    private Long nextId() {
+        return assignIds ? sequence++ : null;
+    }
+
+    /**
+     * Sets a field of an object that normally gets populated by field injection.
+     */
+    static void inject(Object target, String name, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private ObjectNode userJson() {
+        long id = sequence++;
+        return Json.newObject()
+            .put("id", id)
+            .put("eppn", String.format("user%d@example.org", id))
+            .put("email", String.format("user%d@example.org", id))
+            .put("firstName", "Bench")
+            .put("lastName", "Mark")
+            .put("userIdentifier", String.valueOf(id));
+    }
+
+    private ExamMachine machine(ExamRoom room, int index) {
+        ExamMachine machine = new ExamMachine();
+        machine.setId(nextId());
+        machine.setName(String.format("Machine %d", index));
+        machine.setIpAddress(String.format("10.0.%d.%d", index / 250, index % 250 + 1));
+        machine.setRoom(room);
+        machine.setReservations(new ArrayList<>());
+        return machine;
+    }
+
+    private ExceptionWorkingHours exception(ExamRoom room, DateTime start, int hours, boolean outOfService) {
+        ExceptionWorkingHours ewh = new ExceptionWorkingHours();
+        ewh.setRoom(room);
+        ewh.setStartDate(start.toDate());
+        ewh.setEndDate(start.plusHours(hours).toDate());
+        ewh.setOutOfService(outOfService);
+        return ewh;
+    }
+}
@@ -0,0 +1,76 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import miscellaneous.json.JsonFilter;
+import org.apache.pekko.util.ByteString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import play.libs.Json;
+import scala.jdk.javaapi.CollectionConverters;
+
+/**
+ * Removal of sensitive user properties from a serialized exam listing as done by the JSON filter actions, both by
+ * parsing the body into a tree and by filtering the tokens.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonFilterBenchmark {
+
+    private static final List<String> PROPERTIES = List.of("eppn", "email", "userIdentifier");
+
+    @Param({ "100", "1000" })
+    public int exams;
+
+    @Param({ "false", "true" })
+    public boolean scoped;
+
+    private ByteString body;
+    private Set<Long> ids;
+
+    @Setup
+    public void setup() {
+        body = ByteString.fromString(new Fixtures().examListing(exams));
+        // Restrict filtering to some of the objects, done when users may see their own details
+        ids = scoped ? Set.of(2L, 3L, 5L, 8L, 13L) : Set.of();
+    }
+
+    @Benchmark
+    public ByteString tree() {
+        JsonNode node = Json.parse(body.iterator().asInputStream());
+        JsonFilter.filterProperties(
+            node,
+            CollectionConverters.asScala(ids).toSet(),
+            CollectionConverters.asScala(PROPERTIES).toSeq()
+        );
+        return ByteString.fromString(Json.stringify(node));
+    }
+
+    @Benchmark
+    public ByteString streaming() {
+        return JsonFilter.filterProperties(
+            body,
+            CollectionConverters.asScala(ids).toSet(),
+            CollectionConverters.asScala(PROPERTIES).toSeq()
+        );
+    }
+}
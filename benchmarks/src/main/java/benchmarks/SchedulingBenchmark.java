@@ -0,0 +1,123 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package benchmarks;
+
+import com.typesafe.config.ConfigFactory;
+import impl.CalendarHandler;
+import impl.CalendarHandlerImpl;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import miscellaneous.config.ConfigReaderImpl;
+import miscellaneous.datetime.DateTimeHandler;
+import miscellaneous.datetime.DateTimeHandlerImpl;
+import models.enrolment.Reservation;
+import models.exam.Exam;
+import models.facility.ExamRoom;
+import models.user.User;
+import org.joda.time.Interval;
+import org.joda.time.LocalDate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Slot search of a single room over the reservation window, i.e. what a student waits for when opening the
+ * reservation calendar.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SchedulingBenchmark {
+
+    private static final int DAYS = 30;
+
+    @Param({ "20", "100" })
+    public int machines;
+
+    @Param({ "100", "2000" })
+    public int reservations;
+
+    private DateTimeHandler dateTimeHandler;
+    private CalendarHandler calendarHandler;
+    private ExamRoom room;
+    private Exam exam;
+    private User user;
+    private List<Reservation> userReservations;
+    private List<Interval> reserved;
+    private LocalDate from;
+
+    @Setup
+    public void setup() {
+        var config = ConfigFactory.parseString(String.format("exam.application.timezone = \"%s\"", Fixtures.TIMEZONE));
+        dateTimeHandler = new DateTimeHandlerImpl(new ConfigReaderImpl(config));
+        calendarHandler = new CalendarHandlerImpl();
+        Fixtures.inject(calendarHandler, "dateTimeHandler", dateTimeHandler);
+
+        // Start from tomorrow so that slots are not cut by the current time of day
+        from = LocalDate.now().plusDays(1);
+        Fixtures fixtures = new Fixtures();
+        room = fixtures.room(machines, from, DAYS);
+        exam = fixtures.exam(90);
+        List<Exam> exams = List.of(exam, fixtures.exam(60), fixtures.exam(120));
+        List<Reservation> all = fixtures.reservations(room, exams, from, DAYS, reservations);
+        user = all.getFirst().getUser();
+        userReservations = all.subList(0, 1);
+        reserved = all
+            .stream()
+            .map(Reservation::toInterval)
+            .filter(i -> i.getStart().toLocalDate().equals(from))
+            .toList();
+    }
+
+    @Benchmark
+    public void workingHoursForDate(Blackhole bh) {
+        for (int i = 0; i < DAYS; i++) {
+            bh.consume(dateTimeHandler.getWorkingHoursForDate(from.plusDays(i), room));
+        }
+    }
+
+    @Benchmark
+    public List<Interval> mergeSlots() {
+        return dateTimeHandler.mergeSlots(reserved);
+    }
+
+    @Benchmark
+    public List<Interval> findGaps() {
+        return dateTimeHandler.findGaps(dateTimeHandler.mergeSlots(reserved), from.toInterval());
+    }
+
+    @Benchmark
+    public void gatherSuitableSlots(Blackhole bh) {
+        for (int i = 0; i < DAYS; i++) {
+            bh.consume(calendarHandler.gatherSuitableSlots(room, from.plusDays(i), exam.getDuration()));
+        }
+    }
+
+    @Benchmark
+    public void handleReservations(Blackhole bh) {
+        for (int i = 0; i < DAYS; i++) {
+            Collection<Interval> slots = calendarHandler.gatherSuitableSlots(room, from.plusDays(i), exam.getDuration());
+            Map<Interval, Optional<Integer>> map = new LinkedHashMap<>();
+            slots.forEach(slot -> map.put(slot, Optional.empty()));
+            bh.consume(calendarHandler.handleReservations(map, userReservations, exam, room.getExamMachines(), user));
+        }
+    }
+}
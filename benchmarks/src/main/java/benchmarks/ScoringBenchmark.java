@@ -0,0 +1,62 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import models.sections.ExamSectionQuestion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Scoring of answered cloze test questions, done for every question of every exam when listing and reviewing them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScoringBenchmark {
+
+    @Param({ "5", "30" })
+    public int blanks;
+
+    @Param({ "100" })
+    public int questions;
+
+    private List<ExamSectionQuestion> sectionQuestions;
+
+    @Setup
+    public void setup() {
+        Fixtures fixtures = new Fixtures();
+        sectionQuestions = IntStream.range(0, questions).mapToObj(i -> fixtures.clozeTestQuestion(blanks)).toList();
+    }
+
+    @Benchmark
+    public void calculateScore(Blackhole bh) {
+        for (ExamSectionQuestion esq : sectionQuestions) {
+            bh.consume(esq.getClozeTestAnswer().calculateScore(esq));
+        }
+    }
+
+    @Benchmark
+    public void getAssessedScore(Blackhole bh) {
+        for (ExamSectionQuestion esq : sectionQuestions) {
+            bh.consume(esq.getAssessedScore());
+        }
+    }
+}
@@ -0,0 +1,9 @@
+-- SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+--
+-- SPDX-License-Identifier: EUPL-1.2
+
+# --- !Ups
+CREATE INDEX ix_exam_participation_ongoing ON exam_participation(id) WHERE ended IS NULL;
+
+# --- !Downs
+DROP INDEX ix_exam_participation_ongoing;
@@ -0,0 +1,27 @@
+-- SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+--
+-- SPDX-License-Identifier: EUPL-1.2
+
+# --- !Ups
+ALTER TABLE exam ADD total_score DOUBLE PRECISION NULL;
+ALTER TABLE exam ADD max_score DOUBLE PRECISION NULL;
+ALTER TABLE exam ADD approved_answer_count INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE exam ADD rejected_answer_count INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE exam ADD scores_updated TIMESTAMP NULL;
+ALTER TABLE exam_section ADD total_score DOUBLE PRECISION NULL;
+ALTER TABLE exam_section ADD max_score DOUBLE PRECISION NULL;
+ALTER TABLE exam_section ADD approved_count INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE exam_section ADD rejected_count INTEGER NOT NULL DEFAULT 0;
+CREATE INDEX ix_exam_scores_outdated ON exam(id) WHERE scores_updated IS NULL AND parent_id IS NOT NULL;
+
+# --- !Downs
+DROP INDEX ix_exam_scores_outdated;
+ALTER TABLE exam_section DROP rejected_count;
+ALTER TABLE exam_section DROP approved_count;
+ALTER TABLE exam_section DROP max_score;
+ALTER TABLE exam_section DROP total_score;
+ALTER TABLE exam DROP scores_updated;
+ALTER TABLE exam DROP rejected_answer_count;
+ALTER TABLE exam DROP approved_answer_count;
+ALTER TABLE exam DROP max_score;
+ALTER TABLE exam DROP total_score;
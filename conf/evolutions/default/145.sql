@@ -0,0 +1,14 @@
+-- SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+--
+-- SPDX-License-Identifier: EUPL-1.2
+
+# --- !Ups
+ALTER TABLE exam_enrolment ADD prepared_exam_id BIGINT NULL;
+ALTER TABLE exam_enrolment ADD CONSTRAINT fk_exam_enrolment_prepared_exam FOREIGN KEY (prepared_exam_id) REFERENCES exam(id);
+CREATE INDEX ix_exam_enrolment_prepared_exam ON exam_enrolment(prepared_exam_id);
+CREATE INDEX ix_exam_initialized ON exam(id) WHERE state = 14 AND parent_id IS NOT NULL;
+
+# --- !Downs
+DROP INDEX ix_exam_initialized;
+DROP INDEX ix_exam_enrolment_prepared_exam;
+ALTER TABLE exam_enrolment DROP prepared_exam_id;
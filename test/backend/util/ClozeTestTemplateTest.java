@@ -0,0 +1,67 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package backend.util;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+import models.questions.ClozeTestAnswer;
+import models.questions.ClozeTestTemplate;
+import org.junit.Test;
+
+public class ClozeTestTemplateTest {
+
+    private static final String QUESTION =
+        "<p><span cloze=\"true\" id=\"1\" case-sensitive=\"false\">Pariisi</span> on Ranskan pääkaupunki. " +
+        "<span cloze=\"true\" id=\"2\" case-sensitive=\"true\">Berlin | Berliini</span> on Saksan. " +
+        "<span cloze=\"true\" id=\"3\" case-sensitive=\"false\">Tukhol*</span> on Ruotsin. " +
+        "<span cloze=\"true\" id=\"4\" numeric=\"true\" precision=\"0.5\">3.14</span> on pii. " +
+        "<span cloze=\"true\" id=\"5\" case-sensitive=\"false\">a\\*b (c)</span></p>";
+
+    private final ClozeTestTemplate template = ClozeTestTemplate.of(QUESTION);
+
+    @Test
+    public void testCompile() {
+        List<ClozeTestTemplate.Blank> blanks = template.getBlanks();
+        assertThat(blanks).hasSize(5);
+        assertThat(blanks.get(0).getId()).isEqualTo("1");
+        assertThat(blanks.get(3).isNumeric()).isTrue();
+        assertThat(blanks.get(3).getPrecision()).isEqualTo("0.5");
+        assertThat(ClozeTestTemplate.of(QUESTION)).isSameAs(template);
+    }
+
+    @Test
+    public void testMatching() {
+        List<ClozeTestTemplate.Blank> blanks = template.getBlanks();
+        assertThat(blanks.get(0).isCorrect(" pariisi ")).isTrue();
+        assertThat(blanks.get(0).isCorrect("Pariis")).isFalse();
+        assertThat(blanks.get(1).isCorrect("Berliini")).isTrue();
+        assertThat(blanks.get(1).isCorrect("berlin")).isFalse();
+        assertThat(blanks.get(2).isCorrect("Tukholma")).isTrue();
+        assertThat(blanks.get(3).isCorrect("3.6")).isTrue();
+        assertThat(blanks.get(3).isCorrect("3.7")).isFalse();
+        assertThat(blanks.get(3).isCorrect("pii")).isFalse();
+        assertThat(blanks.get(3).isCorrect("")).isFalse();
+        assertThat(blanks.get(4).isCorrect("a*b (c)")).isTrue();
+        assertThat(blanks.get(4).isCorrect("axb (c)")).isFalse();
+    }
+
+    @Test
+    public void testScore() {
+        ClozeTestAnswer.Score score = template.score(Map.of("1", "Pariisi", "2", "Berlin", "4", "2"));
+        assertThat(score.getCorrectAnswers()).isEqualTo(2);
+        assertThat(score.getIncorrectAnswers()).isEqualTo(3);
+    }
+
+    @Test
+    public void testStudentView() {
+        String view = template.getStudentView();
+        assertThat(view).doesNotContain("Pariisi");
+        assertThat(view).doesNotContain("cloze=");
+        assertThat(view).contains("<input id=\"1\"");
+        assertThat(view).contains("type=\"number\"");
+    }
+}
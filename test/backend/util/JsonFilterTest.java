@@ -9,7 +9,10 @@ import static org.fest.assertions.Assertions.assertThat;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
@@ -17,6 +20,7 @@ import java.util.Objects;
 import java.util.Set;
 import miscellaneous.json.JsonFilter;
 import org.apache.commons.io.FileUtils;
+import org.apache.pekko.util.ByteString;
 import org.junit.Test;
 import play.libs.Json;
 import scala.jdk.javaapi.CollectionConverters;
@@ -95,6 +99,52 @@ public class JsonFilterTest {
         assertThatJsonDoesNotHaveProperties(node2, filters);
     }
 
+    @Test
+    public void testFilterSerializedProperties() throws Exception {
+        final String json = FileUtils.readFileToString(
+            new File(
+                Objects.requireNonNull(getClass().getClassLoader().getResource("jsonfilter_testdata.json")).toURI()
+            ),
+            "UTF-8"
+        );
+        assertThatSerializedFilteringMatches(json, Collections.emptySet(), "creator", "modifier");
+        assertThatSerializedFilteringMatches(json, Set.of(2L), "creator", "modifier");
+        assertThatSerializedFilteringMatches(json, Set.of(1L, 3L), "creator", "name");
+    }
+
+    @Test
+    public void testFilterSerializedPropertiesWithIdNotFirst() {
+        final String json =
+            "[{\"name\":\"a\",\"creator\":{\"id\":5},\"id\":2,\"items\":[{\"creator\":null,\"id\":3}]}," +
+            "{\"name\":\"b\",\"creator\":{\"id\":6},\"id\":4},{\"id\":2,\"creator\":[1,2,{}]},{}]";
+        assertThatSerializedFilteringMatches(json, Set.of(2L), "creator");
+        assertThatSerializedFilteringMatches(json, Set.of(3L, 4L), "creator", "id");
+        assertThatSerializedFilteringMatches(json, Collections.emptySet(), "creator", "id");
+    }
+
+    private void assertThatSerializedFilteringMatches(String json, Set<Long> ids, String... props) {
+        final JsonNode expected = Json.parse(json);
+        JsonFilter.filterProperties(
+            expected,
+            CollectionConverters.asScala(ids).toSet(),
+            CollectionConverters.asScala(Arrays.asList(props)).toSeq()
+        );
+        final ByteString filtered = JsonFilter.filterProperties(
+            ByteString.fromString(json),
+            CollectionConverters.asScala(ids).toSet(),
+            CollectionConverters.asScala(Arrays.asList(props)).toSeq()
+        );
+        assertThat(Json.parse(filtered.utf8String())).isEqualTo(expected);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonFilter.filterProperties(
+            new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)),
+            out,
+            CollectionConverters.asScala(ids).toSet(),
+            CollectionConverters.asScala(Arrays.asList(props)).toSeq()
+        );
+        assertThat(Json.parse(out.toByteArray())).isEqualTo(expected);
+    }
+
     private void assertThatJsonHasProperties(JsonNode jsonNode, String... props) {
         Arrays.asList(props).forEach(p -> assertThat(jsonNode.has(p)).isTrue());
     }
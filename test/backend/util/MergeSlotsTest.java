@@ -0,0 +1,42 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package backend.util;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import java.util.List;
+import miscellaneous.datetime.DateTimeHandler;
+import miscellaneous.datetime.DateTimeHandlerImpl;
+import org.joda.time.DateTime;
+import org.joda.time.Interval;
+import org.junit.Test;
+
+public class MergeSlotsTest {
+
+    private final DateTime start = DateTime.now().withTimeAtStartOfDay().plusHours(8);
+    private final DateTimeHandler handler = new DateTimeHandlerImpl(null);
+
+    private Interval slot(int fromHour, int toHour) {
+        return new Interval(start.plusHours(fromHour), start.plusHours(toHour));
+    }
+
+    @Test
+    public void testMergeSeveralOverlapping() {
+        // Unsorted, several merges in a row and a slot contained in an earlier one
+        List<Interval> slots = List.of(slot(3, 4), slot(0, 2), slot(1, 3), slot(6, 9), slot(7, 8), slot(10, 11));
+        assertThat(handler.mergeSlots(slots)).isEqualTo(List.of(slot(0, 4), slot(6, 9), slot(10, 11)));
+    }
+
+    @Test
+    public void testMergeAdjacent() {
+        assertThat(handler.mergeSlots(List.of(slot(0, 1), slot(1, 2)))).isEqualTo(List.of(slot(0, 2)));
+    }
+
+    @Test
+    public void testKeepSeparate() {
+        List<Interval> slots = List.of(slot(0, 1), slot(2, 3));
+        assertThat(handler.mergeSlots(slots)).isEqualTo(slots);
+    }
+}
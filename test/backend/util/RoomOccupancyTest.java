@@ -0,0 +1,104 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package backend.util;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import miscellaneous.cache.RoomOccupancy;
+import models.enrolment.Reservation;
+import models.exam.Exam;
+import models.facility.ExamMachine;
+import models.facility.Software;
+import models.user.User;
+import org.joda.time.DateTime;
+import org.joda.time.Interval;
+import org.junit.Test;
+
+public class RoomOccupancyTest {
+
+    private final DateTime start = DateTime.now().plusDays(1).withTimeAtStartOfDay().plusHours(8);
+
+    private ExamMachine machine(long id) {
+        ExamMachine machine = new ExamMachine();
+        machine.setId(id);
+        machine.setSoftwareInfo(new ArrayList<>());
+        machine.setAccessibilities(new ArrayList<>());
+        return machine;
+    }
+
+    private User user(long id) {
+        User user = new User();
+        user.setId(id);
+        return user;
+    }
+
+    private Reservation reservation(ExamMachine machine, User user, DateTime from, DateTime to) {
+        Reservation reservation = new Reservation();
+        reservation.setMachine(machine);
+        reservation.setUser(user);
+        reservation.setStartAt(from);
+        reservation.setEndAt(to);
+        return reservation;
+    }
+
+    @Test
+    public void testCountAvailable() {
+        ExamMachine m1 = machine(1);
+        ExamMachine m2 = machine(2);
+        User me = user(1);
+        User other = user(2);
+        // A long reservation starting well before the slot must still be detected
+        List<Reservation> reservations = List.of(
+            reservation(m1, other, start.minusHours(3), start.plusHours(1)),
+            reservation(m2, me, start, start.plusHours(1)),
+            reservation(m2, other, start.plusHours(2), start.plusHours(3))
+        );
+        RoomOccupancy occupancy = new RoomOccupancy(1L, List.of(m1, m2), reservations);
+        Exam exam = new Exam();
+        exam.setSoftwareInfo(Collections.emptyList());
+        List<RoomOccupancy.MachineOccupancy> machines = occupancy.getEligibleMachines(Collections.emptyList(), exam);
+        assertThat(machines).hasSize(2);
+
+        assertThat(occupancy.countAvailable(machines, new Interval(start, start.plusHours(1)), me)).isEqualTo(1);
+        assertThat(occupancy.countAvailable(machines, new Interval(start, start.plusHours(1)), other)).isEqualTo(0);
+        assertThat(occupancy.countAvailable(machines, new Interval(start.plusHours(1), start.plusHours(2)), me))
+            .isEqualTo(2);
+        assertThat(occupancy.countAvailable(machines, new Interval(start.plusMinutes(90), start.plusHours(4)), me))
+            .isEqualTo(1);
+    }
+
+    @Test
+    public void testGetAvailable() {
+        ExamMachine m1 = machine(1);
+        ExamMachine m2 = machine(2);
+        User me = user(1);
+        List<Reservation> reservations = List.of(reservation(m1, me, start, start.plusHours(1)));
+        RoomOccupancy occupancy = new RoomOccupancy(1L, List.of(m1, m2), reservations);
+        List<RoomOccupancy.MachineOccupancy> machines = occupancy.getEligibleMachines(Collections.emptyList(), null);
+        Interval slot = new Interval(start, start.plusHours(1));
+
+        assertThat(occupancy.getAvailable(machines, slot, me)).containsOnly(1L, 2L);
+        // External users have no reservations of their own in the index
+        assertThat(occupancy.getAvailable(machines, slot, null)).containsOnly(2L);
+    }
+
+    @Test
+    public void testEligibleMachinesRequireSoftware() {
+        Software software = new Software();
+        software.setId(10L);
+        ExamMachine m1 = machine(1);
+        ExamMachine m2 = machine(2);
+        m2.getSoftwareInfo().add(software);
+        RoomOccupancy occupancy = new RoomOccupancy(1L, List.of(m1, m2), Collections.emptyList());
+        Exam exam = new Exam();
+        exam.setSoftwareInfo(List.of(software));
+        List<RoomOccupancy.MachineOccupancy> machines = occupancy.getEligibleMachines(Collections.emptyList(), exam);
+        assertThat(machines).hasSize(1);
+        assertThat(machines.getFirst().getMachineId()).isEqualTo(2L);
+    }
+}
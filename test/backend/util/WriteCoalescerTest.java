@@ -0,0 +1,98 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package backend.util;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import impl.WriteCoalescer;
+import jakarta.persistence.OptimisticLockException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class WriteCoalescerTest {
+
+    private final List<String> written = new CopyOnWriteArrayList<>();
+    private final List<Long> versions = new CopyOnWriteArrayList<>();
+    private final CountDownLatch firstWriteStarted = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final WriteCoalescer<Long, String, String> coalescer = new WriteCoalescer<>((key, version, value) -> {
+        firstWriteStarted.countDown();
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+        written.add(value);
+        versions.add(version);
+        return new WriteCoalescer.Written<>(value, version + 1);
+    });
+
+    // Submits in the background, returns once the write has started and is held until released
+    private CompletableFuture<String> startWrite(String client, Long version, String value) throws Exception {
+        CompletableFuture<String> write = CompletableFuture.supplyAsync(() ->
+            coalescer.submit(1L, client, version, value)
+        );
+        assertThat(firstWriteStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        return write;
+    }
+
+    @Test
+    public void testCoalesce() throws Exception {
+        CompletableFuture<String> first = startWrite("client", 5L, "a");
+        // Both are based on the same version as the one being flushed, they get queued while it is held
+        CompletableFuture<String> second = coalescer.enqueue(1L, "client", 5L, "ab");
+        CompletableFuture<String> third = coalescer.enqueue(1L, "client", 5L, "abc");
+        assertThat(second.isDone()).isFalse();
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("a");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("abc");
+        assertThat(third.get(5, TimeUnit.SECONDS)).isEqualTo("abc");
+        assertThat(written).containsExactly("a", "abc");
+        // Second write got rebased on the first one
+        assertThat(versions).containsExactly(5L, 6L);
+        assertThat(coalescer.getStatistics().getRequests()).isEqualTo(3);
+        assertThat(coalescer.getStatistics().getCoalesced()).isEqualTo(1);
+        assertThat(coalescer.getStatistics().getFlushes()).isEqualTo(2);
+    }
+
+    @Test
+    public void testRejectOtherClient() throws Exception {
+        CompletableFuture<String> first = startWrite("client", 5L, "a");
+        try {
+            coalescer.enqueue(1L, "other", 5L, "b");
+            throw new AssertionError("write of another client merged");
+        } catch (OptimisticLockException e) {
+            assertThat(coalescer.getStatistics().getRejected()).isEqualTo(1);
+        }
+        release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("a");
+        assertThat(written).containsExactly("a");
+
+        // Once the window is closed the other client is checked against the version only
+        assertThat(coalescer.submit(1L, "other", 6L, "b")).isEqualTo("b");
+    }
+
+    @Test
+    public void testRejectOutdated() {
+        release.countDown();
+        assertThat(coalescer.submit(1L, "client", 5L, "a")).isEqualTo("a");
+        assertThat(coalescer.submit(1L, "client", 6L, "ab")).isEqualTo("ab");
+        try {
+            coalescer.submit(1L, "client", 6L, "abc");
+            throw new AssertionError("outdated version accepted");
+        } catch (OptimisticLockException e) {
+            assertThat(written).containsExactly("a", "ab");
+            assertThat(coalescer.getStatistics().getRejected()).isEqualTo(1);
+        }
+        // Other keys are not affected
+        assertThat(coalescer.submit(2L, "client", 1L, "x")).isEqualTo("x");
+    }
+}
@@ -41,6 +41,7 @@ import models.user.Language;
 import models.user.User;
 import org.apache.commons.io.FileUtils;
 import org.junit.After;
+import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Rule;
@@ -60,6 +61,9 @@ public class IntegrationTestCase extends WithApplication {
     protected static final int MAIL_TIMEOUT = 20000;
     protected Long userId;
     protected Http.Session session;
+    // Statements executed by the last request
+    protected QueryCounter.Count queryCount;
+    private QueryBudget queryBudget;
 
     private static final Map<String, String> HAKA_HEADERS = new HashMap<>();
 
@@ -112,6 +116,7 @@ public class IntegrationTestCase extends WithApplication {
         } else if (testMethod.isAnnotationPresent(RunAsAdmin.class)) {
             loginAsAdmin();
         }
+        queryBudget = testMethod.getAnnotation(QueryBudget.class);
     }
 
     @After
@@ -125,6 +130,11 @@ public class IntegrationTestCase extends WithApplication {
         }
     }
 
+    @AfterClass
+    public static void writeQueryReport() throws IOException {
+        QueryCounter.writeReport();
+    }
+
     // Common helper methods -->
 
     protected Result get(String path) {
@@ -154,7 +164,22 @@ public class IntegrationTestCase extends WithApplication {
         if (body != null && !method.equals(Helpers.GET)) {
             request = request.bodyJson(body);
         }
+        QueryCounter.reset();
         Result result = Helpers.route(app, request);
+        queryCount = QueryCounter.collect();
+        QueryCounter.record(method, path, queryCount);
+        if (queryBudget != null && queryCount.statements() > queryBudget.value()) {
+            Assert.fail(
+                String.format(
+                    "%s %s executed %d statements, budget is %d. Most executed: %s",
+                    method,
+                    path,
+                    queryCount.statements(),
+                    queryBudget.value(),
+                    queryCount.worst()
+                )
+            );
+        }
         if (followRedirects && result.redirectLocation().isPresent()) {
             return request(method, result.redirectLocation().get(), body, headers, false);
         } else {
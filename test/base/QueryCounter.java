@@ -0,0 +1,100 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package base;
+
+import io.ebean.DB;
+import io.ebean.meta.ServerMetrics;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Counts the SQL statements executed by Ebean while serving a request, based on the query and timed metrics Ebean
+ * collects. Collecting the metrics resets them, so counting is accurate as long as requests are served one at a time,
+ * as they are in the integration tests. Statements per route are aggregated across test classes into a report of the
+ * worst offenders.
+ */
+public final class QueryCounter {
+
+    public record Count(long statements, Map<String, Long> byName) {
+        // Most executed statement, in case of N+1 queries typically a lazy load
+        public String worst() {
+            return byName
+                .entrySet()
+                .stream()
+                .max(Map.Entry.comparingByValue())
+                .map(e -> String.format("%s (%d)", e.getKey(), e.getValue()))
+                .orElse("");
+        }
+    }
+
+    private record RouteStatistics(String route, long requests, long statements, Count max) {
+        private RouteStatistics add(Count count) {
+            return new RouteStatistics(
+                route,
+                requests + 1,
+                statements + count.statements(),
+                max == null || count.statements() > max.statements() ? count : max
+            );
+        }
+    }
+
+    private static final Pattern ID_SEGMENT = Pattern.compile("/(\\d+|[0-9a-f-]{32,36})(?=/|$)");
+    private static final Path REPORT = Path.of("target", "query-report.txt");
+    private static final Map<String, RouteStatistics> ROUTES = new ConcurrentHashMap<>();
+
+    private QueryCounter() {}
+
+    public static void reset() {
+        DB.getDefault().metaInfo().collectMetrics();
+    }
+
+    public static Count collect() {
+        ServerMetrics metrics = DB.getDefault().metaInfo().collectMetrics();
+        Map<String, Long> byName = new HashMap<>();
+        // Timed metrics also include transactions, those are not statements
+        Stream.concat(
+            metrics.queryMetrics().stream(),
+            metrics.timedMetrics().stream().filter(m -> !m.name().startsWith("txn"))
+        ).forEach(m -> byName.merge(m.name(), m.count(), Long::sum));
+        long statements = byName.values().stream().mapToLong(Long::longValue).sum();
+        return new Count(statements, byName);
+    }
+
+    static void record(String method, String path, Count count) {
+        String route = method + " " + ID_SEGMENT.matcher(path.split("\\?")[0]).replaceAll("/:id");
+        ROUTES.compute(route, (k, v) -> (v == null ? new RouteStatistics(route, 0, 0, null) : v).add(count));
+    }
+
+    static void writeReport() throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("max\tmean\trequests\troute\tmost executed statement of the worst request");
+        ROUTES.values()
+            .stream()
+            .sorted(Comparator.comparingLong((RouteStatistics s) -> s.max().statements()).reversed())
+            .forEach(s ->
+                lines.add(
+                    String.format(
+                        "%d\t%.1f\t%d\t%s\t%s",
+                        s.max().statements(),
+                        (double) s.statements() / s.requests(),
+                        s.requests(),
+                        s.route(),
+                        s.max().worst()
+                    )
+                )
+            );
+        Files.createDirectories(REPORT.getParent());
+        Files.write(REPORT, lines);
+    }
+}
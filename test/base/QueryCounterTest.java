@@ -0,0 +1,38 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package base;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import org.junit.Assert;
+import org.junit.Test;
+import play.mvc.Http;
+import play.mvc.Result;
+
+public class QueryCounterTest extends IntegrationTestCase {
+
+    @Test
+    @RunAsAdmin
+    public void testCountStatements() {
+        Result result = get("/app/rooms");
+        assertThat(result.status()).isEqualTo(Http.Status.OK);
+        assertThat(queryCount.statements()).isGreaterThan(0);
+        assertThat(queryCount.byName()).isNotEmpty();
+        assertThat(queryCount.worst()).isNotEmpty();
+    }
+
+    @Test
+    @RunAsAdmin
+    @QueryBudget(0)
+    public void testExceedBudget() {
+        try {
+            get("/app/rooms");
+        } catch (AssertionError e) {
+            assertThat(e.getMessage()).contains("GET /app/rooms").contains("budget is 0");
+            return;
+        }
+        Assert.fail("Budget was not enforced");
+    }
+}
@@ -8,28 +8,44 @@ import static org.fest.assertions.Assertions.assertThat;
 import static play.test.Helpers.contentAsString;
 
 import base.IntegrationTestCase;
+import base.QueryBudget;
 import base.RunAsStudent;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.icegreen.greenmail.configuration.GreenMailConfiguration;
 import com.icegreen.greenmail.junit4.GreenMailRule;
 import com.icegreen.greenmail.util.GreenMailUtil;
 import com.icegreen.greenmail.util.ServerSetupTest;
+import impl.MachineAllocator;
 import io.ebean.DB;
+import io.ebean.Transaction;
 import jakarta.mail.internet.MimeMessage;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import miscellaneous.cache.RoomOccupancyCache;
 import models.calendar.DefaultWorkingHours;
 import models.enrolment.ExamEnrolment;
 import models.enrolment.Reservation;
 import models.exam.Exam;
 import models.exam.ExamExecutionType;
+import models.facility.ExamMachine;
 import models.facility.ExamRoom;
 import models.user.Language;
 import models.user.User;
 import net.jodah.concurrentunit.Waiter;
+import org.apache.pekko.stream.Materializer;
 import org.joda.time.DateTime;
+import org.joda.time.Interval;
 import org.joda.time.format.ISODateTimeFormat;
 import org.junit.Before;
 import org.junit.Rule;
@@ -166,6 +182,85 @@ public class CalendarControllerTest extends IntegrationTestCase {
 
     @Test
     @RunAsStudent
+    public void testConcurrentAllocationOfLastMachine() throws Exception {
+        // Leave a single machine to compete for
+        List<ExamMachine> machines = DB.find(ExamMachine.class)
+            .where()
+            .eq("room.id", room.getId())
+            .eq("outOfService", false)
+            .findList();
+        machines
+            .stream()
+            .skip(1)
+            .forEach(m -> {
+                m.setOutOfService(true);
+                m.update();
+            });
+        app.injector().instanceOf(RoomOccupancyCache.class).invalidate(room.getId());
+        MachineAllocator allocator = app.injector().instanceOf(MachineAllocator.class);
+        DateTime start = DateTime.now().plusDays(1).withTime(12, 0, 0, 0);
+        Interval slot = new Interval(start, start.plusHours(1));
+        CountDownLatch locked = new CountDownLatch(1);
+
+        CompletableFuture<Optional<ExamMachine>> first = CompletableFuture.supplyAsync(() -> {
+            try (Transaction tx = DB.beginTransaction()) {
+                Optional<ExamMachine> machine = allocator.allocate(room, null, slot, List.of(), user);
+                machine.ifPresent(m -> {
+                    Reservation r = new Reservation();
+                    r.setStartAt(slot.getStart());
+                    r.setEndAt(slot.getEnd());
+                    r.setMachine(m);
+                    r.setUser(user);
+                    r.save();
+                });
+                locked.countDown();
+                tx.commit();
+                return machine;
+            }
+        });
+        CompletableFuture<Optional<ExamMachine>> second = CompletableFuture.supplyAsync(() -> {
+            try (Transaction tx = DB.beginTransaction()) {
+                locked.await(5, TimeUnit.SECONDS);
+                return allocator.allocate(room, null, slot, List.of(), DB.find(User.class, 2L));
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        assertThat(first.get(10, TimeUnit.SECONDS).isPresent()).isTrue();
+        assertThat(second.get(10, TimeUnit.SECONDS).isPresent()).isFalse();
+        int count = DB.find(Reservation.class).where().eq("machine.id", machines.get(0).getId()).findCount();
+        assertThat(count).isEqualTo(1);
+    }
+
+    @Test
+    @RunAsStudent
+    public void testGetSlotsForRooms() {
+        exam.setImplementation(Exam.Implementation.AQUARIUM);
+        exam.setDuration(60);
+        exam.setPeriodStart(DateTime.now().minusDays(1));
+        exam.setPeriodEnd(DateTime.now().plusDays(7));
+        exam.update();
+        List<Long> roomIds = DB.find(ExamRoom.class).where().orderBy("id").setMaxRows(2).findIds();
+        String ids = roomIds.stream().map(id -> "roomIds=" + id).collect(Collectors.joining("&"));
+
+        Result result = get(String.format("/app/calendar/%d/slots?%s", exam.getId(), ids));
+        assertThat(result.status()).isEqualTo(Helpers.OK);
+        assertThat(result.contentType().orElseThrow()).isEqualTo("application/x-ndjson");
+        // One line per room, in the order they got done
+        Map<Long, JsonNode> slots = new HashMap<>();
+        String body = contentAsString(result, app.injector().instanceOf(Materializer.class));
+        for (String line : body.trim().split("\n")) {
+            JsonNode node = Json.parse(line);
+            slots.put(node.get("roomId").asLong(), node.get("slots"));
+        }
+        assertThat(slots.keySet()).isEqualTo(new HashSet<>(roomIds));
+        assertThat(slots.get(room.getId())).isNotEmpty();
+    }
+
+    @Test
+    @RunAsStudent
+    @QueryBudget(40)
     public void testCreateReservation() throws Exception {
         // Setup
         // Private exam
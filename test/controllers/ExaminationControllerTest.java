@@ -8,6 +8,7 @@ import static org.fest.assertions.Assertions.assertThat;
 import static play.test.Helpers.contentAsString;
 
 import base.IntegrationTestCase;
+import base.QueryBudget;
 import base.RunAsStudent;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
@@ -21,6 +22,8 @@ import jakarta.mail.internet.MimeMessage;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import miscellaneous.datetime.DateTimeHandler;
+import miscellaneous.scheduling.ExamDeadlineQueue;
 import models.assessment.AutoEvaluationConfig;
 import models.assessment.GradeEvaluation;
 import models.enrolment.ExamEnrolment;
@@ -44,6 +47,7 @@ import org.junit.Test;
 import play.libs.Json;
 import play.mvc.Result;
 import play.test.Helpers;
+import repository.ExaminationRepository;
 
 public class ExaminationControllerTest extends IntegrationTestCase {
 
@@ -119,6 +123,7 @@ public class ExaminationControllerTest extends IntegrationTestCase {
 
     @Test
     @RunAsStudent
+    @QueryBudget(150)
     public void testCreateStudentExam() {
         // Execute
         Exam studentExam = prepareExamination();
@@ -149,6 +154,103 @@ public class ExaminationControllerTest extends IntegrationTestCase {
         assertThat(participation.getUser().getId()).isEqualTo(user.getId());
     }
 
+    @Test
+    @RunAsStudent
+    public void testStudentCopyKeepsQuestions() {
+        Exam studentExam = DB.find(Exam.class, prepareExamination().getId());
+        List<ExamSectionQuestion> originals = exam
+            .getExamSections()
+            .stream()
+            .filter(es -> !es.isOptional() && !es.isLotteryOn())
+            .flatMap(es -> es.getSectionQuestions().stream())
+            .toList();
+        List<ExamSectionQuestion> copies = studentExam
+            .getExamSections()
+            .stream()
+            .filter(es -> !es.isLotteryOn())
+            .flatMap(es -> es.getSectionQuestions().stream())
+            .toList();
+        assertThat(originals).isNotEmpty();
+        assertThat(copies).hasSize(originals.size());
+        for (ExamSectionQuestion copy : copies) {
+            Question question = copy.getQuestion();
+            ExamSectionQuestion original = originals
+                .stream()
+                .filter(esq -> esq.getQuestion().equals(question.getParent()))
+                .findFirst()
+                .orElseThrow();
+            assertThat(question.getId()).isNotEqualTo(original.getQuestion().getId());
+            assertThat(question.getOptions()).hasSize(original.getQuestion().getOptions().size());
+            assertThat(copy.getOptions()).hasSize(original.getOptions().size());
+            assertThat(question.getQuestionOwners()).hasSize(original.getQuestion().getQuestionOwners().size());
+            if (question.getType() == Question.Type.ClozeTestQuestion) {
+                assertThat(copy.getClozeTestAnswer()).isNotNull();
+            }
+        }
+    }
+
+    private Exam prepareUpcomingExam(ExaminationRepository repository) {
+        DateTimeHandler dateTimeHandler = app.injector().instanceOf(DateTimeHandler.class);
+        reservation.setStartAt(dateTimeHandler.adjustDST(DateTime.now()).plusMinutes(5));
+        reservation.update();
+        assertThat(repository.prepareUpcomingExams(30, 10)).isEqualTo(1);
+        ExamEnrolment ee = DB.find(ExamEnrolment.class, enrolment.getId());
+        assertThat(ee.getPreparedExam()).isNotNull();
+        assertThat(ee.getExam().getId()).isEqualTo(exam.getId());
+        return DB.find(Exam.class, ee.getPreparedExam().getId());
+    }
+
+    @Test
+    @RunAsStudent
+    public void testTakeOverPreparedExam() {
+        ExaminationRepository repository = app.injector().instanceOf(ExaminationRepository.class);
+        Exam prepared = prepareUpcomingExam(repository);
+        assertThat(prepared.getState()).isEqualTo(Exam.State.INITIALIZED);
+        assertThat(prepared.getParent().getId()).isEqualTo(exam.getId());
+        // Prepared only once
+        assertThat(repository.prepareUpcomingExams(30, 10)).isEqualTo(0);
+
+        // Reservation starts
+        reservation.setStartAt(DateTime.now().minusMinutes(10));
+        reservation.update();
+        Exam studentExam = prepareExamination();
+        assertThat(studentExam.getId()).isEqualTo(prepared.getId());
+        ExamEnrolment ee = DB.find(ExamEnrolment.class, enrolment.getId());
+        assertThat(ee.getPreparedExam()).isNull();
+        assertThat(ee.getExam().getId()).isEqualTo(prepared.getId());
+        repository.discardUnusedPreparedExams();
+        assertThat(DB.find(Exam.class, prepared.getId()).getState()).isEqualTo(Exam.State.STUDENT_STARTED);
+    }
+
+    @Test
+    @RunAsStudent
+    public void testDiscardPreparedExam() {
+        ExaminationRepository repository = app.injector().instanceOf(ExaminationRepository.class);
+        Exam prepared = prepareUpcomingExam(repository);
+
+        // Question of the exam gets edited
+        Question question = exam
+            .getExamSections()
+            .stream()
+            .flatMap(es -> es.getSectionQuestions().stream())
+            .findFirst()
+            .orElseThrow()
+            .getQuestion();
+        repository.discardPreparedExamsByQuestion(question.getId());
+        assertThat(DB.find(ExamEnrolment.class, enrolment.getId()).getPreparedExam()).isNull();
+        repository.discardUnusedPreparedExams();
+        assertThat(DB.find(Exam.class, prepared.getId()).getState()).isEqualTo(Exam.State.DELETED);
+
+        // Prepared anew, but the reservation ends without the exam having been started
+        prepared = prepareUpcomingExam(repository);
+        reservation.setStartAt(DateTime.now().minusHours(2));
+        reservation.setEndAt(DateTime.now().minusHours(1));
+        reservation.update();
+        repository.discardUnusedPreparedExams();
+        assertThat(DB.find(ExamEnrolment.class, enrolment.getId()).getPreparedExam()).isNull();
+        assertThat(DB.find(Exam.class, prepared.getId()).getState()).isEqualTo(Exam.State.DELETED);
+    }
+
     @Test
     @RunAsStudent
     public void testAnswerMultiChoiceQuestion() {
@@ -348,6 +450,28 @@ public class ExaminationControllerTest extends IntegrationTestCase {
         assertThat(body).doesNotContain("<a href");
     }
 
+    @Test
+    @RunAsStudent
+    public void testTurnExamDropsDeadline() {
+        ExamDeadlineQueue queue = app.injector().instanceOf(ExamDeadlineQueue.class);
+        Exam studentExam = prepareExamination();
+        assertThat(queue.size()).isEqualTo(1);
+        Result result = request(Helpers.PUT, String.format("/app/student/exam/%s", studentExam.getHash()), null);
+        assertThat(result.status()).isEqualTo(Helpers.OK);
+        assertThat(queue.size()).isZero();
+    }
+
+    @Test
+    @RunAsStudent
+    public void testAbortExamDropsDeadline() {
+        ExamDeadlineQueue queue = app.injector().instanceOf(ExamDeadlineQueue.class);
+        Exam studentExam = prepareExamination();
+        assertThat(queue.size()).isEqualTo(1);
+        Result result = request(Helpers.PUT, String.format("/app/student/exam/abort/%s", studentExam.getHash()), null);
+        assertThat(result.status()).isEqualTo(Helpers.OK);
+        assertThat(queue.size()).isZero();
+    }
+
     @Test
     @RunAsStudent
     public void testCreateStudentExamWrongIP() {
@@ -13,9 +13,15 @@ import base.RunAsAdmin;
 import base.RunAsTeacher;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
+import impl.ExamScoreUpdater;
 import io.ebean.DB;
+import java.util.List;
 import models.assessment.ExamInspection;
 import models.exam.Exam;
+import models.questions.Question;
+import models.sections.ExamSection;
+import models.sections.ExamSectionQuestion;
+import models.sections.ExamSectionQuestionOption;
 import models.user.User;
 import org.junit.Before;
 import org.junit.Test;
@@ -73,4 +79,103 @@ public class ReviewControllerTest extends IntegrationTestCase {
         ArrayNode participationArray = (ArrayNode) node;
         assertThat(participationArray.size()).isEqualTo(1);
     }
+
+    private ExamSectionQuestion addWeightedQuestion() {
+        Question question = DB.find(Question.class)
+            .where()
+            .eq("type", Question.Type.WeightedMultipleChoiceQuestion)
+            .findList()
+            .getFirst();
+        ExamSection section = new ExamSection();
+        section.setName("Scored");
+        section.setExam(exam);
+        section.setSequenceNumber(0);
+        section.setLotteryItemCount(1);
+        section.setCreatorWithDate(DB.find(User.class, userId));
+        section.save();
+        ExamSectionQuestion esq = new ExamSectionQuestion();
+        esq.setExamSection(section);
+        esq.setQuestion(question);
+        esq.setNegativeScoreAllowed(true);
+        esq.save();
+        question
+            .getOptions()
+            .forEach(o -> {
+                ExamSectionQuestionOption esqo = new ExamSectionQuestionOption();
+                esqo.setOption(o);
+                esqo.setScore(o.getDefaultScore());
+                esqo.setExamSectionQuestion(esq);
+                esqo.save();
+            });
+        return DB.find(ExamSectionQuestion.class, esq.getId());
+    }
+
+    private Exam findScored() {
+        return DB.find(Exam.class, exam.getId());
+    }
+
+    @Test
+    @RunAsTeacher
+    public void testUpdateScores() {
+        ExamSectionQuestion esq = addWeightedQuestion();
+        ExamScoreUpdater updater = app.injector().instanceOf(ExamScoreUpdater.class);
+        updater.update(List.of(exam.getId()));
+        Exam scored = findScored();
+        assertThat(scored.hasScores()).isTrue();
+        assertThat(scored.getTotalScore()).isEqualTo(0.0);
+        assertThat(scored.getMaxScore()).isEqualTo(2.0);
+
+        // Student answers, total changes once the section gets updated
+        esq
+            .getOptions()
+            .stream()
+            .filter(o -> o.getScore() > 0)
+            .findFirst()
+            .orElseThrow()
+            .setAnswered(true);
+        esq.getOptions().forEach(ExamSectionQuestionOption::update);
+        assertThat(findScored().getTotalScore()).isEqualTo(0.0);
+        updater.update(esq);
+        assertThat(findScored().getTotalScore()).isEqualTo(1.0);
+        assertThat(findScored().getMaxScore()).isEqualTo(2.0);
+    }
+
+    @Test
+    @RunAsTeacher
+    public void testInvalidateScores() {
+        ExamSectionQuestion esq = addWeightedQuestion();
+        ExamScoreUpdater updater = app.injector().instanceOf(ExamScoreUpdater.class);
+        updater.update(List.of(exam.getId()));
+        assertThat(findScored().hasScores()).isTrue();
+
+        updater.invalidateByQuestion(esq.getQuestion().getId());
+        assertThat(findScored().hasScores()).isFalse();
+        assertThat(updater.updateOutdated(1000)).isGreaterThan(0);
+        assertThat(findScored().hasScores()).isTrue();
+    }
+
+    @Test
+    @RunAsTeacher
+    public void getExamReviewsWithStoredScores() {
+        ExamSectionQuestion esq = addWeightedQuestion();
+        esq.getOptions().forEach(o -> {
+            o.setAnswered(true);
+            o.update();
+        });
+
+        // Scores get stored when listed the first time
+        Result result = get("/app/reviews/" + exam.getParent().getId());
+        assertThat(result.status()).isEqualTo(200);
+        JsonNode listed = Json.parse(contentAsString(result)).get(0).path("exam");
+        assertThat(listed.path("totalScore").asDouble()).isEqualTo(1.0);
+        assertThat(listed.path("maxScore").asDouble()).isEqualTo(2.0);
+        assertThat(listed.has("examSections")).isFalse();
+        assertThat(findScored().hasScores()).isTrue();
+
+        result = get("/app/reviews/" + exam.getParent().getId() + "?details=true");
+        assertThat(result.status()).isEqualTo(200);
+        listed = Json.parse(contentAsString(result)).get(0).path("exam");
+        assertThat(listed.path("totalScore").asDouble()).isEqualTo(1.0);
+        assertThat(listed.path("examSections")).hasSize(1);
+    }
 }
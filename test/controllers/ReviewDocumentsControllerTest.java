@@ -0,0 +1,183 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package controllers;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static play.test.Helpers.contentAsBytes;
+import static play.test.Helpers.contentAsString;
+
+import base.IntegrationTestCase;
+import base.RunAsTeacher;
+import com.fasterxml.jackson.databind.JsonNode;
+import io.ebean.DB;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import models.exam.Exam;
+import models.exam.Grade;
+import models.exam.GradeScale;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.pekko.stream.Materializer;
+import org.apache.pekko.stream.javadsl.FileIO;
+import org.apache.pekko.stream.javadsl.Source;
+import org.apache.pekko.util.ByteString;
+import org.junit.Before;
+import org.junit.Test;
+import play.libs.Json;
+import play.mvc.Http;
+import play.mvc.Result;
+import play.test.Helpers;
+
+public class ReviewDocumentsControllerTest extends IntegrationTestCase {
+
+    private static final String HEADER = "exam id,grade,feedback,total score,student,student id";
+
+    private Exam exam;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        exam = DB.find(Exam.class).where().eq("name", "Algoritmit, 2013").isNotNull("parent").findOne();
+        exam.setState(Exam.State.REVIEW);
+        exam.update();
+    }
+
+    @Test
+    @RunAsTeacher
+    public void testGetArchivedAttachmentsRaw() throws Exception {
+        Result result = get(String.format("/app/exam/%d/attachments?raw=true", exam.getParent().getId()));
+        assertThat(result.status()).isEqualTo(Http.Status.OK);
+        assertThat(result.contentType().orElseThrow()).isEqualTo("application/gzip");
+        assertThat(readEntries(getBody(result))).contains("summary.txt");
+    }
+
+    @Test
+    @RunAsTeacher
+    public void testGetArchivedAttachmentsAsBase64() throws Exception {
+        Result result = get(String.format("/app/exam/%d/attachments", exam.getParent().getId()));
+        assertThat(result.status()).isEqualTo(Http.Status.OK);
+        assertThat(result.contentType().orElseThrow()).isEqualTo("text/plain");
+        byte[] archive = Base64.getDecoder().decode(getBody(result));
+        assertThat(readEntries(archive)).contains("summary.txt");
+    }
+
+    @Test
+    @RunAsTeacher
+    public void testImportGrades() throws Exception {
+        Exam other = DB.find(Exam.class).where().isNotNull("parent").ne("id", exam.getId()).setMaxRows(1).findOne();
+        other.setState(Exam.State.GRADED);
+        other.update();
+        String csv = String.join(
+            "\n",
+            HEADER,
+            String.format("%d,%s,Well done", exam.getId(), getGradeName(exam)),
+            String.format("%d,%s", exam.getId(), getGradeName(exam)),
+            String.format("%d,%s", other.getId(), getGradeName(other)),
+            String.format("%d,no such grade", exam.getId()),
+            "x,1",
+            "1"
+        );
+        Result result = importGrades(csv);
+        assertThat(result.status()).isEqualTo(Http.Status.OK);
+        JsonNode rows = Json.parse(contentAsString(result));
+        assertThat(rows).hasSize(6);
+        assertThat(outcomes(rows)).isEqualTo(
+            List.of("GRADED", "DUPLICATE_ROW", "EXAM_NOT_FOUND", "DUPLICATE_ROW", "INVALID_ROW", "INVALID_ROW")
+        );
+        assertThat(rows.get(0).get("row").asInt()).isEqualTo(2);
+        Exam graded = DB.find(Exam.class, exam.getId());
+        assertThat(graded.getState()).isEqualTo(Exam.State.GRADED);
+        assertThat(graded.getGrade().getName()).isEqualTo(getGradeName(exam));
+        assertThat(graded.getExamFeedback().getComment()).contains("Well done");
+    }
+
+    @Test
+    @RunAsTeacher
+    public void testImportGradesRollsBackAll() throws Exception {
+        Exam other = DB.find(Exam.class).where().isNotNull("parent").ne("id", exam.getId()).setMaxRows(1).findOne();
+        other.setState(Exam.State.REVIEW);
+        other.update();
+        String csv = String.join(
+            "\n",
+            HEADER,
+            String.format("%d,%s,Well done", exam.getId(), getGradeName(exam)),
+            String.format("%d,%s,Rejected by the database", other.getId(), getGradeName(other))
+        );
+        // Writing the second row fails, the first one is not to be applied either
+        DB.sqlUpdate(
+            "ALTER TABLE comment ADD CONSTRAINT test_rejected CHECK (comment NOT LIKE '%Rejected%')"
+        ).execute();
+        try {
+            Result result = importGrades(csv);
+            assertThat(result.status()).isEqualTo(Http.Status.INTERNAL_SERVER_ERROR);
+        } finally {
+            DB.sqlUpdate("ALTER TABLE comment DROP CONSTRAINT test_rejected").execute();
+        }
+        assertThat(DB.find(Exam.class, exam.getId()).getState()).isEqualTo(Exam.State.REVIEW);
+        assertThat(DB.find(Exam.class, other.getId()).getState()).isEqualTo(Exam.State.REVIEW);
+    }
+
+    @Test
+    @RunAsTeacher
+    public void testImportGradesWithInvalidColumns() throws Exception {
+        Result result = importGrades(String.format("%d,%s", exam.getId(), getGradeName(exam)));
+        assertThat(result.status()).isEqualTo(Http.Status.BAD_REQUEST);
+        assertThat(DB.find(Exam.class, exam.getId()).getState()).isEqualTo(Exam.State.REVIEW);
+    }
+
+    private Result importGrades(String csv) throws IOException {
+        Path file = Files.createTempFile("grades", ".csv");
+        Files.writeString(file, csv);
+        Http.RequestBuilder request = getRequestBuilder(Helpers.POST, "/app/gradeimport");
+        Http.MultipartFormData.FilePart<Source<ByteString, ?>> part = new Http.MultipartFormData.FilePart<>(
+            "file",
+            "grades.csv",
+            "text/csv",
+            FileIO.fromPath(file)
+        );
+        request.bodyRaw(
+            List.of(part),
+            new play.libs.Files.SingletonTemporaryFileCreator(),
+            app.injector().instanceOf(Materializer.class)
+        );
+        return Helpers.route(app, request);
+    }
+
+    private String getGradeName(Exam exam) {
+        GradeScale scale = exam.getGradeScale() != null ? exam.getGradeScale() : exam.getCourse().getGradeScale();
+        return DB.find(Grade.class).where().eq("gradeScale", scale).setMaxRows(1).findOne().getName();
+    }
+
+    private List<String> outcomes(JsonNode rows) {
+        List<String> outcomes = new ArrayList<>();
+        rows.forEach(row -> outcomes.add(row.get("outcome").asText()));
+        return outcomes;
+    }
+
+    private byte[] getBody(Result result) {
+        return contentAsBytes(result, app.injector().instanceOf(Materializer.class)).toArray();
+    }
+
+    private List<String> readEntries(byte[] archive) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (
+            TarArchiveInputStream tis = new TarArchiveInputStream(
+                new GZIPInputStream(new ByteArrayInputStream(archive))
+            )
+        ) {
+            TarArchiveEntry entry;
+            while ((entry = tis.getNextEntry()) != null) {
+                names.add(entry.getName());
+            }
+        }
+        return names;
+    }
+}
@@ -8,6 +8,7 @@ import static org.fest.assertions.Assertions.assertThat;
 import static play.test.Helpers.contentAsString;
 
 import base.IntegrationTestCase;
+import base.QueryBudget;
 import base.RunAsAdmin;
 import base.RunAsStudent;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -80,6 +81,7 @@ public class RoomControllerTest extends IntegrationTestCase {
 
     @Test
     @RunAsStudent
+    @QueryBudget(20)
     public void testEnabledRoomVisibleToStudent() throws Exception {
         // Setup
         ExamRoom room = DB.find(ExamRoom.class, 1L);
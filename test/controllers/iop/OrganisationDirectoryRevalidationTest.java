@@ -0,0 +1,125 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package controllers.iop;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import base.IntegrationTestCase;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import helpers.RemoteServerHelper;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import miscellaneous.cache.OrganisationDirectory;
+import org.eclipse.jetty.server.Server;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import play.Application;
+import play.inject.guice.GuiceApplicationBuilder;
+import play.libs.Json;
+
+public class OrganisationDirectoryRevalidationTest extends IntegrationTestCase {
+
+    private static final String ETAG = "\"1\"";
+    private static final AtomicInteger calls = new AtomicInteger();
+    private static final AtomicInteger notModified = new AtomicInteger();
+    private static volatile boolean down;
+    private static volatile CountDownLatch revalidated;
+
+    private static Server server;
+
+    public static class OrganisationServlet extends HttpServlet {
+
+        @Override
+        protected void doGet(HttpServletRequest request, HttpServletResponse response) {
+            calls.incrementAndGet();
+            try {
+                if (down) {
+                    ObjectNode error = Json.newObject().put("message", "Service unavailable");
+                    RemoteServerHelper.writeJsonResponse(response, error, HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                } else if (ETAG.equals(request.getHeader("If-None-Match"))) {
+                    notModified.incrementAndGet();
+                    response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                } else {
+                    ArrayNode organisations = Json.newArray();
+                    organisations.addObject().put("_id", "test-org").put("name", "Test organisation");
+                    response.setHeader("ETag", ETAG);
+                    RemoteServerHelper.writeJsonResponse(response, organisations, HttpServletResponse.SC_OK);
+                }
+            } finally {
+                revalidated.countDown();
+            }
+        }
+    }
+
+    // Entries go stale right away, so that each request revalidates
+    @Override
+    protected Application provideApplication() {
+        Map<String, Object> config = Map.of(
+            "exam.integration.iop.directory.ttl",
+            "0s",
+            "exam.integration.iop.directory.staleTtl",
+            "1h"
+        );
+        return new GuiceApplicationBuilder().configure(config).build();
+    }
+
+    @BeforeClass
+    public static void startServer() throws Exception {
+        server = RemoteServerHelper.createAndStartServer(
+            31247,
+            Map.of(OrganisationServlet.class, List.of("/api/organisations"))
+        );
+    }
+
+    @AfterClass
+    public static void shutdownServer() throws Exception {
+        RemoteServerHelper.shutdownServer(server);
+    }
+
+    @Before
+    public void resetServer() {
+        calls.set(0);
+        notModified.set(0);
+        down = false;
+        revalidated = new CountDownLatch(1);
+    }
+
+    @Test
+    public void testRevalidateUnchanged() throws Exception {
+        OrganisationDirectory directory = app.injector().instanceOf(OrganisationDirectory.class);
+        assertThat(directory.getOrganisations().toCompletableFuture().get(5, TimeUnit.SECONDS)).hasSize(1);
+        assertThat(notModified.get()).isEqualTo(0);
+
+        revalidated = new CountDownLatch(1);
+        // Stale entry is served while revalidating it with the tag of the earlier response
+        assertThat(directory.getOrganisations().toCompletableFuture().get(5, TimeUnit.SECONDS)).hasSize(1);
+        assertThat(revalidated.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(calls.get()).isEqualTo(2);
+        assertThat(notModified.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testServeStaleWhileProxyIsDown() throws Exception {
+        OrganisationDirectory directory = app.injector().instanceOf(OrganisationDirectory.class);
+        assertThat(directory.getOrganisations().toCompletableFuture().get(5, TimeUnit.SECONDS)).hasSize(1);
+
+        down = true;
+        revalidated = new CountDownLatch(1);
+        assertThat(directory.getOrganisations().toCompletableFuture().get(5, TimeUnit.SECONDS)).hasSize(1);
+        assertThat(revalidated.await(5, TimeUnit.SECONDS)).isTrue();
+        // Failed revalidation leaves the entry in place
+        assertThat(directory.getOrganisations().toCompletableFuture().get(5, TimeUnit.SECONDS)).hasSize(1);
+        assertThat(calls.get()).isGreaterThanOrEqualTo(2);
+    }
+}
@@ -0,0 +1,126 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package controllers.iop;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static play.test.Helpers.contentAsString;
+
+import base.IntegrationTestCase;
+import base.RunAsStudent;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import helpers.RemoteServerHelper;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import miscellaneous.cache.FacilityCache;
+import miscellaneous.cache.OrganisationDirectory;
+import org.eclipse.jetty.server.Server;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import play.libs.Json;
+import play.mvc.Http;
+import play.mvc.Result;
+
+public class OrganisationDirectoryTest extends IntegrationTestCase {
+
+    private static final String FACILITY_REF = "0e6d16c51f857a20ab578f57f1018456";
+    private static final AtomicInteger calls = new AtomicInteger();
+
+    private static Server server;
+
+    public static class OrganisationServlet extends HttpServlet {
+
+        @Override
+        protected void doGet(HttpServletRequest request, HttpServletResponse response) {
+            calls.incrementAndGet();
+            // Slow enough for concurrent requests to overlap
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ArrayNode organisations = Json.newArray();
+            ObjectNode organisation = organisations.addObject();
+            organisation.put("_id", "test-org");
+            organisation.put("name", "Test organisation");
+            ObjectNode facility = organisation.putArray("facilities").addObject();
+            facility.put("_id", FACILITY_REF);
+            facility.put("name", "Room 1");
+            facility.put("externalPassword", "secret");
+            response.setHeader("ETag", "\"1\"");
+            RemoteServerHelper.writeJsonResponse(response, organisations, HttpServletResponse.SC_OK);
+        }
+    }
+
+    @BeforeClass
+    public static void startServer() throws Exception {
+        server = RemoteServerHelper.createAndStartServer(
+            31247,
+            Map.of(OrganisationServlet.class, List.of("/api/organisations"))
+        );
+    }
+
+    @AfterClass
+    public static void shutdownServer() throws Exception {
+        RemoteServerHelper.shutdownServer(server);
+    }
+
+    @Before
+    public void resetCalls() {
+        calls.set(0);
+    }
+
+    @Test
+    @RunAsStudent
+    public void testListOrganisations() {
+        Result result = get("/app/iop/organisations");
+        assertThat(result.status()).isEqualTo(Http.Status.OK);
+        JsonNode organisation = Json.parse(contentAsString(result)).get(0);
+        assertThat(organisation.get("homeOrg").asBoolean()).isTrue();
+        JsonNode facility = organisation.get("facilities").get(0);
+        assertThat(facility.get("externalPasswordRequired").asBoolean()).isTrue();
+        assertThat(facility.has("externalPassword")).isFalse();
+        FacilityCache facilityCache = app.injector().instanceOf(FacilityCache.class);
+        assertThat(facilityCache.getFacilityPassword(FACILITY_REF).get()).isEqualTo("secret");
+
+        // Served from the directory
+        result = get("/app/iop/organisations");
+        assertThat(result.status()).isEqualTo(Http.Status.OK);
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testCoalesceConcurrentMisses() throws Exception {
+        OrganisationDirectory directory = app.injector().instanceOf(OrganisationDirectory.class);
+        List<CompletableFuture<JsonNode>> requests = IntStream.range(0, 5)
+            .mapToObj(i -> directory.getOrganisations().toCompletableFuture())
+            .toList();
+        for (CompletableFuture<JsonNode> request : requests) {
+            assertThat(request.get(5, TimeUnit.SECONDS)).hasSize(1);
+        }
+        assertThat(calls.get()).isEqualTo(1);
+
+        directory.invalidate();
+        assertThat(directory.getOrganisations().toCompletableFuture().get(5, TimeUnit.SECONDS)).hasSize(1);
+        assertThat(calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    @RunAsStudent
+    public void testListFacilitiesOfUnknownOrganisation() {
+        Result result = get("/app/iop/facilities?org=unknown");
+        assertThat(result.status()).isEqualTo(Http.Status.INTERNAL_SERVER_ERROR);
+    }
+}
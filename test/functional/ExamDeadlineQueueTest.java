@@ -0,0 +1,128 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package functional;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import base.IntegrationTestCase;
+import io.ebean.DB;
+import java.util.List;
+import miscellaneous.scheduling.ExamDeadlineQueue;
+import models.enrolment.ExamParticipation;
+import models.enrolment.ExaminationEvent;
+import models.exam.Exam;
+import models.user.User;
+import org.apache.pekko.actor.ActorRef;
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+import play.inject.BindingKey;
+
+public class ExamDeadlineQueueTest extends IntegrationTestCase {
+
+    private ExamDeadlineQueue queue;
+    private List<Exam> exams;
+    private User user;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        DB.deleteAll(DB.find(ExamParticipation.class).findList());
+        queue = app.injector().instanceOf(ExamDeadlineQueue.class);
+        exams = DB.find(Exam.class).orderBy("id").setMaxRows(3).findList();
+        exams.forEach(e -> {
+            e.setDuration(60);
+            e.update();
+        });
+        user = DB.find(User.class).setMaxRows(1).findOne();
+    }
+
+    // Participations on examination events have no DST adjustment to account for
+    private ExamParticipation createParticipation(Exam exam, DateTime start) {
+        ExaminationEvent event = new ExaminationEvent();
+        event.setStart(start);
+        event.save();
+        ExamParticipation participation = new ExamParticipation();
+        participation.setExam(exam);
+        participation.setUser(user);
+        participation.setExaminationEvent(event);
+        participation.setStarted(start);
+        participation.save();
+        return participation;
+    }
+
+    private void moveStart(ExamParticipation participation, DateTime start) {
+        participation.getExaminationEvent().setStart(start);
+        participation.getExaminationEvent().update();
+    }
+
+    @Test
+    public void testPollDue() {
+        ExamParticipation expired = createParticipation(exams.get(0), DateTime.now().minusHours(2));
+        ExamParticipation ongoing = createParticipation(exams.get(1), DateTime.now());
+        queue.registerParticipation(expired);
+        queue.registerParticipation(ongoing);
+        assertThat(queue.size()).isEqualTo(2);
+
+        assertThat(queue.pollDue(DateTime.now()).size()).isEqualTo(1);
+        assertThat(queue.size()).isEqualTo(1);
+        assertThat(queue.pollDue(DateTime.now()).isEmpty()).isTrue();
+
+        assertThat(queue.pollDue(ongoing.getExaminationEvent().getStart().plusMinutes(61)).size()).isEqualTo(1);
+        assertThat(queue.size()).isZero();
+    }
+
+    @Test
+    public void testReRegisterReplacesDeadline() {
+        DateTime now = DateTime.now();
+        ExamParticipation participation = createParticipation(exams.get(0), now);
+        queue.registerParticipation(participation);
+        moveStart(participation, now.minusHours(2));
+        queue.registerParticipation(participation);
+        assertThat(queue.size()).isEqualTo(1);
+
+        // Back to the original deadline, the entry that went past due is stale
+        moveStart(participation, now);
+        queue.registerParticipation(participation);
+        assertThat(queue.pollDue(DateTime.now()).isEmpty()).isTrue();
+        assertThat(queue.size()).isEqualTo(1);
+        assertThat(queue.pollDue(now.plusMinutes(61)).size()).isEqualTo(1);
+    }
+
+    @Test
+    public void testRemove() {
+        ExamParticipation participation = createParticipation(exams.get(0), DateTime.now().minusHours(2));
+        queue.registerParticipation(participation);
+        queue.removeParticipation(participation.getId());
+        assertThat(queue.size()).isZero();
+        assertThat(queue.pollDue(DateTime.now()).isEmpty()).isTrue();
+    }
+
+    @Test
+    public void testResync() throws Exception {
+        ExamParticipation expired = createParticipation(exams.get(0), DateTime.now().minusHours(2));
+        ExamParticipation ongoing = createParticipation(exams.get(1), DateTime.now());
+        // Turned in already, should get dropped
+        ExamParticipation ended = createParticipation(exams.get(2), DateTime.now());
+        queue.registerParticipation(ended);
+        ended.setEnded(DateTime.now());
+        ended.update();
+
+        // First tick of the actor synchronizes the queue with the database
+        ActorRef actor = app
+            .injector()
+            .instanceOf(new BindingKey<>(ActorRef.class).qualifiedWith("exam-auto-saver-actor"));
+        actor.tell("tick", ActorRef.noSender());
+        long deadline = System.currentTimeMillis() + 10000;
+        while (DB.find(ExamParticipation.class, expired.getId()).getEnded() == null) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(100);
+        }
+        assertThat(DB.find(ExamParticipation.class, ongoing.getId()).getEnded()).isNull();
+        assertThat(queue.size()).isEqualTo(1);
+        assertThat(queue.pollDue(DateTime.now().plusMinutes(61)).size()).isEqualTo(1);
+    }
+}
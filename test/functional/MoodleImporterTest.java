@@ -9,10 +9,23 @@ import static play.test.Helpers.running;
 
 import base.IntegrationTestCase;
 import base.RunAsAdmin;
+import io.ebean.DB;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import miscellaneous.xml.MoodleXmlExporter;
 import miscellaneous.xml.MoodleXmlImporter;
+import models.questions.MultipleChoiceOption;
+import models.questions.Question;
+import models.questions.Tag;
 import models.user.User;
 import org.junit.Test;
 import scala.jdk.javaapi.CollectionConverters;
@@ -22,11 +35,11 @@ public class MoodleImporterTest extends IntegrationTestCase {
     @Test
     @RunAsAdmin
     public void testImportEssayQuestion() throws IOException {
-        String content = Files.readString(Path.of("test/resources/essay-quiz.xml"));
+        byte[] content = Files.readAllBytes(Path.of("test/resources/essay-quiz.xml"));
         User user = getLoggerUser();
         running(app, () -> {
             MoodleXmlImporter converter = app.injector().instanceOf(MoodleXmlImporter.class);
-            var report = converter.convert(content, user);
+            var report = converter.convert(new ByteArrayInputStream(content), user);
             var questions = CollectionConverters.asJava(report._1);
             var errors = CollectionConverters.asJava(report._2);
             assertThat(questions).hasSize(1);
@@ -38,11 +51,11 @@ public class MoodleImporterTest extends IntegrationTestCase {
     @Test
     @RunAsAdmin
     public void testImportEssayQuestionPlainText() throws IOException {
-        String content = Files.readString(Path.of("test/resources/essay-quiz2.xml"));
+        byte[] content = Files.readAllBytes(Path.of("test/resources/essay-quiz2.xml"));
         User user = getLoggerUser();
         running(app, () -> {
             MoodleXmlImporter converter = app.injector().instanceOf(MoodleXmlImporter.class);
-            var report = converter.convert(content, user);
+            var report = converter.convert(new ByteArrayInputStream(content), user);
             var questions = CollectionConverters.asJava(report._1);
             var errors = CollectionConverters.asJava(report._2);
             assertThat(questions).hasSize(1);
@@ -54,11 +67,11 @@ public class MoodleImporterTest extends IntegrationTestCase {
     @Test
     @RunAsAdmin
     public void testImportMultichoiceQuestion() throws IOException {
-        String content = Files.readString(Path.of("test/resources/multichoice-quiz.xml"));
+        byte[] content = Files.readAllBytes(Path.of("test/resources/multichoice-quiz.xml"));
         User user = getLoggerUser();
         running(app, () -> {
             MoodleXmlImporter converter = app.injector().instanceOf(MoodleXmlImporter.class);
-            var report = converter.convert(content, user);
+            var report = converter.convert(new ByteArrayInputStream(content), user);
             var questions = CollectionConverters.asJava(report._1);
             var errors = CollectionConverters.asJava(report._2);
             assertThat(questions).hasSize(1);
@@ -70,11 +83,11 @@ public class MoodleImporterTest extends IntegrationTestCase {
     @Test
     @RunAsAdmin
     public void testImportWeightedMultichoiceQuestion() throws IOException {
-        String content = Files.readString(Path.of("test/resources/weighted-multichoice-quiz.xml"));
+        byte[] content = Files.readAllBytes(Path.of("test/resources/weighted-multichoice-quiz.xml"));
         User user = getLoggerUser();
         running(app, () -> {
             MoodleXmlImporter converter = app.injector().instanceOf(MoodleXmlImporter.class);
-            var report = converter.convert(content, user);
+            var report = converter.convert(new ByteArrayInputStream(content), user);
             var questions = CollectionConverters.asJava(report._1);
             var errors = CollectionConverters.asJava(report._2);
             assertThat(questions).hasSize(1);
@@ -82,4 +95,125 @@ public class MoodleImporterTest extends IntegrationTestCase {
             assertThat(errors).isEmpty();
         });
     }
+
+    @Test
+    @RunAsAdmin
+    public void testImportAttachmentSpanningChunks() throws IOException {
+        byte[] data = new byte[50 * 1024];
+        new Random(1).nextBytes(data);
+        // Line breaks at odd places, as some exporters wrap the encoded content
+        String encoded = Base64.getEncoder().encodeToString(data).replaceAll("(.{75})", "$1\n");
+        String question = essay("Attached", "attachments").replace(
+            "</questiontext>",
+            "<file name=\"data.bin\" path=\"/\" encoding=\"base64\">" + encoded + "</file></questiontext>"
+        );
+        User user = getLoggerUser();
+        MoodleXmlImporter converter = app.injector().instanceOf(MoodleXmlImporter.class);
+        var report = converter.convert(new ByteArrayInputStream(quiz(question)), user);
+        var questions = CollectionConverters.asJava(report._1);
+        assertThat(questions).hasSize(1);
+        Question imported = DB.find(Question.class, questions.getFirst().getId());
+        assertThat(imported.getAttachment()).isNotNull();
+        assertThat(Files.readAllBytes(Path.of(imported.getAttachment().getFilePath()))).isEqualTo(data);
+    }
+
+    @Test
+    @RunAsAdmin
+    public void testImportSeveralBatches() {
+        String questions = IntStream.range(0, 120)
+            .mapToObj(i -> essay("Question " + i, i % 2 == 0 ? "even" : "odd"))
+            .collect(Collectors.joining());
+        User user = getLoggerUser();
+        MoodleXmlImporter converter = app.injector().instanceOf(MoodleXmlImporter.class);
+        var report = converter.convert(new ByteArrayInputStream(quiz(questions)), user);
+        assertThat(CollectionConverters.asJava(report._1)).hasSize(120);
+        assertThat(CollectionConverters.asJava(report._2)).isEmpty();
+        // Tags created in the first batch are shared by the questions of later ones
+        assertThat(DB.find(Tag.class).where().eq("creator", user).in("name", "even", "odd").findCount()).isEqualTo(2);
+        assertThat(DB.find(Question.class).where().eq("tags.name", "odd").findCount()).isEqualTo(60);
+    }
+
+    @Test
+    @RunAsAdmin
+    public void testTagsOfFailedQuestionAreNotSaved() {
+        // No correct option, a single choice question can not be converted
+        String invalid = """
+            <question type="multichoice">
+                <questiontext format="html"><text><![CDATA[<p>Invalid</p>]]></text></questiontext>
+                <defaultgrade>1</defaultgrade>
+                <single>true</single>
+                <tags><tag><text>orphan</text></tag></tags>
+                <answer fraction="0" format="html"><text>wrong</text></answer>
+            </question>
+            """;
+        User user = getLoggerUser();
+        MoodleXmlImporter converter = app.injector().instanceOf(MoodleXmlImporter.class);
+        var report = converter.convert(new ByteArrayInputStream(quiz(invalid + essay("Valid", "kept"))), user);
+        assertThat(CollectionConverters.asJava(report._1)).hasSize(1);
+        assertThat(CollectionConverters.asJava(report._2)).hasSize(1);
+        assertThat(DB.find(Tag.class).where().eq("name", "orphan").findCount()).isEqualTo(0);
+        assertThat(DB.find(Tag.class).where().eq("name", "kept").findCount()).isEqualTo(1);
+    }
+
+    @Test
+    @RunAsAdmin
+    public void testImportExported() {
+        List<Question> originals = DB.find(Question.class)
+            .where()
+            .in(
+                "type",
+                Question.Type.EssayQuestion,
+                Question.Type.MultipleChoiceQuestion,
+                Question.Type.WeightedMultipleChoiceQuestion
+            )
+            .isNull("parent")
+            .orderBy("id")
+            .findList()
+            .stream()
+            // A single choice question needs its correct option
+            .filter(
+                q ->
+                    q.getType() != Question.Type.MultipleChoiceQuestion ||
+                    q.getOptions().stream().anyMatch(MultipleChoiceOption::isCorrectOption)
+            )
+            .toList();
+        assertThat(originals).isNotEmpty();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MoodleXmlExporter exporter = app.injector().instanceOf(MoodleXmlExporter.class);
+        exporter.write(CollectionConverters.asScala(originals.iterator()), out);
+
+        User user = getLoggerUser();
+        MoodleXmlImporter converter = app.injector().instanceOf(MoodleXmlImporter.class);
+        var report = converter.convert(new ByteArrayInputStream(out.toByteArray()), user);
+        var questions = CollectionConverters.asJava(report._1);
+        assertThat(CollectionConverters.asJava(report._2)).isEmpty();
+        assertThat(questions).hasSize(originals.size());
+        for (int i = 0; i < originals.size(); i++) {
+            Question original = originals.get(i);
+            Question imported = questions.get(i);
+            assertThat(imported.getType()).isEqualTo(original.getType());
+            assertThat(imported.getOptions()).hasSize(original.getOptions().size());
+            assertThat(imported.getTags()).hasSize(original.getTags().size());
+        }
+    }
+
+    private static String essay(String text, String tag) {
+        return String.format(
+            """
+            <question type="essay">
+                <questiontext format="html"><text><![CDATA[<p>%s</p>]]></text></questiontext>
+                <defaultgrade>5</defaultgrade>
+                <tags><tag><text>%s</text></tag></tags>
+            </question>
+            """,
+            text,
+            tag
+        );
+    }
+
+    private static byte[] quiz(String questions) {
+        return ("<?xml version=\"1.0\" encoding=\"UTF-8\"?><quiz>" + questions + "</quiz>").getBytes(
+            StandardCharsets.UTF_8
+        );
+    }
 }
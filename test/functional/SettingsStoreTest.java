@@ -0,0 +1,108 @@
+// SPDX-FileCopyrightText: 2024 The members of the EXAM Consortium
+//
+// SPDX-License-Identifier: EUPL-1.2
+
+package functional;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import base.IntegrationTestCase;
+import io.ebean.DB;
+import java.util.Map;
+import miscellaneous.config.SettingsStore;
+import models.admin.GeneralSettings;
+import org.junit.Test;
+import play.Application;
+import play.inject.guice.GuiceApplicationBuilder;
+
+public class SettingsStoreTest extends IntegrationTestCase {
+
+    private static final String NAME = "test_setting";
+
+    @Override
+    protected Application provideApplication() {
+        return new GuiceApplicationBuilder()
+            .configure(Map.of("exam.settings.cache.notifications.enabled", true))
+            .build();
+    }
+
+    private SettingsStore store() {
+        return app.injector().instanceOf(SettingsStore.class);
+    }
+
+    // Changes the stored value behind the back of the store
+    private void overwrite(String value) {
+        DB.sqlUpdate("UPDATE general_settings SET value = :value WHERE name = :name")
+            .setParameter("value", value)
+            .setParameter("name", NAME)
+            .execute();
+    }
+
+    @Test
+    public void testGetServesFromCache() {
+        SettingsStore store = store();
+        // Stored directly, so that no change notification is sent
+        GeneralSettings gs = new GeneralSettings();
+        gs.setName(NAME);
+        gs.setValue("a");
+        gs.save();
+
+        // Miss loads from the database, hit does not see the change made behind the store
+        assertThat(store.get(NAME).getValue()).isEqualTo("a");
+        overwrite("b");
+        assertThat(store.get(NAME).getValue()).isEqualTo("a");
+
+        store.invalidate();
+        assertThat(store.get(NAME).getValue()).isEqualTo("b");
+    }
+
+    @Test
+    public void testGetReturnsCopies() {
+        SettingsStore store = store();
+        store.set(NAME, "a");
+        GeneralSettings gs = store.get(NAME);
+        gs.setValue("changed");
+        assertThat(store.get(NAME).getValue()).isEqualTo("a");
+        assertThat(store.get(NAME).getId()).isEqualTo(gs.getId());
+    }
+
+    @Test
+    public void testSetRefreshesCache() {
+        SettingsStore store = store();
+        assertThat(store.get(NAME).getId()).isNull();
+        store.set(NAME, "a");
+        assertThat(store.get(NAME).getValue()).isEqualTo("a");
+        store.set(NAME, "b");
+        assertThat(store.get(NAME).getValue()).isEqualTo("b");
+        assertThat(DB.find(GeneralSettings.class).where().eq("name", NAME).findOne().getValue()).isEqualTo("b");
+    }
+
+    @Test
+    public void testGetOrCreateRefreshesCache() {
+        SettingsStore store = store();
+        assertThat(store.get(NAME).getId()).isNull();
+        assertThat(store.getOrCreate(NAME, "5").getValue()).isEqualTo("5");
+        GeneralSettings gs = store.get(NAME);
+        assertThat(gs.getId()).isNotNull();
+        assertThat(gs.getValue()).isEqualTo("5");
+        // Default does not replace a stored value
+        assertThat(store.getOrCreate(NAME, "6").getValue()).isEqualTo("5");
+    }
+
+    @Test
+    public void testNotificationInvalidatesCache() throws Exception {
+        SettingsStore store = store();
+        store.set(NAME, "a");
+        assertThat(store.get(NAME).getValue()).isEqualTo("a");
+
+        // As if another node had changed the setting
+        overwrite("b");
+        long deadline = System.currentTimeMillis() + 15000;
+        while (!"b".equals(store.get(NAME).getValue()) && System.currentTimeMillis() < deadline) {
+            // Listener starts in the background, keep notifying until it has started listening
+            DB.sqlUpdate("NOTIFY exam_general_settings").execute();
+            Thread.sleep(200);
+        }
+        assertThat(store.get(NAME).getValue()).isEqualTo("b");
+    }
+}
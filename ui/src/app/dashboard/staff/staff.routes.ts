@@ -54,12 +54,15 @@ const buildTitle = (key: string, extraPart = ''): Observable<string> => {
     return tx.get(key).pipe(map(() => `${tx.instant(key)}${extra} - EXAM`));
 };
 
-const reviewListResolver = (route: ActivatedRouteSnapshot) => {
+const resolveReviews = (route: ActivatedRouteSnapshot, details: boolean) => {
     const id = route.pathFromRoot[3].params.id; // hacky yes
     const isCollab = inject(ExamTabService).isCollaborative() || route.queryParamMap.get('collaborative') === 'true';
-    return inject(ReviewListService).getReviews$(id, isCollab);
+    return inject(ReviewListService).getReviews$(id, isCollab, details);
 };
 
+const reviewListResolver = (route: ActivatedRouteSnapshot) => resolveReviews(route, false);
+const reviewSummaryResolver = (route: ActivatedRouteSnapshot) => resolveReviews(route, true);
+
 export const STAFF_ROUTES: Route[] = [
     {
         path: '',
@@ -138,7 +141,7 @@ export const STAFF_ROUTES: Route[] = [
                             import('../../review/listing/summary/exam-summary.component').then(
                                 (mod) => mod.ExamSummaryComponent,
                             ),
-                        resolve: { reviews: reviewListResolver },
+                        resolve: { reviews: reviewSummaryResolver },
                         title: () => buildTitle('i18n_exam_summary_title'),
                     },
                 ],
@@ -117,5 +117,8 @@ export class PrintoutComponent implements OnInit {
     print = () => window.print();
 
     printAttachment = () =>
-        this.Files.download('/app/attachment/exam/' + this.exam.id, (this.exam.attachment as Attachment).fileName);
+        this.Files.downloadBinary(
+            '/app/attachment/exam/' + this.exam.id,
+            (this.exam.attachment as Attachment).fileName,
+        );
 }
@@ -10,6 +10,8 @@ import { environment } from 'src/environments/environment';
 @Injectable({ providedIn: 'root' })
 export class AuthInterceptor implements HttpInterceptor {
     private sebApi: SebApiService = inject(SebApiService);
+    // Identifies this tab so that its answer saves are not mixed with those of other tabs
+    private clientId = crypto.randomUUID();
 
     intercept(req: HttpRequest<unknown>, next: HttpHandler) {
         // Check if configKey has changed (will update tracking if so)
@@ -30,7 +32,8 @@ export class AuthInterceptor implements HttpInterceptor {
         let headers = req.headers
             .set('Cache-Control', 'no-cache;no-store')
             .set('Pragma', 'no-cache')
-            .set('Expires', '0');
+            .set('Expires', '0')
+            .set('X-Exam-Client-Id', this.clientId);
 
         // Only set CSRF token in development
         if (!environment.production) {
@@ -81,7 +81,10 @@ export class InProgressReviewsComponent implements OnInit {
                 keyboard: true,
             })
             .result.then((params: { $value: { start: string; end: string } }) =>
-                this.Files.download(`/app/exam/${this.exam.id}/attachments`, `${this.exam.id}.tar.gz`, params.$value),
+                this.Files.downloadBinary(`/app/exam/${this.exam.id}/attachments`, `${this.exam.id}.tar.gz`, {
+                    ...params.$value,
+                    raw: 'true',
+                }),
             )
             .catch(noop);
 }
@@ -115,8 +115,11 @@ export class ReviewListService {
     sendToArchive$ = (review: ExamParticipation, examId?: number) => this.send$(review, 'ARCHIVED', examId);
     sendToRegistry$ = (review: ExamParticipation, examId?: number) => this.send$(review, 'GRADED_LOGGED', examId);
 
-    getReviews$ = (examId: number, collaborative = false) =>
-        this.http.get<ExamParticipation[]>(this.getResource(examId, collaborative));
+    // Details include the section questions and answers of each review, needed for the exam summary
+    getReviews$ = (examId: number, collaborative = false, details = false) =>
+        this.http.get<ExamParticipation[]>(this.getResource(examId, collaborative), {
+            params: details && !collaborative ? { details: 'true' } : {},
+        });
 
     diffInMinutes = (from: string, to: string) => {
         const diff = (new Date(to).getTime() - new Date(from).getTime()) / 1000 / 60;
@@ -175,9 +175,19 @@ export class SpeedReviewComponent implements OnInit {
 
     importGrades = () => {
         this.Attachment.selectFile(false, {}, 'i18n_import_grades_from_csv').then((result) => {
-            this.Files.upload('/app/gradeimport', result.$value.attachmentFile, {})
-                .then(() => {
+            this.Files.upload<{ row: number; outcome: string }[]>(
+                '/app/gradeimport',
+                result.$value.attachmentFile,
+                {},
+            )
+                .then((results) => {
                     this.toast.success(`${this.translate.instant('i18n_csv_uploaded_successfully')}`);
+                    const skipped = results.filter((r) => r.outcome !== 'GRADED').map((r) => r.row);
+                    if (skipped.length > 0) {
+                        this.toast.warning(
+                            `${this.translate.instant('i18n_csv_rows_not_imported')}: ${skipped.join(', ')}`,
+                        );
+                    }
                     this.reload();
                 })
                 .catch(() => {
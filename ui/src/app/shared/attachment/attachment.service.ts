@@ -128,7 +128,7 @@ export class AttachmentService {
 
     downloadExternalQuestionAttachment(exam: Exam, sq: ExamSectionQuestion) {
         if (sq.question.attachment) {
-            this.Files.download(
+            this.Files.downloadBinary(
                 `/app/iop/attachment/exam/${exam.hash}/question/${sq.id}`,
                 sq.question.attachment.fileName,
             );
@@ -137,13 +137,13 @@ export class AttachmentService {
 
     downloadQuestionAttachment(question: Partial<Question>) {
         if (question.attachment && question.attachment.id) {
-            this.Files.download('/app/attachment/question/' + question.id, question.attachment.fileName);
+            this.Files.downloadBinary('/app/attachment/question/' + question.id, question.attachment.fileName);
         }
     }
 
     downloadCollaborativeQuestionAttachment(examId: number, sq: ExamSectionQuestion) {
         if (sq.question.attachment && sq.question.attachment.externalId) {
-            this.Files.download(
+            this.Files.downloadBinary(
                 `/app/iop/collab/attachment/exam/${examId}/question/${sq.id}`,
                 sq.question.attachment.fileName,
             );
@@ -152,7 +152,7 @@ export class AttachmentService {
 
     downloadQuestionAnswerAttachment(question: AnsweredQuestion | ReviewQuestion) {
         if (question.essayAnswer.attachment) {
-            this.Files.download(
+            this.Files.downloadBinary(
                 `/app/attachment/question/${question.id}/answer`,
                 question.essayAnswer.attachment.fileName,
             );
@@ -160,14 +160,14 @@ export class AttachmentService {
     }
 
     downloadCollaborativeAttachment(id: string, fileName: string) {
-        this.Files.download(`/app/iop/collab/attachment/${id}`, fileName);
+        this.Files.downloadBinary(`/app/iop/collab/attachment/${id}`, fileName);
     }
 
     downloadExamAttachment(exam: Exam, collaborative = false) {
         if (!exam.attachment) {
             return;
         }
-        this.Files.download(
+        this.Files.downloadBinary(
             this.getResource(
                 `/app/attachment/exam/${exam.external ? exam.hash : exam.id}`,
                 exam.external,
@@ -179,7 +179,10 @@ export class AttachmentService {
 
     downloadFeedbackAttachment(exam: Exam | ReviewedExam) {
         if (exam.examFeedback?.attachment) {
-            this.Files.download('/app/attachment/exam/' + exam.id + '/feedback', exam.examFeedback.attachment.fileName);
+            this.Files.downloadBinary(
+                '/app/attachment/exam/' + exam.id + '/feedback',
+                exam.examFeedback.attachment.fileName,
+            );
         }
     }
 
@@ -187,7 +190,7 @@ export class AttachmentService {
         if (!exam.languageInspection?.statement.attachment) {
             return;
         }
-        this.Files.download(
+        this.Files.downloadBinary(
             '/app/attachment/exam/' + exam.id + '/statement',
             exam.languageInspection.statement.attachment.fileName,
         );
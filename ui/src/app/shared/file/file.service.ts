@@ -47,6 +47,21 @@ export class FileService {
             });
     }
 
+    // For endpoints serving the content unencoded, no need to buffer it as text and decode afterwards
+    downloadBinary(url: string, filename: string, params?: Record<string, string | string[]>) {
+        this.http.get(url, { responseType: 'blob', observe: 'response', params }).subscribe({
+            next: (resp: HttpResponse<Blob>) => {
+                if (resp.body) {
+                    saveAs(resp.body, filename, { autoBom: false });
+                }
+            },
+            error: (resp) => {
+                console.log('error ' + JSON.stringify(resp));
+                this.toast.error(resp.statusText || resp);
+            },
+        });
+    }
+
     getMaxFilesize$() {
         if (this.maxFileSize) {
             return of({ filesize: this.maxFileSize });